@@ -32,6 +32,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -338,6 +339,28 @@ public UpdateStatusList fixChecksums( List<ChecksumAlgorithm> algorithms )
 
     }
 
+    /**
+     * Writes the checksum files for checksum values that have already been calculated, e.g. while the
+     * reference file was streamed to its destination. The reference file is not read again, so the caller
+     * has to make sure, that the values match the current file content.
+     *
+     * @param checksumValues the hex encoded checksum values for each algorithm
+     * @return the status of the written checksum files
+     */
+    public UpdateStatusList writeChecksums( Map<ChecksumAlgorithm, String> checksumValues )
+    {
+        UpdateStatusList result = UpdateStatusList.INITIALIZE( new ArrayList<>( checksumValues.keySet( ) ) );
+        for ( Map.Entry<ChecksumAlgorithm, String> entry : checksumValues.entrySet( ) )
+        {
+            ChecksumAlgorithm checksumAlgorithm = entry.getKey( );
+            Path checksumFile = getChecksumFile( checksumAlgorithm );
+            int status = Files.exists( checksumFile ) ? UpdateStatus.UPDATED : UpdateStatus.CREATED;
+            writeChecksumFile( checksumFile, FILE_ENCODING, entry.getValue( ) );
+            result.setStatus( checksumAlgorithm, status );
+        }
+        return result;
+    }
+
     private void writeChecksumFile( Path checksumFile, Charset encoding, String checksumHex )
     {
         FileUtils.writeStringToFile( checksumFile, encoding, checksumHex + "  " + referenceFile.getFileName( ).toString( ) );
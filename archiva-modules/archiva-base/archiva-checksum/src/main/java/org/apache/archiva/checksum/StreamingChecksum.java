@@ -62,4 +62,36 @@ public static void updateChecksums( InputStream input, List<ChecksumAlgorithm> a
 
         }
     }
+
+    /**
+     * Copies the data from the input stream to the output stream and updates the checksums for the given
+     * algorithms while the data is passing. This avoids a second read pass, if the checksums of the written
+     * data are needed. The streams are not closed by this method.
+     *
+     * @param input the stream to read the data from
+     * @param output the stream where the data is written to
+     * @param algorithms the algorithms to calculate
+     * @return the finished checksums in the same order as the given algorithms
+     * @throws IOException if reading or writing of the data fails
+     */
+    public static List<Checksum> copyAndUpdate( InputStream input, OutputStream output, List<ChecksumAlgorithm> algorithms )
+        throws IOException
+    {
+        List<Checksum> checksums = ChecksumUtil.newChecksums( algorithms );
+        byte[] buffer = new byte[ChecksumUtil.BUFFER_SIZE];
+        int read;
+        while ( ( read = input.read( buffer ) ) >= 0 )
+        {
+            output.write( buffer, 0, read );
+            for ( Checksum cs : checksums )
+            {
+                cs.update( buffer, 0, read );
+            }
+        }
+        for ( Checksum cs : checksums )
+        {
+            cs.finish( );
+        }
+        return checksums;
+    }
 }
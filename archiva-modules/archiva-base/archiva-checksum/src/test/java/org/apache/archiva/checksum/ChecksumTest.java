@@ -23,10 +23,13 @@
 import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Assert;
 
@@ -112,4 +115,20 @@ public void testUpdateWholeUpdatePartial()
 
         Assert.assertEquals( "Expected", expected, actual );
     }
+
+    @Test
+    public void testCopyAndUpdate()
+        throws IOException
+    {
+        byte buf[] = ( "You know, I'm sick of following my dreams, man. "
+            + "I'm just going to ask where they're going and hook up with 'em later. - Mitch Hedberg" ).getBytes();
+        ByteArrayOutputStream output = new ByteArrayOutputStream( );
+
+        List<Checksum> checksums = StreamingChecksum.copyAndUpdate( new ByteArrayInputStream( buf ), output,
+            Arrays.asList( ChecksumAlgorithm.SHA1, ChecksumAlgorithm.MD5 ) );
+
+        Assert.assertArrayEquals( buf, output.toByteArray( ) );
+        Assert.assertEquals( "Checksum SHA1", "e396119ae0542e85a74759602fd2f81e5d36d762", checksums.get( 0 ).getChecksum() );
+        Assert.assertEquals( "Checksum MD5", "21c2c5ca87ec018adacb2e2fb3432219", checksums.get( 1 ).getChecksum() );
+    }
 }
@@ -31,6 +31,8 @@
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.junit.After;
 import org.junit.Assert;
 
@@ -312,4 +314,21 @@ public void testRemoteMetadataChecksumFilePathMd5()
             Assert.fail( "IOException should not occur." );
         }
     }
+
+    @Test
+    public void testWriteChecksumsFromCalculatedValues()
+        throws IOException, ChecksumValidationException
+    {
+        Path testableJar = createTestableJar( "examples/redback-authz-open.jar" );
+        ChecksummedFile checksummedFile = new ChecksummedFile( testableJar );
+        Map<ChecksumAlgorithm, String> values = new LinkedHashMap<>( );
+        values.put( ChecksumAlgorithm.SHA1, checksummedFile.calculateChecksum( ChecksumAlgorithm.SHA1 ) );
+        values.put( ChecksumAlgorithm.MD5, checksummedFile.calculateChecksum( ChecksumAlgorithm.MD5 ) );
+
+        UpdateStatusList status = checksummedFile.writeChecksums( values );
+
+        Assert.assertEquals( UpdateStatus.CREATED, status.getStatus( ChecksumAlgorithm.SHA1 ).getValue( ) );
+        Assert.assertEquals( UpdateStatus.CREATED, status.getStatus( ChecksumAlgorithm.MD5 ).getValue( ) );
+        Assert.assertTrue( checksummedFile.isValidChecksums( Arrays.asList( ChecksumAlgorithm.SHA1, ChecksumAlgorithm.MD5 ), true ) );
+    }
 }
@@ -0,0 +1,121 @@
+package org.apache.archiva.event;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Statistics of a registered event handler at the time of the request.
+ */
+public class EventHandlerStatistics {
+
+    private final EventType<? extends Event> type;
+    private final EventHandler<?> handler;
+    private final boolean async;
+    private final long eventCount;
+    private final long errorCount;
+    private final long totalTimeNanos;
+    private final long maxTimeNanos;
+    private final int queueSize;
+
+    public EventHandlerStatistics(EventType<? extends Event> type, EventHandler<?> handler, boolean async, long eventCount,
+                                  long errorCount, long totalTimeNanos, long maxTimeNanos, int queueSize) {
+        this.type = type;
+        this.handler = handler;
+        this.async = async;
+        this.eventCount = eventCount;
+        this.errorCount = errorCount;
+        this.totalTimeNanos = totalTimeNanos;
+        this.maxTimeNanos = maxTimeNanos;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @return the event type the handler is registered for
+     */
+    public EventType<? extends Event> getType() {
+        return type;
+    }
+
+    public EventHandler<?> getHandler() {
+        return handler;
+    }
+
+    /**
+     * @return <code>true</code>, if the events are delivered asynchronously
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return the number of events handled
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return the number of events, where the handler threw an exception
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return the time spent in the handler in nanoseconds
+     */
+    public long getTotalTimeNanos() {
+        return totalTimeNanos;
+    }
+
+    /**
+     * @return the maximum time for a single event in nanoseconds
+     */
+    public long getMaxTimeNanos() {
+        return maxTimeNanos;
+    }
+
+    /**
+     * @return the average time for a single event in nanoseconds
+     */
+    public long getAverageTimeNanos() {
+        return eventCount == 0 ? 0 : totalTimeNanos / eventCount;
+    }
+
+    /**
+     * @return the number of events waiting in the queue of a asynchronous handler, 0 for synchronous handlers
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    @Override
+    public String toString() {
+        return "EventHandlerStatistics{" +
+                "type=" + type.name() +
+                ", handler=" + handler +
+                ", async=" + async +
+                ", eventCount=" + eventCount +
+                ", errorCount=" + errorCount +
+                ", averageTimeNanos=" + getAverageTimeNanos() +
+                ", maxTimeNanos=" + maxTimeNanos +
+                ", queueSize=" + queueSize +
+                '}';
+    }
+}
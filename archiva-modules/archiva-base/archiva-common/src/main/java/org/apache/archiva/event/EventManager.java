@@ -23,14 +23,49 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Manages the event handlers of a event source and delivers the events to them.
+ * A handler is registered only once for a event type, handlers are compared by {@link Object#equals(Object)}.
+ * <p>
+ * The handlers for a event type are looked up in a dispatch table, that holds the handlers of the type and
+ * all of its super types. The table entry is created on the first event of the type and dropped, if handlers
+ * are registered or unregistered.
+ * <p>
+ * Handlers are called in the firing thread by default. Handlers registered by
+ * {@link #registerAsyncEventHandler(EventType, EventHandler)} get the events through a bounded queue, that is
+ * processed by a background thread. The events are delivered to the handler in the order they were fired, so
+ * the order of the events of a repository is kept. If the queue is full, the firing thread waits for free space.
+ */
 public class EventManager implements EventSource
 {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventManager.class);
 
-    private final ConcurrentHashMap<EventType<? extends Event>, Set<EventHandler>> handlerMap = new ConcurrentHashMap<>();
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    // Shared by all managers, the threads are only used while a queue has pending events
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "event-dispatcher-" + THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentHashMap<EventType<? extends Event>, List<Registration>> handlerMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<EventType<? extends Event>, Registration[]> dispatchTable = new ConcurrentHashMap<>();
 
     private final Object source;
 
@@ -43,16 +78,51 @@ public EventManager(Object source) {
 
     @Override
     public <T extends Event> void registerEventHandler(EventType<T> type, EventHandler<? super T> eventHandler) {
-        Set<EventHandler> handlers = handlerMap.computeIfAbsent(type, t -> new LinkedHashSet<>());
-        if (!handlers.contains(eventHandler)) {
-            handlers.add(eventHandler);
+        register(type, eventHandler, 0);
+    }
+
+    /**
+     * Registers the handler for asynchronous delivery with a queue of {@link #DEFAULT_QUEUE_SIZE} events.
+     *
+     * @param type the event type
+     * @param eventHandler the handler
+     * @param <T> the event class
+     */
+    public <T extends Event> void registerAsyncEventHandler(EventType<T> type, EventHandler<? super T> eventHandler) {
+        register(type, eventHandler, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Registers the handler for asynchronous delivery.
+     *
+     * @param type the event type
+     * @param eventHandler the handler
+     * @param queueSize the maximum number of events, that are waiting for the handler
+     * @param <T> the event class
+     */
+    public <T extends Event> void registerAsyncEventHandler(EventType<T> type, EventHandler<? super T> eventHandler, int queueSize) {
+        if (queueSize<1) {
+            throw new IllegalArgumentException("The queue size must be greater than 0");
         }
+        register(type, eventHandler, queueSize);
+    }
+
+    private synchronized void register(EventType<? extends Event> type, EventHandler<?> eventHandler, int queueSize) {
+        List<Registration> handlers = handlerMap.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>());
+        for (Registration registration : handlers) {
+            if (registration.handler.equals(eventHandler)) {
+                return;
+            }
+        }
+        handlers.add(new Registration(type, eventHandler, queueSize));
+        dispatchTable.clear();
     }
 
     @Override
-    public <T extends Event> void unregisterEventHandler(EventType<T> type, EventHandler<? super T> eventHandler) {
-        if (handlerMap.containsKey(type)) {
-            handlerMap.get(type).remove(eventHandler);
+    public synchronized <T extends Event> void unregisterEventHandler(EventType<T> type, EventHandler<? super T> eventHandler) {
+        List<Registration> handlers = handlerMap.get(type);
+        if (handlers != null && handlers.removeIf(registration -> registration.handler.equals(eventHandler))) {
+            dispatchTable.clear();
         }
     }
 
@@ -64,17 +134,127 @@ public void fireEvent(Event fireEvent) {
         } else {
             event = fireEvent;
         }
-        for (EventType<? extends Event> handlerType : handlerMap.keySet()) {
-            if (EventType.isInstanceOf(type, handlerType)) {
-                    for (EventHandler handler : handlerMap.get(handlerType)) {
-                        try {
-                            handler.handle(event);
-                        } catch (Exception e) {
-                            // We catch all errors from handlers
-                            LOG.error("An error occured during event handling: {}", e.getMessage(), e);
-                        }
-                    }
+        for (Registration registration : dispatchTable.computeIfAbsent(type, this::createDispatchEntry)) {
+            if (registration.queue == null) {
+                registration.deliver(event);
+            } else {
+                registration.enqueue(event);
+            }
+        }
+    }
+
+    /**
+     * Collects the handlers of the type and its super types. The most specific handlers are called first.
+     */
+    private Registration[] createDispatchEntry(EventType<? extends Event> type) {
+        List<Registration> result = new ArrayList<>();
+        for (EventType<?> superType : EventType.fetchSuperTypes(type)) {
+            List<Registration> handlers = handlerMap.get(superType);
+            if (handlers != null) {
+                result.addAll(handlers);
+            }
+        }
+        return result.toArray(new Registration[0]);
+    }
+
+    /**
+     * Returns the statistics of all registered handlers.
+     *
+     * @return a list of statistics, one entry for each registered handler
+     */
+    public List<EventHandlerStatistics> getHandlerStatistics() {
+        List<EventHandlerStatistics> result = new ArrayList<>();
+        for (List<Registration> handlers : handlerMap.values()) {
+            for (Registration registration : handlers) {
+                result.add(registration.getStatistics());
             }
         }
+        return result;
+    }
+
+    private static final class Registration implements Runnable {
+        private final EventType<? extends Event> type;
+        private final EventHandler handler;
+        private final BlockingQueue<Event> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile Thread drainThread;
+        private final LongAdder eventCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+        Registration(EventType<? extends Event> type, EventHandler<?> handler, int queueSize) {
+            this.type = type;
+            this.handler = handler;
+            this.queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : null;
+        }
+
+        void deliver(Event event) {
+            long start = System.nanoTime();
+            try {
+                handler.handle(event);
+            } catch (Exception e) {
+                // We catch all errors from handlers
+                errorCount.increment();
+                LOG.error("An error occured during event handling: {}", e.getMessage(), e);
+            } finally {
+                long time = System.nanoTime() - start;
+                eventCount.increment();
+                totalTime.add(time);
+                maxTime.accumulate(time);
+            }
+        }
+
+        void enqueue(Event event) {
+            if (Thread.currentThread() == drainThread) {
+                // The handler fired the event itself. Waiting for queue space would block forever,
+                // and the event has to be handled after the current one.
+                if (!queue.offer(event)) {
+                    LOG.warn("Event queue of handler {} is full, handling event {} directly", handler, event.getType().name());
+                    deliver(event);
+                }
+                return;
+            }
+            try {
+                queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted while waiting for the event queue of handler {}, event {} is dropped", handler, event.getType().name());
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                ASYNC_EXECUTOR.execute(this);
+            }
+        }
+
+        /**
+         * Delivers the queued events. Only one thread drains the queue at a time, which keeps the event order.
+         */
+        @Override
+        public void run() {
+            drainThread = Thread.currentThread();
+            try {
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    deliver(event);
+                }
+            } finally {
+                drainThread = null;
+                draining.set(false);
+            }
+            // Events may have been added after the last poll
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        EventHandlerStatistics getStatistics() {
+            return new EventHandlerStatistics(type, handler, queue != null, eventCount.sum(), errorCount.sum(),
+                    totalTime.sum(), maxTime.get(), queue == null ? 0 : queue.size());
+        }
     }
 }
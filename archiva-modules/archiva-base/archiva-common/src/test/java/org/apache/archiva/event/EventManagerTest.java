@@ -22,7 +22,10 @@
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,6 +92,53 @@ public void registerEventHandler( )
 
     }
 
+    @Test
+    public void registerEqualEventHandler( )
+    {
+        EventManager eventManager = new EventManager( this );
+        List<Event> events = new ArrayList<>( );
+        EqualHandler handler1 = new EqualHandler( events );
+        EqualHandler handler2 = new EqualHandler( events );
+
+        // handlers are compared by equals, an equal handler is registered only once
+        eventManager.registerEventHandler( testType, handler1 );
+        eventManager.registerEventHandler( testType, handler2 );
+        eventManager.fireEvent( new Event( testType, this ) );
+        assertEquals( 1, events.size( ) );
+
+        eventManager.unregisterEventHandler( testType, handler2 );
+        eventManager.fireEvent( new Event( testType, this ) );
+        assertEquals( 1, events.size( ) );
+    }
+
+    private static class EqualHandler implements EventHandler<Event> {
+
+        private final List<Event> eventList;
+
+        EqualHandler( List<Event> eventList )
+        {
+            this.eventList = eventList;
+        }
+
+        @Override
+        public void handle( Event event )
+        {
+            eventList.add( event );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            return o instanceof EqualHandler && ( (EqualHandler) o ).eventList == eventList;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return System.identityHashCode( eventList );
+        }
+    }
+
     @Test
     public void unregisterEventHandler( )
     {
@@ -137,4 +187,64 @@ public void fireEvent( )
         assertEquals( this, newEvent.getSource( ) );
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fireAsyncEvent( ) throws InterruptedException
+    {
+        EventManager eventManager = new EventManager( this );
+        CountDownLatch latch = new CountDownLatch( 100 );
+        List<Event> received = Collections.synchronizedList( new ArrayList<>( ) );
+        Thread firingThread = Thread.currentThread( );
+        List<Thread> handlerThreads = Collections.synchronizedList( new ArrayList<>( ) );
+        eventManager.registerAsyncEventHandler( testType, event -> {
+            handlerThreads.add( Thread.currentThread( ) );
+            received.add( event );
+            latch.countDown( );
+        }, 10 );
+
+        List<Event> fired = new ArrayList<>( );
+        for ( int i = 0; i < 100; i++ )
+        {
+            Event event = new Event( testTestType, this );
+            fired.add( event );
+            eventManager.fireEvent( event );
+        }
+        assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( fired, received );
+        assertFalse( handlerThreads.contains( firingThread ) );
+    }
+
+    @Test
+    public void handlerStatistics( )
+    {
+        EventManager eventManager = new EventManager( this );
+        TestHandler handler = new TestHandler( );
+        eventManager.registerEventHandler( testType, handler );
+        eventManager.registerEventHandler( otherType, event -> {
+            throw new RuntimeException( "failure" );
+        } );
+
+        eventManager.fireEvent( new Event( testType, this ) );
+        eventManager.fireEvent( new Event( testTestType, this ) );
+        eventManager.fireEvent( new Event( otherType, this ) );
+
+        List<EventHandlerStatistics> statistics = eventManager.getHandlerStatistics( );
+        assertEquals( 2, statistics.size( ) );
+        for ( EventHandlerStatistics stats : statistics )
+        {
+            assertFalse( stats.isAsync( ) );
+            assertEquals( 0, stats.getQueueSize( ) );
+            if ( stats.getHandler( ) == handler )
+            {
+                assertEquals( 2, stats.getEventCount( ) );
+                assertEquals( 0, stats.getErrorCount( ) );
+            }
+            else
+            {
+                assertEquals( otherType, stats.getType( ) );
+                assertEquals( 1, stats.getEventCount( ) );
+                assertEquals( 1, stats.getErrorCount( ) );
+            }
+        }
+    }
+}
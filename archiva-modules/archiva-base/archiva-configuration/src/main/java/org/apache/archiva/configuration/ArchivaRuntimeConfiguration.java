@@ -49,6 +49,11 @@
      */
     private FileLockConfiguration fileLockConfiguration;
 
+    /**
+     * the configuration of the audit event queue.
+     */
+    private AuditQueueConfiguration auditQueueConfiguration;
+
     /**
      * The base directory where the archiva data is stored. If not
      * set, the appserver.base is used.
@@ -96,6 +101,16 @@
      //- Methods -/
     //-----------/
 
+    /**
+     * Get the configuration of the audit event queue.
+     * 
+     * @return AuditQueueConfiguration
+     */
+    public AuditQueueConfiguration getAuditQueueConfiguration()
+    {
+        return this.auditQueueConfiguration;
+    } //-- AuditQueueConfiguration getAuditQueueConfiguration()
+
     /**
      * Get the base directory where the archiva data is stored. If
      * not set, the appserver.base is used.
@@ -183,6 +198,16 @@ public CacheConfiguration getUrlFailureCacheConfiguration()
         return this.urlFailureCacheConfiguration;
     } //-- CacheConfiguration getUrlFailureCacheConfiguration()
 
+    /**
+     * Set the configuration of the audit event queue.
+     * 
+     * @param auditQueueConfiguration
+     */
+    public void setAuditQueueConfiguration( AuditQueueConfiguration auditQueueConfiguration )
+    {
+        this.auditQueueConfiguration = auditQueueConfiguration;
+    } //-- void setAuditQueueConfiguration( AuditQueueConfiguration )
+
     /**
      * Set the base directory where the archiva data is stored. If
      * not set, the appserver.base is used.
@@ -0,0 +1,147 @@
+package org.apache.archiva.configuration;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Configuration of the queue, that writes the audit events to the
+ * metadata repository.
+ * 
+ * @version $Revision$ $Date$
+ */
+@SuppressWarnings( "all" )
+public class AuditQueueConfiguration
+    implements java.io.Serializable
+{
+
+      //--------------------------/
+     //- Class/Member Variables -/
+    //--------------------------/
+
+    /**
+     * maximum number of events in the queue.
+     */
+    private int capacity = 10000;
+
+    /**
+     * maximum number of events written with one session.
+     */
+    private int batchSize = 100;
+
+    /**
+     * the time in milliseconds the writer waits for more events.
+     */
+    private int flushInterval = 500;
+
+    /**
+     * the behaviour, if the queue is full: DROP_NEWEST,
+     * DROP_OLDEST or WRITE_THROUGH.
+     */
+    private String overflowPolicy = "DROP_OLDEST";
+
+
+      //-----------/
+     //- Methods -/
+    //-----------/
+
+    /**
+     * Get maximum number of events written with one session.
+     * 
+     * @return int
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    } //-- int getBatchSize()
+
+    /**
+     * Get maximum number of events in the queue.
+     * 
+     * @return int
+     */
+    public int getCapacity()
+    {
+        return this.capacity;
+    } //-- int getCapacity()
+
+    /**
+     * Get the time in milliseconds the writer waits for more
+     * events.
+     * 
+     * @return int
+     */
+    public int getFlushInterval()
+    {
+        return this.flushInterval;
+    } //-- int getFlushInterval()
+
+    /**
+     * Get the behaviour, if the queue is full: DROP_NEWEST,
+     * DROP_OLDEST or WRITE_THROUGH.
+     * 
+     * @return String
+     */
+    public String getOverflowPolicy()
+    {
+        return this.overflowPolicy;
+    } //-- String getOverflowPolicy()
+
+    /**
+     * Set maximum number of events written with one session.
+     * 
+     * @param batchSize
+     */
+    public void setBatchSize( int batchSize )
+    {
+        this.batchSize = batchSize;
+    } //-- void setBatchSize( int )
+
+    /**
+     * Set maximum number of events in the queue.
+     * 
+     * @param capacity
+     */
+    public void setCapacity( int capacity )
+    {
+        this.capacity = capacity;
+    } //-- void setCapacity( int )
+
+    /**
+     * Set the time in milliseconds the writer waits for more
+     * events.
+     * 
+     * @param flushInterval
+     */
+    public void setFlushInterval( int flushInterval )
+    {
+        this.flushInterval = flushInterval;
+    } //-- void setFlushInterval( int )
+
+    /**
+     * Set the behaviour, if the queue is full: DROP_NEWEST,
+     * DROP_OLDEST or WRITE_THROUGH.
+     * 
+     * @param overflowPolicy
+     */
+    public void setOverflowPolicy( String overflowPolicy )
+    {
+        this.overflowPolicy = overflowPolicy;
+    } //-- void setOverflowPolicy( String )
+
+}
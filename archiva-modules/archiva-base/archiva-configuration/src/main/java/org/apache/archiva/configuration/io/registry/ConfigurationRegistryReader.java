@@ -1346,6 +1346,8 @@ private ArchivaRuntimeConfiguration readArchivaRuntimeConfiguration(String prefi
         value.setUrlFailureCacheConfiguration(urlFailureCacheConfiguration);
         FileLockConfiguration fileLockConfiguration = readFileLockConfiguration(prefix + "fileLockConfiguration.", registry);
         value.setFileLockConfiguration(fileLockConfiguration);
+        AuditQueueConfiguration auditQueueConfiguration = readAuditQueueConfiguration(prefix + "auditQueueConfiguration.", registry);
+        value.setAuditQueueConfiguration(auditQueueConfiguration);
         //String dataDirectory = registry.getString( prefix + "dataDirectory", value.getDataDirectory() );
 
         List<String> dataDirectoryList = registry.getList(prefix + "dataDirectory");
@@ -1635,6 +1637,21 @@ private FileLockConfiguration readFileLockConfiguration(String prefix, Registry
         return value;
     }
 
+    private AuditQueueConfiguration readAuditQueueConfiguration(String prefix, Registry registry) {
+        AuditQueueConfiguration value = new AuditQueueConfiguration();
+
+        int capacity = registry.getInt(prefix + "capacity", value.getCapacity());
+        value.setCapacity(capacity);
+        int batchSize = registry.getInt(prefix + "batchSize", value.getBatchSize());
+        value.setBatchSize(batchSize);
+        int flushInterval = registry.getInt(prefix + "flushInterval", value.getFlushInterval());
+        value.setFlushInterval(flushInterval);
+        String overflowPolicy = registry.getString(prefix + "overflowPolicy", value.getOverflowPolicy());
+        value.setOverflowPolicy(overflowPolicy);
+
+        return value;
+    }
+
     private CacheConfiguration readCacheConfiguration(String prefix, Registry registry) {
         CacheConfiguration value = new CacheConfiguration();
 
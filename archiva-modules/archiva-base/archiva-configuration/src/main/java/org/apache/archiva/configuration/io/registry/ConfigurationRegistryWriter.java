@@ -878,6 +878,10 @@ private void writeArchivaRuntimeConfiguration(String prefix, ArchivaRuntimeConfi
             ) {
                 writeFileLockConfiguration(prefix + "fileLockConfiguration.", value.getFileLockConfiguration(), registry);
             }
+            if (value.getAuditQueueConfiguration() != null
+            ) {
+                writeAuditQueueConfiguration(prefix + "auditQueueConfiguration.", value.getAuditQueueConfiguration(), registry);
+            }
             if (value.getDataDirectory() != null
             ) {
                 String dataDirectory = "dataDirectory";
@@ -1066,6 +1070,31 @@ private void writeFileLockConfiguration(String prefix, FileLockConfiguration val
         }
     }
 
+    private void writeAuditQueueConfiguration(String prefix, AuditQueueConfiguration value, Registry registry) {
+        if (value != null) {
+            if (value.getCapacity() != 10000
+            ) {
+                String capacity = "capacity";
+                registry.setInt(prefix + capacity, value.getCapacity());
+            }
+            if (value.getBatchSize() != 100
+            ) {
+                String batchSize = "batchSize";
+                registry.setInt(prefix + batchSize, value.getBatchSize());
+            }
+            if (value.getFlushInterval() != 500
+            ) {
+                String flushInterval = "flushInterval";
+                registry.setInt(prefix + flushInterval, value.getFlushInterval());
+            }
+            if (value.getOverflowPolicy() != null && !value.getOverflowPolicy().equals("DROP_OLDEST")
+            ) {
+                String overflowPolicy = "overflowPolicy";
+                registry.setString(prefix + overflowPolicy, value.getOverflowPolicy());
+            }
+        }
+    }
+
     private void writeCacheConfiguration(String prefix, CacheConfiguration value, Registry registry) {
         if (value != null) {
             if (value.getTimeToIdleSeconds() != -1
@@ -33,6 +33,7 @@
 import org.apache.archiva.repository.RepositoryException;
 import org.apache.archiva.repository.RepositoryNotFoundException;
 import org.apache.archiva.repository.RepositoryRegistry;
+import org.apache.archiva.repository.metadata.base.MetadataRegenerationService;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.slf4j.Logger;
@@ -76,6 +77,9 @@
     @Inject
     private MetadataTools metadataTools;
 
+    @Inject
+    private MetadataRegenerationService metadataRegenerationService;
+
     @Inject
     private ArchivaConfiguration configuration;
 
@@ -96,6 +100,11 @@
 
     private long scanStartTimestamp = 0;
 
+    /**
+     * If <code>true</code>, the metadata is not written during the scan, but marked for regeneration.
+     */
+    private boolean deferred = false;
+
     @Override
     public String getDescription( )
     {
@@ -129,6 +138,7 @@ public void beginScan( ManagedRepository repoConfig, Date whenGathered )
             }
             this.repositoryDir = Paths.get( repository.getRepoRoot( ) );
             this.scanStartTimestamp = System.currentTimeMillis( );
+            this.deferred = false;
         }
         catch ( RepositoryException e )
         {
@@ -141,6 +151,8 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
         throws ConsumerException
     {
         beginScan( repository, whenGathered );
+        // single files are scanned after each deploy, the metadata of the deployed files is coalesced
+        this.deferred = !executeOnEntireRepo && metadataRegenerationService != null;
     }
 
     @Override
@@ -212,7 +224,7 @@ private void updateProjectMetadata( ArtifactReference artifact, String path )
                 log.debug( "Skipping uptodate metadata: {}", this.metadataTools.toPath( projectRef ) );
                 return;
             }
-            metadataTools.updateMetadata( this.repository, metadataPath );
+            updateMetadata( metadataPath );
             log.debug( "Updated metadata: {}", this.metadataTools.toPath( projectRef ) );
         }
         catch ( RepositoryMetadataException e )
@@ -249,7 +261,7 @@ private void updateVersionMetadata( ArtifactReference artifact, String path )
                 return;
             }
 
-            metadataTools.updateMetadata( this.repository, metadataPath );
+            updateMetadata( metadataPath );
             log.debug( "Updated metadata: {}", this.metadataTools.toPath( versionRef ) );
         }
         catch ( RepositoryMetadataException e )
@@ -266,6 +278,19 @@ private void updateVersionMetadata( ArtifactReference artifact, String path )
         }
     }
 
+    private void updateMetadata( String metadataPath )
+        throws RepositoryMetadataException
+    {
+        if ( deferred )
+        {
+            metadataRegenerationService.markDirty( this.repository, metadataPath );
+        }
+        else
+        {
+            metadataTools.updateMetadata( this.repository, metadataPath );
+        }
+    }
+
     /*
     @Override
     public void afterConfigurationChange( Registry registry, String propertyName, Object propertyValue )
@@ -51,6 +51,9 @@
 /**
  * Consumer for removing old snapshots in the repository based on the criteria
  * specified by the user.
+ *
+ * If the entire repository is scanned, the snapshots are purged by the {@link RepositoryPurgeEngine} after
+ * the scan is completed. Otherwise each file is checked by the retention purge.
  */
 @Service( "knownRepositoryContentConsumer#repository-purge" )
 @Scope( "prototype" )
@@ -68,6 +71,8 @@
      */
     private String description = "Purge repository of old snapshots";
 
+    private static final String TYPE_PURGE_FAILURE = "purge-failure";
+
     @Inject
     @Named( value = "archivaConfiguration#default" )
     private ArchivaConfiguration configuration;
@@ -94,6 +99,17 @@
 
     private boolean deleteReleasedSnapshots;
 
+    private ManagedRepositoryContent repositoryContent;
+
+    private int retentionPeriodInDays;
+
+    private int retentionCount;
+
+    /**
+     * Used instead of the file based purge for scans of the entire repository
+     */
+    private RepositoryPurgeEngine purgeEngine;
+
     /**
      *
      */
@@ -134,8 +150,8 @@ public List<String> getIncludes( )
     public void beginScan( ManagedRepository repository, Date whenGathered )
         throws ConsumerException
     {
-        ManagedRepositoryContent repositoryContent;
         repositoryContent = repository.getContent();
+        purgeEngine = null;
 
         try
         {
@@ -149,8 +165,8 @@ public void beginScan( ManagedRepository repository, Date whenGathered )
         if (repository.supportsFeature( ArtifactCleanupFeature.class ))
         {
             ArtifactCleanupFeature acf = repository.getFeature( ArtifactCleanupFeature.class ).get();
-            int retentionPeriodInDays = acf.getRetentionPeriod( ).getDays( );
-            int retentionCount = acf.getRetentionCount();
+            retentionPeriodInDays = acf.getRetentionPeriod( ).getDays( );
+            retentionCount = acf.getRetentionCount();
             if ( retentionPeriodInDays != 0 )
             {
                 repoPurge = new DaysOldRepositoryPurge( repositoryContent, retentionPeriodInDays,
@@ -178,6 +194,10 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
         throws ConsumerException
     {
         beginScan( repository, whenGathered );
+        if ( executeOnEntireRepo )
+        {
+            purgeEngine = new RepositoryPurgeEngine( repositoryContent, repositorySession, metadataTools, listeners );
+        }
     }
 
     @Override
@@ -202,7 +222,15 @@ public void processFile( String path )
     public void processFile( String path, boolean executeOnEntireRepo )
         throws Exception
     {
-        processFile( path );
+        if ( purgeEngine == null )
+        {
+            processFile( path );
+        }
+        else if ( deleteReleasedSnapshots )
+        {
+            // The retention purge is done by the engine, when the scan is completed
+            cleanUp.process( path );
+        }
     }
 
     @Override
@@ -214,7 +242,25 @@ public void completeScan( )
     @Override
     public void completeScan( boolean executeOnEntireRepo )
     {
-        completeScan( );
+        try
+        {
+            if ( purgeEngine != null )
+            {
+                RepositoryPurgePlan plan = purgeEngine.createPlan( retentionPeriodInDays, retentionCount );
+                logger.info( "Purging {} artifacts from repository {}", plan.getArtifactCount( ), plan.getRepositoryId( ) );
+                purgeEngine.execute( plan );
+            }
+        }
+        catch ( RepositoryPurgeException e )
+        {
+            logger.error( "Purge of repository {} failed: {}", repositoryContent.getId( ), e.getMessage( ), e );
+            triggerConsumerError( TYPE_PURGE_FAILURE, e.getMessage( ) );
+        }
+        finally
+        {
+            purgeEngine = null;
+            completeScan( );
+        }
     }
 
     @Override
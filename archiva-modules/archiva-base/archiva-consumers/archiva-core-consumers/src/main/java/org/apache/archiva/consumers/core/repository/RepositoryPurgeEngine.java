@@ -0,0 +1,528 @@
+package org.apache.archiva.consumers.core.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionUtil;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataResolutionException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.model.ProjectReference;
+import org.apache.archiva.model.VersionedReference;
+import org.apache.archiva.repository.ContentNotFoundException;
+import org.apache.archiva.repository.LayoutException;
+import org.apache.archiva.repository.ManagedRepositoryContent;
+import org.apache.archiva.repository.metadata.RepositoryMetadataException;
+import org.apache.archiva.repository.metadata.base.MetadataTools;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+/**
+ * Purges old snapshots of a complete repository. In contrast to the {@link RepositoryPurge} implementations
+ * that are called by the scanner for each file, the engine works in two phases:
+ * <ol>
+ *     <li>A plan is computed from the metadata repository for each snapshot project version.
+ *     The plan can be reported without changing anything (dry run).</li>
+ *     <li>The plan is executed: files are deleted in parallel batches, the metadata entries are removed in
+ *     a single session commit and the <code>maven-metadata.xml</code> files are updated once per project
+ *     version and project.</li>
+ * </ol>
+ * The retention rules are the same as for {@link DaysOldRepositoryPurge} and {@link RetentionCountRepositoryPurge}.
+ *
+ * @since 3.0
+ */
+public class RepositoryPurgeEngine
+{
+    private Logger log = LoggerFactory.getLogger( RepositoryPurgeEngine.class );
+
+    private Logger auditLog = LoggerFactory.getLogger( "org.apache.archiva.AuditLog" );
+
+    private static final char DELIM = ' ';
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final ManagedRepositoryContent repository;
+
+    private final RepositorySession repositorySession;
+
+    private final MetadataTools metadataTools;
+
+    private final List<RepositoryListener> listeners;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int parallelism = Runtime.getRuntime( ).availableProcessors( );
+
+    public RepositoryPurgeEngine( ManagedRepositoryContent repository, RepositorySession repositorySession,
+                                  MetadataTools metadataTools, List<RepositoryListener> listeners )
+    {
+        this.repository = repository;
+        this.repositorySession = repositorySession;
+        this.metadataTools = metadataTools;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Computes the purge plan for all snapshot project versions of the repository.
+     *
+     * @param retentionPeriodInDays if greater than 0, only snapshots older than the given number of days are purged
+     * @param retentionCount the number of snapshot versions that are kept for each project version
+     * @return the plan, that may be reported or executed
+     * @throws RepositoryPurgeException if the metadata repository could not be read
+     */
+    public RepositoryPurgePlan createPlan( int retentionPeriodInDays, int retentionCount )
+        throws RepositoryPurgeException
+    {
+        RepositoryPurgePlan plan = new RepositoryPurgePlan( repository.getId( ) );
+        Calendar olderThanThisDate = Calendar.getInstance( TimeZone.getTimeZone( "UTC" ) );
+        olderThanThisDate.add( Calendar.DATE, -retentionPeriodInDays );
+        long cutoff = retentionPeriodInDays > 0 ? olderThanThisDate.getTimeInMillis( ) : Long.MAX_VALUE;
+        MetadataRepository metadataRepository = repositorySession.getRepository( );
+        try
+        {
+            for ( String ns : metadataRepository.getRootNamespaces( repositorySession, repository.getId( ) ) )
+            {
+                planNamespace( metadataRepository, plan, ns, cutoff, retentionCount );
+            }
+        }
+        catch ( MetadataResolutionException e )
+        {
+            throw new RepositoryPurgeException( "Could not create purge plan: " + e.getMessage( ), e );
+        }
+        return plan;
+    }
+
+    private void planNamespace( MetadataRepository metadataRepository, RepositoryPurgePlan plan, String ns,
+                                long cutoff, int retentionCount )
+        throws MetadataResolutionException
+    {
+        for ( String namespace : metadataRepository.getChildNamespaces( repositorySession, repository.getId( ), ns ) )
+        {
+            planNamespace( metadataRepository, plan, ns + "." + namespace, cutoff, retentionCount );
+        }
+        for ( String project : metadataRepository.getProjects( repositorySession, repository.getId( ), ns ) )
+        {
+            for ( String projectVersion : metadataRepository.getProjectVersions( repositorySession, repository.getId( ), ns, project ) )
+            {
+                if ( VersionUtil.isSnapshot( projectVersion ) )
+                {
+                    planProjectVersion( metadataRepository, plan, ns, project, projectVersion, cutoff, retentionCount );
+                }
+            }
+        }
+    }
+
+    private void planProjectVersion( MetadataRepository metadataRepository, RepositoryPurgePlan plan, String ns,
+                                     String project, String projectVersion, long cutoff, int retentionCount )
+        throws MetadataResolutionException
+    {
+        List<ArtifactMetadata> artifacts =
+            metadataRepository.getArtifacts( repositorySession, repository.getId( ), ns, project, projectVersion );
+        Map<String, List<ArtifactMetadata>> byVersion = new TreeMap<>( VersionComparator.getInstance( ) );
+        for ( ArtifactMetadata artifact : artifacts )
+        {
+            byVersion.computeIfAbsent( artifact.getVersion( ), v -> new ArrayList<>( ) ).add( artifact );
+        }
+        int countToPurge = byVersion.size( ) - retentionCount;
+        if ( countToPurge <= 0 )
+        {
+            return;
+        }
+        List<ArtifactMetadata> toPurge = new ArrayList<>( );
+        for ( Map.Entry<String, List<ArtifactMetadata>> versionEntry : byVersion.entrySet( ) )
+        {
+            if ( countToPurge-- <= 0 )
+            {
+                break;
+            }
+            if ( getVersionTime( versionEntry.getKey( ), versionEntry.getValue( ) ) < cutoff )
+            {
+                toPurge.addAll( versionEntry.getValue( ) );
+            }
+        }
+        if ( !toPurge.isEmpty( ) )
+        {
+            plan.addEntry( ns, project, projectVersion, toPurge, toPurge.size( ) == artifacts.size( ) );
+        }
+    }
+
+    /*
+     * Returns the timestamp of a unique snapshot version, or the newest file modification time
+     * for generic snapshots.
+     */
+    private long getVersionTime( String version, List<ArtifactMetadata> artifacts )
+    {
+        Matcher m = VersionUtil.UNIQUE_SNAPSHOT_PATTERN.matcher( version );
+        if ( m.matches( ) )
+        {
+            SimpleDateFormat timestampParser = new SimpleDateFormat( "yyyyMMdd.HHmmss" );
+            timestampParser.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+            try
+            {
+                return timestampParser.parse( m.group( 2 ) ).getTime( );
+            }
+            catch ( ParseException e )
+            {
+                // Fall back to the file modification time
+            }
+        }
+        long time = 0;
+        for ( ArtifactMetadata artifact : artifacts )
+        {
+            if ( artifact.getFileLastModified( ) != null )
+            {
+                time = Math.max( time, artifact.getFileLastModified( ).toInstant( ).toEpochMilli( ) );
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Writes the plan to the log without changing the repository.
+     *
+     * @param plan the plan to report
+     * @return the report lines
+     */
+    public List<String> dryRun( RepositoryPurgePlan plan )
+    {
+        List<String> report = plan.describe( );
+        for ( String line : report )
+        {
+            log.info( "[dry-run] {}", line );
+        }
+        return report;
+    }
+
+    /**
+     * Executes the given plan. Failures of single entries do not stop the execution, the remaining entries
+     * are purged and the failures are reported by the exception afterwards. The metadata of project
+     * versions, where files could not be deleted, is not removed.
+     *
+     * @param plan the plan to execute
+     * @throws RepositoryPurgeException if files, metadata entries or maven metadata of any entry could not be
+     * updated, or if the execution was interrupted
+     */
+    public void execute( RepositoryPurgePlan plan )
+        throws RepositoryPurgeException
+    {
+        if ( plan.isEmpty( ) )
+        {
+            return;
+        }
+        List<String> errors = Collections.synchronizedList( new ArrayList<>( ) );
+        MetadataRepository metadataRepository = repositorySession.getRepository( );
+        Set<RepositoryPurgePlan.ProjectVersionEntry> failed = deleteFiles( plan, errors );
+        // The listeners are notified once per project version and only for deleted files, before the metadata is removed
+        for ( RepositoryPurgePlan.ProjectVersionEntry entry : plan.getEntries( ) )
+        {
+            if ( !failed.contains( entry ) )
+            {
+                for ( RepositoryListener listener : listeners )
+                {
+                    listener.deleteArtifacts( metadataRepository, repository.getId( ), entry.getNamespace( ),
+                        entry.getProject( ), entry.getProjectVersion( ), entry.getArtifacts( ) );
+                }
+            }
+        }
+        purgeMetadata( metadataRepository, plan, failed, errors );
+        updateMavenMetadata( plan, errors );
+        if ( !errors.isEmpty( ) )
+        {
+            throw new RepositoryPurgeException(
+                "Purge of repository " + plan.getRepositoryId( ) + " finished with " + errors.size( ) + " errors: "
+                    + String.join( ", ", errors ) );
+        }
+    }
+
+    /*
+     * Deletes the files in parallel batches and returns the entries, where at least one file could not be deleted.
+     */
+    private Set<RepositoryPurgePlan.ProjectVersionEntry> deleteFiles( RepositoryPurgePlan plan, List<String> errors )
+        throws RepositoryPurgeException
+    {
+        Set<RepositoryPurgePlan.ProjectVersionEntry> failed = ConcurrentHashMap.newKeySet( );
+        List<List<RepositoryPurgePlan.ProjectVersionEntry>> batches = new ArrayList<>( );
+        List<RepositoryPurgePlan.ProjectVersionEntry> batch = new ArrayList<>( );
+        int batchCount = 0;
+        for ( RepositoryPurgePlan.ProjectVersionEntry entry : plan.getEntries( ) )
+        {
+            batch.add( entry );
+            batchCount += entry.getArtifacts( ).size( );
+            if ( batchCount >= batchSize )
+            {
+                batches.add( batch );
+                batch = new ArrayList<>( );
+                batchCount = 0;
+            }
+        }
+        if ( !batch.isEmpty( ) )
+        {
+            batches.add( batch );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( parallelism, batches.size( ) ) ) );
+        try
+        {
+            List<Future<?>> results = new ArrayList<>( );
+            for ( List<RepositoryPurgePlan.ProjectVersionEntry> entries : batches )
+            {
+                results.add( executor.submit( ( ) -> {
+                    for ( RepositoryPurgePlan.ProjectVersionEntry entry : entries )
+                    {
+                        if ( !deleteFiles( entry, errors ) )
+                        {
+                            failed.add( entry );
+                        }
+                    }
+                } ) );
+            }
+            for ( Future<?> result : results )
+            {
+                result.get( );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new RepositoryPurgeException( "Purge of repository " + plan.getRepositoryId( ) + " interrupted", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new RepositoryPurgeException( e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        return failed;
+    }
+
+    /*
+     * Lists the version directory once and deletes the artifacts and their support files
+     * (checksums, signatures). Returns <code>false</code>, if a file could not be deleted.
+     */
+    private boolean deleteFiles( RepositoryPurgePlan.ProjectVersionEntry entry, List<String> errors )
+    {
+        StorageAsset versionDir = repository.toFile( toVersionedReference( entry ) );
+        if ( !versionDir.exists( ) )
+        {
+            return true;
+        }
+        Set<String> ids = new HashSet<>( );
+        for ( ArtifactMetadata artifact : entry.getArtifacts( ) )
+        {
+            ids.add( artifact.getId( ) );
+        }
+        boolean success = true;
+        for ( StorageAsset file : versionDir.list( ) )
+        {
+            if ( file.isContainer( ) )
+            {
+                continue;
+            }
+            String name = file.getName( );
+            String id = getArtifactId( name, ids );
+            if ( id != null )
+            {
+                try
+                {
+                    file.getStorage( ).removeAsset( file );
+                    log.debug( "File deleted: {}", file );
+                    triggerAuditEvent( file.toString( ),
+                        name.equals( id ) ? AuditEvent.PURGE_ARTIFACT : AuditEvent.PURGE_FILE );
+                }
+                catch ( IOException e )
+                {
+                    log.error( "Could not delete file {}: {}", file, e.getMessage( ), e );
+                    errors.add( "Could not delete file " + file + ": " + e.getMessage( ) );
+                    success = false;
+                }
+            }
+        }
+        return success;
+    }
+
+    /*
+     * Returns the artifact id the file name belongs to, or <code>null</code>. The file must either be the
+     * artifact file itself, or the artifact file name followed by checksum or signature extensions
+     * (e.g. <code>.sha1</code>, <code>.asc.md5</code>). Other suffixes do not match, so <code>foo-1.0</code>
+     * does not match <code>foo-1.0.1</code>.
+     */
+    static String getArtifactId( String fileName, Set<String> ids )
+    {
+        String name = fileName;
+        while ( !ids.contains( name ) )
+        {
+            int idx = name.lastIndexOf( '.' );
+            if ( idx <= 0 || !ChecksumAlgorithm.getAllExtensions( ).contains( name.substring( idx + 1 ).toLowerCase( ) ) )
+            {
+                return null;
+            }
+            name = name.substring( 0, idx );
+        }
+        return name;
+    }
+
+    /*
+     * Removes all entries of the plan from the metadata repository and commits the session once.
+     */
+    private void purgeMetadata( MetadataRepository metadataRepository, RepositoryPurgePlan plan,
+                                Set<RepositoryPurgePlan.ProjectVersionEntry> failed, List<String> errors )
+    {
+        for ( RepositoryPurgePlan.ProjectVersionEntry entry : plan.getEntries( ) )
+        {
+            if ( failed.contains( entry ) )
+            {
+                continue;
+            }
+            try
+            {
+                if ( entry.isRemoveProjectVersion( ) )
+                {
+                    metadataRepository.removeProjectVersion( repositorySession, repository.getId( ),
+                        entry.getNamespace( ), entry.getProject( ), entry.getProjectVersion( ) );
+                }
+                else
+                {
+                    for ( ArtifactMetadata artifact : entry.getArtifacts( ) )
+                    {
+                        metadataRepository.removeTimestampedArtifact( repositorySession, artifact, entry.getProjectVersion( ) );
+                    }
+                }
+            }
+            catch ( MetadataRepositoryException e )
+            {
+                log.error( "Could not remove metadata of {}: {}", entry, e.getMessage( ), e );
+                errors.add( "Could not remove metadata of " + entry + ": " + e.getMessage( ) );
+            }
+        }
+        try
+        {
+            repositorySession.save( );
+        }
+        catch ( MetadataSessionException e )
+        {
+            log.error( "Could not save session {}", e.getMessage( ) );
+            errors.add( "Could not save session: " + e.getMessage( ) );
+        }
+    }
+
+    /*
+     * Updates the maven-metadata.xml once for each purged project version and once for each project.
+     */
+    private void updateMavenMetadata( RepositoryPurgePlan plan, List<String> errors )
+    {
+        Set<String> updatedProjects = new LinkedHashSet<>( );
+        for ( RepositoryPurgePlan.ProjectVersionEntry entry : plan.getEntries( ) )
+        {
+            try
+            {
+                metadataTools.updateMetadata( repository, toVersionedReference( entry ) );
+                if ( updatedProjects.add( entry.getNamespace( ) + ":" + entry.getProject( ) ) )
+                {
+                    ProjectReference projectRef = new ProjectReference( );
+                    projectRef.setGroupId( entry.getNamespace( ) );
+                    projectRef.setArtifactId( entry.getProject( ) );
+                    metadataTools.updateMetadata( repository, projectRef );
+                }
+            }
+            catch ( ContentNotFoundException e )
+            {
+                // Ignore. (Just means we have no snapshot versions left to reference).
+            }
+            catch ( RepositoryMetadataException | IOException | LayoutException e )
+            {
+                log.warn( "Could not update maven metadata for {}: {}", entry, e.getMessage( ) );
+                errors.add( "Could not update maven metadata for " + entry + ": " + e.getMessage( ) );
+            }
+        }
+    }
+
+    private VersionedReference toVersionedReference( RepositoryPurgePlan.ProjectVersionEntry entry )
+    {
+        VersionedReference versionRef = new VersionedReference( );
+        versionRef.setGroupId( entry.getNamespace( ) );
+        versionRef.setArtifactId( entry.getProject( ) );
+        versionRef.setVersion( entry.getProjectVersion( ) );
+        return versionRef;
+    }
+
+    private void triggerAuditEvent( String resource, String action )
+    {
+        String msg =
+            repository.getId( ) + DELIM + "<system-purge>" + DELIM + "<system>" + DELIM + '\"' + resource + '\"' + DELIM + '\"' +
+                action + '\"';
+
+        auditLog.info( msg );
+    }
+
+    public int getBatchSize( )
+    {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of artifacts that are deleted together by a single worker.
+     */
+    public void setBatchSize( int batchSize )
+    {
+        this.batchSize = batchSize;
+    }
+
+    public int getParallelism( )
+    {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of threads used for file deletion.
+     */
+    public void setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,164 @@
+package org.apache.archiva.consumers.core.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of the planning phase of the {@link RepositoryPurgeEngine}. The plan contains
+ * one entry for each project version that has artifacts to purge. It can be reported (dry run)
+ * or executed.
+ *
+ * @since 3.0
+ */
+public class RepositoryPurgePlan
+{
+    private final String repositoryId;
+
+    private final List<ProjectVersionEntry> entries = new ArrayList<>( );
+
+    public RepositoryPurgePlan( String repositoryId )
+    {
+        this.repositoryId = repositoryId;
+    }
+
+    /**
+     * The artifacts of a single project version that should be removed.
+     */
+    public static class ProjectVersionEntry
+    {
+        private final String namespace;
+        private final String project;
+        private final String projectVersion;
+        private final List<ArtifactMetadata> artifacts;
+        private final boolean removeProjectVersion;
+
+        ProjectVersionEntry( String namespace, String project, String projectVersion,
+                             List<ArtifactMetadata> artifacts, boolean removeProjectVersion )
+        {
+            this.namespace = namespace;
+            this.project = project;
+            this.projectVersion = projectVersion;
+            this.artifacts = Collections.unmodifiableList( artifacts );
+            this.removeProjectVersion = removeProjectVersion;
+        }
+
+        public String getNamespace( )
+        {
+            return namespace;
+        }
+
+        public String getProject( )
+        {
+            return project;
+        }
+
+        public String getProjectVersion( )
+        {
+            return projectVersion;
+        }
+
+        public List<ArtifactMetadata> getArtifacts( )
+        {
+            return artifacts;
+        }
+
+        /**
+         * @return <code>true</code>, if no artifacts remain in the project version after the purge.
+         */
+        public boolean isRemoveProjectVersion( )
+        {
+            return removeProjectVersion;
+        }
+
+        @Override
+        public String toString( )
+        {
+            final StringBuilder sb = new StringBuilder( namespace );
+            sb.append( ':' ).append( project ).append( ':' ).append( projectVersion );
+            sb.append( " (" ).append( artifacts.size( ) ).append( " artifacts" );
+            if ( removeProjectVersion )
+            {
+                sb.append( ", project version removed" );
+            }
+            sb.append( ')' );
+            return sb.toString( );
+        }
+    }
+
+    void addEntry( String namespace, String project, String projectVersion, List<ArtifactMetadata> artifacts,
+                   boolean removeProjectVersion )
+    {
+        entries.add( new ProjectVersionEntry( namespace, project, projectVersion, artifacts, removeProjectVersion ) );
+    }
+
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    public List<ProjectVersionEntry> getEntries( )
+    {
+        return Collections.unmodifiableList( entries );
+    }
+
+    public boolean isEmpty( )
+    {
+        return entries.isEmpty( );
+    }
+
+    /**
+     * @return the number of artifacts that are removed by this plan
+     */
+    public int getArtifactCount( )
+    {
+        int count = 0;
+        for ( ProjectVersionEntry entry : entries )
+        {
+            count += entry.getArtifacts( ).size( );
+        }
+        return count;
+    }
+
+    /**
+     * Returns a human readable report of the plan, one line per artifact.
+     *
+     * @return the list of report lines
+     */
+    public List<String> describe( )
+    {
+        List<String> lines = new ArrayList<>( );
+        lines.add( "Purge plan for repository " + repositoryId + ": " + getArtifactCount( ) + " artifacts in "
+            + entries.size( ) + " project versions" );
+        for ( ProjectVersionEntry entry : entries )
+        {
+            lines.add( entry.toString( ) );
+            for ( ArtifactMetadata artifact : entry.getArtifacts( ) )
+            {
+                lines.add( "  " + artifact.getId( ) );
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,211 @@
+package org.apache.archiva.consumers.core.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.repository.metadata.base.MetadataTools;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.inject.Inject;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test the purge plan creation and execution of the {@link RepositoryPurgeEngine}
+ */
+public class RepositoryPurgeEngineTest
+    extends AbstractRepositoryPurgeTest
+{
+    private static final String PROJECT_NS = "org.jruby.plugins";
+
+    private static final String PROJECT_NAME = "jruby-rake-plugin";
+
+    private static final String PROJECT_VERSION = "1.0RC1-SNAPSHOT";
+
+    @Inject
+    MetadataTools metadataTools;
+
+    private RepositoryPurgeEngine engine;
+
+    @Before
+    @Override
+    public void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        listener.deleteArtifacts( EasyMock.anyObject(), EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyString(),
+            EasyMock.anyString(), EasyMock.anyObject() );
+        EasyMock.expectLastCall().anyTimes();
+        listenerControl.replay();
+        List<RepositoryListener> listeners = Collections.singletonList( listener );
+
+        sessionControl.reset();
+        EasyMock.expect( repositorySession.getRepository()).andStubReturn( metadataRepository );
+        repositorySession.save();
+        EasyMock.expectLastCall().once();
+        sessionControl.replay();
+
+        engine = new RepositoryPurgeEngine( getRepository(), repositorySession, metadataTools, listeners );
+        engine.setBatchSize( 1 );
+        engine.setParallelism( 2 );
+    }
+
+    private void prepareMetadata( Path repo, Path vDir ) throws Exception
+    {
+        List<ArtifactMetadata> ml = getArtifactMetadataFromDir( TEST_REPO_ID, PROJECT_NAME, repo.getParent(), vDir )
+            .stream().filter( a -> a.getId().endsWith( ".jar" ) || a.getId().endsWith( ".pom" ) )
+            .collect( Collectors.toList() );
+        when( metadataRepository.getRootNamespaces( repositorySession, TEST_REPO_ID ) ).thenReturn( Arrays.asList( "org" ) );
+        when( metadataRepository.getChildNamespaces( repositorySession, TEST_REPO_ID, "org" ) ).thenReturn( Arrays.asList( "jruby" ) );
+        when( metadataRepository.getChildNamespaces( repositorySession, TEST_REPO_ID, "org.jruby" ) ).thenReturn( Arrays.asList( "plugins" ) );
+        when( metadataRepository.getProjects( repositorySession, TEST_REPO_ID, PROJECT_NS ) ).thenReturn( Arrays.asList( PROJECT_NAME ) );
+        when( metadataRepository.getProjectVersions( repositorySession, TEST_REPO_ID, PROJECT_NS, PROJECT_NAME ) ).thenReturn( Arrays.asList( PROJECT_VERSION ) );
+        when( metadataRepository.getArtifacts( repositorySession, TEST_REPO_ID, PROJECT_NS, PROJECT_NAME, PROJECT_VERSION ) ).thenReturn( ml );
+    }
+
+    @Test
+    public void testDryRunDoesNotDelete()
+        throws Exception
+    {
+        String repoRoot = prepareTestRepos();
+        Path repo = getTestRepoRootPath();
+        Path vDir = repo.resolve( "org/jruby/plugins" ).resolve( PROJECT_NAME ).resolve( PROJECT_VERSION );
+        prepareMetadata( repo, vDir );
+
+        RepositoryPurgePlan plan = engine.createPlan( 0, TEST_RETENTION_COUNT );
+        List<String> report = engine.dryRun( plan );
+
+        assertEquals( 1, plan.getEntries().size() );
+        assertFalse( plan.getEntries().get( 0 ).isRemoveProjectVersion() );
+        assertTrue( report.stream().anyMatch( l -> l.contains( "jruby-rake-plugin-1.0RC1-20070504.153317-1.jar" ) ) );
+        verify( metadataRepository, never() ).removeTimestampedArtifact( any(), any(), any() );
+
+        String versionRoot = repoRoot + "/org/jruby/plugins/" + PROJECT_NAME + "/" + PROJECT_VERSION;
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.jar" );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.160758-2.jar" );
+    }
+
+    @Test
+    public void testExecutePlan()
+        throws Exception
+    {
+        String repoRoot = prepareTestRepos();
+        Path repo = getTestRepoRootPath();
+        Path vDir = repo.resolve( "org/jruby/plugins" ).resolve( PROJECT_NAME ).resolve( PROJECT_VERSION );
+        prepareMetadata( repo, vDir );
+        Set<String> deletedVersions = new HashSet<>();
+        deletedVersions.add( "1.0RC1-20070504.153317-1" );
+        deletedVersions.add( "1.0RC1-20070504.160758-2" );
+
+        RepositoryPurgePlan plan = engine.createPlan( 0, TEST_RETENTION_COUNT );
+        // the listeners are notified once for the project version
+        listenerControl.reset();
+        listener.deleteArtifacts( metadataRepository, TEST_REPO_ID, PROJECT_NS, PROJECT_NAME, PROJECT_VERSION,
+            plan.getEntries().get( 0 ).getArtifacts() );
+        EasyMock.expectLastCall().once();
+        listenerControl.replay();
+        engine.execute( plan );
+
+        sessionControl.verify();
+        listenerControl.verify();
+        verify( metadataRepository, never() ).removeProjectVersion( eq( repositorySession ), eq( TEST_REPO_ID ), eq( PROJECT_NS ), eq( PROJECT_NAME ), eq( PROJECT_VERSION ) );
+        ArgumentCaptor<ArtifactMetadata> metadataArg = ArgumentCaptor.forClass( ArtifactMetadata.class );
+        verify( metadataRepository, times( plan.getArtifactCount() ) ).removeTimestampedArtifact( eq( repositorySession ), metadataArg.capture(), eq( PROJECT_VERSION ) );
+        for ( ArtifactMetadata meta : metadataArg.getAllValues() )
+        {
+            assertTrue( deletedVersions.contains( meta.getVersion() ) );
+        }
+
+        String versionRoot = repoRoot + "/org/jruby/plugins/" + PROJECT_NAME + "/" + PROJECT_VERSION;
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.jar" );
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.jar.md5" );
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.pom.sha1" );
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.160758-2.jar" );
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.160758-2.pom" );
+
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070505.090015-3.jar" );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070505.090015-3.jar.sha1" );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070506.090132-4.jar" );
+        assertExists( versionRoot + "/jruby-rake-plugin-1.0RC1-20070506.090132-4.pom" );
+    }
+
+    @Test
+    public void testExecuteReportsMetadataErrors()
+        throws Exception
+    {
+        String repoRoot = prepareTestRepos();
+        Path repo = getTestRepoRootPath();
+        Path vDir = repo.resolve( "org/jruby/plugins" ).resolve( PROJECT_NAME ).resolve( PROJECT_VERSION );
+        prepareMetadata( repo, vDir );
+        doThrow( new MetadataRepositoryException( "Test failure" ) ).when( metadataRepository )
+            .removeTimestampedArtifact( any(), any(), any() );
+
+        RepositoryPurgePlan plan = engine.createPlan( 0, TEST_RETENTION_COUNT );
+        try
+        {
+            engine.execute( plan );
+            fail( "RepositoryPurgeException expected" );
+        }
+        catch ( RepositoryPurgeException e )
+        {
+            assertTrue( e.getMessage().contains( "Test failure" ) );
+        }
+
+        // All entries are processed, before the error is reported
+        sessionControl.verify();
+        verify( metadataRepository, times( plan.getArtifactCount() ) ).removeTimestampedArtifact( eq( repositorySession ), any(), eq( PROJECT_VERSION ) );
+        String versionRoot = repoRoot + "/org/jruby/plugins/" + PROJECT_NAME + "/" + PROJECT_VERSION;
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.153317-1.jar" );
+        assertDeleted( versionRoot + "/jruby-rake-plugin-1.0RC1-20070504.160758-2.jar" );
+    }
+
+    @Test
+    public void testArtifactIdMatchesFileBoundary()
+    {
+        Set<String> ids = new HashSet<>( Arrays.asList( "foo-1.0", "bar-1.0.jar" ) );
+        assertEquals( "foo-1.0", RepositoryPurgeEngine.getArtifactId( "foo-1.0", ids ) );
+        assertEquals( "foo-1.0", RepositoryPurgeEngine.getArtifactId( "foo-1.0.sha1", ids ) );
+        assertEquals( "bar-1.0.jar", RepositoryPurgeEngine.getArtifactId( "bar-1.0.jar.asc.md5", ids ) );
+        assertEquals( "bar-1.0.jar", RepositoryPurgeEngine.getArtifactId( "bar-1.0.jar.SHA256", ids ) );
+        assertNull( RepositoryPurgeEngine.getArtifactId( "foo-1.0.1", ids ) );
+        assertNull( RepositoryPurgeEngine.getArtifactId( "foo-1.0.1.jar", ids ) );
+        assertNull( RepositoryPurgeEngine.getArtifactId( "bar-1.0.jar.bak", ids ) );
+        assertNull( RepositoryPurgeEngine.getArtifactId( "bar-1.0.jar-sources.jar", ids ) );
+    }
+}
@@ -30,6 +30,7 @@
 import org.apache.archiva.metadata.model.ProjectMetadata;
 import org.apache.archiva.metadata.model.ProjectVersionMetadata;
 import org.apache.archiva.metadata.repository.*;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
 import org.apache.archiva.metadata.repository.storage.ReadMetadataRequest;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorage;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataInvalidException;
@@ -89,10 +90,33 @@
     @Named (value = "repositoryStorage#maven2")
     private RepositoryStorage repositoryStorage;
 
+    /**
+     * The statistics counters are updated for each artifact.
+     */
+    @Inject
+    @Named( value = "repositoryStatisticsManager#default" )
+    private RepositoryStatisticsManager repositoryStatisticsManager;
+
     private static final Logger log = LoggerFactory.getLogger( ArchivaMetadataCreationConsumer.class );
 
+    /**
+     * Number of artifacts, that are written with one save of the scan session.
+     */
+    static final int SAVE_INTERVAL = 100;
+
     private String repoId;
 
+    /**
+     * The session is kept for the whole scan, so the metadata store can write the updates of several
+     * artifacts as one batch. It is saved every {@link #SAVE_INTERVAL} artifacts and on {@link #completeScan()}.
+     */
+    private RepositorySession repositorySession;
+
+    /**
+     * The artifacts updated in the session since the last save.
+     */
+    private final List<ScannedArtifact> unsavedArtifacts = new ArrayList<>( );
+
     @Override
     public String getId()
     {
@@ -121,6 +145,7 @@ public List<String> getIncludes()
     public void beginScan( ManagedRepository repo, Date whenGathered )
         throws ConsumerException
     {
+        closeSession( );
         repoId = repo.getId();
         this.whenGathered = ZonedDateTime.ofInstant(whenGathered.toInstant(), ZoneId.of("GMT"));
     }
@@ -136,98 +161,52 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
     public void processFile( String path )
         throws ConsumerException
     {
-
-        RepositorySession repositorySession = null;
+        ScannedArtifact scanned;
         try
         {
-            repositorySession = repositorySessionFactory.createSession();
+            scanned = readMetadata( path );
         }
-        catch ( MetadataRepositoryException e )
+        catch ( RepositoryStorageRuntimeException e )
         {
-            e.printStackTrace( );
+            log.warn(
+                "Error occurred persisting metadata for artifact:{} (repository:{}); message: {}",
+                path, repoId, e.getMessage(), e );
+            return;
         }
-        try
-        {
-            // note that we do minimal processing including checksums and POM information for performance of
-            // the initial scan. Any request for this information will be intercepted and populated on-demand
-            // or picked up by subsequent scans
-
-            ArtifactMetadata artifact = repositoryStorage.readArtifactMetadataFromPath( repoId, path );
-
-            ProjectMetadata project = new ProjectMetadata();
-            project.setNamespace( artifact.getNamespace() );
-            project.setId( artifact.getProject() );
 
-            String projectVersion = VersionUtil.getBaseVersion( artifact.getVersion() );
-
-            MetadataRepository metadataRepository = repositorySession.getRepository();
-
-            boolean createVersionMetadata = false;
-
-            // FIXME: maybe not too efficient since it may have already been read and stored for this artifact
-            ProjectVersionMetadata versionMetadata = null;
+        if ( repositorySession == null )
+        {
             try
             {
-                ReadMetadataRequest readMetadataRequest =
-                    new ReadMetadataRequest().repositoryId( repoId ).namespace( artifact.getNamespace() ).projectId(
-                        artifact.getProject() ).projectVersion( projectVersion );
-                versionMetadata = repositoryStorage.readProjectVersionMetadata( readMetadataRequest );
-                createVersionMetadata = true;
-            }
-            catch ( RepositoryStorageMetadataNotFoundException e )
-            {
-                log.warn( "Missing or invalid POM for artifact:{} (repository:{}); creating empty metadata", path,
-                          repoId );
-
-                versionMetadata = new ProjectVersionMetadata();
-                versionMetadata.setId( projectVersion );
-                versionMetadata.setIncomplete( true );
-                createVersionMetadata = true;
+                repositorySession = repositorySessionFactory.createSession();
             }
-            catch ( RepositoryStorageMetadataInvalidException e )
+            catch ( MetadataRepositoryException e )
             {
-                log.warn( "Error occurred resolving POM for artifact:{} (repository:{}); message: {}",
-                          new Object[]{ path, repoId, e.getMessage() } );
+                throw new ConsumerException( e.getMessage(), e );
             }
+        }
 
-            // read the metadata and update it if it is newer or doesn't exist
-            artifact.setWhenGathered( whenGathered );
-            metadataRepository.updateArtifact(repositorySession , repoId, project.getNamespace(), project.getId(),
-                projectVersion, artifact );
-            if ( createVersionMetadata )
-            {
-                metadataRepository.updateProjectVersion(repositorySession , repoId, project.getNamespace(),
-                    project.getId(), versionMetadata );
-            }
-            metadataRepository.updateProject(repositorySession , repoId, project );
-            repositorySession.save();
+        try
+        {
+            updateMetadata( scanned );
         }
         catch ( MetadataRepositoryException e )
         {
             log.warn(
                 "Error occurred persisting metadata for artifact:{} (repository:{}); message: {}" ,
                 path, repoId, e.getMessage(), e );
-            try {
-                repositorySession.revert();
-            } catch (MetadataSessionException ex) {
-                log.error("Reverting failed {}", ex.getMessage());
-            }
+            // the revert drops the partial updates of the artifact together with the unsaved updates
+            // of the artifacts before, so these are written again
+            List<ScannedArtifact> artifacts = new ArrayList<>( unsavedArtifacts );
+            unsavedArtifacts.clear();
+            revertSession();
+            saveEach( artifacts );
+            return;
         }
-        catch ( RepositoryStorageRuntimeException e )
+        unsavedArtifacts.add( scanned );
+        if ( unsavedArtifacts.size() >= SAVE_INTERVAL )
         {
-            log.warn(
-                "Error occurred persisting metadata for artifact:{} (repository:{}); message: {}",
-                path, repoId, e.getMessage(), e );
-            try {
-                repositorySession.revert();
-            } catch (MetadataSessionException ex) {
-                log.error("Reverting failed {}", ex.getMessage());
-            }
-        } catch (MetadataSessionException e) {
-            throw new ConsumerException(e.getMessage(), e);
-        } finally
-        {
-            repositorySession.close();
+            saveSession();
         }
     }
 
@@ -241,7 +220,7 @@ public void processFile( String path, boolean executeOnEntireRepo )
     @Override
     public void completeScan()
     {
-        /* do nothing */
+        closeSession( );
     }
 
     @Override
@@ -250,6 +229,143 @@ public void completeScan( boolean executeOnEntireRepo )
         completeScan();
     }
 
+    private ScannedArtifact readMetadata( String path )
+        throws RepositoryStorageRuntimeException
+    {
+        // note that we do minimal processing including checksums and POM information for performance of
+        // the initial scan. Any request for this information will be intercepted and populated on-demand
+        // or picked up by subsequent scans
+
+        ArtifactMetadata artifact = repositoryStorage.readArtifactMetadataFromPath( repoId, path );
+
+        ProjectMetadata project = new ProjectMetadata();
+        project.setNamespace( artifact.getNamespace() );
+        project.setId( artifact.getProject() );
+
+        String projectVersion = VersionUtil.getBaseVersion( artifact.getVersion() );
+
+        // FIXME: maybe not too efficient since it may have already been read and stored for this artifact
+        ProjectVersionMetadata versionMetadata = null;
+        try
+        {
+            ReadMetadataRequest readMetadataRequest =
+                new ReadMetadataRequest().repositoryId( repoId ).namespace( artifact.getNamespace() ).projectId(
+                    artifact.getProject() ).projectVersion( projectVersion );
+            versionMetadata = repositoryStorage.readProjectVersionMetadata( readMetadataRequest );
+        }
+        catch ( RepositoryStorageMetadataNotFoundException e )
+        {
+            log.warn( "Missing or invalid POM for artifact:{} (repository:{}); creating empty metadata", path,
+                      repoId );
+
+            versionMetadata = new ProjectVersionMetadata();
+            versionMetadata.setId( projectVersion );
+            versionMetadata.setIncomplete( true );
+        }
+        catch ( RepositoryStorageMetadataInvalidException e )
+        {
+            log.warn( "Error occurred resolving POM for artifact:{} (repository:{}); message: {}",
+                      new Object[]{ path, repoId, e.getMessage() } );
+        }
+
+        // read the metadata and update it if it is newer or doesn't exist
+        artifact.setWhenGathered( whenGathered );
+        return new ScannedArtifact( path, artifact, project, projectVersion, versionMetadata );
+    }
+
+    private void updateMetadata( ScannedArtifact scanned )
+        throws MetadataRepositoryException
+    {
+        MetadataRepository metadataRepository = repositorySession.getRepository();
+        ProjectMetadata project = scanned.project;
+        metadataRepository.updateArtifact( repositorySession, repoId, project.getNamespace(), project.getId(),
+            scanned.projectVersion, scanned.artifact );
+        if ( scanned.versionMetadata != null )
+        {
+            metadataRepository.updateProjectVersion( repositorySession, repoId, project.getNamespace(),
+                project.getId(), scanned.versionMetadata );
+        }
+        metadataRepository.updateProject( repositorySession, repoId, project );
+    }
+
+    /**
+     * Saves the updates of the unsaved artifacts. If the save fails, the artifacts are written again and saved
+     * one by one, so a single failing artifact does not drop the others.
+     */
+    private void saveSession()
+    {
+        if ( unsavedArtifacts.isEmpty() )
+        {
+            return;
+        }
+        List<ScannedArtifact> artifacts = new ArrayList<>( unsavedArtifacts );
+        unsavedArtifacts.clear();
+        try
+        {
+            repositorySession.save();
+        }
+        catch ( MetadataSessionException e )
+        {
+            log.warn( "Error occurred saving the metadata of {} artifacts (repository:{}); message: {}",
+                      artifacts.size(), repoId, e.getMessage(), e );
+            revertSession();
+            saveEach( artifacts );
+            return;
+        }
+        for ( ScannedArtifact scanned : artifacts )
+        {
+            repositoryStatisticsManager.artifactUpdated( scanned.artifact );
+        }
+    }
+
+    private void saveEach( List<ScannedArtifact> artifacts )
+    {
+        for ( ScannedArtifact scanned : artifacts )
+        {
+            try
+            {
+                updateMetadata( scanned );
+                repositorySession.save();
+                repositoryStatisticsManager.artifactUpdated( scanned.artifact );
+            }
+            catch ( MetadataRepositoryException | MetadataSessionException e )
+            {
+                log.warn(
+                    "Error occurred persisting metadata for artifact:{} (repository:{}); message: {}" ,
+                    scanned.path, repoId, e.getMessage(), e );
+                revertSession();
+            }
+        }
+    }
+
+    private void revertSession()
+    {
+        try
+        {
+            repositorySession.revert();
+        }
+        catch ( MetadataSessionException ex )
+        {
+            log.error( "Reverting failed {}", ex.getMessage() );
+        }
+    }
+
+    private void closeSession()
+    {
+        if ( repositorySession != null )
+        {
+            try
+            {
+                saveSession();
+            }
+            finally
+            {
+                repositorySession.close();
+                repositorySession = null;
+            }
+        }
+    }
+
     @Override
     public void afterConfigurationChange( Registry registry, String propertyName, Object propertyValue )
     {
@@ -277,4 +393,31 @@ public void initialize()
 
         initIncludes();
     }
+
+    /**
+     * The metadata read from the storage for an artifact of the scan.
+     */
+    private static class ScannedArtifact
+    {
+        private final String path;
+
+        private final ArtifactMetadata artifact;
+
+        private final ProjectMetadata project;
+
+        private final String projectVersion;
+
+        // null, if the POM is invalid
+        private final ProjectVersionMetadata versionMetadata;
+
+        ScannedArtifact( String path, ArtifactMetadata artifact, ProjectMetadata project, String projectVersion,
+                         ProjectVersionMetadata versionMetadata )
+        {
+            this.path = path;
+            this.artifact = artifact;
+            this.project = project;
+            this.projectVersion = projectVersion;
+            this.versionMetadata = versionMetadata;
+        }
+    }
 }
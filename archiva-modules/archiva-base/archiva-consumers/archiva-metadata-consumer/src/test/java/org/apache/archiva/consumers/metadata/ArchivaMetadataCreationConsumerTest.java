@@ -0,0 +1,199 @@
+package org.apache.archiva.consumers.metadata;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorage;
+import org.apache.archiva.repository.ManagedRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the session handling of the scan in {@link ArchivaMetadataCreationConsumer}.
+ */
+public class ArchivaMetadataCreationConsumerTest
+{
+    private static final String TEST_REPO_ID = "test";
+
+    private ArchivaMetadataCreationConsumer consumer;
+
+    // the calls of the session, the metadata repository and the statistics
+    private final List<String> calls = new ArrayList<>( );
+
+    private int sessions = 0;
+
+    private String failingArtifact;
+
+    @Before
+    public void setUp( ) throws Exception
+    {
+        consumer = new ArchivaMetadataCreationConsumer( );
+        ReflectionTestUtils.setField( consumer, "repositoryStorage", createStorage( ) );
+        ReflectionTestUtils.setField( consumer, "repositorySessionFactory", createSessionFactory( ) );
+        ReflectionTestUtils.setField( consumer, "repositoryStatisticsManager", createStatisticsManager( ) );
+
+        ManagedRepository repository = (ManagedRepository) Proxy.newProxyInstance(
+            getClass( ).getClassLoader( ), new Class[]{ ManagedRepository.class },
+            ( proxy, method, args ) -> "getId".equals( method.getName( ) ) ? TEST_REPO_ID : null );
+        consumer.beginScan( repository, new Date( ) );
+    }
+
+    @Test
+    public void sessionIsSavedOnCompleteScan( ) throws Exception
+    {
+        consumer.processFile( "a.jar" );
+        consumer.processFile( "b.jar" );
+        assertThat( calls ).containsExactly( "updateArtifact a.jar", "updateArtifact b.jar" );
+
+        consumer.completeScan( );
+        assertThat( sessions ).isEqualTo( 1 );
+        assertThat( calls ).containsExactly( "updateArtifact a.jar", "updateArtifact b.jar", "save",
+                                             "artifactUpdated a.jar", "artifactUpdated b.jar", "close" );
+    }
+
+    @Test
+    public void sessionIsSavedEverySaveInterval( ) throws Exception
+    {
+        for ( int i = 0; i <= ArchivaMetadataCreationConsumer.SAVE_INTERVAL; i++ )
+        {
+            consumer.processFile( "artifact-" + i + ".jar" );
+        }
+        assertThat( calls.stream( ).filter( "save"::equals ).count( ) ).isEqualTo( 1L );
+        assertThat( calls.stream( ).filter( c -> c.startsWith( "artifactUpdated" ) ).count( ) )
+            .isEqualTo( (long) ArchivaMetadataCreationConsumer.SAVE_INTERVAL );
+
+        consumer.completeScan( );
+        assertThat( sessions ).isEqualTo( 1 );
+        assertThat( calls.stream( ).filter( "save"::equals ).count( ) ).isEqualTo( 2L );
+        assertThat( calls.stream( ).filter( c -> c.startsWith( "artifactUpdated" ) ).count( ) )
+            .isEqualTo( ArchivaMetadataCreationConsumer.SAVE_INTERVAL + 1L );
+    }
+
+    @Test
+    public void failedArtifactDoesNotDropUnsavedArtifacts( ) throws Exception
+    {
+        failingArtifact = "b.jar";
+        consumer.processFile( "a.jar" );
+        consumer.processFile( "b.jar" );
+        consumer.processFile( "c.jar" );
+        consumer.completeScan( );
+
+        // the revert drops the updates of a.jar, so it is written again and saved on its own
+        assertThat( calls ).containsExactly( "updateArtifact a.jar", "updateArtifact b.jar", "revert",
+                                             "updateArtifact a.jar", "save", "artifactUpdated a.jar",
+                                             "updateArtifact c.jar", "save", "artifactUpdated c.jar", "close" );
+    }
+
+    private RepositoryStorage createStorage( )
+    {
+        return (RepositoryStorage) Proxy.newProxyInstance( getClass( ).getClassLoader( ),
+                                                           new Class[]{ RepositoryStorage.class },
+                                                           ( proxy, method, args ) -> {
+            switch ( method.getName( ) )
+            {
+                case "readArtifactMetadataFromPath":
+                    ArtifactMetadata artifact = new ArtifactMetadata( );
+                    artifact.setRepositoryId( TEST_REPO_ID );
+                    artifact.setId( (String) args[1] );
+                    artifact.setNamespace( "org.apache.archiva" );
+                    artifact.setProject( "archiva-test" );
+                    artifact.setVersion( "1.0" );
+                    return artifact;
+                case "readProjectVersionMetadata":
+                    ProjectVersionMetadata metadata = new ProjectVersionMetadata( );
+                    metadata.setId( "1.0" );
+                    return metadata;
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    private RepositorySessionFactory createSessionFactory( )
+    {
+        MetadataRepository metadataRepository = (MetadataRepository) Proxy.newProxyInstance(
+            getClass( ).getClassLoader( ), new Class[]{ MetadataRepository.class }, ( proxy, method, args ) -> {
+                if ( "updateArtifact".equals( method.getName( ) ) )
+                {
+                    String id = ( (ArtifactMetadata) args[5] ).getId( );
+                    calls.add( "updateArtifact " + id );
+                    if ( id.equals( failingArtifact ) )
+                    {
+                        throw new MetadataRepositoryException( "failed" );
+                    }
+                }
+                return null;
+            } );
+        return (RepositorySessionFactory) Proxy.newProxyInstance(
+            getClass( ).getClassLoader( ), new Class[]{ RepositorySessionFactory.class }, ( proxy, method, args ) -> {
+                if ( "createSession".equals( method.getName( ) ) )
+                {
+                    sessions++;
+                    return new RepositorySession( metadataRepository, null )
+                    {
+                        @Override
+                        public void save( )
+                        {
+                            calls.add( "save" );
+                        }
+
+                        @Override
+                        public void revert( )
+                        {
+                            calls.add( "revert" );
+                        }
+
+                        @Override
+                        public void close( )
+                        {
+                            calls.add( "close" );
+                        }
+                    };
+                }
+                return null;
+            } );
+    }
+
+    private RepositoryStatisticsManager createStatisticsManager( )
+    {
+        return (RepositoryStatisticsManager) Proxy.newProxyInstance(
+            getClass( ).getClassLoader( ), new Class[]{ RepositoryStatisticsManager.class }, ( proxy, method, args ) -> {
+                if ( "artifactUpdated".equals( method.getName( ) ) )
+                {
+                    calls.add( "artifactUpdated " + ( (ArtifactMetadata) args[0] ).getId( ) );
+                }
+                return null;
+            } );
+    }
+}
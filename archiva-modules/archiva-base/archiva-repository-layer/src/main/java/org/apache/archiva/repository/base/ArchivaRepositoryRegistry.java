@@ -101,17 +101,18 @@ public class ArchivaRepositoryRegistry implements ConfigurationListener, EventHa
     private final EventManager eventManager;
 
 
+    // The maps are modified only by threads holding the write lock
     private Map<String, ManagedRepository> managedRepositories = new HashMap<>();
-    private Map<String, ManagedRepository> uManagedRepository = Collections.unmodifiableMap(managedRepositories);
 
     private Map<String, RemoteRepository> remoteRepositories = new HashMap<>();
-    private Map<String, RemoteRepository> uRemoteRepositories = Collections.unmodifiableMap(remoteRepositories);
 
     private Map<String, RepositoryGroup> repositoryGroups = new HashMap<>();
-    private Map<String, RepositoryGroup> uRepositoryGroups = Collections.unmodifiableMap(repositoryGroups);
 
     private ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
 
+    // Immutable copy of the maps for the readers, replaced by the writers before releasing the write lock
+    private volatile RegistrySnapshot snapshot = new RegistrySnapshot(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
     private volatile boolean ignoreConfigEvents = false;
 
     public ArchivaRepositoryRegistry() {
@@ -138,7 +139,7 @@ private void initialize() {
             // archivaConfiguration.addChangeListener(this);
             archivaConfiguration.addListener(this);
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
         pushEvent(new RepositoryRegistryEvent(RepositoryRegistryEvent.RELOADED, this));
     }
@@ -153,6 +154,7 @@ public void destroy() {
             repo.close();
         }
         remoteRepositories.clear();
+        publishSnapshot();
         pushEvent(new RepositoryRegistryEvent(RepositoryRegistryEvent.DESTROYED, this));
     }
 
@@ -396,12 +398,8 @@ private ArchivaConfiguration getArchivaConfiguration() {
      */
     @Override
     public Collection<Repository> getRepositories( ) {
-        rwLock.readLock().lock();
-        try {
-            return Stream.concat(managedRepositories.values().stream(), remoteRepositories.values().stream()).collect(Collectors.toList());
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        RegistrySnapshot current = getSnapshot();
+        return Stream.concat(current.managedRepositories.values().stream(), current.remoteRepositories.values().stream()).collect(Collectors.toList());
     }
 
     /**
@@ -411,12 +409,7 @@ public Collection<Repository> getRepositories( ) {
      */
     @Override
     public Collection<ManagedRepository> getManagedRepositories( ) {
-        rwLock.readLock().lock();
-        try {
-            return uManagedRepository.values();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().managedRepositories.values();
     }
 
     /**
@@ -426,22 +419,12 @@ public Collection<ManagedRepository> getManagedRepositories( ) {
      */
     @Override
     public Collection<RemoteRepository> getRemoteRepositories( ) {
-        rwLock.readLock().lock();
-        try {
-            return uRemoteRepositories.values();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().remoteRepositories.values();
     }
 
     @Override
     public Collection<RepositoryGroup> getRepositoryGroups( ) {
-        rwLock.readLock().lock();
-        try {
-            return uRepositoryGroups.values();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().repositoryGroups.values();
     }
 
     /**
@@ -453,22 +436,16 @@ public Collection<RepositoryGroup> getRepositoryGroups( ) {
      */
     @Override
     public Repository getRepository( String repoId ) {
-        rwLock.readLock().lock();
-        try {
-            log.debug("getRepository {}", repoId);
-            if (managedRepositories.containsKey(repoId)) {
-                log.debug("Managed repo");
-                return managedRepositories.get(repoId);
-            } else if (remoteRepositories.containsKey(repoId)) {
-                log.debug("Remote repo");
-                return remoteRepositories.get(repoId);
-            } else if (repositoryGroups.containsKey(repoId)) {
-                return repositoryGroups.get(repoId);
-            } else {
-                return null;
-            }
-        } finally {
-            rwLock.readLock().unlock();
+        log.debug("getRepository {}", repoId);
+        RegistrySnapshot current = getSnapshot();
+        if (current.managedRepositories.containsKey(repoId)) {
+            log.debug("Managed repo");
+            return current.managedRepositories.get(repoId);
+        } else if (current.remoteRepositories.containsKey(repoId)) {
+            log.debug("Remote repo");
+            return current.remoteRepositories.get(repoId);
+        } else {
+            return current.repositoryGroups.get(repoId);
         }
     }
 
@@ -481,12 +458,7 @@ public Repository getRepository( String repoId ) {
      */
     @Override
     public ManagedRepository getManagedRepository( String repoId ) {
-        rwLock.readLock().lock();
-        try {
-            return managedRepositories.get(repoId);
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().managedRepositories.get(repoId);
     }
 
     /**
@@ -498,22 +470,12 @@ public ManagedRepository getManagedRepository( String repoId ) {
      */
     @Override
     public RemoteRepository getRemoteRepository( String repoId ) {
-        rwLock.readLock().lock();
-        try {
-            return remoteRepositories.get(repoId);
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().remoteRepositories.get(repoId);
     }
 
     @Override
     public RepositoryGroup getRepositoryGroup( String groupId ) {
-        rwLock.readLock().lock();
-        try {
-            return repositoryGroups.get(groupId);
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return getSnapshot().repositoryGroups.get(groupId);
     }
 
     /*
@@ -577,7 +539,7 @@ public ManagedRepository putRepository( ManagedRepository managedRepository ) th
                 throw new RepositoryException("Could not save the configuration" + (e.getMessage() == null ? "" : ": " + e.getMessage()));
             }
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -610,7 +572,7 @@ public ManagedRepository putRepository( ManagedRepositoryConfiguration managedRe
             }
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
 
     }
@@ -653,7 +615,7 @@ public ManagedRepository putRepository( ManagedRepositoryConfiguration managedRe
             }
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -698,7 +660,7 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroup repositoryGroup ) thr
                 throw new RepositoryException("Could not save the configuration" + (e.getMessage() == null ? "" : ": " + e.getMessage()));
             }
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -731,7 +693,7 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration reposito
             }
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
 
     }
@@ -768,7 +730,7 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration reposito
             replaceOrAddRepositoryConfig(repositoryGroupConfiguration, configuration);
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -859,7 +821,7 @@ public RemoteRepository putRepository( RemoteRepository remoteRepository, Config
                 throw new RepositoryException("Could not save the configuration" + (e.getMessage() == null ? "" : ": " + e.getMessage()));
             }
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -884,7 +846,7 @@ public RemoteRepository putRepository( RemoteRepository remoteRepository ) throw
                 throw new RepositoryException("Could not save the configuration" + (e.getMessage() == null ? "" : ": " + e.getMessage()));
             }
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
     }
 
@@ -917,7 +879,7 @@ public RemoteRepository putRepository( RemoteRepositoryConfiguration remoteRepos
             }
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
 
     }
@@ -961,7 +923,7 @@ public RemoteRepository putRepository( RemoteRepositoryConfiguration remoteRepos
             }
             return repo;
         } finally {
-            rwLock.writeLock().unlock();
+            publishAndUnlock();
         }
 
 
@@ -1027,7 +989,7 @@ public void removeRepository( ManagedRepository managedRepository ) throws Repos
                 managedRepositories.put(repo.getId(), repo);
                 throw new RepositoryException("Could not save configuration after repository removal: " + e.getMessage());
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
     }
@@ -1060,7 +1022,7 @@ public void removeRepository( ManagedRepository managedRepository, Configuration
                 }
                 pushEvent(new LifecycleEvent(LifecycleEvent.UNREGISTERED, this, repo));
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
 
@@ -1101,7 +1063,7 @@ public void removeRepositoryGroup( RepositoryGroup repositoryGroup ) throws Repo
                 repositoryGroups.put(repo.getId(), repo);
                 throw new RepositoryException("Could not save configuration after repository removal: " + e.getMessage());
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
     }
@@ -1125,7 +1087,7 @@ public void removeRepositoryGroup( RepositoryGroup repositoryGroup, Configuratio
                     }
                 }
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
 
@@ -1175,7 +1137,7 @@ public void removeRepository( RemoteRepository remoteRepository ) throws Reposit
                 remoteRepositories.put(repo.getId(), repo);
                 throw new RepositoryException("Could not save configuration after repository removal: " + e.getMessage());
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
     }
@@ -1196,7 +1158,7 @@ public void removeRepository( RemoteRepository remoteRepository, Configuration c
                 }
                 pushEvent(new LifecycleEvent(LifecycleEvent.UNREGISTERED, this, repo));
             } finally {
-                rwLock.writeLock().unlock();
+                publishAndUnlock();
             }
         }
 
@@ -1356,9 +1318,52 @@ private boolean sameOriginator(Event event) {
     }
 
     private void pushEvent(Event event) {
+        if (rwLock.isWriteLockedByCurrentThread()) {
+            // The handlers must see the changes, that caused the event
+            publishSnapshot();
+        }
         eventManager.fireEvent(event);
     }
 
+    /**
+     * Returns the maps for the read access. Readers use the current snapshot without locking. The writer,
+     * that holds the write lock, sees its own changes.
+     */
+    private RegistrySnapshot getSnapshot() {
+        if (rwLock.isWriteLockedByCurrentThread()) {
+            return new RegistrySnapshot(managedRepositories, remoteRepositories, repositoryGroups);
+        }
+        return snapshot;
+    }
+
+    private void publishSnapshot() {
+        this.snapshot = new RegistrySnapshot(new HashMap<>(managedRepositories), new HashMap<>(remoteRepositories),
+                new HashMap<>(repositoryGroups));
+    }
+
+    private void publishAndUnlock() {
+        try {
+            if (rwLock.getWriteHoldCount() == 1) {
+                publishSnapshot();
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private static final class RegistrySnapshot {
+        private final Map<String, ManagedRepository> managedRepositories;
+        private final Map<String, RemoteRepository> remoteRepositories;
+        private final Map<String, RepositoryGroup> repositoryGroups;
+
+        RegistrySnapshot(Map<String, ManagedRepository> managedRepositories, Map<String, RemoteRepository> remoteRepositories,
+                         Map<String, RepositoryGroup> repositoryGroups) {
+            this.managedRepositories = Collections.unmodifiableMap(managedRepositories);
+            this.remoteRepositories = Collections.unmodifiableMap(remoteRepositories);
+            this.repositoryGroups = Collections.unmodifiableMap(repositoryGroups);
+        }
+    }
+
 
 
 }
@@ -0,0 +1,245 @@
+package org.apache.archiva.repository.metadata.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.ManagedRepositoryContent;
+import org.apache.archiva.repository.metadata.RepositoryMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Regenerates maven-metadata.xml files in the background.
+ * <p>
+ * Callers mark the metadata files of projects and versions as dirty, e.g. after a deploy. A dirty file is
+ * regenerated, when it was not marked again for the debounce delay, but at the latest after the maximum delay.
+ * So a file, that is marked many times by the artifacts of a multi module deploy, is regenerated once.
+ * Version metadata files are regenerated before the project metadata files.
+ *
+ * @since 3.0
+ */
+@Service( "metadataRegenerationService#default" )
+public class MetadataRegenerationService
+{
+    private static final Logger log = LoggerFactory.getLogger( MetadataRegenerationService.class );
+
+    public static final long DEFAULT_DELAY = 500;
+
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    @Inject
+    @Named( value = "metadataTools#default" )
+    private MetadataTools metadataTools;
+
+    private long delay = DEFAULT_DELAY;
+
+    private long maxDelay = DEFAULT_MAX_DELAY;
+
+    private final ConcurrentHashMap<String, DirtyMetadata> dirty = new ConcurrentHashMap<>( );
+
+    private final AtomicBoolean scheduled = new AtomicBoolean( false );
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread thread = new Thread( r, "metadata-regeneration" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    /**
+     * Marks the metadata file as dirty. The file is regenerated after the debounce delay.
+     *
+     * @param repository the managed repository of the metadata file
+     * @param metadataPath the path of the metadata file relative to the repository root
+     */
+    public void markDirty( ManagedRepositoryContent repository, String metadataPath )
+    {
+        long now = System.currentTimeMillis( );
+        dirty.compute( key( repository, metadataPath ), ( key, entry ) -> {
+            if ( entry == null )
+            {
+                return new DirtyMetadata( repository, metadataPath, now );
+            }
+            entry.lastMarked = now;
+            return entry;
+        } );
+        schedule( delay );
+    }
+
+    /**
+     * Regenerates all dirty metadata files of the repository in the calling thread.
+     *
+     * @param repositoryId the repository id
+     */
+    public void flush( String repositoryId )
+    {
+        regenerate( entry -> entry.repository.getId( ).equals( repositoryId ) );
+    }
+
+    /**
+     * Regenerates all dirty metadata files in the calling thread.
+     */
+    public void flush( )
+    {
+        regenerate( entry -> true );
+    }
+
+    /**
+     * @return the number of metadata files waiting for regeneration
+     */
+    public int getPendingCount( )
+    {
+        return dirty.size( );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        executor.shutdownNow( );
+        flush( );
+    }
+
+    private void schedule( long wait )
+    {
+        if ( scheduled.compareAndSet( false, true ) )
+        {
+            try
+            {
+                executor.schedule( this::regenerateDue, wait, TimeUnit.MILLISECONDS );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // shut down, the remaining files are regenerated by the shutdown
+                scheduled.set( false );
+            }
+        }
+    }
+
+    private void regenerateDue( )
+    {
+        scheduled.set( false );
+        long now = System.currentTimeMillis( );
+        regenerate( entry -> now - entry.lastMarked >= delay || now - entry.firstMarked >= maxDelay );
+        if ( !dirty.isEmpty( ) )
+        {
+            long next = Long.MAX_VALUE;
+            for ( DirtyMetadata entry : dirty.values( ) )
+            {
+                next = Math.min( next, Math.min( entry.lastMarked + delay, entry.firstMarked + maxDelay ) );
+            }
+            schedule( Math.max( 0, next - System.currentTimeMillis( ) ) );
+        }
+    }
+
+    private void regenerate( Predicate<DirtyMetadata> filter )
+    {
+        List<DirtyMetadata> due = new ArrayList<>( );
+        for ( DirtyMetadata entry : dirty.values( ) )
+        {
+            // an entry is regenerated only by the thread, that removes it
+            if ( filter.test( entry ) && dirty.remove( key( entry.repository, entry.metadataPath ), entry ) )
+            {
+                due.add( entry );
+            }
+        }
+        // the deeper version metadata files first, the project metadata lists the versions
+        due.sort( Comparator.comparingInt( ( DirtyMetadata entry ) -> entry.metadataPath.length( ) ).reversed( ) );
+        for ( DirtyMetadata entry : due )
+        {
+            try
+            {
+                metadataTools.updateMetadata( entry.repository, entry.metadataPath );
+                log.debug( "Regenerated metadata {} of repository {}", entry.metadataPath, entry.repository.getId( ) );
+            }
+            catch ( RepositoryMetadataException | RuntimeException e )
+            {
+                log.error( "Could not regenerate metadata {} of repository {}: {}", entry.metadataPath,
+                           entry.repository.getId( ), e.getMessage( ), e );
+            }
+        }
+    }
+
+    private static String key( ManagedRepositoryContent repository, String metadataPath )
+    {
+        return repository.getId( ) + ":" + metadataPath;
+    }
+
+    public MetadataTools getMetadataTools( )
+    {
+        return metadataTools;
+    }
+
+    public void setMetadataTools( MetadataTools metadataTools )
+    {
+        this.metadataTools = metadataTools;
+    }
+
+    public long getDelay( )
+    {
+        return delay;
+    }
+
+    public void setDelay( long delay )
+    {
+        this.delay = delay;
+    }
+
+    public long getMaxDelay( )
+    {
+        return maxDelay;
+    }
+
+    public void setMaxDelay( long maxDelay )
+    {
+        this.maxDelay = maxDelay;
+    }
+
+    private static final class DirtyMetadata
+    {
+        private final ManagedRepositoryContent repository;
+
+        private final String metadataPath;
+
+        private final long firstMarked;
+
+        private volatile long lastMarked;
+
+        DirtyMetadata( ManagedRepositoryContent repository, String metadataPath, long now )
+        {
+            this.repository = repository;
+            this.metadataPath = metadataPath;
+            this.firstMarked = now;
+            this.lastMarked = now;
+        }
+    }
+}
@@ -443,6 +443,8 @@ public void updateMetadata( ManagedRepositoryContent managedRepository, String l
     /**
      * Skims the parent directory of a metadata in vain hope of finding
      * subdirectories that contain poms.
+     * Subdirectories of versions, that are already known, are not checked. For the other subdirectories the
+     * pom of the release version is looked up first, the subdirectory is only listed, if it is not found.
      *
      * @param metadataParentDirectory
      * @return origional set plus newly found versions
@@ -452,9 +454,11 @@ private Set<String> findPossibleVersions( Set<String> versions, StorageAsset met
 
         Set<String> result = new HashSet<String>( versions );
 
+        String artifactId = metadataParentDirectory.getName();
         metadataParentDirectory.list().stream().filter(asset ->
-                asset.isContainer()).filter(asset -> {
-                    return asset.list().stream().anyMatch(f -> !f.isContainer() && f.getName().endsWith(".pom"));
+                asset.isContainer() && !result.contains( asset.getName() ) ).filter(asset -> {
+                    StorageAsset pom = asset.resolve( artifactId + "-" + asset.getName() + ".pom" );
+                    return pom.exists() || asset.list().stream().anyMatch(f -> !f.isContainer() && f.getName().endsWith(".pom"));
                 }
                 ).forEach( p -> result.add(p.getName()));
 
@@ -37,10 +37,17 @@
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * RepositoryMetadataWriter
@@ -49,9 +56,18 @@
 {
     private static final Logger log = LoggerFactory.getLogger(RepositoryMetadataWriter.class);
 
+    /**
+     * Writes the metadata to the given asset. File based assets are written to a temporary file, that
+     * replaces the asset by an atomic move, so readers never see a partially written file.
+     */
     public static void write( ArchivaRepositoryMetadata metadata, StorageAsset outputFile )
         throws RepositoryMetadataException
     {
+        if ( outputFile.isFileBased() )
+        {
+            writeAtomic( metadata, outputFile.getFilePath() );
+            return;
+        }
         boolean thrown = false;
         try (OutputStreamWriter writer = new OutputStreamWriter( outputFile.getWriteStream(true)))
         {
@@ -77,6 +93,45 @@ public static void write( ArchivaRepositoryMetadata metadata, StorageAsset outpu
         }
     }
 
+    private static void writeAtomic( ArchivaRepositoryMetadata metadata, Path outputFile )
+        throws RepositoryMetadataException
+    {
+        Path tmpFile = outputFile.resolveSibling( "." + outputFile.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+        try
+        {
+            Files.createDirectories( outputFile.getParent() );
+            try (Writer writer = new OutputStreamWriter( Files.newOutputStream( tmpFile, StandardOpenOption.CREATE_NEW ),
+                                                         StandardCharsets.UTF_8 ))
+            {
+                write( metadata, writer );
+            }
+            try
+            {
+                Files.move( tmpFile, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( tmpFile, outputFile, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new RepositoryMetadataException(
+                "Unable to write metadata file: " + outputFile + " - " + e.getMessage(), e );
+        }
+        finally
+        {
+            try
+            {
+                Files.deleteIfExists( tmpFile );
+            }
+            catch ( IOException e )
+            {
+                log.error( "Could not remove temporary file {}", tmpFile );
+            }
+        }
+    }
+
     public static void write( ArchivaRepositoryMetadata metadata, Writer writer )
         throws RepositoryMetadataException
     {
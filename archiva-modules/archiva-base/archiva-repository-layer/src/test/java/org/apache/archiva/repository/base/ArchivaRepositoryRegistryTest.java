@@ -23,6 +23,7 @@
 import org.apache.archiva.configuration.Configuration;
 import org.apache.archiva.configuration.ManagedRepositoryConfiguration;
 import org.apache.archiva.configuration.RemoteRepositoryConfiguration;
+import org.apache.archiva.event.EventHandler;
 import org.apache.archiva.repository.ManagedRepository;
 import org.apache.archiva.repository.ReleaseScheme;
 import org.apache.archiva.repository.RemoteRepository;
@@ -30,6 +31,7 @@
 import org.apache.archiva.repository.RepositoryException;
 import org.apache.archiva.repository.RepositoryRegistry;
 import org.apache.archiva.repository.RepositoryType;
+import org.apache.archiva.repository.event.LifecycleEvent;
 import org.apache.archiva.test.utils.ArchivaSpringJUnit4ClassRunner;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -49,6 +51,9 @@
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -407,6 +412,37 @@ public void removeManagedRepository( ) throws Exception
         assertEquals(3, repositoryRegistry.getManagedRepositories().size());
     }
 
+    @Test
+    public void removeManagedRepositoryPublishesSnapshot( ) throws Exception
+    {
+        Collection<ManagedRepository> before = repositoryRegistry.getManagedRepositories( );
+        AtomicReference<ManagedRepository> seenByOtherThread = new AtomicReference<>( );
+        AtomicReference<Boolean> eventReceived = new AtomicReference<>( false );
+        EventHandler<LifecycleEvent> handler = event -> {
+            eventReceived.set( true );
+            // readers do not wait for the writer, that fires the event
+            seenByOtherThread.set( CompletableFuture.supplyAsync(
+                ( ) -> repositoryRegistry.getManagedRepository( "snapshots" ) ).join( ) );
+        };
+        repositoryRegistry.registerEventHandler( LifecycleEvent.UNREGISTERED, handler );
+        try
+        {
+            ManagedRepository repo = repositoryRegistry.getManagedRepository( "snapshots" );
+            repositoryRegistry.removeRepository( repo, archivaConfiguration.getConfiguration( ) );
+        }
+        finally
+        {
+            repositoryRegistry.unregisterEventHandler( LifecycleEvent.UNREGISTERED, handler );
+        }
+
+        assertTrue( eventReceived.get( ) );
+        assertNull( seenByOtherThread.get( ) );
+        assertNull( CompletableFuture.supplyAsync( ( ) -> repositoryRegistry.getManagedRepository( "snapshots" ) ).get( 10, TimeUnit.SECONDS ) );
+        // collections returned before are not modified
+        assertEquals( 4, before.size( ) );
+        assertEquals( 3, repositoryRegistry.getManagedRepositories( ).size( ) );
+    }
+
     @Test
     public void removeManagedRepositoryWithoutSave( ) throws Exception
     {
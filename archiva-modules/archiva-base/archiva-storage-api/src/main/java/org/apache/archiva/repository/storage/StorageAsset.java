@@ -27,6 +27,7 @@
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * A instance of this interface represents information about a specific asset in a repository.
@@ -87,6 +88,17 @@
      */
     List<? extends StorageAsset> list();
 
+    /**
+     * Returns a stream of the child assets. Implementations may read the children lazily, while the stream is
+     * consumed, so the stream should always be used in a try-with-resources statement.
+     * The default implementation streams the result of {@link #list()}.
+     *
+     * @return The stream of children. If there are no children and if the asset is not a container, a empty stream will be returned.
+     */
+    default Stream<? extends StorageAsset> newChildStream() {
+        return list().stream();
+    }
+
     /**
      * The size in bytes of the asset. If the asset does not have a size, -1 should be returned.
      *
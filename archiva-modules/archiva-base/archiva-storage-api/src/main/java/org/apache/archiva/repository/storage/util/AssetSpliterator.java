@@ -21,6 +21,7 @@
 import org.apache.archiva.repository.storage.StorageAsset;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -29,8 +30,7 @@
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  *
@@ -110,10 +110,16 @@ private void add( StorageAsset asset) {
     @Override
     public void close( )
     {
-        this.workList.clear();
-        this.workList=null;
-        this.visitedContainers.clear();
-        this.visitedContainers=null;
+        if (this.workList!=null)
+        {
+            this.workList.clear( );
+            this.workList = null;
+        }
+        if (this.visitedContainers!=null)
+        {
+            this.visitedContainers.clear( );
+            this.visitedContainers = null;
+        }
     }
 
     @Override
@@ -135,15 +141,34 @@ private void consumeAsset( Consumer<? super StorageAsset> action, StorageAsset a
         while(retrieveNextPath( asset )) {
             asset = workList.getLast( );
         }
-        action.accept( workList.removeLast() );
+        final StorageAsset consumed = workList.removeLast( );
+        // The container is not on the stack anymore, so we need not remember it
+        visitedContainers.remove( consumed );
+        action.accept( consumed );
         visited++;
     }
 
     private boolean retrieveNextPath(StorageAsset parent) {
         if (parent.isContainer() && !visitedContainers.contains( parent )) {
+            final List<StorageAsset> childFiles = new ArrayList<>( );
+            final List<StorageAsset> childContainers = new ArrayList<>( );
+            // The children are listed only once and sorted into files and containers
+            try ( Stream<? extends StorageAsset> children = parent.newChildStream( ) )
+            {
+                children.forEach( child -> {
+                    if ( child.isContainer( ) )
+                    {
+                        childContainers.add( child );
+                    }
+                    else if ( child.isLeaf( ) )
+                    {
+                        childFiles.add( child );
+                    }
+                } );
+            }
             // Containers after files in stack guarantee the depth-first behaviour
-            workList.addAll( getChildFiles( parent ) );
-            workList.addAll( getChildContainers( parent ) );
+            addReversed( childFiles );
+            addReversed( childContainers );
             visitedContainers.add( parent );
             return true;
         } else {
@@ -151,6 +176,15 @@ private boolean retrieveNextPath(StorageAsset parent) {
         }
     }
 
+    // Assets are added in reverse order, so that the first child is consumed first
+    private void addReversed( List<StorageAsset> assets )
+    {
+        for ( int i = assets.size( ) - 1; i >= 0; i-- )
+        {
+            workList.addLast( assets.get( i ) );
+        }
+    }
+
     @Override
     public void forEachRemaining( Consumer<? super StorageAsset> action )
     {
@@ -166,23 +200,6 @@ public void forEachRemaining( Consumer<? super StorageAsset> action )
         }
     }
 
-    // Assets are returned in reverse order
-    List<? extends StorageAsset> getChildContainers( StorageAsset parent) {
-        final List<? extends StorageAsset> children = parent.list( );
-        final int len = children.size( );
-        return IntStream.range( 0, children.size( ) ).mapToObj( i ->
-            children.get(len - i - 1)).filter( StorageAsset::isContainer ).collect( Collectors.toList( ) );
-    }
-
-    // Assets are returned in reverse order
-    List<? extends StorageAsset> getChildFiles(StorageAsset parent) {
-        final List<? extends StorageAsset> children = parent.list( );
-        final int len = children.size( );
-        return IntStream.range( 0, children.size( ) ).mapToObj( i ->
-            children.get(len - i - 1)).filter( StorageAsset::isLeaf ).collect( Collectors.toList( ) );
-    }
-
-
     /**
      * Splits by moving every second asset to the new spliterator. This allows to start both at similar
      * tree depths. But it is not guaranteed that they start on the same depth.
@@ -83,6 +83,8 @@ public static void walk( StorageAsset start, Function<StorageAsset, Boolean> con
     /**
      * Returns a stream of assets starting at the given start node. The returned stream returns a closable
      * stream and should always be used in a try-with-resources statement.
+     * The directories are listed, while the stream is consumed. A parallel stream splits the pending
+     * subtrees between the worker threads.
      *
      * @param start the starting asset
      * @param parallel <code>true</code>, if a parallel stream should be created, otherwise <code>false</code>
@@ -90,7 +92,8 @@ public static void walk( StorageAsset start, Function<StorageAsset, Boolean> con
      */
     public static Stream<StorageAsset> newAssetStream( StorageAsset start, boolean parallel )
     {
-        return StreamSupport.stream( new AssetSpliterator( start ), parallel );
+        final AssetSpliterator spliterator = new AssetSpliterator( start );
+        return StreamSupport.stream( spliterator, parallel ).onClose( spliterator::close );
     }
 
 
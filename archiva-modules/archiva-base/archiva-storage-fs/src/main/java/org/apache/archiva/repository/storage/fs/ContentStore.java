@@ -0,0 +1,397 @@
+package org.apache.archiva.repository.storage.fs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content addressable store for file data. Each distinct content is stored once as blob, the blob name is the
+ * SHA-256 digest of the data. Repository files reference the blobs by hard links, so the repository paths stay
+ * regular files and all code, that accesses the files directly, works unchanged.
+ * <p>
+ * The store directory and the repositories must be on the same filesystem, because hard links cannot cross
+ * filesystem boundaries. The filesystem must provide the <code>unix:nlink</code> attribute.
+ * <p>
+ * Files that share a blob must not be modified in place. The write permissions of the blobs are removed, on
+ * filesystems with POSIX permissions, and the data of an existing blob is verified, before a file is linked to it.
+ * {@link #detach(Path)} gives a file its own, writable copy of the data and must be called before the file is
+ * written. Replacing a file by moving a new file to its path is safe. Changing the permissions of a linked file
+ * changes the permissions of the blob and of all other linked files.
+ * <p>
+ * Blobs are removed by {@link #sweep()}, if they are not referenced by any repository file. The reference count
+ * is the link count of the filesystem.
+ *
+ * @since 3.0
+ */
+public class ContentStore
+{
+    private static final Logger log = LoggerFactory.getLogger( ContentStore.class );
+
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final String TMP_SUFFIX = ".cas-tmp";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray( );
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path storeDir;
+
+    private final AtomicLong linkedFiles = new AtomicLong( );
+
+    private final AtomicLong linkedBytes = new AtomicLong( );
+
+    /**
+     * Creates the content store in the given directory.
+     *
+     * @param storeDir the directory of the blobs
+     * @throws IOException if the directory cannot be created, or if the filesystem does not provide the link count
+     */
+    public ContentStore( Path storeDir ) throws IOException
+    {
+        Files.createDirectories( storeDir );
+        this.storeDir = storeDir.normalize( ).toRealPath( );
+        // Without link count, shared files cannot be detached before writing and unused blobs cannot be found
+        if ( getLinkCount( this.storeDir ) < 0 )
+        {
+            throw new IOException( "The filesystem of the content store " + this.storeDir
+                                       + " does not provide the unix:nlink attribute" );
+        }
+    }
+
+    public Path getStoreDir( )
+    {
+        return storeDir;
+    }
+
+    /**
+     * Returns the path of the blob for the given digest. The blobs are distributed into two directory levels.
+     *
+     * @param digest the hex encoded SHA-256 digest
+     * @return the path of the blob, the blob may not exist
+     */
+    public Path getBlobPath( String digest )
+    {
+        if ( digest == null || digest.length( ) < 5 )
+        {
+            throw new IllegalArgumentException( "Invalid digest " + digest );
+        }
+        return storeDir.resolve( digest.substring( 0, 2 ) ).resolve( digest.substring( 2, 4 ) ).resolve( digest );
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of the file data.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if the file cannot be read
+     */
+    public String digest( Path file ) throws IOException
+    {
+        final MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance( DIGEST_ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IOException( "Digest algorithm not available " + DIGEST_ALGORITHM, e );
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try ( InputStream is = Files.newInputStream( file ) )
+        {
+            int len;
+            while ( ( len = is.read( buffer ) ) != -1 )
+            {
+                md.update( buffer, 0, len );
+            }
+        }
+        byte[] digest = md.digest( );
+        char[] result = new char[digest.length * 2];
+        for ( int i = 0; i < digest.length; i++ )
+        {
+            result[2 * i] = HEX[( digest[i] >> 4 ) & 0xf];
+            result[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String( result );
+    }
+
+    /**
+     * Stores the data of the file in the content store. If a blob with the same content exists already, the file
+     * is replaced by a link to the blob. Otherwise the file becomes the blob. The blob, and therefore the file,
+     * is made read only. The data of an existing blob is read and compared to the digest of the file, before the
+     * file is replaced, so a blob that was modified in place is never shared.
+     *
+     * @param file the regular file to store
+     * @return the digest of the data
+     * @throws IOException if the file cannot be read or linked, e.g. because the store is on another filesystem
+     */
+    public String store( Path file ) throws IOException
+    {
+        if ( !Files.isRegularFile( file ) )
+        {
+            throw new IOException( "Only regular files can be stored: " + file );
+        }
+        final String digest = digest( file );
+        final Path blob = getBlobPath( digest );
+        Files.createDirectories( blob.getParent( ) );
+        // Two attempts, because the blob may be created or removed concurrently
+        for ( int attempt = 0; ; attempt++ )
+        {
+            try
+            {
+                if ( Files.exists( blob ) )
+                {
+                    if ( Files.isSameFile( blob, file ) )
+                    {
+                        setReadOnly( blob );
+                        return digest;
+                    }
+                    if ( Files.size( blob ) != Files.size( file ) || !digest.equals( digest( blob ) ) )
+                    {
+                        throw new IOException( "Blob " + blob + " does not match the content of " + file );
+                    }
+                    setReadOnly( blob );
+                    replaceByLink( blob, file );
+                    linkedFiles.incrementAndGet( );
+                    linkedBytes.addAndGet( Files.size( blob ) );
+                }
+                else
+                {
+                    Files.createLink( blob, file );
+                    setReadOnly( blob );
+                }
+                return digest;
+            }
+            catch ( FileAlreadyExistsException | NoSuchFileException e )
+            {
+                if ( attempt > 0 )
+                {
+                    throw e;
+                }
+                log.debug( "Blob {} changed concurrently, trying again", blob );
+            }
+            catch ( UnsupportedOperationException e )
+            {
+                throw new IOException( "Hard links are not supported for " + file, e );
+            }
+        }
+    }
+
+    /**
+     * Creates the target file as link to the data of the source file. This is a metadata operation and does
+     * not copy any data. The source file is not added to the store.
+     *
+     * @param source the regular source file
+     * @param target the target file
+     * @param replace <code>true</code>, if an existing target file should be replaced
+     * @throws IOException if the link cannot be created
+     */
+    public void link( Path source, Path target, boolean replace ) throws IOException
+    {
+        if ( !Files.isRegularFile( source ) )
+        {
+            throw new IOException( "Only regular files can be linked: " + source );
+        }
+        if ( Files.exists( target ) && !replace )
+        {
+            throw new FileAlreadyExistsException( target.toString( ) );
+        }
+        Files.createDirectories( target.getParent( ) );
+        try
+        {
+            replaceByLink( source, target );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            throw new IOException( "Hard links are not supported for " + target, e );
+        }
+    }
+
+    /**
+     * Gives the file its own copy of the data, if the data is shared with other files. If the link count of the
+     * file is not known, the file is treated as shared. The copy is writable for the owner, and for the group,
+     * if the group may read the file.
+     *
+     * @param file the file that should be modified
+     * @return <code>true</code>, if the file was detached, <code>false</code>, if it was not shared
+     * @throws IOException if the copy failed
+     */
+    public boolean detach( Path file ) throws IOException
+    {
+        if ( !Files.isRegularFile( file ) || getLinkCount( file ) == 1 )
+        {
+            return false;
+        }
+        Path tmpFile = getTmpFile( file );
+        try
+        {
+            Files.copy( file, tmpFile, StandardCopyOption.COPY_ATTRIBUTES );
+            setWritable( tmpFile );
+            Files.move( tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmpFile );
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of links to the data of the given file.
+     *
+     * @param file the file
+     * @return the link count, or -1 if the filesystem does not provide the link count
+     * @throws IOException if the attributes cannot be read
+     */
+    public int getLinkCount( Path file ) throws IOException
+    {
+        try
+        {
+            Object count = Files.getAttribute( file, "unix:nlink" );
+            return count instanceof Number ? ( (Number) count ).intValue( ) : -1;
+        }
+        catch ( UnsupportedOperationException | IllegalArgumentException e )
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Removes all blobs, that are not referenced by any repository file, and temporary files, that were left
+     * by interrupted operations.
+     *
+     * @return the number of removed blobs
+     * @throws IOException if the store cannot be read
+     */
+    public long sweep( ) throws IOException
+    {
+        long removed = 0;
+        try ( Stream<Path> files = Files.walk( storeDir ) )
+        {
+            Iterator<Path> iterator = files.filter( Files::isRegularFile ).iterator( );
+            while ( iterator.hasNext( ) )
+            {
+                Path file = iterator.next( );
+                if ( file.getFileName( ).toString( ).endsWith( TMP_SUFFIX ) )
+                {
+                    Files.deleteIfExists( file );
+                    continue;
+                }
+                int linkCount = getLinkCount( file );
+                if ( linkCount < 0 )
+                {
+                    log.warn( "The filesystem of the content store {} does not provide link counts, no blobs are removed", storeDir );
+                    return removed;
+                }
+                if ( linkCount == 1 && Files.deleteIfExists( file ) )
+                {
+                    removed++;
+                }
+            }
+        }
+        log.debug( "Removed {} unreferenced blobs from content store {}", removed, storeDir );
+        return removed;
+    }
+
+    /**
+     * @return the number of files, that were replaced by a link to an existing blob
+     */
+    public long getLinkedFiles( )
+    {
+        return linkedFiles.get( );
+    }
+
+    /**
+     * @return the number of bytes, that were saved by replacing files with links to existing blobs
+     */
+    public long getLinkedBytes( )
+    {
+        return linkedBytes.get( );
+    }
+
+    // Creates the link with a temporary name and moves it to the target, so the target is replaced atomically
+    private void replaceByLink( Path existing, Path target ) throws IOException
+    {
+        Path tmpLink = getTmpFile( target );
+        try
+        {
+            Files.createLink( tmpLink, existing );
+            Files.move( tmpLink, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmpLink );
+        }
+    }
+
+    // Removes all write permissions, the blob data is shared by all linked files
+    private static void setReadOnly( Path file ) throws IOException
+    {
+        PosixFileAttributeView view = Files.getFileAttributeView( file, PosixFileAttributeView.class );
+        if ( view != null )
+        {
+            Set<PosixFilePermission> permissions = new HashSet<>( view.readAttributes( ).permissions( ) );
+            if ( permissions.remove( PosixFilePermission.OWNER_WRITE ) | permissions.remove(
+                PosixFilePermission.GROUP_WRITE ) | permissions.remove( PosixFilePermission.OTHERS_WRITE ) )
+            {
+                view.setPermissions( permissions );
+            }
+        }
+    }
+
+    private static void setWritable( Path file ) throws IOException
+    {
+        PosixFileAttributeView view = Files.getFileAttributeView( file, PosixFileAttributeView.class );
+        if ( view != null )
+        {
+            Set<PosixFilePermission> permissions = new HashSet<>( view.readAttributes( ).permissions( ) );
+            permissions.add( PosixFilePermission.OWNER_WRITE );
+            if ( permissions.contains( PosixFilePermission.GROUP_READ ) )
+            {
+                permissions.add( PosixFilePermission.GROUP_WRITE );
+            }
+            view.setPermissions( permissions );
+        }
+    }
+
+    private static Path getTmpFile( Path file )
+    {
+        return file.resolveSibling( "." + file.getFileName( ) + "." + UUID.randomUUID( ) + TMP_SUFFIX );
+    }
+}
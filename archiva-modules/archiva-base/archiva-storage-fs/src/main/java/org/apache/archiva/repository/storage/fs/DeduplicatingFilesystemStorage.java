@@ -0,0 +1,226 @@
+package org.apache.archiva.repository.storage.fs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.FileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Filesystem storage, that stores the file data in a shared {@link ContentStore}. Files with identical content
+ * in the repositories of the same content store share the data.
+ * <ul>
+ *     <li>Data written by {@link #writeData}, {@link #writeDataToChannel}, the write streams and channels of the
+ *     assets and {@link StorageAsset#replaceDataFromFile(Path)} is added to the content store.</li>
+ *     <li>Files of storages with the same content store are copied by adding the origin file to the content
+ *     store and linking the destination to the blob. Files copied from other storages, also by
+ *     {@link FsStorageUtil#copyAsset(StorageAsset, StorageAsset, boolean, CopyOption...)}, are added after the
+ *     copy.</li>
+ *     <li>Shared files are detached from the content store, before they are modified through the storage or
+ *     through a asset stream.</li>
+ * </ul>
+ * Only files accepted by the deduplication filter are added to the content store. The default filter excludes
+ * small files and maven metadata, checksum and signature files, because they are often modified in place by
+ * code that does not use the storage API.
+ * <p>
+ * Existing repository data is added by {@link #deduplicate(StorageAsset)}. Unreferenced blobs are removed
+ * by {@link ContentStore#sweep()}.
+ *
+ * @since 3.0
+ */
+public class DeduplicatingFilesystemStorage extends FilesystemStorage
+{
+    private static final Logger log = LoggerFactory.getLogger( DeduplicatingFilesystemStorage.class );
+
+    public static final long DEFAULT_MIN_SIZE = 4096;
+
+    private static final String[] EXCLUDED_EXTENSIONS = { ".sha1", ".sha256", ".sha512", ".md5", ".asc", ".lastUpdated" };
+
+    private final ContentStore contentStore;
+
+    private volatile Predicate<Path> deduplicationFilter = DeduplicatingFilesystemStorage::isDefaultCandidate;
+
+    public DeduplicatingFilesystemStorage( Path basePath, FileLockManager fileLockManager, ContentStore contentStore ) throws IOException
+    {
+        super( basePath, fileLockManager );
+        this.contentStore = Objects.requireNonNull( contentStore, "The content store must not be null" );
+    }
+
+    public ContentStore getContentStore( )
+    {
+        return contentStore;
+    }
+
+    public Predicate<Path> getDeduplicationFilter( )
+    {
+        return deduplicationFilter;
+    }
+
+    /**
+     * Sets the filter for the files, that are added to the content store.
+     *
+     * @param deduplicationFilter the filter, that is applied to the file path
+     */
+    public void setDeduplicationFilter( Predicate<Path> deduplicationFilter )
+    {
+        this.deduplicationFilter = Objects.requireNonNull( deduplicationFilter );
+    }
+
+    /**
+     * Adds all files below the given asset, that match the deduplication filter, to the content store.
+     *
+     * @param start the asset where the traversal starts
+     * @return the number of files added to the content store
+     * @throws IOException if the files cannot be read
+     */
+    public long deduplicate( StorageAsset start ) throws IOException
+    {
+        long count = 0;
+        if ( !start.exists( ) )
+        {
+            return count;
+        }
+        try ( Stream<Path> files = Files.walk( start.getFilePath( ) ) )
+        {
+            Iterator<Path> iterator = files.filter( Files::isRegularFile ).iterator( );
+            while ( iterator.hasNext( ) )
+            {
+                if ( store( iterator.next( ) ) != null )
+                {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void copyAsset( StorageAsset origin, StorageAsset destination, CopyOption... copyOptions ) throws IOException
+    {
+        if ( sharesContentStore( origin ) && destination.getStorage( ) == this
+            && Files.isRegularFile( origin.getFilePath( ) ) )
+        {
+            copyFileData( origin, destination, copyOptions );
+        }
+        else
+        {
+            super.copyAsset( origin, destination, copyOptions );
+        }
+    }
+
+    /**
+     * If the origin belongs to a storage with the same content store, the origin is added to the content store
+     * and the destination is linked to the blob. Otherwise the data is copied and the destination is added to
+     * the content store.
+     */
+    @Override
+    protected void copyFileData( StorageAsset origin, StorageAsset destination, CopyOption... copyOptions ) throws IOException
+    {
+        // Only read only blobs of the content store are shared, other files are copied
+        String digest = sharesContentStore( origin ) ? store( origin.getFilePath( ) ) : null;
+        if ( digest != null )
+        {
+            boolean replace = Arrays.asList( copyOptions ).contains( StandardCopyOption.REPLACE_EXISTING );
+            if ( destination instanceof FilesystemAsset )
+            {
+                ( (FilesystemAsset) destination ).invalidateAttributes( );
+            }
+            contentStore.link( contentStore.getBlobPath( digest ), destination.getFilePath( ), replace );
+        }
+        else
+        {
+            super.copyFileData( origin, destination, copyOptions );
+        }
+    }
+
+    private boolean sharesContentStore( StorageAsset asset )
+    {
+        return asset.getStorage( ) instanceof DeduplicatingFilesystemStorage
+            && ( (DeduplicatingFilesystemStorage) asset.getStorage( ) ).getContentStore( ) == contentStore;
+    }
+
+    @Override
+    protected void prepareWrite( Path file ) throws IOException
+    {
+        if ( contentStore.detach( file ) )
+        {
+            log.debug( "Detached {} from the content store before writing", file );
+        }
+    }
+
+    @Override
+    protected void afterWrite( Path file ) throws IOException
+    {
+        store( file );
+    }
+
+    // The deduplication is an optimization, if it fails the file is kept as it is
+    private String store( Path file )
+    {
+        if ( !deduplicationFilter.test( file ) )
+        {
+            return null;
+        }
+        try
+        {
+            return contentStore.store( file );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not add {} to the content store: {}", file, e.getMessage( ) );
+            return null;
+        }
+    }
+
+    private static boolean isDefaultCandidate( Path file )
+    {
+        String name = file.getFileName( ).toString( );
+        if ( name.startsWith( "maven-metadata" ) || name.startsWith( "." ) )
+        {
+            return false;
+        }
+        for ( String extension : EXCLUDED_EXTENSIONS )
+        {
+            if ( name.endsWith( extension ) )
+            {
+                return false;
+            }
+        }
+        try
+        {
+            return Files.size( file ) >= DEFAULT_MIN_SIZE;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+}
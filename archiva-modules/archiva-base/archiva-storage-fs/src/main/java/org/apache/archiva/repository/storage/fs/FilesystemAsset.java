@@ -24,9 +24,11 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -38,6 +40,8 @@
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of an asset that is stored on the filesystem.
@@ -46,6 +50,12 @@
  * and check, if the base path is a parent of the resulting path.
  * <p>
  * The file must not exist for all operations.
+ * <p>
+ * The asset may keep a snapshot of the file attributes. Assets returned by {@link #list()} and
+ * {@link #newChildStream()} read the attributes with a single call, when the first attribute is accessed,
+ * and keep them for {@link #ATTRIBUTE_SNAPSHOT_VALIDITY_MS} milliseconds. The snapshot is dropped
+ * earlier, if {@link #invalidateAttributes()} is called or the file is modified by this asset or by the storage.
+ * Other assets read the attributes from the filesystem on each call, until {@link #refresh()} is called.
  *
  * @author Martin Stockhammer <martin_s@apache.org>
  */
@@ -93,6 +103,18 @@ public class FilesystemAsset implements StorageAsset, Comparable {
 
     boolean directoryHint = false;
 
+    /**
+     * Time in milliseconds, a snapshot of the file attributes is used, before the attributes are read again.
+     */
+    public static final long ATTRIBUTE_SNAPSHOT_VALIDITY_MS = 1000;
+
+    private static final long ATTRIBUTE_SNAPSHOT_VALIDITY_NANOS = ATTRIBUTE_SNAPSHOT_VALIDITY_MS * 1000000L;
+
+    // If true, the attributes are kept in a snapshot, otherwise they are read from the filesystem on each access
+    private volatile boolean cacheAttributes = false;
+    // Snapshot of the file attributes, if null the attributes are read on the next access
+    private volatile AttributeSnapshot attributeSnapshot;
+
     private static final OpenOption[] REPLACE_OPTIONS = new OpenOption[]{StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE};
     private static final OpenOption[] APPEND_OPTIONS = new OpenOption[]{StandardOpenOption.APPEND};
 
@@ -236,6 +258,10 @@ public String getName() {
 
     @Override
     public Instant getModificationTime() {
+        final AttributeSnapshot snapshot = getAttributeSnapshot();
+        if (snapshot != null && snapshot.attributes != null) {
+            return snapshot.attributes.lastModifiedTime().toInstant();
+        }
         try {
             return Files.getLastModifiedTime(assetPath).toInstant();
         } catch (IOException e) {
@@ -251,6 +277,10 @@ public Instant getModificationTime() {
      */
     @Override
     public boolean isContainer() {
+        final AttributeSnapshot snapshot = getAttributeSnapshot();
+        if (snapshot != null) {
+            return snapshot.attributes != null ? snapshot.attributes.isDirectory() : directoryHint;
+        }
         if (Files.exists(assetPath)) {
             return Files.isDirectory(assetPath);
         } else {
@@ -261,6 +291,10 @@ public boolean isContainer() {
     @Override
     public boolean isLeaf( )
     {
+        final AttributeSnapshot snapshot = getAttributeSnapshot();
+        if (snapshot != null) {
+            return snapshot.attributes != null ? snapshot.attributes.isRegularFile() : !directoryHint;
+        }
         if (Files.exists( assetPath )) {
             return Files.isRegularFile( assetPath );
         } else {
@@ -276,12 +310,43 @@ public boolean isLeaf( )
      */
     @Override
     public List<StorageAsset> list() {
+        try (Stream<StorageAsset> children = newChildStream()) {
+            return children.collect(Collectors.toList());
+        } catch (DirectoryIteratorException e) {
+            return Collections.EMPTY_LIST;
+        }
+    }
+
+    /**
+     * Returns a stream of the children, that reads the directory entries while the stream is consumed.
+     * The returned assets read their attributes with a single call on the first access and keep them
+     * for a short time, so {@link #exists()}, {@link #isContainer()}, {@link #isLeaf()}, {@link #getSize()}
+     * and {@link #getModificationTime()} do not access the filesystem on each call.
+     * The underlying directory stream is closed, when the returned stream is closed.
+     *
+     * @return the stream of children, or a empty stream, if the directory cannot be read
+     */
+    @Override
+    public Stream<StorageAsset> newChildStream() {
+        final DirectoryStream<Path> dirStream;
         try {
-            return Files.list(assetPath).map(p -> new FilesystemAsset(storage, relativePath + "/" + p.getFileName().toString(), assetPath.resolve(p), this.basePath))
-                    .collect(Collectors.toList());
+            dirStream = Files.newDirectoryStream(assetPath);
         } catch (IOException e) {
-            return Collections.EMPTY_LIST;
+            return Stream.empty();
         }
+        return StreamSupport.stream(dirStream.spliterator(), false)
+                .map(p -> {
+                    FilesystemAsset child = new FilesystemAsset(storage, relativePath + "/" + p.getFileName().toString(), p, this.basePath);
+                    child.cacheAttributes = true;
+                    return (StorageAsset) child;
+                })
+                .onClose(() -> {
+                    try {
+                        dirStream.close();
+                    } catch (IOException e) {
+                        log.warn("Could not close directory stream {}: {}", assetPath, e.getMessage());
+                    }
+                });
     }
 
     /**
@@ -291,6 +356,10 @@ public List<StorageAsset> list() {
      */
     @Override
     public long getSize() {
+        final AttributeSnapshot snapshot = getAttributeSnapshot();
+        if (snapshot != null) {
+            return snapshot.attributes != null ? snapshot.attributes.size() : -1;
+        }
         try {
             return Files.size(assetPath);
         } catch (IOException e) {
@@ -319,28 +388,92 @@ public ReadableByteChannel getReadChannel( ) throws IOException
         return FileChannel.open( assetPath, StandardOpenOption.READ );
     }
 
+    // The storage may have to detach the file from shared content before it is modified
+    private void prepareWrite() throws IOException {
+        if (storage instanceof FilesystemStorage) {
+            ((FilesystemStorage) storage).prepareWrite(assetPath);
+        }
+    }
+
+    // The storage may add the file to shared content, after it was written
+    private void afterWrite() throws IOException {
+        invalidateAttributes();
+        if (storage instanceof FilesystemStorage) {
+            ((FilesystemStorage) storage).afterWrite(assetPath);
+        }
+    }
+
     private OpenOption[] getOpenOptions(boolean replace) {
         return replace ? REPLACE_OPTIONS : APPEND_OPTIONS;
     }
 
     @Override
     public OutputStream getWriteStream( boolean replace) throws IOException {
+        invalidateAttributes();
         OpenOption[] options = getOpenOptions( replace );
         if (!Files.exists( assetPath )) {
             create();
         }
-        return Files.newOutputStream(assetPath, options);
+        prepareWrite();
+        return new FilterOutputStream(Files.newOutputStream(assetPath, options)) {
+            private boolean closed = false;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    super.close();
+                    afterWrite();
+                }
+            }
+        };
     }
 
     @Override
     public WritableByteChannel getWriteChannel( boolean replace ) throws IOException
     {
+        invalidateAttributes();
+        prepareWrite();
         OpenOption[] options = getOpenOptions( replace );
-        return FileChannel.open( assetPath, options );
+        final FileChannel channel = FileChannel.open( assetPath, options );
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (channel.isOpen()) {
+                    channel.close();
+                    afterWrite();
+                }
+            }
+        };
     }
 
     @Override
     public boolean replaceDataFromFile( Path newData) throws IOException {
+        invalidateAttributes();
+        try {
+            // A rename on the same file store replaces the file in one step, without a backup
+            Files.move(newData, assetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            applyDefaultPermissions(assetPath);
+            afterWrite();
+            return true;
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Atomic move not supported for {}, using backup file", assetPath);
+        }
         final boolean createNew = !Files.exists(assetPath);
         Path backup = null;
         if (!createNew) {
@@ -352,6 +485,7 @@ public boolean replaceDataFromFile( Path newData) throws IOException {
             }
             Files.move(newData, assetPath, StandardCopyOption.REPLACE_EXISTING);
             applyDefaultPermissions(assetPath);
+            afterWrite();
             return true;
         } catch (IOException e) {
             log.error("Could not overwrite file {}", assetPath);
@@ -374,7 +508,10 @@ public boolean replaceDataFromFile( Path newData) throws IOException {
 
     private void applyDefaultPermissions(Path filePath) {
         try {
-            if (supportsPosix) {
+            if (isSharedFile(filePath)) {
+                // The permissions of shared data would change for all linked files
+                log.debug("Not changing the permissions of the shared file {}", filePath);
+            } else if (supportsPosix) {
                 Set<PosixFilePermission> perms;
                 if (Files.isDirectory(filePath)) {
                     perms = defaultPosixFilePermissions;
@@ -397,6 +534,18 @@ private void applyDefaultPermissions(Path filePath) {
         }
     }
 
+    private boolean isSharedFile(Path filePath) throws IOException {
+        if (!Files.isRegularFile(filePath)) {
+            return false;
+        }
+        try {
+            Object count = Files.getAttribute(filePath, "unix:nlink");
+            return count instanceof Number && ((Number) count).intValue() > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     private Path findBackupFile(Path file) {
         String ext = ".bak";
         Path backupPath = file.getParent().resolve(file.getFileName().toString() + ext);
@@ -409,9 +558,62 @@ private Path findBackupFile(Path file) {
 
     @Override
     public boolean exists() {
+        final AttributeSnapshot snapshot = getAttributeSnapshot();
+        if (snapshot != null) {
+            return snapshot.attributes != null;
+        }
         return Files.exists(assetPath);
     }
 
+    /**
+     * Reads the file attributes with a single filesystem call and keeps them as snapshot. For the validity
+     * time of the snapshot, {@link #exists()}, {@link #isContainer()}, {@link #isLeaf()}, {@link #getSize()} and
+     * {@link #getModificationTime()} return the values of the snapshot. After that, the attributes are read again.
+     */
+    public void refresh() {
+        this.cacheAttributes = true;
+        this.attributeSnapshot = readAttributeSnapshot();
+    }
+
+    /**
+     * Removes the attribute snapshot. If the asset keeps snapshots, the attributes are read again on the next access.
+     */
+    public void invalidateAttributes() {
+        this.attributeSnapshot = null;
+    }
+
+    /**
+     * Returns true, if the asset keeps a snapshot of the file attributes.
+     *
+     * @return <code>true</code>, if the attributes are kept, otherwise <code>false</code>
+     */
+    public boolean hasAttributeSnapshot() {
+        return cacheAttributes;
+    }
+
+    private AttributeSnapshot getAttributeSnapshot() {
+        if (!cacheAttributes) {
+            return null;
+        }
+        AttributeSnapshot snapshot = attributeSnapshot;
+        if (snapshot == null || System.nanoTime() - snapshot.readTime > ATTRIBUTE_SNAPSHOT_VALIDITY_NANOS) {
+            snapshot = readAttributeSnapshot();
+            attributeSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private AttributeSnapshot readAttributeSnapshot() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(assetPath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Same as Files.exists(), the file is treated as non existing, if the attributes cannot be read
+            attributes = null;
+        }
+        return new AttributeSnapshot(attributes);
+    }
+
     @Override
     public Path getFilePath() throws UnsupportedOperationException {
         return assetPath;
@@ -490,6 +692,7 @@ public Set<PosixFilePermission> getDefaultPosixDirectoryPermissions() {
 
     @Override
     public void create() throws IOException {
+        invalidateAttributes();
         if (!Files.exists(assetPath)) {
             if (directoryHint) {
                 Files.createDirectories(assetPath);
@@ -541,4 +744,14 @@ public int hashCode( )
         result = 31 * result + storage.hashCode( );
         return result;
     }
+
+    private static final class AttributeSnapshot {
+        // null, if the file did not exist at the time of the snapshot
+        private final BasicFileAttributes attributes;
+        private final long readTime = System.nanoTime();
+
+        AttributeSnapshot(BasicFileAttributes attributes) {
+            this.attributes = attributes;
+        }
+    }
 }
@@ -135,11 +135,13 @@ public void consumeDataFromChannel( StorageAsset asset, Consumer<ReadableByteCha
     public void writeData( StorageAsset asset, Consumer<OutputStream> consumerFunction, boolean writeLock ) throws IOException
     {
         final Path path = asset.getFilePath();
+        invalidateAttributes( asset );
         try {
             if (writeLock) {
                 writeDataLocked( path, consumerFunction );
             } else
             {
+                prepareWrite( path );
                 try ( OutputStream is = Files.newOutputStream( path ) )
                 {
                     consumerFunction.accept( is );
@@ -149,6 +151,7 @@ public void writeData( StorageAsset asset, Consumer<OutputStream> consumerFuncti
                     log.error("Could not write the output stream to file {}", path);
                     throw e;
                 }
+                afterWrite( path );
             }
         } catch (RuntimeException e)
         {
@@ -162,11 +165,13 @@ public void writeData( StorageAsset asset, Consumer<OutputStream> consumerFuncti
     public void writeDataToChannel( StorageAsset asset, Consumer<WritableByteChannel> consumerFunction, boolean writeLock ) throws IOException
     {
         final Path path = asset.getFilePath();
+        invalidateAttributes( asset );
         try {
             if (writeLock) {
                 writeDataToChannelLocked( path, consumerFunction );
             } else
             {
+                prepareWrite( path );
                 try ( FileChannel os = FileChannel.open( path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE ))
                 {
                     consumerFunction.accept( os );
@@ -176,6 +181,7 @@ public void writeDataToChannel( StorageAsset asset, Consumer<WritableByteChannel
                     log.error("Could not write the data to file {}", path);
                     throw e;
                 }
+                afterWrite( path );
             }
         } catch (RuntimeException e)
         {
@@ -246,9 +252,15 @@ private void writeDataLocked( Path file, Consumer<OutputStream> consumerFunction
         try
         {
             lock = fileLockManager.writeFileLock( file );
-            try ( OutputStream is = Files.newOutputStream( lock.getFile()))
+            // The hooks run while the lock is held, so no other writer changes the file in between
+            try
             {
-                consumerFunction.accept( is );
+                prepareWrite( file );
+                try ( OutputStream is = Files.newOutputStream( lock.getFile()))
+                {
+                    consumerFunction.accept( is );
+                }
+                afterWrite( file );
             }
             catch ( IOException e )
             {
@@ -273,9 +285,15 @@ private void writeDataToChannelLocked( Path file, Consumer<WritableByteChannel>
         try
         {
             lock = fileLockManager.writeFileLock( file );
-            try ( FileChannel is = FileChannel.open( lock.getFile( ), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE ))
+            // The hooks run while the lock is held, so no other writer changes the file in between
+            try
             {
-                consumerFunction.accept( is );
+                prepareWrite( file );
+                try ( FileChannel is = FileChannel.open( lock.getFile( ), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE ))
+                {
+                    consumerFunction.accept( is );
+                }
+                afterWrite( file );
             }
             catch ( IOException e )
             {
@@ -340,6 +358,7 @@ public StorageAsset addAsset( String path, boolean container )
     @Override
     public void removeAsset( StorageAsset asset ) throws IOException
     {
+        invalidateAttributes( asset );
         Files.delete(asset.getFilePath());
     }
 
@@ -361,6 +380,8 @@ public void moveAsset( StorageAsset origin, StorageAsset destination, CopyOption
         if (destination.getStorage()!=this) {
             throw new IOException("The destination asset does not belong to this storage instance. Cannot copy between different storage instances.");
         }
+        invalidateAttributes( origin );
+        invalidateAttributes( destination );
         Files.move(origin.getFilePath(), destination.getFilePath(), copyOptions);
     }
 
@@ -383,6 +404,7 @@ public void copyAsset( StorageAsset origin, StorageAsset destination, CopyOption
             throw new IOException("The destination asset does not belong to this storage instance. Cannot copy between different storage instances.");
         }
         Path destinationPath = destination.getFilePath();
+        invalidateAttributes( destination );
         boolean overwrite = false;
         for (int i=0; i<copyOptions.length; i++) {
             if (copyOptions[i].equals( StandardCopyOption.REPLACE_EXISTING )) {
@@ -399,7 +421,7 @@ public void copyAsset( StorageAsset origin, StorageAsset destination, CopyOption
             if (!Files.exists( destinationPath )) {
                 Files.createDirectories( destinationPath );
             }
-            Files.copy( origin.getFilePath( ), destinationPath, copyOptions );
+            copyFileData( origin, destination, copyOptions );
         }
     }
 
@@ -407,4 +429,57 @@ public FileLockManager getFileLockManager() {
         return fileLockManager;
     }
 
+    /**
+     * Called before data is written to the given file, by the storage or by the output stream or channel
+     * of an asset. If the storage writes with a write lock, the method is called while the lock is held.
+     * The default implementation does nothing.
+     *
+     * @param file the file that will be written
+     * @throws IOException if the file cannot be prepared
+     */
+    protected void prepareWrite( Path file ) throws IOException
+    {
+        // nothing to do
+    }
+
+    /**
+     * Called after data was written to the given file by {@link #writeData(StorageAsset, Consumer, boolean)} or
+     * {@link #writeDataToChannel(StorageAsset, Consumer, boolean)}. If the data was written with a write lock,
+     * the method is called before the lock is released. The default implementation does nothing.
+     *
+     * @param file the file that was written
+     * @throws IOException if the post processing failed
+     */
+    protected void afterWrite( Path file ) throws IOException
+    {
+        // nothing to do
+    }
+
+    /**
+     * Copies the data of a regular file to a file of this storage. The origin may belong to another storage.
+     * The default implementation copies the file and calls {@link #afterWrite(Path)} for the destination.
+     *
+     * @param origin the asset of the regular file to copy
+     * @param destination the destination asset of this storage
+     * @param copyOptions the copy options
+     * @throws IOException if the file cannot be copied
+     */
+    protected void copyFileData( StorageAsset origin, StorageAsset destination, CopyOption... copyOptions ) throws IOException
+    {
+        final Path destinationPath = destination.getFilePath( );
+        invalidateAttributes( destination );
+        Files.createDirectories( destinationPath.getParent( ) );
+        Files.copy( origin.getFilePath( ), destinationPath, copyOptions );
+        afterWrite( destinationPath );
+    }
+
+    // Modified assets must not answer from an outdated attribute snapshot
+    private static void invalidateAttributes( StorageAsset asset )
+    {
+        if ( asset instanceof FilesystemAsset )
+        {
+            ( (FilesystemAsset) asset ).invalidateAttributes( );
+        }
+    }
+
 }
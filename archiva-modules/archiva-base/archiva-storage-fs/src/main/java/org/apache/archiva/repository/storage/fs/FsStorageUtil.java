@@ -82,7 +82,7 @@ public static final void copyAsset( final StorageAsset source,
                     throw new IOException(e);
                 }
                 try {
-                    Files.copy(sourcePath, targetPath, copyOptions);
+                    copyFile(source, target, copyOptions);
                 } finally {
                     if (lockRead!=null) {
                         try {
@@ -101,7 +101,7 @@ public static final void copyAsset( final StorageAsset source,
                 }
             } else
             {
-                Files.copy( sourcePath, targetPath, copyOptions );
+                copyFile( source, target, copyOptions );
             }
         } else {
             try {
@@ -122,6 +122,19 @@ public static final void copyAsset( final StorageAsset source,
         }
     }
 
+    // A filesystem storage may add the copied file to shared content
+    private static void copyFile( final StorageAsset source, final StorageAsset target, final CopyOption... copyOptions ) throws IOException
+    {
+        if ( target.getStorage( ) instanceof FilesystemStorage && Files.isRegularFile( source.getFilePath( ) ) )
+        {
+            ( (FilesystemStorage) target.getStorage( ) ).copyFileData( source, target, copyOptions );
+        }
+        else
+        {
+            Files.copy( source.getFilePath( ), target.getFilePath( ), copyOptions );
+        }
+    }
+
     private static final void wrapWriteFunction( ReadableByteChannel is, RepositoryStorage targetStorage, StorageAsset target, boolean locked) {
         try {
             targetStorage.writeDataToChannel( target, os -> StorageUtil.copy(is, os), locked );
@@ -0,0 +1,255 @@
+package org.apache.archiva.repository.storage.fs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class DeduplicatingFilesystemStorageTest {
+
+    private Path baseDir;
+    private ContentStore contentStore;
+    private DeduplicatingFilesystemStorage repo1;
+    private DeduplicatingFilesystemStorage repo2;
+    private byte[] data;
+
+    @Before
+    public void init() throws IOException {
+        baseDir = Files.createTempDirectory("DedupStorageTest");
+        contentStore = new ContentStore(baseDir.resolve("store"));
+        Assume.assumeTrue( contentStore.getLinkCount(contentStore.getStoreDir()) > 0);
+        DefaultFileLockManager fl = new DefaultFileLockManager();
+        repo1 = new DeduplicatingFilesystemStorage(baseDir.resolve("repo1"), fl, contentStore);
+        repo2 = new DeduplicatingFilesystemStorage(baseDir.resolve("repo2"), fl, contentStore);
+        data = new byte[(int) DeduplicatingFilesystemStorage.DEFAULT_MIN_SIZE * 2];
+        Arrays.fill(data, (byte) 'a');
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(baseDir.toFile());
+    }
+
+    private StorageAsset write(DeduplicatingFilesystemStorage storage, String path, byte[] content) throws IOException {
+        StorageAsset asset = storage.addAsset(path, false);
+        asset.create();
+        storage.writeData(asset, os -> {
+            try {
+                os.write(content);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, false);
+        return asset;
+    }
+
+    @Test
+    public void writeDataSharesIdenticalContent() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        StorageAsset a2 = write(repo2, "org/test/a/1.0/a-1.0.jar", data);
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), a2.getFilePath()));
+        String digest = contentStore.digest(a1.getFilePath());
+        Assert.assertTrue(Files.isSameFile(contentStore.getBlobPath(digest), a1.getFilePath()));
+        Assert.assertEquals(3, contentStore.getLinkCount(a1.getFilePath()));
+        Assert.assertEquals(1, contentStore.getLinkedFiles());
+
+        // Small and metadata files are not shared
+        StorageAsset m1 = write(repo1, "org/test/a/maven-metadata.xml", data);
+        StorageAsset m2 = write(repo2, "org/test/a/maven-metadata.xml", data);
+        Assert.assertFalse(Files.isSameFile(m1.getFilePath(), m2.getFilePath()));
+        StorageAsset s1 = write(repo1, "org/test/a/1.0/a-1.0.pom", "abc".getBytes("ASCII"));
+        StorageAsset s2 = write(repo2, "org/test/a/1.0/a-1.0.pom", "abc".getBytes("ASCII"));
+        Assert.assertFalse(Files.isSameFile(s1.getFilePath(), s2.getFilePath()));
+    }
+
+    @Test
+    public void storeRequiresLinkCount() throws IOException {
+        // The zip filesystem does not provide the link count
+        try (FileSystem zipFs = FileSystems.newFileSystem(URI.create("jar:" + baseDir.resolve("store.zip").toUri()),
+                Collections.singletonMap("create", "true"))) {
+            try {
+                new ContentStore(zipFs.getPath("/store"));
+                Assert.fail("IOException expected for a filesystem without link count");
+            } catch (IOException e) {
+                // expected
+            }
+
+            // A file with unknown link count is treated as shared
+            Path file = zipFs.getPath("/a-1.0.jar");
+            Files.write(file, data);
+            Assert.assertEquals(-1, contentStore.getLinkCount(file));
+            Assert.assertTrue(contentStore.detach(file));
+            Assert.assertArrayEquals(data, Files.readAllBytes(file));
+        }
+    }
+
+    @Test
+    public void blobsAreReadOnly() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        Path blob = contentStore.getBlobPath(contentStore.digest(a1.getFilePath()));
+        Assume.assumeTrue(Files.getFileAttributeView(blob, PosixFileAttributeView.class) != null);
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(blob);
+        Assert.assertFalse(permissions.contains(PosixFilePermission.OWNER_WRITE));
+        Assert.assertFalse(permissions.contains(PosixFilePermission.GROUP_WRITE));
+        Assert.assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE));
+
+        // A detached file is writable again, the blob stays read only
+        write(repo2, "org/test/a/1.0/a-1.0.jar", data);
+        Path file = baseDir.resolve("repo2/org/test/a/1.0/a-1.0.jar");
+        Assert.assertTrue(contentStore.detach(file));
+        Assert.assertTrue(Files.getPosixFilePermissions(file).contains(PosixFilePermission.OWNER_WRITE));
+        Assert.assertFalse(Files.getPosixFilePermissions(blob).contains(PosixFilePermission.OWNER_WRITE));
+    }
+
+    @Test
+    public void modifiedBlobIsNotShared() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        Path blob = contentStore.getBlobPath(contentStore.digest(a1.getFilePath()));
+        // Modifies the blob in place, with the same size
+        byte[] changed = data.clone();
+        changed[0] = 'b';
+        blob.toFile().setWritable(true);
+        Files.write(blob, changed);
+
+        StorageAsset a2 = write(repo2, "org/test/a/1.0/a-1.0.jar", data);
+        Assert.assertFalse(Files.isSameFile(blob, a2.getFilePath()));
+        Assert.assertArrayEquals(data, Files.readAllBytes(a2.getFilePath()));
+        try {
+            contentStore.store(a2.getFilePath());
+            Assert.fail("IOException expected for a modified blob");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void copyCreatesLink() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        StorageAsset target = repo2.addAsset("org/test/a/1.0/a-1.0.jar", false);
+        repo2.copyAsset(a1, target);
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), target.getFilePath()));
+        Assert.assertTrue(Files.isSameFile(contentStore.getBlobPath(contentStore.digest(a1.getFilePath())), target.getFilePath()));
+
+        // Files, that are not added to the content store, are copied
+        StorageAsset p1 = write(repo1, "org/test/a/1.0/a-1.0.pom", "abc".getBytes("ASCII"));
+        StorageAsset pomTarget = repo2.addAsset("org/test/a/1.0/a-1.0.pom", false);
+        repo2.copyAsset(p1, pomTarget);
+        Assert.assertFalse(Files.isSameFile(p1.getFilePath(), pomTarget.getFilePath()));
+        Assert.assertEquals("abc", new String(Files.readAllBytes(pomTarget.getFilePath()), "ASCII"));
+        try {
+            repo2.copyAsset(a1, target);
+            Assert.fail("IOException expected for existing target");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void assetWritesAndCopiesAreShared() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+
+        // Written through the output stream of the asset
+        StorageAsset a2 = repo2.addAsset("org/test/a/1.0/a-1.0.jar", false);
+        try (OutputStream os = a2.getWriteStream(true)) {
+            os.write(data);
+        }
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), a2.getFilePath()));
+
+        // Replaced by a new file
+        StorageAsset a3 = repo2.addAsset("org/test/a/1.0/a-1.0-copy.jar", false);
+        Path newData = Files.createTempFile(baseDir, "data", ".tmp");
+        Files.write(newData, data);
+        a3.replaceDataFromFile(newData);
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), a3.getFilePath()));
+
+        // Copied from a storage without content store
+        FilesystemStorage tmpStorage = new FilesystemStorage(baseDir.resolve("tmp"), new DefaultFileLockManager());
+        StorageAsset tmpAsset = tmpStorage.addAsset("a-1.0.jar", false);
+        tmpAsset.create();
+        Files.write(tmpAsset.getFilePath(), data);
+        StorageAsset a4 = repo2.addAsset("org/test/a/1.0/a-1.0-tmp.jar", false);
+        FsStorageUtil.copyAsset(tmpAsset, a4, true);
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), a4.getFilePath()));
+        Assert.assertFalse(Files.isSameFile(tmpAsset.getFilePath(), a4.getFilePath()));
+
+        // Copied between storages with the same content store
+        StorageAsset a5 = repo2.addAsset("org/test/a/1.0/a-1.0-util.jar", false);
+        FsStorageUtil.copyAsset(a1, a5, false);
+        Assert.assertTrue(Files.isSameFile(a1.getFilePath(), a5.getFilePath()));
+        Assert.assertEquals(6, contentStore.getLinkCount(a1.getFilePath()));
+    }
+
+    @Test
+    public void writeDetachesSharedContent() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        StorageAsset a2 = write(repo2, "org/test/a/1.0/a-1.0.jar", data);
+        try (OutputStream os = a2.getWriteStream(true)) {
+            os.write("changed".getBytes("ASCII"));
+        }
+        Assert.assertFalse(Files.isSameFile(a1.getFilePath(), a2.getFilePath()));
+        Assert.assertArrayEquals(data, Files.readAllBytes(a1.getFilePath()));
+        Assert.assertEquals(7, Files.size(a2.getFilePath()));
+    }
+
+    @Test
+    public void sweepRemovesUnreferencedBlobs() throws IOException {
+        StorageAsset a1 = write(repo1, "org/test/a/1.0/a-1.0.jar", data);
+        StorageAsset a2 = write(repo2, "org/test/a/1.0/a-1.0.jar", data);
+        Path blob = contentStore.getBlobPath(contentStore.digest(a1.getFilePath()));
+        repo1.removeAsset(a1);
+        Assert.assertEquals(0, contentStore.sweep());
+        Assert.assertTrue(Files.exists(blob));
+        repo2.removeAsset(a2);
+        Assert.assertEquals(1, contentStore.sweep());
+        Assert.assertFalse(Files.exists(blob));
+    }
+
+    @Test
+    public void deduplicateExistingFiles() throws IOException {
+        Path f1 = baseDir.resolve("repo1/org/test/b/1.0/b-1.0.jar");
+        Path f2 = baseDir.resolve("repo2/org/test/b/1.0/b-1.0.jar");
+        Files.createDirectories(f1.getParent());
+        Files.createDirectories(f2.getParent());
+        Files.write(f1, data);
+        Files.write(f2, data);
+        Assert.assertEquals(1, repo1.deduplicate(repo1.getAsset("")));
+        Assert.assertEquals(1, repo2.deduplicate(repo2.getAsset("org")));
+        Assert.assertTrue(Files.isSameFile(f1, f2));
+        Assert.assertArrayEquals(data, Files.readAllBytes(f2));
+    }
+}
@@ -0,0 +1,144 @@
+package org.apache.archiva.repository.storage.fs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Walks a synthetic repository tree and reads the attributes of each asset, once with the attribute
+ * snapshot of the listing and once with filesystem calls for each attribute access.
+ * <p>
+ * The benchmark is not run by the unit tests. Run it from the IDE or with the test classpath:
+ * <code>java -cp ... org.apache.archiva.repository.storage.fs.FilesystemAssetListingBenchmark</code>.
+ * The difference is much bigger on network filesystems, set <code>-Djava.io.tmpdir</code> to a NFS mount
+ * to measure it there.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class FilesystemAssetListingBenchmark
+{
+    // Number of groups, projects per group and versions per project. Each version contains 4 files.
+    @Param( { "10", "20" } )
+    public int width;
+
+    private Path baseDir;
+
+    private StorageAsset root;
+
+    @Setup( Level.Trial )
+    public void createTree( ) throws IOException
+    {
+        baseDir = Files.createTempDirectory( "archiva-listing-benchmark" );
+        for ( int g = 0; g < width; g++ )
+        {
+            for ( int p = 0; p < width; p++ )
+            {
+                for ( int v = 0; v < width; v++ )
+                {
+                    Path versionDir = baseDir.resolve( "group" + g ).resolve( "project" + p ).resolve( "1." + v );
+                    Files.createDirectories( versionDir );
+                    String prefix = "project" + p + "-1." + v;
+                    Files.write( versionDir.resolve( prefix + ".jar" ), new byte[128] );
+                    Files.write( versionDir.resolve( prefix + ".jar.sha1" ), new byte[40] );
+                    Files.write( versionDir.resolve( prefix + ".pom" ), new byte[64] );
+                    Files.write( versionDir.resolve( prefix + ".pom.sha1" ), new byte[40] );
+                }
+            }
+        }
+        root = new FilesystemStorage( baseDir, new DefaultFileLockManager( ) ).getAsset( "" );
+    }
+
+    @TearDown( Level.Trial )
+    public void deleteTree( )
+    {
+        FileUtils.deleteQuietly( baseDir.toFile( ) );
+    }
+
+    @Benchmark
+    public long walkWithSnapshot( )
+    {
+        return walk( root, false );
+    }
+
+    @Benchmark
+    public long walkWithoutSnapshot( )
+    {
+        return walk( root, true );
+    }
+
+    private static long walk( StorageAsset container, boolean withoutSnapshot )
+    {
+        long size = 0;
+        try ( Stream<? extends StorageAsset> children = container.newChildStream( ) )
+        {
+            Iterator<? extends StorageAsset> iterator = children.iterator( );
+            while ( iterator.hasNext( ) )
+            {
+                StorageAsset child = iterator.next( );
+                if ( withoutSnapshot )
+                {
+                    // An asset from the storage reads each attribute from the filesystem
+                    child = child.getStorage( ).getAsset( child.getPath( ) );
+                }
+                if ( child.exists( ) && child.isContainer( ) )
+                {
+                    size += walk( child, withoutSnapshot );
+                }
+                else if ( child.isLeaf( ) )
+                {
+                    size += child.getSize( ) + child.getModificationTime( ).getEpochSecond( ) % 2;
+                }
+            }
+        }
+        return size;
+    }
+
+    public static void main( String[] args ) throws Exception
+    {
+        new Runner( new OptionsBuilder( ).include( FilesystemAssetListingBenchmark.class.getSimpleName( ) ).build( ) ).run( );
+    }
+}
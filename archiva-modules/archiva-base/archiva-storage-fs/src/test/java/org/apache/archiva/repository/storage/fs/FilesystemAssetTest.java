@@ -21,6 +21,7 @@
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
 import org.apache.archiva.repository.storage.fs.FilesystemAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
@@ -35,6 +36,10 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FilesystemAssetTest {
 
@@ -110,6 +115,66 @@ public void list() throws IOException {
 
     }
 
+    @Test
+    public void newChildStream() throws IOException {
+        FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1234", assetPathFile);
+        try (Stream<StorageAsset> children = asset.newChildStream()) {
+            Assert.assertEquals(0, children.count());
+        }
+
+        FilesystemAsset asset2 = new FilesystemAsset(filesystemStorage, "/test1235", assetPathDir);
+        Path f1 = Files.createTempFile(assetPathDir, "testfile", "dat");
+        Path d1 = Files.createTempDirectory(assetPathDir, "testdir");
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        try (Stream<StorageAsset> children = asset2.newChildStream().onClose(() -> closed.set(true))) {
+            List<StorageAsset> childList = children.collect(Collectors.toList());
+            Assert.assertEquals(3, childList.size());
+            Assert.assertTrue(childList.stream().anyMatch(p -> p.getName().equals(f1.getFileName().toString()) && p.isLeaf()));
+            Assert.assertTrue(childList.stream().anyMatch(p -> p.getName().equals(d1.getFileName().toString()) && p.isContainer()));
+            Assert.assertTrue(childList.stream().allMatch(p -> p.getPath().equals("/test1235/" + p.getName())));
+        }
+        Assert.assertTrue(closed.get());
+        Files.deleteIfExists(f1);
+        Files.deleteIfExists(d1);
+    }
+
+    @Test
+    public void attributeSnapshot() throws Exception {
+        FilesystemAsset dir = new FilesystemAsset(filesystemStorage, "/test1236", assetPathDir);
+        StorageAsset child = dir.list().get(0);
+        Assert.assertTrue(((FilesystemAsset) child).hasAttributeSnapshot());
+
+        // The attributes are not read during listing, but on the first access
+        Files.write(assetPathFile, "abc".getBytes("ASCII"));
+        Assert.assertEquals(3, child.getSize());
+        Assert.assertTrue(child.isLeaf());
+
+        // The snapshot is kept until the asset is refreshed or the validity time is over
+        Files.write(assetPathFile, "abcdef".getBytes("ASCII"));
+        Assert.assertEquals(3, child.getSize());
+        ((FilesystemAsset) child).refresh();
+        Assert.assertEquals(6, child.getSize());
+
+        Files.delete(assetPathFile);
+        Assert.assertTrue(child.exists());
+        Thread.sleep(FilesystemAsset.ATTRIBUTE_SNAPSHOT_VALIDITY_MS + 100);
+        Assert.assertFalse(child.exists());
+
+        // Writing through the asset drops the snapshot
+        try (OutputStream os = child.getWriteStream(true)) {
+            os.write("abc".getBytes("ASCII"));
+        }
+        Assert.assertTrue(child.exists());
+        Assert.assertEquals(3, child.getSize());
+
+        // Assets without snapshot read the attributes on each access
+        FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1236", assetPathFile);
+        Assert.assertFalse(asset.hasAttributeSnapshot());
+        Assert.assertEquals(3, asset.getSize());
+        Files.write(assetPathFile, "abcdef".getBytes("ASCII"));
+        Assert.assertEquals(6, asset.getSize());
+    }
+
     @Test
     public void getSize() throws IOException {
         FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1234", assetPathFile);
@@ -24,22 +24,29 @@
 import org.apache.archiva.repository.metadata.MetadataReader;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.storage.StorageAsset;
-import org.apache.archiva.xml.XMLException;
-import org.apache.archiva.xml.XMLReader;
-import org.apache.archiva.xml.XmlUtil;
+import org.apache.archiva.xml.LatinEntityResolutionReader;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @author Olivier Lamy
@@ -77,6 +84,18 @@ public class MavenMetadataReader implements MetadataReader
     private static final Logger log = LoggerFactory.getLogger( MavenMetadataReader.class );
 
 
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory( );
+
+    private static XMLInputFactory createInputFactory( )
+    {
+        XMLInputFactory factory = XMLInputFactory.newFactory( );
+        factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, true );
+        factory.setProperty( XMLInputFactory.IS_COALESCING, true );
+        factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        return factory;
+    }
+
     /**
      * Read and return the {@link org.apache.archiva.model.ArchivaRepositoryMetadata} object from the provided xml file.
      *
@@ -87,35 +106,31 @@ public class MavenMetadataReader implements MetadataReader
     public ArchivaRepositoryMetadata read( StorageAsset metadataFile )
             throws RepositoryMetadataException {
 
-        XMLReader xml;
-        try
+        if ( !metadataFile.exists( ) || metadataFile.isContainer( ) )
+        {
+            throw new RepositoryMetadataException( "Could not open XML metadata file " + metadataFile );
+        }
+        try ( InputStream in = metadataFile.getReadStream( ) )
         {
-            xml = new XMLReader( "metadata", metadataFile );
+            return read( in, metadataFile.getModificationTime( ), metadataFile.getSize( ) );
         }
-        catch ( XMLException e )
+        catch ( IOException e )
         {
             throw new RepositoryMetadataException( "Could not open XML metadata file " + metadataFile, e );
         }
-        return read( xml, metadataFile.getModificationTime(), metadataFile.getSize() );
 
     }
 
     public ArchivaRepositoryMetadata read( Path metadataFile )
         throws RepositoryMetadataException {
 
-        XMLReader xml;
-        try
+        if ( !Files.isRegularFile( metadataFile ) )
         {
-            xml = new XMLReader( "metadata", metadataFile );
-        }
-        catch ( XMLException e )
-        {
-            log.error( "XML error while reading metadata file {}: {}", metadataFile, e.getMessage(), e );
-            throw new RepositoryMetadataException( "Could not open XML metadata file " + metadataFile, e );
+            throw new RepositoryMetadataException( "Could not open XML metadata file " + metadataFile );
         }
-        try
+        try ( InputStream in = Files.newInputStream( metadataFile ) )
         {
-            return read( xml, Files.getLastModifiedTime( metadataFile ).toInstant(), Files.size( metadataFile ) );
+            return read( in, Files.getLastModifiedTime( metadataFile ).toInstant(), Files.size( metadataFile ) );
         }
         catch ( IOException e )
         {
@@ -125,57 +140,252 @@ public ArchivaRepositoryMetadata read( Path metadataFile )
 
     }
 
-    private ArchivaRepositoryMetadata read( XMLReader xml, Instant modTime, long fileSize) throws RepositoryMetadataException
+    /**
+     * Reads the metadata with a streaming parser. Only the elements of the metadata are kept, no document
+     * is built. Latin entities, that are not declared in the document, are resolved by the
+     * {@link LatinEntityResolutionReader} and namespaces are ignored (see MRM-1136).
+     */
+    private ArchivaRepositoryMetadata read( InputStream in, Instant modTime, long fileSize )
+        throws IOException, RepositoryMetadataException
     {
-        // invoke this to remove namespaces, see MRM-1136
-        xml.removeNamespaces();
-
         ArchivaRepositoryMetadata metadata = new ArchivaRepositoryMetadata();
+        metadata.setFileLastModified( Date.from( modTime ) );
+        metadata.setFileSize( fileSize );
+
+        try ( Reader reader = new LatinEntityResolutionReader(
+            new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) ) ) )
+        {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader( reader );
+            try
+            {
+                readMetadata( xml, metadata );
+            }
+            finally
+            {
+                xml.close( );
+            }
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new RepositoryMetadataException( "XML Error while reading metadata file : " + e.getMessage( ), e );
+        }
+        return metadata;
+    }
 
-        try
+    private void readMetadata( XMLStreamReader xml, ArchivaRepositoryMetadata metadata )
+        throws XMLStreamException, RepositoryMetadataException
+    {
+        xml.nextTag( );
+        if ( !"metadata".equals( xml.getLocalName( ) ) )
         {
-            metadata.setGroupId( xml.getElementText( "//metadata/groupId" ) );
-            metadata.setArtifactId( xml.getElementText( "//metadata/artifactId" ) );
-            metadata.setVersion( xml.getElementText( "//metadata/version" ) );
-            metadata.setFileLastModified( Date.from(modTime) );
-            metadata.setFileSize( fileSize );
-            metadata.setLastUpdated( xml.getElementText( "//metadata/versioning/lastUpdated" ) );
-            metadata.setLatestVersion( xml.getElementText( "//metadata/versioning/latest" ) );
-            metadata.setReleasedVersion( xml.getElementText( "//metadata/versioning/release" ) );
-            metadata.setAvailableVersions( xml.getElementListText( "//metadata/versioning/versions/version" ) );
+            throw new RepositoryMetadataException(
+                "Invalid metadata xml: Unexpected root element <" + xml.getLocalName( ) + ">, expected <metadata>" );
+        }
+        List<String> versions = new ArrayList<>( );
+        while ( nextChild( xml ) )
+        {
+            switch ( xml.getLocalName( ) )
+            {
+                case "groupId":
+                    metadata.setGroupId( readText( xml ) );
+                    break;
+                case "artifactId":
+                    metadata.setArtifactId( readText( xml ) );
+                    break;
+                case "version":
+                    metadata.setVersion( readText( xml ) );
+                    break;
+                case "versioning":
+                    readVersioning( xml, metadata, versions );
+                    break;
+                case "plugins":
+                    readPlugins( xml, metadata );
+                    break;
+                default:
+                    skipElement( xml );
+            }
+        }
+        metadata.setAvailableVersions( versions );
+    }
 
-            Element snapshotElem = xml.getElement( "//metadata/versioning/snapshot" );
-            if ( snapshotElem != null )
+    private void readVersioning( XMLStreamReader xml, ArchivaRepositoryMetadata metadata, List<String> versions )
+        throws XMLStreamException
+    {
+        while ( nextChild( xml ) )
+        {
+            switch ( xml.getLocalName( ) )
             {
-                SnapshotVersion snapshot = new SnapshotVersion( );
-                snapshot.setTimestamp( XmlUtil.getChildText( snapshotElem, "timestamp" ) );
-                String buildNumber = XmlUtil.getChildText( snapshotElem, "buildNumber" );
-                if ( NumberUtils.isCreatable( buildNumber ) )
-                {
-                    snapshot.setBuildNumber( NumberUtils.toInt( buildNumber ) );
-                }
-                metadata.setSnapshotVersion( snapshot );
+                case "lastUpdated":
+                    metadata.setLastUpdated( readText( xml ) );
+                    break;
+                case "latest":
+                    metadata.setLatestVersion( readText( xml ) );
+                    break;
+                case "release":
+                    metadata.setReleasedVersion( readText( xml ) );
+                    break;
+                case "versions":
+                    while ( nextChild( xml ) )
+                    {
+                        if ( "version".equals( xml.getLocalName( ) ) )
+                        {
+                            versions.add( readText( xml ) );
+                        }
+                        else
+                        {
+                            skipElement( xml );
+                        }
+                    }
+                    break;
+                case "snapshot":
+                    SnapshotVersion snapshot = new SnapshotVersion( );
+                    snapshot.setTimestamp( "" );
+                    while ( nextChild( xml ) )
+                    {
+                        if ( "timestamp".equals( xml.getLocalName( ) ) )
+                        {
+                            snapshot.setTimestamp( readText( xml ) );
+                        }
+                        else if ( "buildNumber".equals( xml.getLocalName( ) ) )
+                        {
+                            String buildNumber = readText( xml );
+                            if ( NumberUtils.isCreatable( buildNumber ) )
+                            {
+                                snapshot.setBuildNumber( NumberUtils.toInt( buildNumber ) );
+                            }
+                        }
+                        else
+                        {
+                            skipElement( xml );
+                        }
+                    }
+                    metadata.setSnapshotVersion( snapshot );
+                    break;
+                default:
+                    skipElement( xml );
             }
+        }
+    }
 
-            for ( Node node : xml.getElementList( "//metadata/plugins/plugin" ) )
+    private void readPlugins( XMLStreamReader xml, ArchivaRepositoryMetadata metadata )
+        throws XMLStreamException
+    {
+        while ( nextChild( xml ) )
+        {
+            if ( !"plugin".equals( xml.getLocalName( ) ) )
             {
-                if ( node instanceof Element )
+                skipElement( xml );
+                continue;
+            }
+            Plugin plugin = new Plugin( );
+            while ( nextChild( xml ) )
+            {
+                switch ( xml.getLocalName( ) )
                 {
-                    Element plugin = (Element) node;
-                    Plugin p = new Plugin( );
-                    String prefix = plugin.getElementsByTagName( "prefix" ).item( 0 ).getTextContent( ).trim( );
-                    p.setPrefix( prefix );
-                    String artifactId = plugin.getElementsByTagName( "artifactId" ).item( 0 ).getTextContent( ).trim( );
-                    p.setArtifactId( artifactId );
-                    String name = plugin.getElementsByTagName( "name" ).item( 0 ).getTextContent( ).trim( );
-                    p.setName( name );
-                    metadata.addPlugin( p );
+                    case "prefix":
+                        plugin.setPrefix( readText( xml ) );
+                        break;
+                    case "artifactId":
+                        plugin.setArtifactId( readText( xml ) );
+                        break;
+                    case "name":
+                        plugin.setName( readText( xml ) );
+                        break;
+                    default:
+                        skipElement( xml );
                 }
             }
-        } catch ( XMLException e) {
-            throw new RepositoryMetadataException( "XML Error while reading metadata file : " + e.getMessage( ), e );
+            metadata.addPlugin( plugin );
+        }
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return <code>true</code>, if the reader is positioned on the start of a child element, <code>false</code>,
+     * if the end of the current element is reached
+     */
+    private static boolean nextChild( XMLStreamReader xml )
+        throws XMLStreamException
+    {
+        while ( xml.hasNext( ) )
+        {
+            int event = xml.next( );
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                return true;
+            }
+            if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the trimmed text content of the current element including the text of nested elements and moves
+     * to the end of the element.
+     */
+    private static String readText( XMLStreamReader xml )
+        throws XMLStreamException
+    {
+        StringBuilder text = null;
+        String single = null;
+        int depth = 1;
+        while ( depth > 0 )
+        {
+            switch ( xml.next( ) )
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if ( single == null )
+                    {
+                        single = xml.getText( );
+                    }
+                    else
+                    {
+                        if ( text == null )
+                        {
+                            text = new StringBuilder( single );
+                        }
+                        text.append( xml.getText( ) );
+                    }
+                    break;
+                default:
+                    // comments and processing instructions
+            }
+        }
+        if ( text != null )
+        {
+            return text.toString( ).trim( );
+        }
+        return single == null ? "" : single.trim( );
+    }
+
+    private static void skipElement( XMLStreamReader xml )
+        throws XMLStreamException
+    {
+        int depth = 1;
+        while ( depth > 0 )
+        {
+            int event = xml.next( );
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                depth++;
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                depth--;
+            }
         }
-        return metadata;
     }
 
     @Override
@@ -0,0 +1,127 @@
+package org.apache.archiva.metadata.maven;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.model.ArchivaRepositoryMetadata;
+import org.apache.archiva.xml.XMLReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming {@link MavenMetadataReader} with reading the metadata by DOM and XPath expressions,
+ * as the reader did before.
+ * <p>
+ * The benchmark is not run by the unit tests. Run it from the IDE or with the test classpath:
+ * <code>java -cp ... org.apache.archiva.metadata.maven.MavenMetadataReaderBenchmark</code>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MavenMetadataReaderBenchmark
+{
+    @Param( { "10", "1000", "10000" } )
+    public int versionCount;
+
+    private Path metadataFile;
+
+    private final MavenMetadataReader reader = new MavenMetadataReader( );
+
+    @Setup
+    public void createMetadataFile( )
+        throws Exception
+    {
+        StringBuilder xml = new StringBuilder( );
+        xml.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        xml.append( "<metadata>\n" );
+        xml.append( "  <groupId>org.apache.archiva</groupId>\n" );
+        xml.append( "  <artifactId>archiva-benchmark</artifactId>\n" );
+        xml.append( "  <versioning>\n" );
+        xml.append( "    <latest>" ).append( versionCount ).append( ".0</latest>\n" );
+        xml.append( "    <release>" ).append( versionCount ).append( ".0</release>\n" );
+        xml.append( "    <versions>\n" );
+        for ( int i = 1; i <= versionCount; i++ )
+        {
+            xml.append( "      <version>" ).append( i ).append( ".0</version>\n" );
+        }
+        xml.append( "    </versions>\n" );
+        xml.append( "    <lastUpdated>20200101120000</lastUpdated>\n" );
+        xml.append( "  </versioning>\n" );
+        xml.append( "</metadata>\n" );
+        metadataFile = Files.createTempFile( "maven-metadata", ".xml" );
+        Files.write( metadataFile, xml.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    @TearDown
+    public void deleteMetadataFile( )
+        throws Exception
+    {
+        Files.deleteIfExists( metadataFile );
+    }
+
+    @Benchmark
+    public ArchivaRepositoryMetadata streaming( )
+        throws Exception
+    {
+        return reader.read( metadataFile );
+    }
+
+    @Benchmark
+    public ArchivaRepositoryMetadata domXPath( )
+        throws Exception
+    {
+        XMLReader xml = new XMLReader( "metadata", metadataFile );
+        xml.removeNamespaces( );
+        ArchivaRepositoryMetadata metadata = new ArchivaRepositoryMetadata( );
+        metadata.setGroupId( xml.getElementText( "//metadata/groupId" ) );
+        metadata.setArtifactId( xml.getElementText( "//metadata/artifactId" ) );
+        metadata.setVersion( xml.getElementText( "//metadata/version" ) );
+        metadata.setLastUpdated( xml.getElementText( "//metadata/versioning/lastUpdated" ) );
+        metadata.setLatestVersion( xml.getElementText( "//metadata/versioning/latest" ) );
+        metadata.setReleasedVersion( xml.getElementText( "//metadata/versioning/release" ) );
+        metadata.setAvailableVersions( xml.getElementListText( "//metadata/versioning/versions/version" ) );
+        xml.getElement( "//metadata/versioning/snapshot" );
+        xml.getElementList( "//metadata/plugins/plugin" );
+        return metadata;
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        new Runner( new OptionsBuilder( ).include( MavenMetadataReaderBenchmark.class.getSimpleName( ) ).build( ) ).run( );
+    }
+}
@@ -29,6 +29,8 @@
 import org.apache.archiva.repository.features.StagingRepositoryFeature;
 import org.apache.archiva.repository.base.BasicManagedRepository;
 import org.apache.archiva.repository.base.PasswordCredentials;
+import org.apache.archiva.repository.storage.fs.ContentStore;
+import org.apache.archiva.repository.storage.fs.DeduplicatingFilesystemStorage;
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -67,6 +69,15 @@ public class MavenRepositoryProvider implements RepositoryProvider {
 
     private static final Logger log = LoggerFactory.getLogger(MavenRepositoryProvider.class);
 
+    /**
+     * If the system property is set to a directory, the managed repositories share files with identical content
+     * through a {@link ContentStore} in this directory. The directory must be on the same filesystem as the
+     * repositories.
+     */
+    public static final String CONTENT_STORE_DIR_PROPERTY = "archiva.contentStore.dir";
+
+    private ContentStore contentStore;
+
     static final Set<RepositoryType> TYPES = new HashSet<>();
 
     static {
@@ -86,7 +97,12 @@ public MavenManagedRepository createManagedInstance(String id, String name) {
     public MavenManagedRepository createManagedInstance(String id, String name, Path baseDir) {
         FilesystemStorage storage = null;
         try {
-            storage = new FilesystemStorage(baseDir.resolve(id), fileLockManager);
+            ContentStore store = getContentStore();
+            if (store == null) {
+                storage = new FilesystemStorage(baseDir.resolve(id), fileLockManager);
+            } else {
+                storage = new DeduplicatingFilesystemStorage(baseDir.resolve(id), fileLockManager, store);
+            }
         } catch (IOException e) {
             log.error("Could not initialize fileystem for repository {}", id);
             throw new RuntimeException(e);
@@ -94,6 +110,25 @@ public MavenManagedRepository createManagedInstance(String id, String name, Path
         return new MavenManagedRepository(id, name, storage);
     }
 
+    // The content store is shared by all managed repositories
+    private synchronized ContentStore getContentStore() {
+        String storeDir = System.getProperty(CONTENT_STORE_DIR_PROPERTY);
+        if (StringUtils.isBlank(storeDir)) {
+            return null;
+        }
+        if (contentStore == null) {
+            try {
+                contentStore = new ContentStore(Paths.get(storeDir));
+            } catch (IOException e) {
+                // The repositories keep working without shared files
+                log.error("Could not use the content store {}: {}", storeDir, e.getMessage());
+                return null;
+            }
+            log.info("Managed repositories share identical files through the content store {}", contentStore.getStoreDir());
+        }
+        return contentStore;
+    }
+
     @Override
     public MavenRemoteRepository createRemoteInstance(String id, String name) {
         return createRemoteInstance(id, name, archivaConfiguration.getRemoteRepositoryBaseDir());
@@ -20,8 +20,8 @@
  */
 
 import org.apache.archiva.repository.maven.dependency.tree.ArchivaRepositoryConnectorFactory;
-import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
-import org.apache.maven.repository.internal.DefaultVersionRangeResolver;
+import org.apache.archiva.repository.maven.dependency.tree.CachingArtifactDescriptorReader;
+import org.apache.archiva.repository.maven.dependency.tree.CachingVersionRangeResolver;
 import org.apache.maven.repository.internal.DefaultVersionResolver;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
@@ -111,8 +111,9 @@ public static DefaultServiceLocator newLocator() {
         locator.addService(RepositoryConnectorFactory.class,
                 ArchivaRepositoryConnectorFactory.class);// FileRepositoryConnectorFactory.class );
         locator.addService(VersionResolver.class, DefaultVersionResolver.class);
-        locator.addService(VersionRangeResolver.class, DefaultVersionRangeResolver.class);
-        locator.addService(ArtifactDescriptorReader.class, DefaultArtifactDescriptorReader.class);
+        // the descriptors and version ranges are cached by the service instances of the locator
+        locator.addService(VersionRangeResolver.class, CachingVersionRangeResolver.class);
+        locator.addService(ArtifactDescriptorReader.class, CachingArtifactDescriptorReader.class);
 
         return locator;
     }
@@ -0,0 +1,311 @@
+package org.apache.archiva.repository.maven.content;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.content.Artifact;
+import org.apache.archiva.repository.content.ContentItem;
+import org.apache.archiva.repository.content.Namespace;
+import org.apache.archiva.repository.content.Project;
+import org.apache.archiva.repository.content.Version;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache for the content items (namespaces, projects, versions and artifacts) of a managed repository.
+ * The cache is thread safe and may be shared by all content instances of the same repository.
+ * <p>
+ * Each item type is stored in its own map with a maximum number of entries. If the maximum is exceeded,
+ * the least recently used entries are evicted. Items are not reloaded, if the filesystem changes, so the
+ * delete methods of the repository content have to call {@link #invalidate(StorageAsset)}.
+ *
+ * @since 3.0
+ */
+public class ContentItemCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    // Fraction of the entries that is removed, if the cache is full
+    private static final int EVICTION_DIVISOR = 10;
+
+    private final ItemCache<String, Namespace> namespaces;
+    private final ItemCache<StorageAsset, Project> projects;
+    private final ItemCache<StorageAsset, Version> versions;
+    private final ItemCache<StorageAsset, Artifact> artifacts;
+
+    public ContentItemCache( )
+    {
+        this( DEFAULT_MAX_ENTRIES );
+    }
+
+    /**
+     * @param maxEntries the maximum number of entries for each item type
+     */
+    public ContentItemCache( int maxEntries )
+    {
+        if ( maxEntries < 1 )
+        {
+            throw new IllegalArgumentException( "The maximum number of entries must be greater than 0" );
+        }
+        this.namespaces = new ItemCache<>( maxEntries );
+        this.projects = new ItemCache<>( maxEntries );
+        this.versions = new ItemCache<>( maxEntries );
+        this.artifacts = new ItemCache<>( maxEntries );
+    }
+
+    ItemCache<String, Namespace> getNamespaces( )
+    {
+        return namespaces;
+    }
+
+    ItemCache<StorageAsset, Project> getProjects( )
+    {
+        return projects;
+    }
+
+    ItemCache<StorageAsset, Version> getVersions( )
+    {
+        return versions;
+    }
+
+    ItemCache<StorageAsset, Artifact> getArtifacts( )
+    {
+        return artifacts;
+    }
+
+    /**
+     * Removes the items of the given asset and all items below it from the cache.
+     *
+     * @param asset the asset that was deleted or modified
+     */
+    public void invalidate( StorageAsset asset )
+    {
+        if ( asset == null )
+        {
+            return;
+        }
+        final String path = normalize( asset.getPath( ) );
+        if ( path.isEmpty( ) )
+        {
+            clear( );
+            return;
+        }
+        final String prefix = path + "/";
+        Predicate<ContentItem> filter = item -> {
+            String itemPath = normalize( item.getAsset( ).getPath( ) );
+            return itemPath.equals( path ) || itemPath.startsWith( prefix );
+        };
+        namespaces.removeIf( filter );
+        projects.removeIf( filter );
+        versions.removeIf( filter );
+        artifacts.removeIf( filter );
+    }
+
+    /**
+     * Removes all items from the cache. The metrics are not reset.
+     */
+    public void clear( )
+    {
+        namespaces.clear( );
+        projects.clear( );
+        versions.clear( );
+        artifacts.clear( );
+    }
+
+    public int size( )
+    {
+        return namespaces.size( ) + projects.size( ) + versions.size( ) + artifacts.size( );
+    }
+
+    public long getHits( )
+    {
+        return namespaces.getHits( ) + projects.getHits( ) + versions.getHits( ) + artifacts.getHits( );
+    }
+
+    public long getMisses( )
+    {
+        return namespaces.getMisses( ) + projects.getMisses( ) + versions.getMisses( ) + artifacts.getMisses( );
+    }
+
+    public long getEvictions( )
+    {
+        return namespaces.getEvictions( ) + projects.getEvictions( ) + versions.getEvictions( ) + artifacts.getEvictions( );
+    }
+
+    /**
+     * @return the ratio of cache hits to all lookups, 0 if there were no lookups
+     */
+    public double getHitRate( )
+    {
+        long hitCount = getHits( );
+        long total = hitCount + getMisses( );
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static String normalize( String path )
+    {
+        return StringUtils.strip( path == null ? "" : path.replace( '\\', '/' ), "/" );
+    }
+
+    /**
+     * Bounded map for a single item type.
+     * <p>
+     * The loader function is called outside of the map locks, because item creation may access the filesystem
+     * and may load parent items recursively. If two threads load the same key concurrently, the first stored
+     * item wins and is returned to both.
+     *
+     * @param <K> the key type
+     * @param <V> the item type
+     */
+    static final class ItemCache<K, V extends ContentItem>
+    {
+        private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>( );
+        private final AtomicLong clock = new AtomicLong( );
+        private final LongAdder hits = new LongAdder( );
+        private final LongAdder misses = new LongAdder( );
+        private final LongAdder evictions = new LongAdder( );
+        private final int maxEntries;
+
+        ItemCache( int maxEntries )
+        {
+            this.maxEntries = maxEntries;
+        }
+
+        V get( K key, Function<? super K, ? extends V> loader )
+        {
+            Entry<V> entry = entries.get( key );
+            if ( entry != null )
+            {
+                hits.increment( );
+                entry.lastAccess = clock.incrementAndGet( );
+                return entry.value;
+            }
+            misses.increment( );
+            V value = loader.apply( key );
+            if ( value == null )
+            {
+                return null;
+            }
+            Entry<V> existing = entries.putIfAbsent( key, new Entry<>( value, clock.incrementAndGet( ) ) );
+            if ( existing != null )
+            {
+                return existing.value;
+            }
+            if ( entries.size( ) > maxEntries )
+            {
+                evict( );
+            }
+            return value;
+        }
+
+        V getIfPresent( K key )
+        {
+            Entry<V> entry = entries.get( key );
+            if ( entry == null )
+            {
+                return null;
+            }
+            hits.increment( );
+            entry.lastAccess = clock.incrementAndGet( );
+            return entry.value;
+        }
+
+        void removeIf( Predicate<? super V> filter )
+        {
+            entries.values( ).removeIf( entry -> filter.test( entry.value ) );
+        }
+
+        void clear( )
+        {
+            entries.clear( );
+        }
+
+        int size( )
+        {
+            return entries.size( );
+        }
+
+        long getHits( )
+        {
+            return hits.sum( );
+        }
+
+        long getMisses( )
+        {
+            return misses.sum( );
+        }
+
+        long getEvictions( )
+        {
+            return evictions.sum( );
+        }
+
+        /**
+         * Removes the least recently used entries, so that a tenth of the maximum size is free again.
+         * Evicting a batch keeps the sorting cost low, compared to evicting a single entry for each insert.
+         */
+        private synchronized void evict( )
+        {
+            int size = entries.size( );
+            if ( size <= maxEntries )
+            {
+                return;
+            }
+            long[] accessTimes = new long[size];
+            int count = 0;
+            for ( Entry<V> entry : entries.values( ) )
+            {
+                if ( count == accessTimes.length )
+                {
+                    break;
+                }
+                accessTimes[count++] = entry.lastAccess;
+            }
+            Arrays.sort( accessTimes, 0, count );
+            int toRemove = Math.min( count, size - maxEntries + Math.max( 1, maxEntries / EVICTION_DIVISOR ) );
+            final long threshold = accessTimes[toRemove - 1];
+            entries.values( ).removeIf( entry -> {
+                if ( entry.lastAccess <= threshold )
+                {
+                    evictions.increment( );
+                    return true;
+                }
+                return false;
+            } );
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private volatile long lastAccess;
+
+        Entry( V value, long lastAccess )
+        {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -18,12 +18,6 @@
  * under the License.
  */
 
-import org.apache.archiva.metadata.model.ArtifactMetadata;
-import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
-import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
-import org.apache.archiva.repository.maven.metadata.storage.ArtifactMappingProvider;
-import org.apache.archiva.repository.maven.metadata.storage.DefaultArtifactMappingProvider;
-import org.apache.archiva.repository.maven.metadata.storage.Maven2RepositoryPathTranslator;
 import org.apache.archiva.model.ArtifactReference;
 import org.apache.archiva.repository.LayoutException;
 import org.apache.archiva.repository.content.ItemSelector;
@@ -32,13 +26,11 @@
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 /**
  * DefaultPathParser is a parser for maven 2 (default layout) paths to ArtifactReference.
  *
- * TODO: remove in favour of path translator, this is just delegating for the most part, but won't accommodate other
- * extensions like NPanday
+ * TODO: remove in favour of path translator, this parses the same paths with {@link MavenPathCoordinates}, but won't
+ * accommodate other extensions like NPanday
  *
  *
  */
@@ -48,9 +40,6 @@
 {
     private static final String INVALID_ARTIFACT_PATH = "Invalid path to Artifact: ";
 
-    private RepositoryPathTranslator pathTranslator = new Maven2RepositoryPathTranslator(
-        Collections.<ArtifactMappingProvider>singletonList( new DefaultArtifactMappingProvider() ) );
-
     /**
      * {@inheritDoc}
      *
@@ -65,28 +54,19 @@ public ArtifactReference toArtifactReference( String path )
             throw new LayoutException( "Unable to convert blank path." );
         }
 
-        ArtifactMetadata metadata;
-        try
+        MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        if ( coordinates.parse( path ) )
         {
-            metadata = pathTranslator.getArtifactForPath( null, path );
-        }
-        catch ( IllegalArgumentException e )
-        {
-            throw new LayoutException( e.getMessage(), e );
+            ArtifactReference artifact = new ArtifactReference();
+            artifact.setGroupId( coordinates.getGroupId( ) );
+            artifact.setArtifactId( coordinates.getArtifactId( ) );
+            artifact.setVersion( coordinates.getVersion( ) );
+            artifact.setClassifier( coordinates.getClassifier( ) );
+            artifact.setType( coordinates.getType( ) );
+            return artifact;
         }
 
-        ArtifactReference artifact = new ArtifactReference();
-        artifact.setGroupId( metadata.getNamespace() );
-        artifact.setArtifactId( metadata.getProject() );
-        artifact.setVersion( metadata.getVersion() );
-        MavenArtifactFacet facet = (MavenArtifactFacet) metadata.getFacet( MavenArtifactFacet.FACET_ID );
-        if ( facet != null )
-        {
-            artifact.setClassifier( facet.getClassifier() );
-            artifact.setType( facet.getType() );
-        }
-
-        return artifact;
+        throw new LayoutException( coordinates.getError( ) );
     }
 
     @Override
@@ -97,27 +77,21 @@ public ItemSelector toItemSelector( String path ) throws LayoutException
             throw new LayoutException( "Unable to convert blank path." );
         }
 
-        try
-        {
-            ArtifactMetadata metadata = pathTranslator.getArtifactForPath( null, path );
-            ArchivaItemSelector.Builder builder = ArchivaItemSelector.builder( ).withNamespace( metadata.getNamespace( ) )
-                .withProjectId( metadata.getProject( ) )
-                .withVersion( metadata.getProjectVersion( ) )
-                .withArtifactId( metadata.getProject( ) )
-                .withArtifactVersion( metadata.getVersion( ) );
-            MavenArtifactFacet facet = (MavenArtifactFacet) metadata.getFacet( MavenArtifactFacet.FACET_ID );
-            if ( facet != null )
-            {
-                builder.withClassifier( facet.getClassifier() );
-                builder.withType( facet.getType() );
-            }
-            return builder.build( );
-        }
-        catch ( IllegalArgumentException e )
+        MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        if ( coordinates.parse( path ) )
         {
-            throw new LayoutException( e.getMessage(), e );
+            String artifactId = coordinates.getArtifactId( );
+            return ArchivaItemSelector.builder( ).withNamespace( coordinates.getGroupId( ) )
+                .withProjectId( artifactId )
+                .withVersion( coordinates.getProjectVersion( ) )
+                .withArtifactId( artifactId )
+                .withArtifactVersion( coordinates.getVersion( ) )
+                .withClassifier( coordinates.getClassifier( ) )
+                .withType( coordinates.getType( ) )
+                .build( );
         }
 
+        throw new LayoutException( coordinates.getError( ) );
     }
 
 }
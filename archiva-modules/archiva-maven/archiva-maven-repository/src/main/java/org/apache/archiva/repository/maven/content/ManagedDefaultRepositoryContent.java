@@ -53,7 +53,6 @@
 import org.apache.archiva.repository.storage.RepositoryStorage;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.util.StorageUtil;
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.inject.Inject;
@@ -63,7 +62,6 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -119,14 +117,10 @@ public void setFileTypes(FileTypes fileTypes) {
     public static final Pattern GENERIC_SNAPSHOT_PATTERN = Pattern.compile( "^(.*)-" + SNAPSHOT );
 
     /**
-     * We are caching content items in a weak reference map. To avoid always recreating the
-     * the hierarchical structure.
-     * TODO: Better use a object cache? E.g. our spring cache implementation?
+     * We are caching content items to avoid always recreating the hierarchical structure.
+     * The cache may be shared with other content instances of the same repository.
      */
-    private ReferenceMap<String, Namespace> namespaceMap = new ReferenceMap<>( );
-    private ReferenceMap<StorageAsset, Project> projectMap = new ReferenceMap<>( );
-    private ReferenceMap<StorageAsset, Version> versionMap = new ReferenceMap<>( );
-    private ReferenceMap<StorageAsset, Artifact> artifactMap = new ReferenceMap<>( );
+    private volatile ContentItemCache itemCache = new ContentItemCache( );
 
     public ManagedDefaultRepositoryContent() {
         super(Collections.singletonList( new DefaultArtifactMappingProvider() ));
@@ -219,6 +213,10 @@ public void deleteItem( ContentItem item ) throws ItemNotFoundException, Content
             log.error( "Could not delete item from path {}: {}", itemPath, e.getMessage( ), e );
             throw new ContentAccessException( "Error occured while deleting item " + item + ": " + e.getMessage( ), e );
         }
+        finally
+        {
+            itemCache.invalidate( item.getAsset( ) );
+        }
     }
 
     @Override
@@ -238,7 +236,7 @@ public ContentItem getItem( ItemSelector selector ) throws ContentAccessExceptio
     @Override
     public Namespace getNamespace( final ItemSelector namespaceSelector ) throws ContentAccessException, IllegalArgumentException
     {
-        return namespaceMap.computeIfAbsent( namespaceSelector.getNamespace(),
+        return itemCache.getNamespaces( ).get( namespaceSelector.getNamespace(),
             namespace -> {
                 StorageAsset nsPath = getAsset( namespace );
                 return ArchivaNamespace.withRepository( this ).withAsset( nsPath ).
@@ -254,7 +252,7 @@ public Project getProject( final ItemSelector selector ) throws ContentAccessExc
             throw new IllegalArgumentException( "Project id must be set" );
         }
         final StorageAsset path = getAsset( selector.getNamespace( ), selector.getProjectId( ) );
-        return projectMap.computeIfAbsent( path, projectPath -> {
+        return itemCache.getProjects( ).get( path, projectPath -> {
             final Namespace ns = getNamespace( selector );
             return ArchivaProject.withAsset( projectPath ).withNamespace( ns ).withId( selector.getProjectId( ) ).build( );
         }
@@ -272,7 +270,7 @@ public Version getVersion( final ItemSelector selector ) throws ContentAccessExc
             throw new IllegalArgumentException( "Version must be set" );
         }
         final StorageAsset path = getAsset(selector.getNamespace(), selector.getProjectId(), selector.getVersion());
-        return versionMap.computeIfAbsent( path, versionPath -> {
+        return itemCache.getVersions( ).get( path, versionPath -> {
             final Project project = getProject( selector );
             return ArchivaVersion.withAsset( path )
                 .withProject( project )
@@ -301,7 +299,7 @@ public Artifact createArtifact(final StorageAsset artifactPath, final ItemSelect
     public Namespace getNamespaceFromArtifactPath( final StorageAsset artifactPath) {
         final StorageAsset namespacePath = artifactPath.getParent( ).getParent( ).getParent( );
         final String namespace = MavenContentHelper.getNamespaceFromNamespacePath( namespacePath );
-        return namespaceMap.computeIfAbsent( namespace,
+        return itemCache.getNamespaces( ).get( namespace,
             myNamespace -> ArchivaNamespace.withRepository( this )
                 .withAsset( namespacePath )
                 .withNamespace( namespace )
@@ -310,7 +308,7 @@ public Namespace getNamespaceFromArtifactPath( final StorageAsset artifactPath)
 
     public Namespace getNamespaceFromPath( final StorageAsset namespacePath) {
         final String namespace = MavenContentHelper.getNamespaceFromNamespacePath( namespacePath );
-        return namespaceMap.computeIfAbsent( namespace,
+        return itemCache.getNamespaces( ).get( namespace,
             myNamespace -> ArchivaNamespace.withRepository( this )
                 .withAsset( namespacePath )
                 .withNamespace( namespace )
@@ -318,7 +316,7 @@ public Namespace getNamespaceFromPath( final StorageAsset namespacePath) {
     }
 
     private Project getProjectFromPath( final StorageAsset projectPath) {
-        return projectMap.computeIfAbsent( projectPath,
+        return itemCache.getProjects( ).get( projectPath,
             myProjectPath -> ArchivaProject.withAsset( projectPath )
                 .withNamespace( getNamespaceFromPath( projectPath.getParent() ) )
                 .withId( projectPath.getName( ) ).build( )
@@ -327,7 +325,7 @@ private Project getProjectFromPath( final StorageAsset projectPath) {
 
     private Project getProjectFromArtifactPath( final StorageAsset artifactPath) {
         final StorageAsset projectPath = artifactPath.getParent( ).getParent( );
-        return projectMap.computeIfAbsent( projectPath,
+        return itemCache.getProjects( ).get( projectPath,
             myProjectPath -> ArchivaProject.withAsset( projectPath )
                 .withNamespace( getNamespaceFromArtifactPath( artifactPath ) )
                 .withId( projectPath.getName( ) ).build( )
@@ -336,7 +334,7 @@ private Project getProjectFromArtifactPath( final StorageAsset artifactPath) {
 
     private Version getVersionFromArtifactPath( final StorageAsset artifactPath) {
         final StorageAsset versionPath = artifactPath.getParent( );
-        return versionMap.computeIfAbsent( versionPath,
+        return itemCache.getVersions( ).get( versionPath,
             myVersionPath -> ArchivaVersion.withAsset( versionPath )
                 .withProject( getProjectFromArtifactPath( artifactPath ) )
                 .withVersion( versionPath.getName( ) ).build( ) );
@@ -345,7 +343,7 @@ private Version getVersionFromArtifactPath( final StorageAsset artifactPath) {
     private Artifact getArtifactFromPath(final StorageAsset artifactPath) {
         final Version version = getVersionFromArtifactPath( artifactPath );
         final ArtifactInfo info  = getArtifactInfoFromPath( version.getVersion(), artifactPath );
-        return artifactMap.computeIfAbsent( artifactPath, myArtifactPath ->
+        return itemCache.getArtifacts( ).get( artifactPath, myArtifactPath ->
             org.apache.archiva.repository.content.base.ArchivaArtifact.withAsset( artifactPath )
                 .withVersion( version )
                 .withId( info.id )
@@ -363,22 +361,25 @@ private ContentItem getItemFromPath(final StorageAsset itemPath) {
         if (itemPath.isLeaf()) {
             return getArtifactFromPath( itemPath );
         } else {
-            if (versionMap.containsKey( itemPath )) {
-                return versionMap.get( itemPath );
+            ContentItem cachedItem = itemCache.getVersions( ).getIfPresent( itemPath );
+            if (cachedItem!=null) {
+                return cachedItem;
             }
-            if (projectMap.containsKey( itemPath )) {
-                return projectMap.get( itemPath );
+            cachedItem = itemCache.getProjects( ).getIfPresent( itemPath );
+            if (cachedItem!=null) {
+                return cachedItem;
             }
             String ns = MavenContentHelper.getNamespaceFromNamespacePath( itemPath );
-            if (namespaceMap.containsKey( ns )) {
-                return namespaceMap.get( ns );
+            cachedItem = itemCache.getNamespaces( ).getIfPresent( ns );
+            if (cachedItem!=null) {
+                return cachedItem;
             }
             // No cached item, so we have to gather more information:
             // Check for version directory (contains at least a pom or metadata file)
             if (itemPath.list( ).stream( ).map(a -> a.getName().toLowerCase()).anyMatch( n ->
                 n.endsWith( ".pom" )
             )) {
-                return versionMap.computeIfAbsent( itemPath,
+                return itemCache.getVersions( ).get( itemPath,
                     myVersionPath -> ArchivaVersion.withAsset( itemPath )
                         .withProject( (Project)getItemFromPath( itemPath.getParent() ) )
                         .withVersion( itemPath.getName() ).build());
@@ -398,11 +399,11 @@ private ContentItem getItemFromPath(final StorageAsset itemPath) {
                     }
                     // Project path if it is one level up from the found file
                     if (level==2) {
-                        return projectMap.computeIfAbsent( itemPath,
+                        return itemCache.getProjects( ).get( itemPath,
                             myItemPath -> getProjectFromArtifactPath( foundFile.get( ) ) );
                     } else {
                         // All other paths are treated as namespace
-                        return namespaceMap.computeIfAbsent( ns,
+                        return itemCache.getNamespaces( ).get( ns,
                             myNamespace -> ArchivaNamespace.withRepository( this )
                                 .withAsset( itemPath )
                                 .withNamespace( ns )
@@ -410,7 +411,7 @@ private ContentItem getItemFromPath(final StorageAsset itemPath) {
                     }
                 } else {
                     // Don't know what to do with it, so we treat it as namespace path
-                    return namespaceMap.computeIfAbsent( ns,
+                    return itemCache.getNamespaces( ).get( ns,
                         myNamespace -> ArchivaNamespace.withRepository( this )
                             .withAsset( itemPath )
                             .withNamespace( ns )
@@ -439,7 +440,16 @@ private ArtifactInfo getArtifactInfoFromPath(String genericVersion, StorageAsset
         info.asset = path;
         info.id = path.getParent( ).getParent( ).getName( );
         final String fileName = path.getName( );
-        if ( genericVersion.endsWith( "-" + SNAPSHOT ) )
+        // Files that follow the maven naming are parsed in one pass, the patterns below are only used for guessing
+        // the values of other files in the version directory
+        final MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        if ( coordinates.parse( info.id, genericVersion, fileName ) )
+        {
+            info.version = coordinates.getVersion( );
+            info.classifier = StringUtils.defaultString( coordinates.getClassifier( ) );
+            info.remainder = "." + coordinates.getExtension( );
+        }
+        else if ( genericVersion.endsWith( "-" + SNAPSHOT ) )
         {
             String baseVersion = StringUtils.substringBeforeLast( genericVersion, "-" + SNAPSHOT );
             String prefix = info.id+"-"+baseVersion+"-";
@@ -565,7 +575,7 @@ public Artifact getArtifact( final ItemSelector selector ) throws ContentAccessE
         final String fileName = MavenContentHelper.getArtifactFileName( artifactId, artifactVersion, classifier, extension );
         final StorageAsset path = getAsset( selector.getNamespace( ), selector.getProjectId( ),
             selector.getVersion( ), fileName );
-        return artifactMap.computeIfAbsent( path, artifactPath -> createArtifact( path, selector, classifier, extension ) );
+        return itemCache.getArtifacts( ).get( path, artifactPath -> createArtifact( path, selector, classifier, extension ) );
     }
 
     /**
@@ -745,13 +755,12 @@ public Stream<? extends Artifact> newArtifactStream( ItemSelector selector ) thr
         final Predicate<StorageAsset> filter = getFileFilterFromSelector( selector );
         if (projectId!=null && selector.hasVersion()) {
             return getAsset( selector.getNamespace( ), projectId, selector.getVersion( ) )
-                .list( ).stream( ).filter( filter )
+                .newChildStream( ).filter( filter )
                 .map( this::getArtifactFromPath );
         } else if (projectId!=null) {
             final StorageAsset projDir = getAsset( selector.getNamespace( ), projectId );
-            return projDir.list( ).stream( )
-                .map(a -> a.isContainer( ) ? a.list( ) : Arrays.asList( a ) )
-                .flatMap( List::stream )
+            return projDir.newChildStream( )
+                .flatMap( this::newChildOrSelfStream )
                 .filter( filter )
                 .map( this::getArtifactFromPath );
         } else
@@ -759,23 +768,31 @@ public Stream<? extends Artifact> newArtifactStream( ItemSelector selector ) thr
             StorageAsset namespaceDir = getAsset( selector.getNamespace( ) );
             if (selector.recurse())
             {
+                // The asset spliterator lists the directories on demand and splits the subtrees for parallel processing
                 return StorageUtil.newAssetStream( namespaceDir, true )
                     .filter( filter )
                         .map( this::getArtifactFromPath );
 
             } else {
                 // We descend into 2 subdirectories (project and version)
-                return namespaceDir.list( ).stream( )
-                    .map( a -> a.isContainer( ) ? a.list( ) : Arrays.asList( a ) )
-                    .flatMap( List::stream )
-                    .map( a -> a.isContainer( ) ? a.list( ) : Arrays.asList( a ) )
-                    .flatMap( List::stream )
+                return namespaceDir.newChildStream( )
+                    .flatMap( this::newChildOrSelfStream )
+                    .flatMap( this::newChildOrSelfStream )
                     .filter( filter )
                     .map( this::getArtifactFromPath );
             }
         }
     }
 
+    /*
+     * Returns the children for container assets, otherwise the asset itself.
+     * The child streams are closed by flatMap, after their content was consumed.
+     */
+    private Stream<? extends StorageAsset> newChildOrSelfStream( StorageAsset asset )
+    {
+        return asset.isContainer( ) ? asset.newChildStream( ) : Stream.of( asset );
+    }
+
     /**
      * Same as {@link #newArtifactStream(ContentItem)} but returns the collected stream as list.
      *
@@ -827,7 +844,7 @@ public Stream<? extends Artifact> newArtifactStream( Artifact item ) throws Cont
         final String fileName = item.getFileName( );
         final Predicate<StorageAsset> filter = ( StorageAsset a ) ->
             a.getName( ).startsWith( fileName + "." );
-        return v.getAsset( ).list( ).stream( ).filter( filter )
+        return v.getAsset( ).newChildStream( ).filter( filter )
             .map( a -> getArtifactFromPath( a ) );
     }
     /**
@@ -954,6 +971,10 @@ public void deleteVersion( VersionedReference ref ) throws ContentNotFoundExcept
                 log.error( "Could not delete file path {}: {}", deleteTarget, e.getMessage( ), e );
                 throw new ContentAccessException( "Error while trying to delete path "+path+" from repository "+getId()+": "+e.getMessage( ), e );
             }
+            finally
+            {
+                itemCache.invalidate( getAssetByPath( path ) );
+            }
         } else {
             log.warn( "Version path for repository {} is not a directory {}", getId(), deleteTarget );
             throw new ContentNotFoundException( "Version path for repository "+getId()+" is not directory: " + path );
@@ -982,6 +1003,10 @@ public void deleteProject( ProjectReference ref )
                 log.error( "Could not delete file path {}: {}", deleteTarget, e.getMessage( ), e );
                 throw new ContentAccessException( "Error while trying to delete path "+path+" from repository "+getId()+": "+e.getMessage( ), e );
             }
+            finally
+            {
+                itemCache.invalidate( getAssetByPath( path ) );
+            }
         }
         else
         {
@@ -1019,6 +1044,10 @@ public void deleteArtifact( ArtifactReference ref ) throws ContentNotFoundExcept
                 log.error( "Could not delete file path {}: {}", deleteTarget, e.getMessage( ), e );
                 throw new ContentAccessException( "Error while trying to delete path "+path+" from repository "+getId()+": "+e.getMessage( ), e );
             }
+            finally
+            {
+                itemCache.invalidate( getAssetByPath( path ) );
+            }
         } else {
             log.warn( "Artifact path for repository {} does not exist: {}", getId(), deleteTarget );
             throw new ContentNotFoundException( "Artifact not found for repository "+getId()+": "+path );
@@ -1047,6 +1076,10 @@ public void deleteGroupId( String groupId )
                 log.error( "Could not delete file path {}: {}", deleteTarget, e.getMessage( ), e );
                 throw new ContentAccessException( "Error while trying to delete path "+path+" from repository "+getId()+": "+e.getMessage( ), e );
             }
+            finally
+            {
+                itemCache.invalidate( getAssetByPath( path ) );
+            }
         } else {
             log.warn( "Namespace path for repository {} is not a directory {}", getId(), deleteTarget );
             throw new ContentNotFoundException( "Namespace path for repository "+getId()+" is not directory: " + path );
@@ -1079,7 +1112,7 @@ public List<ArtifactReference> getRelatedArtifacts( VersionedReference reference
 
         // First gather up the versions found as artifacts in the managed repository.
 
-        try (Stream<? extends StorageAsset> stream = artifactDir.list().stream() ) {
+        try (Stream<? extends StorageAsset> stream = artifactDir.newChildStream() ) {
             return stream.filter(asset -> !asset.isContainer()).map(path -> {
                 try {
                     ArtifactReference artifact = toArtifactReference(path.getPath());
@@ -1185,7 +1218,7 @@ public List<ArtifactReference> getRelatedArtifacts( ArtifactReference reference
 
         // First gather up the versions found as artifacts in the managed repository.
 
-        try (Stream<? extends StorageAsset> stream = repoDir.list().stream() ) {
+        try (Stream<? extends StorageAsset> stream = repoDir.newChildStream() ) {
             return stream.filter(
                 asset -> !asset.isContainer())
                 .map(path -> {
@@ -1359,6 +1392,27 @@ public void setRepository( final ManagedRepository repo )
         }
     }
 
+    /**
+     * Returns the cache for the content items of this repository.
+     *
+     * @return the item cache
+     */
+    public ContentItemCache getItemCache( )
+    {
+        return itemCache;
+    }
+
+    /**
+     * Sets the cache for the content items. Content instances of the same repository may share
+     * the cache instance.
+     *
+     * @param itemCache the item cache
+     */
+    public void setItemCache( ContentItemCache itemCache )
+    {
+        this.itemCache = Objects.requireNonNull( itemCache, "The item cache must not be null" );
+    }
+
     private Path getRepoDir() {
         return repository.getAsset( "" ).getFilePath( );
     }
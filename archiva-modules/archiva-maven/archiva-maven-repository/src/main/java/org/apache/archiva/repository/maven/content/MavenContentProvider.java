@@ -37,6 +37,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Maven implementation of the repository content provider. Only default layout and
@@ -57,6 +58,9 @@ public class MavenContentProvider implements RepositoryContentProvider
     protected List<? extends ArtifactMappingProvider> artifactMappingProviders;
 
 
+    // The content instances of the same repository share the item cache
+    private final ConcurrentHashMap<String, ContentItemCache> itemCaches = new ConcurrentHashMap<>( );
+
     private static final Set<RepositoryType> REPOSITORY_TYPES = new HashSet<>(  );
     static {
         REPOSITORY_TYPES.add(RepositoryType.MAVEN);
@@ -104,6 +108,10 @@ public ManagedRepositoryContent createManagedContent( ManagedRepository reposito
             throw new RepositoryException( "Repository layout "+repository.getLayout()+" is not supported by this implementation." );
         }
         ManagedDefaultRepositoryContent content = new ManagedDefaultRepositoryContent(repository, artifactMappingProviders, filetypes ,fileLockManager);
+        ContentItemCache itemCache = itemCaches.computeIfAbsent( repository.getId( ), id -> new ContentItemCache( ) );
+        // The repository configuration may have changed, so the cached items are outdated
+        itemCache.clear( );
+        content.setItemCache( itemCache );
         return content;
     }
 
@@ -123,4 +131,15 @@ public <T extends RepositoryContent, V extends Repository> T createContent( Clas
         }
     }
 
+    /**
+     * Returns the item cache that is shared by the managed content instances of the given repository.
+     *
+     * @param repositoryId the repository id
+     * @return the item cache, or <code>null</code>, if no content was created for the repository
+     */
+    public ContentItemCache getItemCache( String repositoryId )
+    {
+        return itemCaches.get( repositoryId );
+    }
+
 }
@@ -0,0 +1,500 @@
+package org.apache.archiva.repository.maven.content;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.maven.metadata.storage.ArtifactMappingProvider;
+import org.apache.archiva.repository.maven.metadata.storage.DefaultArtifactMappingProvider;
+
+/**
+ * Coordinates of a artifact path in a maven 2 repository (default layout).
+ * <p>
+ * {@link #parse(String)} scans the path once and stores only the positions of the groupId, artifactId, version,
+ * classifier and extension in the path. The strings are created, when the getters are called. If the path is not
+ * valid, {@link #getError()} returns the reason. The instance can be reused for many paths, but is not thread safe.
+ * <p>
+ * The parser accepts the same paths and returns the same values as
+ * {@link org.apache.archiva.repository.maven.metadata.storage.Maven2RepositoryPathTranslator#getArtifactForPath(String, String)}.
+ *
+ * @since 3.0
+ */
+public class MavenPathCoordinates
+{
+    private static final String SNAPSHOT = "SNAPSHOT";
+
+    private static final String INVALID_PATH = "Not a valid artifact path in a Maven 2 repository, ";
+
+    private static final int TIMESTAMP_LENGTH = 15;
+
+    private static final ArtifactMappingProvider MAPPING = new DefaultArtifactMappingProvider( );
+
+    private String path;
+
+    private int groupEnd;
+
+    private int artifactIdStart;
+
+    private int artifactIdEnd;
+
+    private int projectVersionStart;
+
+    private int projectVersionEnd;
+
+    private int fileStart;
+
+    private int fileEnd;
+
+    private int versionStart;
+
+    private int versionEnd;
+
+    private int timestampStart;
+
+    private int buildNumber;
+
+    private int classifierStart;
+
+    private int classifierEnd;
+
+    private int extensionStart;
+
+    private String error;
+
+    /**
+     * Parses the given path. The values of a previous parse are overwritten.
+     *
+     * @param path the path relative to the repository root, '/' and '\' are accepted as separators
+     * @return <code>true</code>, if the path is a valid artifact path, otherwise <code>false</code>
+     */
+    public boolean parse( String path )
+    {
+        reset( );
+        if ( path == null )
+        {
+            return fail( "Unable to convert blank path." );
+        }
+        int end = path.length( );
+        // trailing separators are ignored
+        while ( end > 0 && isSeparator( path.charAt( end - 1 ) ) )
+        {
+            end--;
+        }
+        if ( end == 0 )
+        {
+            return fail( "Unable to convert blank path." );
+        }
+        fileEnd = end;
+        fileStart = lastSeparator( path, end ) + 1;
+        if ( fileStart != 0 )
+        {
+            projectVersionEnd = fileStart - 1;
+            projectVersionStart = lastSeparator( path, projectVersionEnd ) + 1;
+        }
+        if ( projectVersionStart != 0 )
+        {
+            artifactIdEnd = projectVersionStart - 1;
+            artifactIdStart = lastSeparator( path, artifactIdEnd ) + 1;
+        }
+        if ( artifactIdStart == 0 )
+        {
+            reset( );
+            return fail( INVALID_PATH + "not enough directories: " + path );
+        }
+        groupEnd = artifactIdStart - 1;
+        this.path = path;
+        if ( parseFilename( ) )
+        {
+            return true;
+        }
+        String message = error;
+        reset( );
+        return fail( message );
+    }
+
+    /**
+     * Parses the file name of an artifact in the given project version directory. The groupId is empty.
+     *
+     * @param artifactId the artifactId, the name of the project directory
+     * @param projectVersion the version, the name of the version directory
+     * @param filename the name of the artifact file
+     * @return <code>true</code>, if the filename is a valid artifact filename, otherwise <code>false</code>
+     */
+    public boolean parse( String artifactId, String projectVersion, String filename )
+    {
+        return parse( "/" + artifactId + "/" + projectVersion + "/" + filename );
+    }
+
+    private boolean fail( String message )
+    {
+        error = message;
+        return false;
+    }
+
+    private boolean parseFilename( )
+    {
+        int artifactIdLength = artifactIdEnd - artifactIdStart;
+        // the filename starts with "artifactId-"
+        if ( fileEnd - fileStart <= artifactIdLength || !path.regionMatches( fileStart, path, artifactIdStart,
+                                                                             artifactIdLength )
+            || path.charAt( fileStart + artifactIdLength ) != '-' )
+        {
+            return fail( INVALID_PATH + "filename '" + getFilename( ) + "' doesn't start with artifact ID '"
+                             + getArtifactId( ) + "'" );
+        }
+        versionStart = fileStart + artifactIdLength + 1;
+        int projectVersionLength = projectVersionEnd - projectVersionStart;
+        if ( versionStart + projectVersionLength <= fileEnd && path.regionMatches( versionStart, path,
+                                                                                   projectVersionStart,
+                                                                                   projectVersionLength )
+            && !isUniqueSnapshot( projectVersionStart, projectVersionEnd ) )
+        {
+            // non-snapshot versions, or non-timestamped snapshot versions
+            versionEnd = versionStart + projectVersionLength;
+        }
+        else if ( path.startsWith( SNAPSHOT, projectVersionEnd - SNAPSHOT.length( ) )
+            && projectVersionLength >= SNAPSHOT.length( ) )
+        {
+            // timestamped snapshots, the main version is followed by "yyyyMMdd.HHmmss-buildNumber"
+            int mainVersionLength = projectVersionLength - SNAPSHOT.length( );
+            if ( mainVersionLength == 0 )
+            {
+                return fail( "Timestamped snapshots must contain the main version, filename was '" + getFilename( )
+                                 + "'" );
+            }
+            if ( !parseTimestamp( versionStart + mainVersionLength ) )
+            {
+                return fail( INVALID_PATH + "filename '" + getFilename( )
+                                 + "' doesn't contain a timestamped version matching snapshot '"
+                                 + getProjectVersion( ) + "'" );
+            }
+        }
+        else
+        {
+            return fail( INVALID_PATH + "filename '" + getFilename( ) + "' doesn't contain version '"
+                             + getProjectVersion( ) + "'" );
+        }
+
+        if ( versionEnd == fileEnd )
+        {
+            // no classifier or extension, there is no type
+            return failWithoutType( );
+        }
+        char c = path.charAt( versionEnd );
+        if ( c == '-' )
+        {
+            classifierStart = versionEnd + 1;
+            int dot = path.indexOf( '.', classifierStart );
+            if ( dot < 0 || dot >= fileEnd )
+            {
+                // a classifier without extension has no type
+                return failWithoutType( );
+            }
+            classifierEnd = dot;
+            extensionStart = dot + 1;
+        }
+        else if ( c == '.' )
+        {
+            extensionStart = versionEnd + 1;
+        }
+        else
+        {
+            return fail( INVALID_PATH + "filename '" + getFilename( ) + "' expected classifier or extension but got '"
+                             + path.substring( versionEnd, fileEnd ) + "'" );
+        }
+        return true;
+    }
+
+    private boolean failWithoutType( )
+    {
+        return fail( INVALID_PATH + "filename '" + getFilename( ) + "' does not have a type" );
+    }
+
+    private boolean parseTimestamp( int start )
+    {
+        // yyyyMMdd.HHmmss-buildNumber, the separator of date and time may be any character
+        int pos = start;
+        if ( pos + TIMESTAMP_LENGTH + 2 > fileEnd || !isDigits( pos, pos + 8 ) || isLineTerminator(
+            path.charAt( pos + 8 ) ) || !isDigits( pos + 9, pos + TIMESTAMP_LENGTH ) || path.charAt(
+            pos + TIMESTAMP_LENGTH ) != '-' )
+        {
+            return false;
+        }
+        pos += TIMESTAMP_LENGTH + 1;
+        long number = 0;
+        int numberStart = pos;
+        while ( pos < fileEnd && isDigit( path.charAt( pos ) ) )
+        {
+            number = number * 10 + ( path.charAt( pos ) - '0' );
+            if ( number > Integer.MAX_VALUE )
+            {
+                return false;
+            }
+            pos++;
+        }
+        if ( pos == numberStart )
+        {
+            return false;
+        }
+        for ( int i = pos; i < fileEnd; i++ )
+        {
+            if ( isLineTerminator( path.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        timestampStart = start;
+        buildNumber = (int) number;
+        versionEnd = pos;
+        return true;
+    }
+
+    /**
+     * Same as {@link org.apache.archiva.common.utils.VersionUtil#isUniqueSnapshot(String)} for a region of the path:
+     * the version ends with "-yyyyMMdd.HHmmss-buildNumber".
+     */
+    private boolean isUniqueSnapshot( int start, int end )
+    {
+        int pos = end;
+        while ( pos > start && isDigit( path.charAt( pos - 1 ) ) )
+        {
+            pos--;
+        }
+        if ( pos == end || pos - start < TIMESTAMP_LENGTH + 2 || path.charAt( pos - 1 ) != '-' )
+        {
+            return false;
+        }
+        int timestampStart = pos - 1 - TIMESTAMP_LENGTH;
+        if ( path.charAt( timestampStart - 1 ) != '-' || path.charAt( timestampStart + 8 ) != '.' )
+        {
+            return false;
+        }
+        if ( !isDigits( timestampStart, timestampStart + 8 ) || !isDigits( timestampStart + 9,
+                                                                            timestampStart + TIMESTAMP_LENGTH ) )
+        {
+            return false;
+        }
+        for ( int i = start; i < timestampStart - 1; i++ )
+        {
+            if ( isLineTerminator( path.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDigits( int start, int end )
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            if ( !isDigit( path.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator( char c )
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isSeparator( char c )
+    {
+        return c == '/' || c == '\\';
+    }
+
+    private static int lastSeparator( String path, int end )
+    {
+        for ( int i = end - 1; i >= 0; i-- )
+        {
+            if ( isSeparator( path.charAt( i ) ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Clears the values of the last parse.
+     */
+    public void reset( )
+    {
+        path = null;
+        groupEnd = artifactIdStart = artifactIdEnd = 0;
+        projectVersionStart = projectVersionEnd = fileStart = fileEnd = 0;
+        versionStart = versionEnd = 0;
+        timestampStart = classifierStart = classifierEnd = extensionStart = -1;
+        buildNumber = 0;
+        error = null;
+    }
+
+    /**
+     * @return <code>true</code>, if the last parse was successful
+     */
+    public boolean isValid( )
+    {
+        return path != null;
+    }
+
+    /**
+     * @return the reason, why the last parsed path is not valid, or <code>null</code>, if it is valid
+     */
+    public String getError( )
+    {
+        return error;
+    }
+
+    /**
+     * @return the groupId, the directories before the artifactId separated by '.'
+     */
+    public String getGroupId( )
+    {
+        if ( path == null )
+        {
+            return null;
+        }
+        char[] chars = new char[groupEnd];
+        path.getChars( 0, groupEnd, chars, 0 );
+        for ( int i = 0; i < chars.length; i++ )
+        {
+            if ( isSeparator( chars[i] ) )
+            {
+                chars[i] = '.';
+            }
+        }
+        return new String( chars );
+    }
+
+    public String getArtifactId( )
+    {
+        return path == null ? null : path.substring( artifactIdStart, artifactIdEnd );
+    }
+
+    /**
+     * @return the version of the directory, e.g. 1.0-SNAPSHOT
+     */
+    public String getProjectVersion( )
+    {
+        return path == null ? null : path.substring( projectVersionStart, projectVersionEnd );
+    }
+
+    /**
+     * @return the version of the file, e.g. 1.0-20200101.120000-1 for timestamped snapshots
+     */
+    public String getVersion( )
+    {
+        return path == null ? null : path.substring( versionStart, versionEnd );
+    }
+
+    /**
+     * @return the timestamp of a timestamped snapshot, otherwise <code>null</code>
+     */
+    public String getTimestamp( )
+    {
+        return path == null || timestampStart < 0 ? null : path.substring( timestampStart,
+                                                                           timestampStart + TIMESTAMP_LENGTH );
+    }
+
+    /**
+     * @return the build number of a timestamped snapshot, otherwise 0
+     */
+    public int getBuildNumber( )
+    {
+        return buildNumber;
+    }
+
+    /**
+     * @return the classifier or <code>null</code>, if the file has no classifier
+     */
+    public String getClassifier( )
+    {
+        return path == null || classifierStart < 0 ? null : path.substring( classifierStart, classifierEnd );
+    }
+
+    /**
+     * @return the extension, everything after the version and classifier, e.g. tar.gz
+     */
+    public String getExtension( )
+    {
+        return path == null ? null : path.substring( extensionStart, fileEnd );
+    }
+
+    /**
+     * @return the filename
+     */
+    public String getFilename( )
+    {
+        return path == null ? null : path.substring( fileStart, fileEnd );
+    }
+
+    /**
+     * Returns the artifact type, as the maven 2 path translator maps classifier and extension to the type.
+     *
+     * @return the type
+     */
+    public String getType( )
+    {
+        if ( path == null )
+        {
+            return null;
+        }
+        String classifier = getClassifier( );
+        String extension = getExtension( );
+        String type = MAPPING.mapClassifierAndExtensionToType( classifier, extension );
+        if ( type == null && "jar".equals( extension ) && isMavenPluginArtifactId( ) )
+        {
+            type = "maven-plugin";
+        }
+        return type == null ? extension : type;
+    }
+
+    /**
+     * Checks, if the artifactId is "maven-*-plugin" or "*-maven-plugin".
+     */
+    private boolean isMavenPluginArtifactId( )
+    {
+        int length = artifactIdEnd - artifactIdStart;
+        if ( length < "maven--plugin".length( ) )
+        {
+            return false;
+        }
+        boolean prefixed = path.startsWith( "maven-", artifactIdStart ) && path.startsWith( "-plugin",
+                                                                                           artifactIdEnd - 7 );
+        boolean suffixed = path.startsWith( "-maven-plugin", artifactIdEnd - 13 );
+        if ( !prefixed && !suffixed )
+        {
+            return false;
+        }
+        for ( int i = artifactIdStart; i < artifactIdEnd; i++ )
+        {
+            if ( isLineTerminator( path.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,308 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.repository.internal.DefaultArtifactDescriptorReader;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.impl.ArtifactDescriptorReader;
+import org.eclipse.aether.impl.RemoteRepositoryManager;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorException;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.eclipse.aether.spi.locator.Service;
+import org.eclipse.aether.spi.locator.ServiceLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Artifact descriptor reader, that keeps the descriptors in a cache, that is shared by all resolution sessions.
+ * <p>
+ * The descriptors are read by the default maven reader. A cached descriptor is used as long as the POM file in
+ * the local repository of the session is unchanged. Concurrent reads of the same descriptor wait for the first
+ * read. The cached results are never handed out, each caller gets its own copy.
+ * <p>
+ * The dependency collector of the resolver reads the descriptors one by one. To parallelize the collection, the
+ * descriptors of the dependencies of a descriptor are read in the background, when the descriptor is requested.
+ * The background reads use their own session, that shares the configuration of the caller's session but not its
+ * listeners, session data and cache. The collector finds the descriptors of the sibling dependencies in the cache,
+ * when it visits them.
+ *
+ * @since 3.0
+ */
+public class CachingArtifactDescriptorReader
+    implements ArtifactDescriptorReader, Service
+{
+    private static final Logger log = LoggerFactory.getLogger( CachingArtifactDescriptorReader.class );
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis( 10 );
+
+    public static final int DEFAULT_PREFETCH_THREADS = 4;
+
+    private static final int PREFETCH_QUEUE_SIZE = 512;
+
+    private final ArtifactDescriptorReader delegate;
+
+    private final ResolutionCache<String, ArtifactDescriptorResult> cache =
+        new ResolutionCache<>( DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE );
+
+    private final ConcurrentHashMap<String, CompletableFuture<ArtifactDescriptorResult>> loading =
+        new ConcurrentHashMap<>( );
+
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    private RemoteRepositoryManager remoteRepositoryManager;
+
+    public CachingArtifactDescriptorReader( )
+    {
+        this( new DefaultArtifactDescriptorReader( ) );
+    }
+
+    CachingArtifactDescriptorReader( ArtifactDescriptorReader delegate )
+    {
+        this.delegate = delegate;
+        AtomicInteger threadNumber = new AtomicInteger( );
+        // prefetching is best effort, tasks are dropped if the queue is full
+        this.prefetchExecutor =
+            new ThreadPoolExecutor( DEFAULT_PREFETCH_THREADS, DEFAULT_PREFETCH_THREADS, 60, TimeUnit.SECONDS,
+                                    new LinkedBlockingQueue<>( PREFETCH_QUEUE_SIZE ), r -> {
+                Thread thread = new Thread( r, "descriptor-prefetch-" + threadNumber.incrementAndGet( ) );
+                thread.setDaemon( true );
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy( ) );
+        this.prefetchExecutor.allowCoreThreadTimeOut( true );
+    }
+
+    @Override
+    public void initService( ServiceLocator locator )
+    {
+        if ( delegate instanceof Service )
+        {
+            ( (Service) delegate ).initService( locator );
+        }
+        remoteRepositoryManager = locator.getService( RemoteRepositoryManager.class );
+    }
+
+    @Override
+    public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                            ArtifactDescriptorRequest request )
+        throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorResult result = read( session, request, getKey( session, request ) );
+        prefetchDependencies( session, request, result );
+        return copy( request, result );
+    }
+
+    private ArtifactDescriptorResult read( RepositorySystemSession session, ArtifactDescriptorRequest request,
+                                           String key )
+        throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorResult result = cache.get( key );
+        if ( result != null )
+        {
+            return result;
+        }
+        CompletableFuture<ArtifactDescriptorResult> future = new CompletableFuture<>( );
+        CompletableFuture<ArtifactDescriptorResult> pending = loading.putIfAbsent( key, future );
+        if ( pending != null )
+        {
+            try
+            {
+                return pending.get( );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            catch ( ExecutionException e )
+            {
+                // the concurrent read failed, the descriptor is read again to report the error for this request
+                log.debug( "Concurrent read of descriptor {} failed: {}", request.getArtifact( ),
+                           e.getCause( ).getMessage( ) );
+            }
+            return delegate.readArtifactDescriptor( session, request );
+        }
+        try
+        {
+            result = delegate.readArtifactDescriptor( session, request );
+            cache.put( key, result, Collections.singletonList( getPomFile( session, request.getArtifact( ) ) ) );
+            future.complete( result );
+            return result;
+        }
+        catch ( ArtifactDescriptorException | RuntimeException e )
+        {
+            future.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            loading.remove( key, future );
+        }
+    }
+
+    /**
+     * Reads the descriptors of the dependencies in the background. The dependencies are requested with the
+     * repositories and context the collector uses for the children of the descriptor. Version ranges are skipped,
+     * they are resolved by the collector before the descriptor is read.
+     */
+    private void prefetchDependencies( RepositorySystemSession session, ArtifactDescriptorRequest request,
+                                       ArtifactDescriptorResult result )
+    {
+        if ( result.getDependencies( ).isEmpty( ) )
+        {
+            return;
+        }
+        List<RemoteRepository> repositories = request.getRepositories( );
+        if ( remoteRepositoryManager != null && !session.isIgnoreArtifactDescriptorRepositories( ) )
+        {
+            repositories =
+                remoteRepositoryManager.aggregateRepositories( session, repositories, result.getRepositories( ),
+                                                               true );
+        }
+        RepositorySystemSession prefetchSession = null;
+        for ( Dependency dependency : result.getDependencies( ) )
+        {
+            Artifact artifact = dependency.getArtifact( );
+            if ( isRange( artifact.getVersion( ) ) )
+            {
+                continue;
+            }
+            ArtifactDescriptorRequest childRequest =
+                new ArtifactDescriptorRequest( artifact, repositories, request.getRequestContext( ) );
+            childRequest.setTrace( request.getTrace( ) );
+            String key = getKey( session, childRequest );
+            if ( cache.contains( key ) || loading.containsKey( key ) )
+            {
+                continue;
+            }
+            if ( prefetchSession == null )
+            {
+                prefetchSession = createPrefetchSession( session );
+            }
+            final RepositorySystemSession backgroundSession = prefetchSession;
+            prefetchExecutor.execute( ( ) -> {
+                try
+                {
+                    read( backgroundSession, childRequest, key );
+                }
+                catch ( ArtifactDescriptorException | RuntimeException e )
+                {
+                    // the collector reads the descriptor again and reports the error
+                    log.debug( "Could not prefetch descriptor {}: {}", artifact, e.getMessage( ) );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Creates the session for the background reads. The caller's session is used by the collector at the same time,
+     * so the background reads do not share its session data and cache, and do not notify its listeners.
+     */
+    static RepositorySystemSession createPrefetchSession( RepositorySystemSession session )
+    {
+        DefaultRepositorySystemSession prefetchSession = new DefaultRepositorySystemSession( session );
+        prefetchSession.setData( new DefaultSessionData( ) );
+        prefetchSession.setCache( new DefaultRepositoryCache( ) );
+        prefetchSession.setRepositoryListener( null );
+        prefetchSession.setTransferListener( null );
+        prefetchSession.setReadOnly( );
+        return prefetchSession;
+    }
+
+    /**
+     * @return a copy of the result for the given request, the lists and the properties are copied. The artifacts,
+     * dependencies and repositories are immutable and shared.
+     */
+    static ArtifactDescriptorResult copy( ArtifactDescriptorRequest request, ArtifactDescriptorResult result )
+    {
+        ArtifactDescriptorResult copy = new ArtifactDescriptorResult( request );
+        copy.setArtifact( result.getArtifact( ) );
+        copy.setExceptions( new ArrayList<>( result.getExceptions( ) ) );
+        copy.setRelocations( new ArrayList<>( result.getRelocations( ) ) );
+        copy.setAliases( new ArrayList<>( result.getAliases( ) ) );
+        copy.setRepositories( new ArrayList<>( result.getRepositories( ) ) );
+        copy.setDependencies( new ArrayList<>( result.getDependencies( ) ) );
+        copy.setManagedDependencies( new ArrayList<>( result.getManagedDependencies( ) ) );
+        copy.setProperties( new HashMap<>( result.getProperties( ) ) );
+        return copy;
+    }
+
+    long getCacheHits( )
+    {
+        return cache.getHits( );
+    }
+
+    long getCacheMisses( )
+    {
+        return cache.getMisses( );
+    }
+
+    public void clearCache( )
+    {
+        cache.clear( );
+    }
+
+    private static boolean isRange( String version )
+    {
+        return version != null && ( version.startsWith( "[" ) || version.startsWith( "(" ) );
+    }
+
+    private static String getKey( RepositorySystemSession session, ArtifactDescriptorRequest request )
+    {
+        StringBuilder key = new StringBuilder( );
+        key.append( session.getLocalRepository( ).getBasedir( ) ).append( '|' ).append( request.getArtifact( ) );
+        key.append( '|' ).append( request.getRequestContext( ) );
+        for ( RemoteRepository repository : request.getRepositories( ) )
+        {
+            key.append( '|' ).append( repository.getId( ) ).append( '@' ).append( repository.getUrl( ) );
+        }
+        return key.toString( );
+    }
+
+    /**
+     * @return the path of the POM of the artifact in the local repository of the session
+     */
+    static Path getPomFile( RepositorySystemSession session, Artifact artifact )
+    {
+        Artifact pomArtifact =
+            new DefaultArtifact( artifact.getGroupId( ), artifact.getArtifactId( ), "", "pom", artifact.getVersion( ) );
+        return session.getLocalRepository( ).getBasedir( ).toPath( ).resolve(
+            session.getLocalRepositoryManager( ).getPathForLocalArtifact( pomArtifact ) );
+    }
+}
@@ -0,0 +1,103 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.repository.internal.DefaultVersionRangeResolver;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.impl.VersionRangeResolver;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.spi.locator.Service;
+import org.eclipse.aether.spi.locator.ServiceLocator;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version range resolver, that keeps the resolved ranges in a cache, that is shared by all resolution sessions.
+ * <p>
+ * A cached range is used as long as the project directory (groupId/artifactId) in the local repository of the
+ * session is unchanged, i.e. no version was added or removed. Versions without range are not cached, they are
+ * resolved without reading metadata.
+ *
+ * @since 3.0
+ */
+public class CachingVersionRangeResolver
+    implements VersionRangeResolver, Service
+{
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis( 10 );
+
+    private final DefaultVersionRangeResolver delegate = new DefaultVersionRangeResolver( );
+
+    private final ResolutionCache<String, VersionRangeResult> cache =
+        new ResolutionCache<>( DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE );
+
+    @Override
+    public void initService( ServiceLocator locator )
+    {
+        delegate.initService( locator );
+    }
+
+    @Override
+    public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+        throws VersionRangeResolutionException
+    {
+        String version = request.getArtifact( ).getVersion( );
+        if ( version == null || !( version.startsWith( "[" ) || version.startsWith( "(" ) ) )
+        {
+            return delegate.resolveVersionRange( session, request );
+        }
+        String key = getKey( session, request );
+        VersionRangeResult result = cache.get( key );
+        if ( result == null )
+        {
+            result = delegate.resolveVersionRange( session, request );
+            cache.put( key, result, Collections.singletonList( getProjectDir( session, request.getArtifact( ) ) ) );
+        }
+        return result;
+    }
+
+    public void clearCache( )
+    {
+        cache.clear( );
+    }
+
+    private static String getKey( RepositorySystemSession session, VersionRangeRequest request )
+    {
+        StringBuilder key = new StringBuilder( );
+        key.append( session.getLocalRepository( ).getBasedir( ) ).append( '|' ).append( request.getArtifact( ) );
+        key.append( '|' ).append( request.getRequestContext( ) );
+        for ( RemoteRepository repository : request.getRepositories( ) )
+        {
+            key.append( '|' ).append( repository.getId( ) ).append( '@' ).append( repository.getUrl( ) );
+        }
+        return key.toString( );
+    }
+
+    private static Path getProjectDir( RepositorySystemSession session, Artifact artifact )
+    {
+        return session.getLocalRepository( ).getBasedir( ).toPath( ).resolve(
+            artifact.getGroupId( ).replace( '.', '/' ) ).resolve( artifact.getArtifactId( ) );
+    }
+}
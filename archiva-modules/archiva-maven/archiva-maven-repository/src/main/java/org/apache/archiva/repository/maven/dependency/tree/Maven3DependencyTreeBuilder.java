@@ -37,6 +37,7 @@
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
 import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.bridge.MavenRepositorySystem;
@@ -47,7 +48,9 @@
 import org.eclipse.aether.collection.CollectResult;
 import org.eclipse.aether.collection.DependencyCollectionException;
 import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.graph.DependencyVisitor;
+import org.eclipse.aether.util.graph.visitor.PreorderNodeListGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -55,10 +58,14 @@
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Olivier Lamy
@@ -95,6 +102,11 @@
     @Inject
     MavenSystemManager mavenSystemManager;
 
+    /**
+     * The computed trees per repositories and artifact, bound to the POM files of all artifacts of the tree.
+     */
+    private final ResolutionCache<String, List<TreeEntry>> treeCache =
+        new ResolutionCache<>( 100, TimeUnit.MINUTES.toMillis( 10 ) );
 
     @PostConstruct
     public void initialize()
@@ -109,7 +121,17 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
                                      DependencyVisitor dependencyVisitor )
         throws DependencyTreeBuilderException
     {
+        CollectedTree tree = collectDependencyTree( repositoryIds, groupId, artifactId, version );
+        if ( tree != null )
+        {
+            tree.root.accept( dependencyVisitor );
+        }
+    }
 
+    private CollectedTree collectDependencyTree( List<String> repositoryIds, String groupId, String artifactId,
+                                                 String version )
+        throws DependencyTreeBuilderException
+    {
         Artifact projectArtifact = mavenRepositorySystem.createProjectArtifact(groupId, artifactId, version);
         ManagedRepository repository = findArtifactInRepositories( repositoryIds, projectArtifact );
 
@@ -117,7 +139,7 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
         {
             // metadata could not be resolved
             log.info("Did not find repository with artifact {}/{}/{}", groupId, artifactId, version);
-            return;
+            return null;
         }
 
         List<org.apache.archiva.repository.RemoteRepository> remoteRepositories = new ArrayList<>();
@@ -155,14 +177,13 @@ public void buildDependencyTree( List<String> repositoryIds, String groupId, Str
 
         // FIXME take care of relative path
         ResolveRequest resolveRequest = new ResolveRequest();
-        resolveRequest.dependencyVisitor = dependencyVisitor;
         resolveRequest.localRepoDir = repository.getContent().getRepoRoot();
         resolveRequest.groupId = groupId;
         resolveRequest.artifactId = artifactId;
         resolveRequest.version = version;
         resolveRequest.remoteRepositories = remoteRepositories;
         resolveRequest.networkProxies = networkProxies;
-        resolve( resolveRequest );
+        return resolve( resolveRequest );
     }
 
 
@@ -172,29 +193,63 @@ public List<TreeEntry> buildDependencyTree( List<String> repositoryIds, String g
         throws DependencyTreeBuilderException
     {
 
-        List<TreeEntry> treeEntries = new ArrayList<>();
-        TreeDependencyNodeVisitor treeDependencyNodeVisitor = new TreeDependencyNodeVisitor( treeEntries );
+        String key = String.join( ",", repositoryIds ) + "|" + groupId + ":" + artifactId + ":" + version;
+        List<TreeEntry> cached = treeCache.get( key );
+        if ( cached != null )
+        {
+            log.debug( "cached treeEntries for {}", key );
+            return copy( cached );
+        }
 
-        buildDependencyTree( repositoryIds, groupId, artifactId, version, treeDependencyNodeVisitor );
+        List<TreeEntry> treeEntries = new ArrayList<>();
+        CollectedTree tree = collectDependencyTree( repositoryIds, groupId, artifactId, version );
+        if ( tree != null )
+        {
+            tree.root.accept( new TreeDependencyNodeVisitor( treeEntries ) );
+            treeCache.put( key, copy( treeEntries ), tree.pomFiles );
+        }
 
         log.debug( "treeEntries: {}", treeEntries );
         return treeEntries;
     }
 
+    /**
+     * The tree entries are mutable and linked to their parents, so the cache neither keeps nor returns the entries
+     * of a caller. The whole tree is copied.
+     */
+    private static List<TreeEntry> copy( List<TreeEntry> treeEntries )
+    {
+        return SerializationUtils.clone( new ArrayList<>( treeEntries ) );
+    }
+
     private static class ResolveRequest
     {
         String localRepoDir, groupId, artifactId, version;
 
-        DependencyVisitor dependencyVisitor;
-
         List<org.apache.archiva.repository.RemoteRepository> remoteRepositories;
 
         Map<String, NetworkProxy> networkProxies;
 
     }
 
+    /**
+     * The collected dependency graph and the POM files of all artifacts of the graph.
+     */
+    private static class CollectedTree
+    {
+        final DependencyNode root;
 
-    private void resolve( ResolveRequest resolveRequest )
+        final Set<Path> pomFiles;
+
+        CollectedTree( DependencyNode root, Set<Path> pomFiles )
+        {
+            this.root = root;
+            this.pomFiles = pomFiles;
+        }
+    }
+
+
+    private CollectedTree resolve( ResolveRequest resolveRequest )
     {
 
         RepositorySystem system = mavenSystemManager.getRepositorySystem();
@@ -219,16 +274,25 @@ private void resolve( ResolveRequest resolveRequest )
         try
         {
             CollectResult collectResult = system.collectDependencies( session, collectRequest );
-            collectResult.getRoot().accept( resolveRequest.dependencyVisitor );
             log.debug("Collected dependency results for resolve");
+
+            PreorderNodeListGenerator nodeListGenerator = new PreorderNodeListGenerator();
+            collectResult.getRoot().accept( nodeListGenerator );
+            Set<Path> pomFiles = new LinkedHashSet<>();
+            for ( DependencyNode node : nodeListGenerator.getNodes() )
+            {
+                if ( node.getArtifact() != null )
+                {
+                    pomFiles.add( CachingArtifactDescriptorReader.getPomFile( session, node.getArtifact() ) );
+                }
+            }
+            return new CollectedTree( collectResult.getRoot(), pomFiles );
         }
         catch ( DependencyCollectionException e )
         {
             log.error( "Error while collecting dependencies (resolve): {}", e.getMessage(), e );
         }
-
-
-
+        return null;
     }
 
     private ManagedRepository findArtifactInRepositories( List<String> repositoryIds, Artifact projectArtifact ) {
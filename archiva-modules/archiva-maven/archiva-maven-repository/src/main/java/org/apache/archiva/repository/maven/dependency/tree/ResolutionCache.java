@@ -0,0 +1,207 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache for resolution results, that are shared between dependency tree requests.
+ * <p>
+ * Each entry is bound to the modification time and size of the files it was computed from, e.g. the POM
+ * files of the artifacts. The entry is dropped, if one of the files was changed, created or removed, or if the
+ * entry is older than the maximum age. The maximum age covers the inputs that are not tracked, like parent POMs
+ * or proxy connector settings.
+ *
+ * @param <K> the key type
+ * @param <V> the value type, values must not be modified after they are put into the cache
+ * @since 3.0
+ */
+class ResolutionCache<K, V>
+{
+    private final Map<K, Entry<V>> entries;
+
+    private final long maxAge;
+
+    private final LongAdder hits = new LongAdder( );
+
+    private final LongAdder misses = new LongAdder( );
+
+    /**
+     * @param maxEntries the maximum number of entries
+     * @param maxAge the maximum age of an entry in milliseconds
+     */
+    ResolutionCache( final int maxEntries, long maxAge )
+    {
+        this.maxAge = maxAge;
+        this.entries = new LinkedHashMap<K, Entry<V>>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, Entry<V>> eldest )
+            {
+                return size( ) > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, if the files of the entry are unchanged and the entry is not expired.
+     *
+     * @param key the key
+     * @return the value or <code>null</code>, if there is no valid entry
+     */
+    V get( K key )
+    {
+        Entry<V> entry;
+        synchronized ( entries )
+        {
+            entry = entries.get( key );
+        }
+        // the files are checked outside of the lock
+        if ( entry != null && entry.isValid( maxAge ) )
+        {
+            hits.increment( );
+            return entry.value;
+        }
+        if ( entry != null )
+        {
+            synchronized ( entries )
+            {
+                entries.remove( key, entry );
+            }
+        }
+        misses.increment( );
+        return null;
+    }
+
+    /**
+     * @return <code>true</code>, if there is an entry for the key. The entry is not validated.
+     */
+    boolean contains( K key )
+    {
+        synchronized ( entries )
+        {
+            return entries.containsKey( key );
+        }
+    }
+
+    /**
+     * Adds the value to the cache.
+     *
+     * @param key the key
+     * @param value the value
+     * @param files the files the value was computed from, the current state of the files is stored with the entry
+     */
+    void put( K key, V value, Collection<Path> files )
+    {
+        Entry<V> entry = new Entry<>( value, files );
+        synchronized ( entries )
+        {
+            entries.put( key, entry );
+        }
+    }
+
+    void clear( )
+    {
+        synchronized ( entries )
+        {
+            entries.clear( );
+        }
+    }
+
+    int size( )
+    {
+        synchronized ( entries )
+        {
+            return entries.size( );
+        }
+    }
+
+    long getHits( )
+    {
+        return hits.sum( );
+    }
+
+    long getMisses( )
+    {
+        return misses.sum( );
+    }
+
+    /**
+     * @return the modification time and size of the file, or <code>-1</code> values, if the file does not exist
+     */
+    static long[] stamp( Path file )
+    {
+        try
+        {
+            BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+            return new long[]{ attributes.lastModifiedTime( ).toMillis( ), attributes.size( ) };
+        }
+        catch ( IOException e )
+        {
+            return new long[]{ -1, -1 };
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+
+        private final Path[] files;
+
+        private final long[] stamps;
+
+        private final long created = System.currentTimeMillis( );
+
+        Entry( V value, Collection<Path> files )
+        {
+            this.value = value;
+            this.files = files.toArray( new Path[0] );
+            this.stamps = new long[this.files.length * 2];
+            for ( int i = 0; i < this.files.length; i++ )
+            {
+                long[] stamp = stamp( this.files[i] );
+                stamps[2 * i] = stamp[0];
+                stamps[2 * i + 1] = stamp[1];
+            }
+        }
+
+        boolean isValid( long maxAge )
+        {
+            if ( System.currentTimeMillis( ) - created > maxAge )
+            {
+                return false;
+            }
+            for ( int i = 0; i < files.length; i++ )
+            {
+                long[] stamp = stamp( files[i] );
+                if ( stamp[0] != stamps[2 * i] || stamp[1] != stamps[2 * i + 1] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -90,6 +90,8 @@
 
     private ModelBuilder builder;
 
+    private final RepositoryModelCache modelCache = new RepositoryModelCache();
+
     @Inject
     RepositoryRegistry repositoryRegistry;
 
@@ -236,10 +238,15 @@ public ProjectVersionMetadata readProjectVersionMetadata(ReadMetadataRequest rea
         //MRM-1607. olamy this will resolve jdk profiles on the current running archiva jvm
         req.setSystemProperties(System.getProperties());
 
+        // Parent POMs and imported BOMs are shared by many projects, so the parsed models are kept between requests
+        req.setModelCache(modelCache.forRepository(basedir, pathTranslator));
+
         // MRM-1411
-        req.setModelResolver(
+        RepositoryModelResolver modelResolver =
                 new RepositoryModelResolver(managedRepository, pathTranslator, wagonFactory, remoteRepositories,
-                        networkProxies, managedRepository, mavenSystemManager, metadataReader));
+                        networkProxies, managedRepository, mavenSystemManager, metadataReader);
+        modelResolver.setModelCache(modelCache);
+        req.setModelResolver(modelResolver);
 
         Model model;
         try {
@@ -343,10 +350,71 @@ public ProjectVersionMetadata readProjectVersionMetadata(ReadMetadataRequest rea
 
     }
 
+    /**
+     * The stamp consists of the modification time and size of the POM file and, for snapshots, of the version
+     * level maven-metadata.xml, that selects the timestamped POM.
+     */
+    @Override
+    public String getProjectVersionMetadataStamp(ReadMetadataRequest readMetadataRequest) {
+        ManagedRepository managedRepository = repositoryRegistry.getManagedRepository(readMetadataRequest.getRepositoryId());
+        if (managedRepository == null) {
+            return null;
+        }
+        StringBuilder stamp = new StringBuilder();
+        appendProjectVersionStamp(stamp, managedRepository.getAsset(""), readMetadataRequest.getNamespace(),
+                readMetadataRequest.getProjectId(), readMetadataRequest.getProjectVersion());
+        return stamp.toString();
+    }
+
+    /**
+     * The stamp of the parent POM in the same repository. A parent, that is resolved from another repository,
+     * is stamped as missing, so the stamp changes, when the parent is added to the repository.
+     */
+    @Override
+    public String getParentMetadataStamp(ReadMetadataRequest readMetadataRequest, ProjectVersionMetadata metadata) {
+        MavenProjectFacet facet = (MavenProjectFacet) metadata.getFacet(MavenProjectFacet.FACET_ID);
+        ManagedRepository managedRepository = repositoryRegistry.getManagedRepository(readMetadataRequest.getRepositoryId());
+        if (facet == null || facet.getParent() == null || managedRepository == null) {
+            return null;
+        }
+        MavenProjectParent parent = facet.getParent();
+        StringBuilder stamp = new StringBuilder();
+        appendProjectVersionStamp(stamp, managedRepository.getAsset(""), parent.getGroupId(), parent.getArtifactId(),
+                parent.getVersion());
+        return stamp.toString();
+    }
+
+    private void appendProjectVersionStamp(StringBuilder stamp, StorageAsset basedir, String namespace,
+                                           String projectId, String projectVersion) {
+        appendStamp(stamp, pathTranslator.toFile(basedir, namespace, projectId, projectVersion,
+                projectId + "-" + projectVersion + ".pom"));
+        if (VersionUtil.isSnapshot(projectVersion)) {
+            appendStamp(stamp, pathTranslator.toFile(basedir, namespace, projectId, projectVersion, METADATA_FILENAME));
+        }
+    }
+
+    private static void appendStamp(StringBuilder stamp, StorageAsset asset) {
+        if (asset.exists()) {
+            stamp.append(asset.getModificationTime().toEpochMilli()).append('/').append(asset.getSize());
+        } else {
+            stamp.append('-');
+        }
+        stamp.append(';');
+    }
+
     public void setWagonFactory(WagonFactory wagonFactory) {
         this.wagonFactory = wagonFactory;
     }
 
+    /**
+     * Returns the cache of parsed parent and imported POM models, e.g. to read the hit rate.
+     *
+     * @return the model cache
+     */
+    public RepositoryModelCache getModelCache() {
+        return modelCache;
+    }
+
     private List<org.apache.archiva.metadata.model.Dependency> convertDependencies(List<Dependency> dependencies) {
         List<org.apache.archiva.metadata.model.Dependency> l = new ArrayList<>();
         for (Dependency dependency : dependencies) {
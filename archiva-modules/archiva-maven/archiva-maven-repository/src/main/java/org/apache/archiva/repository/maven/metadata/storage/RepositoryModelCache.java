@@ -0,0 +1,328 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.VersionUtil;
+import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.maven.model.building.ModelCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache for the data of the model builder (raw parent models and imported dependency management), that
+ * is shared between all model building requests of the maven2 repository storage. Each entry is bound to the
+ * POM file it was read from. The file stamp (modification time and size) is stored with the entry and checked
+ * on each access, so an entry is dropped, if the POM file was changed or removed in the repository.
+ * <p>
+ * Snapshot versions are not cached, because the POM file of a snapshot changes with every deployment.
+ * <p>
+ * The model builder uses the cache through the {@link ModelCache} view returned by
+ * {@link #forRepository(StorageAsset, RepositoryPathTranslator)}. The {@link RepositoryModelResolver} uses the
+ * cache to remember the location of resolved timestamped snapshot POMs.
+ *
+ * @since 3.0
+ */
+public class RepositoryModelCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 2000;
+
+    private static final String RESOLVED_TAG = "resolved-pom";
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder( );
+
+    private final LongAdder misses = new LongAdder( );
+
+    private final LongAdder invalidations = new LongAdder( );
+
+    private final LongAdder evictions = new LongAdder( );
+
+    public RepositoryModelCache( )
+    {
+        this( DEFAULT_MAX_ENTRIES );
+    }
+
+    public RepositoryModelCache( int maxEntries )
+    {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+            {
+                if ( size( ) > RepositoryModelCache.this.maxEntries )
+                {
+                    evictions.increment( );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the model cache view for the given repository, that can be set on a model building request.
+     *
+     * @param basedir the base directory of the repository, where the POM files are resolved
+     * @param pathTranslator the path translator for the repository layout
+     * @return the model cache for the repository
+     */
+    public ModelCache forRepository( final StorageAsset basedir, final RepositoryPathTranslator pathTranslator )
+    {
+        return new ModelCache( )
+        {
+            @Override
+            public void put( String groupId, String artifactId, String version, String tag, Object data )
+            {
+                if ( isCacheable( version ) )
+                {
+                    StorageAsset pom = getPom( basedir, pathTranslator, groupId, artifactId, version );
+                    RepositoryModelCache.this.put( key( basedir, groupId, artifactId, version, tag ),
+                                                   pom.getFilePath( ), data );
+                }
+            }
+
+            @Override
+            public Object get( String groupId, String artifactId, String version, String tag )
+            {
+                if ( !isCacheable( version ) )
+                {
+                    return null;
+                }
+                return RepositoryModelCache.this.get( key( basedir, groupId, artifactId, version, tag ) );
+            }
+        };
+    }
+
+    /**
+     * Returns the POM file, that was resolved for the given coordinates before, if the stamp file is unchanged.
+     *
+     * @param basedir the base directory of the repository
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @param version the version
+     * @return the path of the POM file, or <code>null</code>, if there is no valid entry
+     */
+    public Path getResolvedPom( StorageAsset basedir, String groupId, String artifactId, String version )
+    {
+        Path pom = (Path) get( key( basedir, groupId, artifactId, version, RESOLVED_TAG ) );
+        if ( pom != null && !Files.exists( pom ) )
+        {
+            invalidate( key( basedir, groupId, artifactId, version, RESOLVED_TAG ) );
+            return null;
+        }
+        return pom;
+    }
+
+    /**
+     * Stores the resolved POM file for the given coordinates.
+     *
+     * @param basedir the base directory of the repository
+     * @param groupId the group id
+     * @param artifactId the artifact id
+     * @param version the version
+     * @param stampFile the file, whose changes invalidate the entry, e.g. the maven-metadata.xml of a snapshot
+     * @param pom the resolved POM file
+     */
+    public void putResolvedPom( StorageAsset basedir, String groupId, String artifactId, String version,
+                                Path stampFile, Path pom )
+    {
+        put( key( basedir, groupId, artifactId, version, RESOLVED_TAG ), stampFile, pom );
+    }
+
+    /**
+     * Removes all entries of the cache. The statistics are not reset.
+     */
+    public void clear( )
+    {
+        synchronized ( entries )
+        {
+            entries.clear( );
+        }
+    }
+
+    public int size( )
+    {
+        synchronized ( entries )
+        {
+            return entries.size( );
+        }
+    }
+
+    public int getMaxEntries( )
+    {
+        return maxEntries;
+    }
+
+    public long getHitCount( )
+    {
+        return hits.sum( );
+    }
+
+    public long getMissCount( )
+    {
+        return misses.sum( );
+    }
+
+    /**
+     * @return the number of entries, that were dropped because the underlying file changed
+     */
+    public long getInvalidationCount( )
+    {
+        return invalidations.sum( );
+    }
+
+    /**
+     * @return the number of entries, that were dropped because the cache was full
+     */
+    public long getEvictionCount( )
+    {
+        return evictions.sum( );
+    }
+
+    /**
+     * @return the ratio of hits to all lookups, or 0, if there was no lookup yet
+     */
+    public double getHitRate( )
+    {
+        long hitCount = hits.sum( );
+        long total = hitCount + misses.sum( );
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private Object get( String key )
+    {
+        Entry entry;
+        synchronized ( entries )
+        {
+            entry = entries.get( key );
+        }
+        if ( entry == null )
+        {
+            misses.increment( );
+            return null;
+        }
+        if ( !entry.isValid( ) )
+        {
+            invalidate( key );
+            misses.increment( );
+            return null;
+        }
+        hits.increment( );
+        return entry.data;
+    }
+
+    private void put( String key, Path stampFile, Object data )
+    {
+        if ( data == null || stampFile == null )
+        {
+            return;
+        }
+        Entry entry = Entry.create( stampFile, data );
+        if ( entry != null )
+        {
+            synchronized ( entries )
+            {
+                entries.put( key, entry );
+            }
+        }
+    }
+
+    private void invalidate( String key )
+    {
+        synchronized ( entries )
+        {
+            if ( entries.remove( key ) != null )
+            {
+                invalidations.increment( );
+            }
+        }
+    }
+
+    private static boolean isCacheable( String version )
+    {
+        return version != null && !VersionUtil.isSnapshot( version );
+    }
+
+    private static StorageAsset getPom( StorageAsset basedir, RepositoryPathTranslator pathTranslator, String groupId,
+                                        String artifactId, String version )
+    {
+        return pathTranslator.toFile( basedir, groupId, artifactId, version, artifactId + "-" + version + ".pom" );
+    }
+
+    private static String key( StorageAsset basedir, String groupId, String artifactId, String version, String tag )
+    {
+        return basedir.getPath( ) + '|' + groupId + ':' + artifactId + ':' + version + '|' + tag;
+    }
+
+    private static final class Entry
+    {
+        private final Path stampFile;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private final Object data;
+
+        private Entry( Path stampFile, long lastModified, long size, Object data )
+        {
+            this.stampFile = stampFile;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.data = data;
+        }
+
+        static Entry create( Path stampFile, Object data )
+        {
+            try
+            {
+                return new Entry( stampFile, Files.getLastModifiedTime( stampFile ).toMillis( ),
+                                  Files.size( stampFile ), data );
+            }
+            catch ( IOException e )
+            {
+                // no file, nothing to validate against
+                return null;
+            }
+        }
+
+        boolean isValid( )
+        {
+            try
+            {
+                return Files.getLastModifiedTime( stampFile ).toMillis( ) == lastModified
+                    && Files.size( stampFile ) == size;
+            }
+            catch ( IOException e )
+            {
+                return false;
+            }
+        }
+    }
+}
@@ -99,6 +99,8 @@
 
     private ManagedRepository managedRepository;
 
+    private RepositoryModelCache modelCache;
+
     public RepositoryModelResolver(StorageAsset basedir, RepositoryPathTranslator pathTranslator)
     {
         this.basedir = basedir;
@@ -151,7 +153,17 @@ public ModelSource resolveModel( String groupId, String artifactId, String versi
             // is a SNAPSHOT ? so we can try to find locally before asking remote repositories.
             if ( StringUtils.contains( version, VersionUtil.SNAPSHOT ) )
             {
-                Path localSnapshotModel = findTimeStampedSnapshotPom( groupId, artifactId, version, model.getParent().getFilePath() );
+                Path localSnapshotModel = modelCache == null ? null : modelCache.getResolvedPom( basedir, groupId, artifactId, version );
+                if ( localSnapshotModel == null )
+                {
+                    localSnapshotModel = findTimeStampedSnapshotPom( groupId, artifactId, version, model.getParent().getFilePath() );
+                    if ( localSnapshotModel != null && modelCache != null )
+                    {
+                        // a new snapshot deployment changes the metadata and invalidates the entry
+                        modelCache.putResolvedPom( basedir, groupId, artifactId, version,
+                                                   model.getParent().getFilePath().resolve( METADATA_FILENAME ), localSnapshotModel );
+                    }
+                }
                 if ( localSnapshotModel != null )
                 {
                     return new FileModelSource( localSnapshotModel.toFile() );
@@ -287,8 +299,21 @@ public void addRepository( Repository repository, boolean b ) throws InvalidRepo
     @Override
     public ModelResolver newCopy()
     {
-        return new RepositoryModelResolver( managedRepository,  pathTranslator, wagonFactory, remoteRepositories, 
-                                            networkProxyMap, targetRepository, mavenSystemManager, metadataReader);
+        RepositoryModelResolver resolver =
+            new RepositoryModelResolver( managedRepository, pathTranslator, wagonFactory, remoteRepositories,
+                                         networkProxyMap, targetRepository, mavenSystemManager, metadataReader );
+        resolver.setModelCache( modelCache );
+        return resolver;
+    }
+
+    /**
+     * Sets the cache, that is used to remember the resolved snapshot POM files.
+     *
+     * @param modelCache the cache, or <code>null</code> to disable caching
+     */
+    public void setModelCache( RepositoryModelCache modelCache )
+    {
+        this.modelCache = modelCache;
     }
 
     // FIXME: we need to do some refactoring, we cannot re-use the proxy components of archiva-proxy in maven2-repository
@@ -1569,4 +1569,55 @@ public void deleteItemNotFound() throws IOException, URISyntaxException, ItemNot
 
     }
 
+    @Test
+    public void deleteVersionItemInvalidatesCache() throws IOException, URISyntaxException, ItemNotFoundException
+    {
+        ManagedRepository repo = createManagedRepoWithContent( "delete-repository" );
+        ManagedDefaultRepositoryContent myRepoContent = (ManagedDefaultRepositoryContent) repo.getContent( );
+        ContentItemCache itemCache = myRepoContent.getItemCache( );
+        ArchivaItemSelector selector = ArchivaItemSelector.builder( )
+            .withNamespace( "org.apache.maven" )
+            .withProjectId( "A" )
+            .withVersion( "1.0" ).build();
+        ContentItem item = myRepoContent.getItem( selector );
+        assertTrue( item instanceof Version );
+        assertSame( item, myRepoContent.getItem( selector ) );
+        assertTrue( itemCache.getHits( ) > 0 );
+        assertTrue( itemCache.getMisses( ) > 0 );
+
+        myRepoContent.deleteItem( item );
+        assertNull( itemCache.getVersions( ).getIfPresent( item.getAsset( ) ) );
+        assertNotNull( itemCache.getProjects( ).getIfPresent( item.getAsset( ).getParent( ) ) );
+        assertNotSame( item, myRepoContent.getItem( selector ) );
+
+        // Content instances of the same repository may share the cache
+        ManagedDefaultRepositoryContent otherContent = new ManagedDefaultRepositoryContent( repo, artifactMappingProviders, fileTypes, fileLockManager );
+        otherContent.setMavenContentHelper( contentHelper );
+        otherContent.setItemCache( itemCache );
+        Project project = otherContent.getProject( selector );
+        assertSame( itemCache.getProjects( ).getIfPresent( project.getAsset( ) ), project );
+        assertEquals( "A", project.getId( ) );
+    }
+
+    @Test
+    public void itemCacheEvictsLeastRecentlyUsed() throws IOException, URISyntaxException
+    {
+        ManagedRepository repo = createManagedRepoWithContent( "delete-repository" );
+        ManagedDefaultRepositoryContent myRepoContent = (ManagedDefaultRepositoryContent) repo.getContent( );
+        ContentItemCache itemCache = new ContentItemCache( 3 );
+        myRepoContent.setItemCache( itemCache );
+        Namespace first = myRepoContent.getNamespace( ArchivaItemSelector.builder( ).withNamespace( "org.apache.maven" ).build( ) );
+        myRepoContent.getNamespace( ArchivaItemSelector.builder( ).withNamespace( "org.apache.test" ).build( ) );
+        myRepoContent.getNamespace( ArchivaItemSelector.builder( ).withNamespace( "org.apache" ).build( ) );
+        // Access the first namespace again, so that it is not the least recently used
+        assertSame( first, myRepoContent.getNamespace( ArchivaItemSelector.builder( ).withNamespace( "org.apache.maven" ).build( ) ) );
+        myRepoContent.getNamespace( ArchivaItemSelector.builder( ).withNamespace( "org" ).build( ) );
+        // The two least recently used entries are evicted
+        assertEquals( 2, itemCache.getNamespaces( ).size( ) );
+        assertEquals( 2, itemCache.getEvictions( ) );
+        assertSame( first, itemCache.getNamespaces( ).getIfPresent( "org.apache.maven" ) );
+        assertNotNull( itemCache.getNamespaces( ).getIfPresent( "org" ) );
+        assertNull( itemCache.getNamespaces( ).getIfPresent( "org.apache.test" ) );
+    }
+
 }
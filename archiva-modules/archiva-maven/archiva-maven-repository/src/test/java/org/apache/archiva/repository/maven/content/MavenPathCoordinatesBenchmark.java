@@ -0,0 +1,106 @@
+package org.apache.archiva.repository.maven.content;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.repository.maven.metadata.storage.DefaultArtifactMappingProvider;
+import org.apache.archiva.repository.maven.metadata.storage.Maven2RepositoryPathTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the path parsing of {@link MavenPathCoordinates} with the {@link Maven2RepositoryPathTranslator}.
+ * <p>
+ * The benchmark is not run by the unit tests. Run it from the IDE or with the test classpath:
+ * <code>java -cp ... org.apache.archiva.repository.maven.content.MavenPathCoordinatesBenchmark</code>
+ * and add <code>-prof gc</code> to the JMH options to see the allocation rates.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MavenPathCoordinatesBenchmark
+{
+    private static final String[] PATHS = {
+        "org/apache/archiva/archiva-common/2.2.1/archiva-common-2.2.1.jar",
+        "org/apache/archiva/archiva-common/2.2.1/archiva-common-2.2.1-sources.jar",
+        "org/apache/archiva/archiva-common/3.0.0-SNAPSHOT/archiva-common-3.0.0-20200101.120000-12.pom",
+        "org/apache/maven/plugins/maven-compiler-plugin/3.8.1/maven-compiler-plugin-3.8.1.jar",
+        "org/apache/archiva/archiva/2.2.1/archiva-2.2.1-bin.tar.gz",
+        "commons-lang/commons-lang/2.6/commons-lang-2.6.pom" };
+
+    private final Maven2RepositoryPathTranslator pathTranslator = new Maven2RepositoryPathTranslator(
+        Collections.singletonList( new DefaultArtifactMappingProvider( ) ) );
+
+    private final MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+
+    @Benchmark
+    public void pathTranslator( Blackhole blackhole )
+    {
+        for ( String path : PATHS )
+        {
+            ArtifactMetadata metadata = pathTranslator.getArtifactForPath( null, path );
+            blackhole.consume( metadata );
+        }
+    }
+
+    @Benchmark
+    public void coordinatesParseOnly( Blackhole blackhole )
+    {
+        for ( String path : PATHS )
+        {
+            blackhole.consume( coordinates.parse( path ) );
+        }
+    }
+
+    @Benchmark
+    public void coordinatesWithValues( Blackhole blackhole )
+    {
+        for ( String path : PATHS )
+        {
+            coordinates.parse( path );
+            blackhole.consume( coordinates.getGroupId( ) );
+            blackhole.consume( coordinates.getArtifactId( ) );
+            blackhole.consume( coordinates.getVersion( ) );
+            blackhole.consume( coordinates.getClassifier( ) );
+            blackhole.consume( coordinates.getType( ) );
+        }
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        new Runner( new OptionsBuilder( ).include( MavenPathCoordinatesBenchmark.class.getSimpleName( ) ).build( ) ).run( );
+    }
+}
@@ -0,0 +1,203 @@
+package org.apache.archiva.repository.maven.content;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.repository.maven.metadata.storage.DefaultArtifactMappingProvider;
+import org.apache.archiva.repository.maven.metadata.storage.Maven2RepositoryPathTranslator;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link MavenPathCoordinates} with the {@link Maven2RepositoryPathTranslator} for the paths of the test
+ * repositories and for paths with unusual versions, classifiers and separators.
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class MavenPathCoordinatesTest
+    extends TestCase
+{
+    private static final String[] SPECIAL_PATHS = {
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-1.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101x120000-12-sources.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-99999999999.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-1",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-1-",
+        "g/a/1.0-SNAPSHOT/a-1.0-SNAPSHOT.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-SNAPSHOT-tests.jar",
+        "g/a/1.0SNAPSHOT/a-1.020200101.120000-1.pom",
+        "g/a/SNAPSHOT/a-20200101.120000-1.jar",
+        "g/a/1.0-20200101.120000-1/a-1.0-20200101.120000-1.jar",
+        "g/a/x-20200101.120000-1/a-x-20200101.120000-1.jar",
+        "g/a/1.0/a-1.0-.jar",
+        "g/a/1.0/a-1.0.",
+        "g/a/1.0/a-1.0",
+        "g/a/1.0/a-1.0-src",
+        "g/a/1.0/a-1.0x.jar",
+        "g/a/1.0/a-1.0-client.jar",
+        "g/a/1.0/a-1.0-javadoc.jar",
+        "g/a/1.0/a-1.0.tar.gz",
+        "g/a/1.0/a-1.0-bin.tar.gz",
+        "g/a//a-.jar",
+        "//a/1/a-1.jar",
+        "a/1/a-1.jar",
+        "g/maven-foo-plugin/1/maven-foo-plugin-1.jar",
+        "g/foo-maven-plugin/1/foo-maven-plugin-1.jar",
+        "g/maven-plugin/1/maven-plugin-1.jar",
+        "g/-maven-plugin/1/-maven-plugin-1.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-20200101.120000-1\n.jar",
+        "g/a/1.0-SNAPSHOT/a-1.0-2020010\n.120000-1.jar",
+        "g/\na/-20200101.120000-1/\na--20200101.120000-1.jar" };
+
+    private final Maven2RepositoryPathTranslator pathTranslator = new Maven2RepositoryPathTranslator(
+        Collections.singletonList( new DefaultArtifactMappingProvider( ) ) );
+
+    @Test
+    public void testSameResultsAsPathTranslator( )
+        throws IOException
+    {
+        Set<String> paths = new LinkedHashSet<>( Arrays.asList( SPECIAL_PATHS ) );
+        Path root = Paths.get( "src/test/resources" );
+        try (Stream<Path> files = Files.walk( root ))
+        {
+            for ( Path file : files.filter( Files::isRegularFile ).collect( Collectors.toList( ) ) )
+            {
+                // every sub path with at least 4 elements, as if the repository started there
+                String[] parts = root.relativize( file ).toString( ).replace( '\\', '/' ).split( "/" );
+                for ( int i = 0; i < parts.length - 3; i++ )
+                {
+                    String path = String.join( "/", Arrays.copyOfRange( parts, i, parts.length ) );
+                    paths.add( path );
+                    paths.add( path + "/" );
+                    paths.add( path.replace( '/', '\\' ) );
+                    paths.add( "/" + path );
+                }
+            }
+        }
+        assertTrue( paths.size( ) > 1000 );
+
+        MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        int valid = 0;
+        for ( String path : paths )
+        {
+            List<Object> expected = translate( path );
+            if ( expected == null )
+            {
+                assertFalse( "Path should be invalid: " + path, coordinates.parse( path ) );
+                assertFalse( coordinates.isValid( ) );
+                assertNull( coordinates.getArtifactId( ) );
+                assertNotNull( "Error of " + path, coordinates.getError( ) );
+            }
+            else
+            {
+                assertTrue( "Path should be valid: " + path, coordinates.parse( path ) );
+                assertEquals( "Coordinates of " + path, expected, toList( coordinates ) );
+                assertNull( coordinates.getError( ) );
+                valid++;
+            }
+        }
+        assertTrue( valid > 100 );
+    }
+
+    @Test
+    public void testTimestampedSnapshot( )
+    {
+        MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        assertTrue( coordinates.parse( "org/apache/archiva/archiva-common/1.0-SNAPSHOT/archiva-common-1.0-20200101.120000-12-sources.jar" ) );
+        assertEquals( "org.apache.archiva", coordinates.getGroupId( ) );
+        assertEquals( "archiva-common", coordinates.getArtifactId( ) );
+        assertEquals( "1.0-SNAPSHOT", coordinates.getProjectVersion( ) );
+        assertEquals( "1.0-20200101.120000-12", coordinates.getVersion( ) );
+        assertEquals( "20200101.120000", coordinates.getTimestamp( ) );
+        assertEquals( 12, coordinates.getBuildNumber( ) );
+        assertEquals( "sources", coordinates.getClassifier( ) );
+        assertEquals( "jar", coordinates.getExtension( ) );
+        assertEquals( "java-source", coordinates.getType( ) );
+
+        // the holder is reused
+        assertTrue( coordinates.parse( "org/apache/maven/plugins/maven-foo-plugin/1.0/maven-foo-plugin-1.0.jar" ) );
+        assertEquals( "1.0", coordinates.getVersion( ) );
+        assertNull( coordinates.getTimestamp( ) );
+        assertEquals( 0, coordinates.getBuildNumber( ) );
+        assertNull( coordinates.getClassifier( ) );
+        assertEquals( "maven-plugin", coordinates.getType( ) );
+    }
+
+    @Test
+    public void testErrorOfInvalidPath( )
+    {
+        MavenPathCoordinates coordinates = new MavenPathCoordinates( );
+        assertFalse( coordinates.parse( "invalid/invalid-1.0.jar" ) );
+        assertEquals( "Not a valid artifact path in a Maven 2 repository, not enough directories: invalid/invalid-1.0.jar",
+                      coordinates.getError( ) );
+        assertFalse( coordinates.parse( "invalid/invalid/1.0/invalid-2.0.jar" ) );
+        assertEquals(
+            "Not a valid artifact path in a Maven 2 repository, filename 'invalid-2.0.jar' doesn't contain version '1.0'",
+            coordinates.getError( ) );
+        assertFalse( coordinates.parse( "invalid/invalid/1/invalid-1" ) );
+        assertEquals( "Not a valid artifact path in a Maven 2 repository, filename 'invalid-1' does not have a type",
+                      coordinates.getError( ) );
+
+        // the error is cleared by the next parse
+        assertTrue( coordinates.parse( "invalid", "1.0", "invalid-1.0-sources.jar" ) );
+        assertNull( coordinates.getError( ) );
+        assertEquals( "1.0", coordinates.getVersion( ) );
+        assertEquals( "sources", coordinates.getClassifier( ) );
+    }
+
+    private List<Object> translate( String path )
+    {
+        ArtifactMetadata metadata;
+        try
+        {
+            metadata = pathTranslator.getArtifactForPath( null, path );
+        }
+        catch ( RuntimeException e )
+        {
+            return null;
+        }
+        MavenArtifactFacet facet = (MavenArtifactFacet) metadata.getFacet( MavenArtifactFacet.FACET_ID );
+        return Arrays.asList( metadata.getNamespace( ), metadata.getProject( ), metadata.getProjectVersion( ),
+                              metadata.getVersion( ), facet.getClassifier( ), facet.getType( ),
+                              facet.getTimestamp( ), facet.getBuildNumber( ), metadata.getId( ) );
+    }
+
+    private static List<Object> toList( MavenPathCoordinates coordinates )
+    {
+        return Arrays.asList( coordinates.getGroupId( ), coordinates.getArtifactId( ),
+                              coordinates.getProjectVersion( ), coordinates.getVersion( ),
+                              coordinates.getClassifier( ), coordinates.getType( ), coordinates.getTimestamp( ),
+                              coordinates.getBuildNumber( ), coordinates.getFilename( ) );
+    }
+}
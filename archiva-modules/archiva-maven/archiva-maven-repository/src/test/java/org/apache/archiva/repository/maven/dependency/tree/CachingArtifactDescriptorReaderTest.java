@@ -0,0 +1,193 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.impl.ArtifactDescriptorReader;
+import org.eclipse.aether.internal.impl.SimpleLocalRepositoryManagerFactory;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class CachingArtifactDescriptorReaderTest
+    extends TestCase
+{
+    private static final String CONTEXT = "project";
+
+    private Path tmpDir;
+
+    private DefaultRepositorySystemSession session;
+
+    private CountingReader delegate;
+
+    private CachingArtifactDescriptorReader reader;
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        tmpDir = Files.createTempDirectory( "descriptor-cache" );
+        session = new DefaultRepositorySystemSession( );
+        session.setLocalRepositoryManager(
+            new SimpleLocalRepositoryManagerFactory( ).newInstance( session, new LocalRepository( tmpDir.toFile( ) ) ) );
+        delegate = new CountingReader( );
+        reader = new CachingArtifactDescriptorReader( delegate );
+    }
+
+    @Override
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        FileUtils.deleteQuietly( tmpDir.toFile( ) );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testCacheHitReturnsCopy( )
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "org.apache.archiva:a:1.0" );
+        delegate.dependencies.put( artifact.toString( ), Collections.<Dependency>emptyList( ) );
+
+        ArtifactDescriptorResult first = reader.readArtifactDescriptor( session, request( artifact ) );
+        // changes by the caller must not change the cached result
+        first.addDependency( new Dependency( new DefaultArtifact( "org.apache.archiva:changed:1.0" ), "compile" ) );
+        first.getProperties( ).put( "changed", "true" );
+
+        ArtifactDescriptorResult second = reader.readArtifactDescriptor( session, request( artifact ) );
+        assertNotSame( first, second );
+        assertTrue( second.getDependencies( ).isEmpty( ) );
+        assertTrue( second.getProperties( ).isEmpty( ) );
+        assertEquals( 1, delegate.getReads( artifact ) );
+        assertEquals( 1, reader.getCacheHits( ) );
+    }
+
+    @Test
+    public void testChangedPomIsReadAgain( )
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "org.apache.archiva:a:1.0" );
+        delegate.dependencies.put( artifact.toString( ), Collections.<Dependency>emptyList( ) );
+        Path pom = CachingArtifactDescriptorReader.getPomFile( session, artifact );
+        Files.createDirectories( pom.getParent( ) );
+        Files.write( pom, "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+
+        reader.readArtifactDescriptor( session, request( artifact ) );
+        Files.write( pom, "<project></project>".getBytes( StandardCharsets.UTF_8 ) );
+        reader.readArtifactDescriptor( session, request( artifact ) );
+
+        assertEquals( 2, delegate.getReads( artifact ) );
+        assertEquals( 2, reader.getCacheMisses( ) );
+    }
+
+    @Test
+    public void testPrefetchUsesOwnSession( )
+        throws Exception
+    {
+        Artifact root = new DefaultArtifact( "org.apache.archiva:a:1.0" );
+        Artifact first = new DefaultArtifact( "org.apache.archiva:b:1.0" );
+        Artifact second = new DefaultArtifact( "org.apache.archiva:c:1.0" );
+        delegate.dependencies.put( root.toString( ),
+                                   Arrays.asList( new Dependency( first, "compile" ), new Dependency( second, "compile" ) ) );
+        delegate.dependencies.put( first.toString( ), Collections.<Dependency>emptyList( ) );
+        delegate.dependencies.put( second.toString( ), Collections.<Dependency>emptyList( ) );
+
+        reader.readArtifactDescriptor( session, request( root ) );
+        long timeout = System.currentTimeMillis( ) + 10000;
+        while ( ( delegate.getReads( first ) == 0 || delegate.getReads( second ) == 0 )
+            && System.currentTimeMillis( ) < timeout )
+        {
+            Thread.sleep( 10 );
+        }
+
+        // the collector finds the prefetched descriptors
+        assertEquals( first, reader.readArtifactDescriptor( session, request( first ) ).getArtifact( ) );
+        assertEquals( second, reader.readArtifactDescriptor( session, request( second ) ).getArtifact( ) );
+        assertEquals( 1, delegate.getReads( first ) );
+        assertEquals( 1, delegate.getReads( second ) );
+
+        RepositorySystemSession prefetchSession = delegate.sessions.get( first.toString( ) );
+        assertNotSame( session, prefetchSession );
+        assertNotSame( session.getData( ), prefetchSession.getData( ) );
+        assertSame( session.getLocalRepositoryManager( ), prefetchSession.getLocalRepositoryManager( ) );
+    }
+
+    private static ArtifactDescriptorRequest request( Artifact artifact )
+    {
+        return new ArtifactDescriptorRequest( artifact, Collections.emptyList( ), CONTEXT );
+    }
+
+    /**
+     * Returns the configured dependencies and counts the reads of each artifact.
+     */
+    private static class CountingReader
+        implements ArtifactDescriptorReader
+    {
+        final Map<String, List<Dependency>> dependencies = new HashMap<>( );
+
+        final Map<String, AtomicInteger> reads = new ConcurrentHashMap<>( );
+
+        final Map<String, RepositorySystemSession> sessions = new ConcurrentHashMap<>( );
+
+        @Override
+        public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                ArtifactDescriptorRequest request )
+        {
+            String key = request.getArtifact( ).toString( );
+            sessions.put( key, session );
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            result.setArtifact( request.getArtifact( ) );
+            result.setDependencies( new ArrayList<>( dependencies.get( key ) ) );
+            reads.computeIfAbsent( key, k -> new AtomicInteger( ) ).incrementAndGet( );
+            return result;
+        }
+
+        int getReads( Artifact artifact )
+        {
+            AtomicInteger count = reads.get( artifact.toString( ) );
+            return count == null ? 0 : count.get( );
+        }
+    }
+}
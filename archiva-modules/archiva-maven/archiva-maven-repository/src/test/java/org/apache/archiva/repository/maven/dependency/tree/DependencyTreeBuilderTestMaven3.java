@@ -120,6 +120,30 @@ public void testBuilderDependencies()
             new TreeEntry(artifact) );
     }
 
+    @Test
+    public void testCachedDependencies()
+        throws Exception
+    {
+        List<TreeEntry> treeEntries =
+            builder.buildDependencyTree( Collections.singletonList( TEST_REPO_ID ), TEST_GROUP_ID, TEST_ARTIFACT_ID,
+                                         TEST_VERSION );
+        List<TreeEntry> cachedEntries =
+            builder.buildDependencyTree( Collections.singletonList( TEST_REPO_ID ), TEST_GROUP_ID, TEST_ARTIFACT_ID,
+                                         TEST_VERSION );
+
+        assertThat( cachedEntries ).isNotSameAs( treeEntries ).isEqualTo( treeEntries );
+        assertThat( cachedEntries.get( 0 ).getChilds() ).isEqualTo( treeEntries.get( 0 ).getChilds() );
+
+        // the entries are copied, changes by a caller do not change the cached tree
+        assertThat( cachedEntries.get( 0 ) ).isNotSameAs( treeEntries.get( 0 ) );
+        int childCount = treeEntries.get( 0 ).getChilds().size();
+        cachedEntries.get( 0 ).getChilds().clear();
+        List<TreeEntry> nextEntries =
+            builder.buildDependencyTree( Collections.singletonList( TEST_REPO_ID ), TEST_GROUP_ID, TEST_ARTIFACT_ID,
+                                         TEST_VERSION );
+        assertThat( nextEntries.get( 0 ).getChilds() ).hasSize( childCount );
+    }
+
 
     public static class TestTreeEntry
         extends TreeEntry
@@ -0,0 +1,101 @@
+package org.apache.archiva.repository.maven.dependency.tree;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ResolutionCacheTest
+    extends TestCase
+{
+    private Path tmpDir;
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        tmpDir = Files.createTempDirectory( "resolution-cache" );
+    }
+
+    @Override
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        Files.deleteIfExists( tmpDir.resolve( "a.pom" ) );
+        Files.deleteIfExists( tmpDir.resolve( "b.pom" ) );
+        Files.deleteIfExists( tmpDir );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testChangedFileInvalidatesEntry( )
+        throws Exception
+    {
+        Path pomA = Files.write( tmpDir.resolve( "a.pom" ), "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+        Path pomB = tmpDir.resolve( "b.pom" );
+
+        ResolutionCache<String, String> cache = new ResolutionCache<>( 10, 60000 );
+        cache.put( "tree", "value", Arrays.asList( pomA, pomB ) );
+        assertEquals( "value", cache.get( "tree" ) );
+        assertEquals( 1, cache.getHits( ) );
+
+        // a missing file, that is created, invalidates the entry
+        Files.write( pomB, "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+        assertNull( cache.get( "tree" ) );
+        assertEquals( 0, cache.size( ) );
+
+        cache.put( "tree", "value", Arrays.asList( pomA, pomB ) );
+        assertEquals( "value", cache.get( "tree" ) );
+        Files.write( pomA, "<project></project>".getBytes( StandardCharsets.UTF_8 ) );
+        assertNull( cache.get( "tree" ) );
+        assertEquals( 2, cache.getMisses( ) );
+    }
+
+    @Test
+    public void testBoundedAndExpiring( )
+        throws Exception
+    {
+        ResolutionCache<String, String> cache = new ResolutionCache<>( 2, 60000 );
+        cache.put( "a", "1", Collections.emptyList( ) );
+        cache.put( "b", "2", Collections.emptyList( ) );
+        assertEquals( "1", cache.get( "a" ) );
+        cache.put( "c", "3", Collections.emptyList( ) );
+        assertEquals( 2, cache.size( ) );
+        // b is the least recently used entry
+        assertFalse( cache.contains( "b" ) );
+        assertEquals( "1", cache.get( "a" ) );
+
+        ResolutionCache<String, String> expiring = new ResolutionCache<>( 2, -1 );
+        expiring.put( "a", "1", Collections.emptyList( ) );
+        assertNull( expiring.get( "a" ) );
+    }
+}
@@ -33,6 +33,7 @@
 import org.apache.archiva.repository.RemoteRepositoryContent;
 import org.apache.archiva.repository.RepositoryContentProvider;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
+import org.apache.archiva.repository.metadata.base.MetadataRegenerationService;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
 import org.apache.archiva.repository.maven.MavenManagedRepository;
 import org.apache.commons.io.FileUtils;
@@ -221,6 +222,47 @@ public void testUpdateProjectSimpleYetMissing()
         assertUpdatedProjectMetadata( "missing_metadata_a", new String[]{ "1.0" }, "1.0", "1.0" );
     }
 
+    @Test
+    public void testRegenerationIsCoalesced()
+        throws Exception
+    {
+        ManagedRepositoryContent testRepo = createTestRepoContent();
+        ProjectReference reference = new ProjectReference();
+        reference.setGroupId( "org.apache.archiva.metadata.tests" );
+        reference.setArtifactId( "incomplete_metadata_a" );
+
+        prepTestRepo( testRepo, reference );
+
+        MetadataRegenerationService regenerationService = new MetadataRegenerationService();
+        regenerationService.setMetadataTools( tools );
+        // no background regeneration during the test
+        regenerationService.setDelay( 60000 );
+        regenerationService.setMaxDelay( 60000 );
+        try
+        {
+            String metadataPath = tools.toPath( reference );
+            regenerationService.markDirty( testRepo, metadataPath );
+            regenerationService.markDirty( testRepo, metadataPath );
+            regenerationService.markDirty( testRepo, metadataPath );
+            assertEquals( 1, regenerationService.getPendingCount() );
+
+            regenerationService.flush( "other-repo" );
+            assertEquals( 1, regenerationService.getPendingCount() );
+
+            regenerationService.flush( testRepo.getId() );
+            assertEquals( 0, regenerationService.getPendingCount() );
+
+            String metadata = new String( Files.readAllBytes( Paths.get( testRepo.getRepoRoot(), metadataPath ) ),
+                                          Charset.forName( "UTF-8" ) );
+            assertTrue( metadata, metadata.contains( "<version>1.0</version>" ) );
+            assertTrue( metadata, metadata.contains( "<latest>1.0</latest>" ) );
+        }
+        finally
+        {
+            regenerationService.shutdown();
+        }
+    }
+
     @Test
     public void testUpdateVersionSimple10()
         throws Exception
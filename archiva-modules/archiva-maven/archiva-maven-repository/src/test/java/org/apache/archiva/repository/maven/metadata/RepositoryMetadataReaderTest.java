@@ -26,7 +26,10 @@
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -91,4 +94,65 @@ public void testLoadComplex()
                     metadata.getAvailableVersions().contains( "6.0-20060311.183228-10" ) );
         assertTrue( "Available version 6.0-SNAPSHOT", metadata.getAvailableVersions().contains( "6.0-SNAPSHOT" ) );
     }
+
+    @Test
+    public void testLoadPluginsWithLatinEntities()
+        throws RepositoryMetadataException, IOException
+    {
+        Path metadataFile = Files.createTempFile( "maven-metadata", ".xml" );
+        try
+        {
+            Files.write( metadataFile, ( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<metadata xmlns=\"http://maven.apache.org/METADATA/1.1.0\">\n"
+                + "  <groupId>org.apache.maven.plugins</groupId>\n"
+                + "  <plugins>\n"
+                + "    <plugin>\n"
+                + "      <prefix>caf&eacute;</prefix>\n"
+                + "      <artifactId>cafe-maven-plugin</artifactId>\n"
+                + "      <name>Caf&eacute; &amp; Cr&egrave;me</name>\n"
+                + "    </plugin>\n"
+                + "  </plugins>\n"
+                + "  <versioning>\n"
+                + "    <snapshot><timestamp>20120310.230917</timestamp><buildNumber>2</buildNumber></snapshot>\n"
+                + "  </versioning>\n"
+                + "</metadata>" ).getBytes( StandardCharsets.UTF_8 ) );
+
+            ArchivaRepositoryMetadata metadata = new MavenMetadataReader( ).read( metadataFile );
+
+            assertEquals( "Group Id", "org.apache.maven.plugins", metadata.getGroupId() );
+            assertNull( "Artifact Id", metadata.getArtifactId() );
+            assertEquals( 1, metadata.getPlugins().size() );
+            assertEquals( "caf\u00e9", metadata.getPlugins().get( 0 ).getPrefix() );
+            assertEquals( "cafe-maven-plugin", metadata.getPlugins().get( 0 ).getArtifactId() );
+            assertEquals( "Caf\u00e9 & Cr\u00e8me", metadata.getPlugins().get( 0 ).getName() );
+            assertEquals( "20120310.230917", metadata.getSnapshotVersion().getTimestamp() );
+            assertEquals( 2, metadata.getSnapshotVersion().getBuildNumber() );
+            assertTrue( metadata.getAvailableVersions().isEmpty() );
+        }
+        finally
+        {
+            Files.deleteIfExists( metadataFile );
+        }
+    }
+
+    @Test
+    public void testLoadInvalidRoot()
+        throws IOException
+    {
+        Path metadataFile = Files.createTempFile( "maven-metadata", ".xml" );
+        try
+        {
+            Files.write( metadataFile, "<project><groupId>org.apache</groupId></project>".getBytes( StandardCharsets.UTF_8 ) );
+            new MavenMetadataReader( ).read( metadataFile );
+            fail( "RepositoryMetadataException expected" );
+        }
+        catch ( RepositoryMetadataException e )
+        {
+            // expected
+        }
+        finally
+        {
+            Files.deleteIfExists( metadataFile );
+        }
+    }
 }
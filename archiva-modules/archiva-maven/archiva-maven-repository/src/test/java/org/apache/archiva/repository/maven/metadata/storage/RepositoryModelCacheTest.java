@@ -0,0 +1,156 @@
+package org.apache.archiva.repository.maven.metadata.storage;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.building.ModelCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class RepositoryModelCacheTest
+    extends TestCase
+{
+    private static final String TAG = "raw";
+
+    private RepositoryPathTranslator pathTranslator =
+        new Maven2RepositoryPathTranslator( Collections.<ArtifactMappingProvider>emptyList( ) );
+
+    private Path repoDir;
+
+    private StorageAsset basedir;
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        repoDir = Paths.get( "target/test-model-cache" ).toAbsolutePath( );
+        FileUtils.deleteQuietly( repoDir.toFile( ) );
+        Files.createDirectories( repoDir );
+        basedir = new FilesystemStorage( repoDir, new DefaultFileLockManager( ) ).getAsset( "" );
+    }
+
+    @Override
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        FileUtils.deleteQuietly( repoDir.toFile( ) );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testCachedUntilPomChanges( )
+        throws Exception
+    {
+        Path pom = writePom( "org.apache", "apache", "23", "<project/>" );
+        RepositoryModelCache cache = new RepositoryModelCache( );
+        ModelCache modelCache = cache.forRepository( basedir, pathTranslator );
+
+        assertNull( modelCache.get( "org.apache", "apache", "23", TAG ) );
+        Object data = new Object( );
+        modelCache.put( "org.apache", "apache", "23", TAG, data );
+
+        // shared between the views of the same repository
+        assertSame( data, cache.forRepository( basedir, pathTranslator ).get( "org.apache", "apache", "23", TAG ) );
+        assertEquals( 1, cache.getHitCount( ) );
+        assertEquals( 1, cache.getMissCount( ) );
+        assertEquals( 0.5, cache.getHitRate( ), 0.001 );
+
+        Files.write( pom, "<project><modelVersion>4.0.0</modelVersion></project>".getBytes( StandardCharsets.UTF_8 ) );
+        assertNull( modelCache.get( "org.apache", "apache", "23", TAG ) );
+        assertEquals( 1, cache.getInvalidationCount( ) );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    @Test
+    public void testSnapshotsAndMissingFilesNotCached( )
+        throws Exception
+    {
+        RepositoryModelCache cache = new RepositoryModelCache( );
+        ModelCache modelCache = cache.forRepository( basedir, pathTranslator );
+
+        writePom( "org.example", "parent", "1.0-SNAPSHOT", "<project/>" );
+        modelCache.put( "org.example", "parent", "1.0-SNAPSHOT", TAG, new Object( ) );
+        modelCache.put( "org.example", "missing", "1.0", TAG, new Object( ) );
+
+        assertEquals( 0, cache.size( ) );
+        assertNull( modelCache.get( "org.example", "missing", "1.0", TAG ) );
+    }
+
+    @Test
+    public void testBounded( )
+        throws Exception
+    {
+        RepositoryModelCache cache = new RepositoryModelCache( 2 );
+        ModelCache modelCache = cache.forRepository( basedir, pathTranslator );
+        for ( int i = 1; i <= 3; i++ )
+        {
+            writePom( "org.example", "parent", i + ".0", "<project/>" );
+            modelCache.put( "org.example", "parent", i + ".0", TAG, "model-" + i );
+        }
+
+        assertEquals( 2, cache.size( ) );
+        assertEquals( 1, cache.getEvictionCount( ) );
+        assertNull( modelCache.get( "org.example", "parent", "1.0", TAG ) );
+        assertEquals( "model-3", modelCache.get( "org.example", "parent", "3.0", TAG ) );
+    }
+
+    @Test
+    public void testResolvedPomInvalidatedByMetadata( )
+        throws Exception
+    {
+        Path pom = writePom( "org.example", "parent", "1.0-SNAPSHOT", "<project/>" );
+        Path metadata = pom.getParent( ).resolve( "maven-metadata.xml" );
+        Files.write( metadata, "<metadata/>".getBytes( StandardCharsets.UTF_8 ) );
+        RepositoryModelCache cache = new RepositoryModelCache( );
+
+        cache.putResolvedPom( basedir, "org.example", "parent", "1.0-SNAPSHOT", metadata, pom );
+        assertEquals( pom, cache.getResolvedPom( basedir, "org.example", "parent", "1.0-SNAPSHOT" ) );
+
+        Files.write( metadata, "<metadata><version/></metadata>".getBytes( StandardCharsets.UTF_8 ) );
+        assertNull( cache.getResolvedPom( basedir, "org.example", "parent", "1.0-SNAPSHOT" ) );
+    }
+
+    private Path writePom( String groupId, String artifactId, String version, String content )
+        throws Exception
+    {
+        Path pom = pathTranslator.toFile( basedir, groupId, artifactId, version,
+                                          artifactId + "-" + version + ".pom" ).getFilePath( );
+        Files.createDirectories( pom.getParent( ) );
+        Files.write( pom, content.getBytes( StandardCharsets.UTF_8 ) );
+        return pom;
+    }
+}
@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.stats.model.DefaultRepositoryStatistics;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatistics;
@@ -82,6 +83,30 @@ public List<RepositoryStatistics> getStatisticsInRange( String repositoryId,
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public RepositoryStatistics getCurrentStatistics( String repositoryId )
+    {
+        return getLastStatistics( repositoryId );
+    }
+
+    @Override
+    public void artifactUpdated( ArtifactMetadata artifact )
+    {
+        // not used by the tests
+    }
+
+    @Override
+    public void artifactRemoved( ArtifactMetadata artifact )
+    {
+        // not used by the tests
+    }
+
+    @Override
+    public RepositoryStatistics rebuildStatistics( String repositoryId )
+    {
+        throw new UnsupportedOperationException();
+    }
+
     private List<RepositoryStatistics> getStatsList( String repositoryId )
     {
         List<RepositoryStatistics> stats = repoStats.get( repositoryId );
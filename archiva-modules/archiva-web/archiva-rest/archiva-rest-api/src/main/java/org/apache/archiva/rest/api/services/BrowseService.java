@@ -39,6 +39,7 @@
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.util.List;
 
 /**
@@ -242,6 +243,30 @@ Boolean artifactAvailable( @PathParam( "g" ) String groupId, @PathParam( "a" ) S
     List<Artifact> getArtifacts( @PathParam("r") String repositoryId )
         throws ArchivaRestServiceException;
 
+    /**
+     * Returns one page of the artifacts of the repository. The artifacts are ordered by namespace, project, version and
+     * id, and only the artifacts after the position of the continuation token are read, so neither the memory used nor
+     * the cost of a page depends on the repository size.
+     * The response is a JSON object with the array <code>artifacts</code> and the string <code>continuationToken</code>.
+     * The token is only present, if there are more artifacts. It must be passed to the next call to get the following
+     * page.
+     *
+     * @param repositoryId the repository id
+     * @param continuationToken the token returned with the previous page, or <code>null</code> for the first page
+     * @param limit the maximum number of artifacts in the page (default 100, at most 1000)
+     * @return the response with the JSON page
+     * @throws ArchivaRestServiceException if the token is not valid for the repository or the user has no karma
+     * @since 3.0
+     */
+    @Path("artifactsPage/{r}")
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON })
+    @RedbackAuthorization(noPermission = true, noRestriction = true)
+    Response getArtifactsPage( @PathParam("r") String repositoryId,
+                               @QueryParam("continuationToken") String continuationToken,
+                               @QueryParam("limit") Integer limit )
+        throws ArchivaRestServiceException;
+
     /**
      * Return List of artifacts from this repository with project version level metadata key matching value. If
      * repository is not provided the search runs in all repositories.
@@ -329,13 +329,7 @@ protected List<Artifact> buildArtifacts( Collection<ArtifactMetadata> artifactMe
                     if (repo==null) {
                         throw new RepositoryException( "Repository not found "+repoId );
                     }
-                    ManagedRepositoryContent content = repo.getContent( );
-                    ArtifactBuilder builder =
-                        new ArtifactBuilder().forArtifactMetadata( artifact ).withManagedRepositoryContent(
-                            content );
-                    Artifact art = builder.build();
-                    art.setUrl( getArtifactUrl( art, repositoryId ) );
-                    artifacts.add( art );
+                    artifacts.add( buildArtifact( artifact, repo.getContent( ), repositoryId ) );
                 }
                 return artifacts;
             }
@@ -349,6 +343,24 @@ protected List<Artifact> buildArtifacts( Collection<ArtifactMetadata> artifactMe
         }
     }
 
+    /**
+     * Converts a single artifact metadata object into the REST model.
+     *
+     * @param artifact the artifact metadata
+     * @param content the content of the repository, the artifact is stored in
+     * @param repositoryId the repository id used for the url, if <code>null</code> the artifact context is used
+     * @return the artifact
+     */
+    protected Artifact buildArtifact( ArtifactMetadata artifact, ManagedRepositoryContent content, String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        ArtifactBuilder builder =
+            new ArtifactBuilder().forArtifactMetadata( artifact ).withManagedRepositoryContent( content );
+        Artifact art = builder.build();
+        art.setUrl( getArtifactUrl( art, repositoryId ) );
+        return art;
+    }
+
     protected Boolean doScanRepository( String repositoryId, boolean fullScan )
     {
         if ( repositoryTaskScheduler.isProcessingRepositoryTask( repositoryId ) )
@@ -18,6 +18,9 @@
  * under the License.
  */
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
 import org.apache.archiva.admin.model.beans.ManagedRepository;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
@@ -49,6 +52,7 @@
 import org.apache.archiva.rest.api.model.*;
 import org.apache.archiva.rest.api.services.ArchivaRestServiceException;
 import org.apache.archiva.rest.api.services.BrowseService;
+import org.apache.archiva.rest.services.utils.ArchiveContentCache;
 import org.apache.archiva.rest.services.utils.ArtifactContentEntryComparator;
 import org.apache.archiva.security.ArchivaSecurityException;
 import org.apache.commons.collections4.CollectionUtils;
@@ -56,15 +60,23 @@
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.annotation.Annotation;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -80,6 +92,15 @@
 
     private final Charset ARTIFACT_CONTENT_ENCODING=Charset.forName( "UTF-8" );
 
+    static final int DEFAULT_ARTIFACTS_PAGE_SIZE = 100;
+
+    static final int MAX_ARTIFACTS_PAGE_SIZE = 1000;
+
+    private final ArchiveContentCache archiveContentCache = new ArchiveContentCache();
+
+    @Context
+    private Providers providers;
+
     @Inject
     private DependencyTreeBuilder dependencyTreeBuilder;
 
@@ -848,6 +869,15 @@ public ArtifactContent getArtifactContentText( String groupId, String artifactId
                 {
                     // zip entry of the path -> path must a real file entry of the archive
                     FsStorageUtil.PathInformation pathInfo = FsStorageUtil.getAssetDataAsPath(file);
+                    if ( !pathInfo.isTmpFile() )
+                    {
+                        // the archive stays open in the cache, the entry is read from its central directory
+                        return archiveContentCache.readEntry( pathInfo.getPath(), path,
+                                                              inputStream -> new ArtifactContent(
+                                                                  IOUtils.toString( inputStream,
+                                                                                    ARTIFACT_CONTENT_ENCODING ),
+                                                                  repoId ) );
+                    }
                     JarFile jarFile = new JarFile( pathInfo.getPath().toFile());
                     ZipEntry zipEntry = jarFile.getEntry( path );
                     try (InputStream inputStream = jarFile.getInputStream( zipEntry ))
@@ -857,9 +887,7 @@ public ArtifactContent getArtifactContentText( String groupId, String artifactId
                     finally
                     {
                         closeQuietly( jarFile );
-                        if (pathInfo.isTmpFile()) {
-                            Files.deleteIfExists(pathInfo.getPath());
-                        }
+                        Files.deleteIfExists(pathInfo.getPath());
                     }
                 }
                 try(InputStream readStream = file.getReadStream()) {
@@ -1001,6 +1029,273 @@ public List<Artifact> getArtifacts( String repositoryId )
         }
     }
 
+    @Override
+    public Response getArtifactsPage( final String repositoryId, String continuationToken, Integer limit )
+        throws ArchivaRestServiceException
+    {
+        if ( StringUtils.isEmpty( repositoryId ) || !getSelectedRepos( repositoryId ).contains( repositoryId ) )
+        {
+            throw new ArchivaRestServiceException( "browse.root.groups.repositoy.denied",
+                                                   Response.Status.FORBIDDEN.getStatusCode(), null );
+        }
+        final ManagedRepositoryContent content;
+        try
+        {
+            content = getManagedRepositoryContent( repositoryId );
+        }
+        catch ( RepositoryException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(), Response.Status.NOT_FOUND.getStatusCode(), e );
+        }
+        final ArtifactKey after = decodeContinuationToken( repositoryId, continuationToken );
+        final int pageSize = limit == null || limit < 1 ? DEFAULT_ARTIFACTS_PAGE_SIZE
+            : Math.min( limit, MAX_ARTIFACTS_PAGE_SIZE );
+        final ObjectMapper objectMapper = getJsonMapper();
+
+        // one more than the page size is read, to know if there is a following page. The page is read before the
+        // response is returned, so the session is closed on every path and not only when the response is written.
+        final List<ArtifactMetadata> page = new ArrayList<>( pageSize + 1 );
+        RepositorySession repositorySession = null;
+        try
+        {
+            repositorySession = repositorySessionFactory.createSession();
+            readArtifactsPage( repositorySession, repositoryId, after, page, pageSize + 1 );
+        }
+        catch ( MetadataRepositoryException | MetadataResolutionException e )
+        {
+            throw new ArchivaRestServiceException( e.getMessage(),
+                                                   Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e );
+        }
+        finally
+        {
+            if ( repositorySession != null )
+            {
+                repositorySession.close();
+            }
+        }
+
+        final boolean hasMore = page.size() > pageSize;
+        final List<ArtifactMetadata> artifacts = hasMore ? page.subList( 0, pageSize ) : page;
+        StreamingOutput output = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator( outputStream ))
+            {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart( "artifacts" );
+                for ( ArtifactMetadata artifact : artifacts )
+                {
+                    generator.writeObject( buildArtifact( artifact, content, repositoryId ) );
+                }
+                generator.writeEndArray();
+                if ( hasMore )
+                {
+                    generator.writeStringField( "continuationToken", encodeContinuationToken( repositoryId,
+                        ArtifactKey.of( artifacts.get( artifacts.size() - 1 ) ) ) );
+                }
+                generator.writeEndObject();
+            }
+            catch ( ArchivaRestServiceException e )
+            {
+                throw new WebApplicationException( e, e.getHttpErrorCode() );
+            }
+        };
+        return Response.ok( output, MediaType.APPLICATION_JSON_TYPE ).build();
+    }
+
+    /**
+     * Returns the object mapper of the JSON provider configured for the REST services, so the page is written with
+     * the same settings as the other responses.
+     */
+    private ObjectMapper getJsonMapper()
+        throws ArchivaRestServiceException
+    {
+        MessageBodyWriter<Artifact> writer = providers == null ? null
+            : providers.getMessageBodyWriter( Artifact.class, Artifact.class, new Annotation[0],
+                                              MediaType.APPLICATION_JSON_TYPE );
+        if ( writer instanceof JacksonJsonProvider )
+        {
+            return ( (JacksonJsonProvider) writer ).locateMapper( Artifact.class, MediaType.APPLICATION_JSON_TYPE );
+        }
+        throw new ArchivaRestServiceException( "No JSON provider configured",
+                                               Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), null );
+    }
+
+    /**
+     * Adds the artifacts following the given key to the page, until the page contains <code>count</code> entries.
+     * The repository is walked in the order of namespace, project, version and artifact id. Only the subtrees that
+     * may contain artifacts after the key are read, so the cost of a page does not grow with its position.
+     */
+    private void readArtifactsPage( RepositorySession session, String repositoryId, ArtifactKey after,
+                                    List<ArtifactMetadata> page, int count )
+        throws MetadataResolutionException
+    {
+        MetadataRepository metadataRepository = session.getRepository();
+        readNamespaces( session, metadataRepository, repositoryId, null,
+                        metadataRepository.getRootNamespaces( session, repositoryId ), after, page, count );
+    }
+
+    private boolean readNamespaces( RepositorySession session, MetadataRepository metadataRepository,
+                                    String repositoryId, String parent, List<String> names, ArtifactKey after,
+                                    List<ArtifactMetadata> page, int count )
+        throws MetadataResolutionException
+    {
+        for ( String name : sorted( names ) )
+        {
+            String namespace = parent == null ? name : parent + "." + name;
+            ArtifactKey namespaceAfter = null;
+            if ( after != null )
+            {
+                if ( after.namespace.equals( namespace ) || after.namespace.startsWith( namespace + "." ) )
+                {
+                    namespaceAfter = after;
+                }
+                else if ( ArtifactKey.compareNamespaces( namespace, after.namespace ) < 0 )
+                {
+                    // the whole subtree is before the key
+                    continue;
+                }
+            }
+            if ( readNamespace( session, metadataRepository, repositoryId, namespace, namespaceAfter, page, count ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readNamespace( RepositorySession session, MetadataRepository metadataRepository,
+                                   String repositoryId, String namespace, ArtifactKey after,
+                                   List<ArtifactMetadata> page, int count )
+        throws MetadataResolutionException
+    {
+        // the projects of a namespace come before its child namespaces, so they are skipped, if the key is in a child
+        if ( after == null || after.namespace.equals( namespace ) )
+        {
+            for ( String project : sorted( metadataRepository.getProjects( session, repositoryId, namespace ) ) )
+            {
+                if ( after != null && project.compareTo( after.project ) < 0 )
+                {
+                    continue;
+                }
+                boolean atProject = after != null && project.equals( after.project );
+                for ( String version : sorted(
+                    metadataRepository.getProjectVersions( session, repositoryId, namespace, project ) ) )
+                {
+                    if ( atProject && version.compareTo( after.version ) < 0 )
+                    {
+                        continue;
+                    }
+                    boolean atVersion = atProject && version.equals( after.version );
+                    List<ArtifactMetadata> artifacts = new ArrayList<>(
+                        metadataRepository.getArtifacts( session, repositoryId, namespace, project, version ) );
+                    artifacts.sort( Comparator.comparing( ArtifactMetadata::getId ) );
+                    for ( ArtifactMetadata artifact : artifacts )
+                    {
+                        if ( atVersion && artifact.getId().compareTo( after.id ) <= 0 )
+                        {
+                            continue;
+                        }
+                        page.add( artifact );
+                        if ( page.size() >= count )
+                        {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return readNamespaces( session, metadataRepository, repositoryId, namespace,
+                               metadataRepository.getChildNamespaces( session, repositoryId, namespace ), after, page,
+                               count );
+    }
+
+    private static List<String> sorted( Collection<String> names )
+    {
+        List<String> list = new ArrayList<>( names );
+        Collections.sort( list );
+        return list;
+    }
+
+    /**
+     * The continuation token is the key of the last artifact of the page bound to the repository id. It is encoded,
+     * so clients treat it as opaque value.
+     */
+    static String encodeContinuationToken( String repositoryId, ArtifactKey key )
+    {
+        String token = String.join( "/", repositoryId, key.namespace, key.project, key.version, key.id );
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( token.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    static ArtifactKey decodeContinuationToken( String repositoryId, String continuationToken )
+        throws ArchivaRestServiceException
+    {
+        if ( StringUtils.isEmpty( continuationToken ) )
+        {
+            return null;
+        }
+        try
+        {
+            String token = new String( Base64.getUrlDecoder().decode( continuationToken ), StandardCharsets.UTF_8 );
+            String[] parts = token.split( "/", -1 );
+            if ( parts.length == 5 && repositoryId.equals( parts[0] ) && StringUtils.isNoneEmpty( parts ) )
+            {
+                return new ArtifactKey( parts[1], parts[2], parts[3], parts[4] );
+            }
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // invalid encoding, handled below
+        }
+        throw new ArchivaRestServiceException( "Invalid continuation token " + continuationToken,
+                                               Response.Status.BAD_REQUEST.getStatusCode(), null );
+    }
+
+    /**
+     * The position of an artifact in the order used by {@link #getArtifactsPage(String, String, Integer)}.
+     */
+    static final class ArtifactKey
+    {
+        final String namespace;
+
+        final String project;
+
+        final String version;
+
+        final String id;
+
+        ArtifactKey( String namespace, String project, String version, String id )
+        {
+            this.namespace = namespace;
+            this.project = project;
+            this.version = version;
+            this.id = id;
+        }
+
+        static ArtifactKey of( ArtifactMetadata artifact )
+        {
+            return new ArtifactKey( artifact.getNamespace(), artifact.getProject(), artifact.getProjectVersion(),
+                                    artifact.getId() );
+        }
+
+        /**
+         * Compares the namespaces segment by segment, so a namespace is ordered before its children and the order
+         * is the same as the order of the walk through the namespace tree.
+         */
+        static int compareNamespaces( String first, String second )
+        {
+            String[] firstSegments = StringUtils.split( first, '.' );
+            String[] secondSegments = StringUtils.split( second, '.' );
+            for ( int i = 0; i < Math.min( firstSegments.length, secondSegments.length ); i++ )
+            {
+                int result = firstSegments[i].compareTo( secondSegments[i] );
+                if ( result != 0 )
+                {
+                    return result;
+                }
+            }
+            return Integer.compare( firstSegments.length, secondSegments.length );
+        }
+    }
+
     @Override
     public List<Artifact> getArtifactsByProjectVersionMetadata( String key, String value, String repositoryId )
         throws ArchivaRestServiceException
@@ -1148,6 +1443,12 @@ public List<Artifact> searchArtifacts( String key, String text, String repositor
         }
     }
 
+    @PreDestroy
+    public void shutdown()
+    {
+        archiveContentCache.close();
+    }
+
     //---------------------------
     // internals
     //---------------------------
@@ -1179,17 +1480,18 @@ protected List<ArtifactContentEntry> readFileEntries(final StorageAsset file, fi
         }
 
         FsStorageUtil.PathInformation pathInfo = FsStorageUtil.getAssetDataAsPath(file);
-        JarFile jarFile = new JarFile(pathInfo.getPath().toFile());
         try
         {
-            Enumeration<JarEntry> jarEntryEnumeration = jarFile.entries();
-            while ( jarEntryEnumeration.hasMoreElements() )
+            // temporary copies of non filesystem assets are not cached
+            ArchiveContentCache.ArchiveIndex index = pathInfo.isTmpFile()
+                ? ArchiveContentCache.readIndex( pathInfo.getPath() )
+                : archiveContentCache.getIndex( pathInfo.getPath() );
+            // only the entries below the filter path are visited, they are found in the sorted index
+            for ( ArchiveContentCache.ArchiveEntry currentEntry : index.getEntries( cleanedfilterPath ) )
             {
-                JarEntry currentEntry = jarEntryEnumeration.nextElement();
-                String cleanedEntryName = StringUtils.endsWith( currentEntry.getName(), "/" ) ? //
-                    StringUtils.substringBeforeLast( currentEntry.getName(), "/" ) : currentEntry.getName();
+                String cleanedEntryName = currentEntry.getPath();
                 String entryRootPath = getRootPath( cleanedEntryName );
-                int depth = StringUtils.countMatches( cleanedEntryName, "/" );
+                int depth = currentEntry.getDepth();
                 if ( StringUtils.isEmpty( cleanedfilterPath ) //
                     && !artifactContentEntryMap.containsKey( entryRootPath ) //
                     && depth == filterDepth )
@@ -1231,10 +1533,6 @@ protected List<ArtifactContentEntry> readFileEntries(final StorageAsset file, fi
         }
         finally
         {
-            if ( jarFile != null )
-            {
-                jarFile.close();
-            }
             if (pathInfo.isTmpFile()) {
                 Files.deleteIfExists(pathInfo.getPath());
             }
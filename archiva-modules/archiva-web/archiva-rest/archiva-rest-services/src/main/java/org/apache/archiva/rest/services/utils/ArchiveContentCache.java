@@ -0,0 +1,521 @@
+package org.apache.archiva.rest.services.utils;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Caches the entry index and open file handles of archives (jar, zip), that are browsed by the REST services.
+ * <p>
+ * The entry index of an archive is built once on first access and holds the sorted entry paths with their
+ * attributes, so listing a directory of the archive is a lookup in the index and does not open the file again.
+ * A small number of archives is kept open, so the content of an entry is read from the central directory of the
+ * already opened file.
+ * <p>
+ * Both caches are bounded and bound to the modification time and size of the archive file, an entry is dropped
+ * if the file was changed. Open files are closed when they are evicted and no longer used by a reader.
+ *
+ * @since 3.0
+ */
+public class ArchiveContentCache
+    implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger( ArchiveContentCache.class );
+
+    public static final int DEFAULT_MAX_INDEXES = 100;
+
+    public static final int DEFAULT_MAX_OPEN_FILES = 8;
+
+    private final Map<Path, ArchiveIndex> indexes;
+
+    private final Map<Path, Handle> openFiles;
+
+    public ArchiveContentCache( )
+    {
+        this( DEFAULT_MAX_INDEXES, DEFAULT_MAX_OPEN_FILES );
+    }
+
+    public ArchiveContentCache( final int maxIndexes, final int maxOpenFiles )
+    {
+        this.indexes = new LinkedHashMap<Path, ArchiveIndex>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Path, ArchiveIndex> eldest )
+            {
+                return size( ) > maxIndexes;
+            }
+        };
+        this.openFiles = new LinkedHashMap<Path, Handle>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Path, Handle> eldest )
+            {
+                if ( size( ) > maxOpenFiles )
+                {
+                    eldest.getValue( ).retire( );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Reads the content of a single entry of the archive.
+     *
+     * @param archive the archive file
+     * @param entryName the name of the entry in the archive
+     * @param reader the reader for the entry content, the stream is closed after the reader returns
+     * @param <T> the result type
+     * @return the result of the reader
+     * @throws FileNotFoundException if there is no entry with the given name
+     * @throws IOException if the archive could not be read
+     */
+    public <T> T readEntry( Path archive, String entryName, EntryReader<T> reader )
+        throws IOException
+    {
+        Handle handle = acquire( archive );
+        try
+        {
+            ZipEntry entry = handle.zipFile.getEntry( entryName );
+            if ( entry == null )
+            {
+                throw new FileNotFoundException( "Entry " + entryName + " not found in " + archive );
+            }
+            try ( InputStream inputStream = handle.zipFile.getInputStream( entry ) )
+            {
+                return reader.read( inputStream );
+            }
+        }
+        finally
+        {
+            release( handle );
+        }
+    }
+
+    /**
+     * Returns the entry index of the archive. The index is built on first access.
+     *
+     * @param archive the archive file
+     * @return the entry index
+     * @throws IOException if the archive could not be read
+     */
+    public ArchiveIndex getIndex( Path archive )
+        throws IOException
+    {
+        Stamp stamp = Stamp.of( archive );
+        ArchiveIndex index;
+        synchronized ( indexes )
+        {
+            index = indexes.get( archive );
+        }
+        if ( index != null && index.stamp.equals( stamp ) )
+        {
+            return index;
+        }
+        Handle handle = acquire( archive );
+        try
+        {
+            index = new ArchiveIndex( handle.stamp, handle.zipFile );
+        }
+        finally
+        {
+            release( handle );
+        }
+        synchronized ( indexes )
+        {
+            indexes.put( archive, index );
+        }
+        return index;
+    }
+
+    /**
+     * Builds the entry index of the archive without caching it, e.g. for temporary files.
+     *
+     * @param archive the archive file
+     * @return the entry index
+     * @throws IOException if the archive could not be read
+     */
+    public static ArchiveIndex readIndex( Path archive )
+        throws IOException
+    {
+        Stamp stamp = Stamp.of( archive );
+        try ( ZipFile zipFile = new ZipFile( archive.toFile( ) ) )
+        {
+            return new ArchiveIndex( stamp, zipFile );
+        }
+    }
+
+    /**
+     * Closes all open archives and removes all entries.
+     */
+    @Override
+    public void close( )
+    {
+        synchronized ( openFiles )
+        {
+            for ( Handle handle : openFiles.values( ) )
+            {
+                handle.retire( );
+            }
+            openFiles.clear( );
+        }
+        synchronized ( indexes )
+        {
+            indexes.clear( );
+        }
+    }
+
+    public int getIndexCount( )
+    {
+        synchronized ( indexes )
+        {
+            return indexes.size( );
+        }
+    }
+
+    public int getOpenFileCount( )
+    {
+        synchronized ( openFiles )
+        {
+            return openFiles.size( );
+        }
+    }
+
+    private Handle acquire( Path archive )
+        throws IOException
+    {
+        Stamp stamp = Stamp.of( archive );
+        synchronized ( openFiles )
+        {
+            Handle handle = openFiles.get( archive );
+            if ( handle != null && handle.stamp.equals( stamp ) )
+            {
+                handle.users++;
+                return handle;
+            }
+            if ( handle != null )
+            {
+                openFiles.remove( archive );
+                handle.retire( );
+            }
+        }
+        // the central directory is read outside of the lock
+        Handle opened = new Handle( new ZipFile( archive.toFile( ) ), stamp );
+        synchronized ( openFiles )
+        {
+            Handle handle = openFiles.get( archive );
+            if ( handle != null && handle.stamp.equals( stamp ) )
+            {
+                // opened concurrently by another thread
+                opened.retire( );
+            }
+            else
+            {
+                if ( handle != null )
+                {
+                    handle.retire( );
+                }
+                openFiles.put( archive, opened );
+                handle = opened;
+            }
+            handle.users++;
+            return handle;
+        }
+    }
+
+    private void release( Handle handle )
+    {
+        synchronized ( openFiles )
+        {
+            handle.users--;
+            if ( handle.retired && handle.users == 0 )
+            {
+                handle.closeQuietly( );
+            }
+        }
+    }
+
+    /**
+     * Reads the content of an archive entry.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface EntryReader<T>
+    {
+        T read( InputStream inputStream )
+            throws IOException;
+    }
+
+    /**
+     * The sorted entries of an archive.
+     */
+    public static final class ArchiveIndex
+    {
+        private final Stamp stamp;
+
+        private final String[] paths;
+
+        private final ArchiveEntry[] entries;
+
+        ArchiveIndex( Stamp stamp, ZipFile zipFile )
+        {
+            this.stamp = stamp;
+            List<ArchiveEntry> list = new ArrayList<>( zipFile.size( ) );
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries( );
+            while ( zipEntries.hasMoreElements( ) )
+            {
+                list.add( new ArchiveEntry( zipEntries.nextElement( ) ) );
+            }
+            list.sort( ( e1, e2 ) -> e1.path.compareTo( e2.path ) );
+            this.entries = list.toArray( new ArchiveEntry[0] );
+            this.paths = new String[entries.length];
+            for ( int i = 0; i < entries.length; i++ )
+            {
+                paths[i] = entries[i].path;
+            }
+        }
+
+        /**
+         * @return all entries sorted by path
+         */
+        public List<ArchiveEntry> getEntries( )
+        {
+            return Collections.unmodifiableList( Arrays.asList( entries ) );
+        }
+
+        /**
+         * Returns the entries, whose path starts with the given prefix. The entries are found by binary search.
+         *
+         * @param prefix the path prefix, an empty prefix matches all entries
+         * @return the matching entries sorted by path
+         */
+        public List<ArchiveEntry> getEntries( String prefix )
+        {
+            if ( StringUtils.isEmpty( prefix ) )
+            {
+                return getEntries( );
+            }
+            int from = lowerBound( prefix );
+            int to = from;
+            while ( to < paths.length && paths[to].startsWith( prefix ) )
+            {
+                to++;
+            }
+            return Collections.unmodifiableList( Arrays.asList( entries ).subList( from, to ) );
+        }
+
+        public int size( )
+        {
+            return entries.length;
+        }
+
+        private int lowerBound( String key )
+        {
+            int low = 0;
+            int high = paths.length;
+            while ( low < high )
+            {
+                int mid = ( low + high ) >>> 1;
+                if ( paths[mid].compareTo( key ) < 0 )
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A single entry of the archive index.
+     */
+    public static final class ArchiveEntry
+    {
+        private final String name;
+
+        private final String path;
+
+        private final boolean directory;
+
+        private final long size;
+
+        private final long compressedSize;
+
+        private final boolean compressed;
+
+        private final int depth;
+
+        ArchiveEntry( ZipEntry zipEntry )
+        {
+            this.name = zipEntry.getName( );
+            this.path = StringUtils.removeEnd( name, "/" );
+            this.directory = zipEntry.isDirectory( );
+            this.size = zipEntry.getSize( );
+            this.compressedSize = zipEntry.getCompressedSize( );
+            this.compressed = zipEntry.getMethod( ) == ZipEntry.DEFLATED;
+            this.depth = StringUtils.countMatches( path, "/" );
+        }
+
+        /**
+         * @return the entry name as stored in the archive
+         */
+        public String getName( )
+        {
+            return name;
+        }
+
+        /**
+         * @return the entry name without trailing slash
+         */
+        public String getPath( )
+        {
+            return path;
+        }
+
+        public boolean isDirectory( )
+        {
+            return directory;
+        }
+
+        public long getSize( )
+        {
+            return size;
+        }
+
+        public long getCompressedSize( )
+        {
+            return compressedSize;
+        }
+
+        public boolean isCompressed( )
+        {
+            return compressed;
+        }
+
+        /**
+         * @return the number of slashes in the path
+         */
+        public int getDepth( )
+        {
+            return depth;
+        }
+    }
+
+    private static final class Stamp
+    {
+        private final long lastModified;
+
+        private final long size;
+
+        private Stamp( long lastModified, long size )
+        {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static Stamp of( Path file )
+            throws IOException
+        {
+            return new Stamp( Files.getLastModifiedTime( file ).toMillis( ), Files.size( file ) );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Stamp ) )
+            {
+                return false;
+            }
+            Stamp stamp = (Stamp) o;
+            return lastModified == stamp.lastModified && size == stamp.size;
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return 31 * Long.hashCode( lastModified ) + Long.hashCode( size );
+        }
+    }
+
+    private static final class Handle
+    {
+        private final ZipFile zipFile;
+
+        private final Stamp stamp;
+
+        // guarded by the lock of the open files map
+        private int users = 0;
+
+        private boolean retired = false;
+
+        Handle( ZipFile zipFile, Stamp stamp )
+        {
+            this.zipFile = zipFile;
+            this.stamp = stamp;
+        }
+
+        void retire( )
+        {
+            retired = true;
+            if ( users == 0 )
+            {
+                closeQuietly( );
+            }
+        }
+
+        void closeQuietly( )
+        {
+            try
+            {
+                zipFile.close( );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "ignore error closing archive {}", zipFile.getName( ) );
+            }
+        }
+    }
+}
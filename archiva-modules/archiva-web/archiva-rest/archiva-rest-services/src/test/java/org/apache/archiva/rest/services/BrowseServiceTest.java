@@ -18,6 +18,8 @@
  * under the License.
  */
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.archiva.admin.model.beans.ManagedRepository;
 import org.apache.archiva.maven2.model.Artifact;
 import org.apache.archiva.metadata.model.ProjectVersionMetadata;
@@ -38,10 +40,12 @@
 import org.junit.Test;
 
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -472,6 +476,60 @@ public void artifactsNumber()
         assertTrue( number > 1 );
     }
 
+    @Test
+    public void artifactsPages()
+        throws Exception
+    {
+        BrowseService browseService = getBrowseService( authorizationHeader, true );
+        int number = browseService.getArtifacts( TEST_REPO_ID ).size();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> urls = new ArrayList<>();
+        String continuationToken = null;
+        int pages = 0;
+        do
+        {
+            Response response = browseService.getArtifactsPage( TEST_REPO_ID, continuationToken, 2 );
+            assertEquals( Response.Status.OK.getStatusCode(), response.getStatus() );
+            JsonNode page = objectMapper.readTree( response.readEntity( String.class ) );
+            assertThat( page.get( "artifacts" ).size() ).isBetween( 1, 2 );
+            for ( JsonNode artifact : page.get( "artifacts" ) )
+            {
+                urls.add( artifact.get( "url" ).asText() );
+            }
+            continuationToken = page.has( "continuationToken" ) ? page.get( "continuationToken" ).asText() : null;
+            pages++;
+        }
+        while ( continuationToken != null );
+
+        assertEquals( number, urls.size() );
+        assertEquals( number, new HashSet<>( urls ).size() );
+        assertEquals( ( number + 1 ) / 2, pages );
+
+        try
+        {
+            browseService.getArtifactsPage( TEST_REPO_ID, "invalid", 2 );
+            fail( "invalid continuation token must be rejected" );
+        }
+        catch ( ArchivaRestServiceException e )
+        {
+            assertEquals( Response.Status.BAD_REQUEST.getStatusCode(), e.getHttpErrorCode() );
+        }
+
+        // the token is bound to the repository it was returned for
+        String otherRepositoryToken = DefaultBrowseService.encodeContinuationToken( "other-repo",
+            new DefaultBrowseService.ArtifactKey( "org.apache.archiva", "archiva-test", "1.0", "archiva-test-1.0.jar" ) );
+        try
+        {
+            browseService.getArtifactsPage( TEST_REPO_ID, otherRepositoryToken, 2 );
+            fail( "continuation token of another repository must be rejected" );
+        }
+        catch ( ArchivaRestServiceException e )
+        {
+            assertEquals( Response.Status.BAD_REQUEST.getStatusCode(), e.getHttpErrorCode() );
+        }
+    }
+
     @Test
     public void metadatainbatchmode()
         throws Exception
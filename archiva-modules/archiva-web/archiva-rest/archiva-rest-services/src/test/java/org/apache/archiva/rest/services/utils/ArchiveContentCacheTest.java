@@ -0,0 +1,163 @@
+package org.apache.archiva.rest.services.utils;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ArchiveContentCacheTest
+    extends TestCase
+{
+    private Path tmpDir;
+
+    private ArchiveContentCache cache;
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        tmpDir = Files.createTempDirectory( "archive-cache" );
+        cache = new ArchiveContentCache( 2, 1 );
+    }
+
+    @Override
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        cache.close( );
+        try ( java.util.stream.Stream<Path> files = Files.list( tmpDir ) )
+        {
+            for ( Path file : files.collect( Collectors.toList( ) ) )
+            {
+                Files.deleteIfExists( file );
+            }
+        }
+        Files.deleteIfExists( tmpDir );
+        super.tearDown( );
+    }
+
+    @Test
+    public void testIndexLookupByPrefix( )
+        throws Exception
+    {
+        Path archive = createArchive( "test.jar", "org/", "org/apache/", "org/apache/A.class", "org/apache/B.class",
+                                      "org/other/C.class", "META-INF/MANIFEST.MF" );
+
+        ArchiveContentCache.ArchiveIndex index = cache.getIndex( archive );
+        assertEquals( 6, index.size( ) );
+        assertSame( index, cache.getIndex( archive ) );
+
+        List<String> paths = index.getEntries( "org/apache/" ).stream( ).map( ArchiveContentCache.ArchiveEntry::getPath )
+            .collect( Collectors.toList( ) );
+        assertEquals( 2, paths.size( ) );
+        assertTrue( paths.contains( "org/apache/A.class" ) );
+        assertTrue( paths.contains( "org/apache/B.class" ) );
+
+        ArchiveContentCache.ArchiveEntry dir = index.getEntries( "org" ).get( 0 );
+        assertEquals( "org", dir.getPath( ) );
+        assertEquals( "org/", dir.getName( ) );
+        assertTrue( dir.isDirectory( ) );
+        assertEquals( 0, dir.getDepth( ) );
+        assertTrue( index.getEntries( "zzz" ).isEmpty( ) );
+    }
+
+    @Test
+    public void testReadEntry( )
+        throws Exception
+    {
+        Path archive = createArchive( "test.jar", "a.txt", "b.txt" );
+
+        assertEquals( "content of a.txt",
+                      cache.readEntry( archive, "a.txt", in -> IOUtils.toString( in, StandardCharsets.UTF_8 ) ) );
+        assertEquals( 1, cache.getOpenFileCount( ) );
+        try
+        {
+            cache.readEntry( archive, "c.txt", in -> "" );
+            fail( "FileNotFoundException expected" );
+        }
+        catch ( FileNotFoundException e )
+        {
+            // expected
+        }
+
+        // only one open file, the second archive replaces the first one
+        Path other = createArchive( "other.jar", "c.txt" );
+        assertEquals( "content of c.txt",
+                      cache.readEntry( other, "c.txt", in -> IOUtils.toString( in, StandardCharsets.UTF_8 ) ) );
+        assertEquals( 1, cache.getOpenFileCount( ) );
+        assertEquals( "content of b.txt",
+                      cache.readEntry( archive, "b.txt", in -> IOUtils.toString( in, StandardCharsets.UTF_8 ) ) );
+    }
+
+    @Test
+    public void testChangedArchiveIsReindexed( )
+        throws Exception
+    {
+        Path archive = createArchive( "test.jar", "a.txt" );
+        ArchiveContentCache.ArchiveIndex index = cache.getIndex( archive );
+        assertEquals( 1, index.size( ) );
+
+        createArchive( "test.jar", "a.txt", "b.txt" );
+        Files.setLastModifiedTime( archive, FileTime.fromMillis( System.currentTimeMillis( ) + 10000 ) );
+        assertEquals( 2, cache.getIndex( archive ).size( ) );
+        assertEquals( "content of b.txt",
+                      cache.readEntry( archive, "b.txt", in -> IOUtils.toString( in, StandardCharsets.UTF_8 ) ) );
+    }
+
+    private Path createArchive( String name, String... entries )
+        throws IOException
+    {
+        Path archive = tmpDir.resolve( name );
+        try ( OutputStream out = Files.newOutputStream( archive );
+              ZipOutputStream zip = new ZipOutputStream( out ) )
+        {
+            for ( String entry : entries )
+            {
+                zip.putNextEntry( new ZipEntry( entry ) );
+                if ( !entry.endsWith( "/" ) )
+                {
+                    zip.write( ( "content of " + entry ).getBytes( StandardCharsets.UTF_8 ) );
+                }
+                zip.closeEntry( );
+            }
+        }
+        return archive;
+    }
+}
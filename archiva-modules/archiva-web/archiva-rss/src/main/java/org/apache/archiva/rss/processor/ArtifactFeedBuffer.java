@@ -0,0 +1,165 @@
+package org.apache.archiva.rss.processor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.rss.RssFeedEntry;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
+/**
+ * Bounded ring buffer of the newest artifacts of a feed, ordered by the gathered date (oldest first).
+ * The buffer is filled incrementally with the artifacts gathered since the last update, the oldest artifacts
+ * are dropped when the capacity is reached.
+ * The rendered feed entries are kept until the content of the buffer changes.
+ * <p>
+ * The buffer is not thread safe, callers synchronize on the buffer instance.
+ */
+class ArtifactFeedBuffer
+{
+    private final int capacity;
+
+    private final ArrayDeque<ArtifactMetadata> artifacts;
+
+    private final Set<String> keys = new HashSet<>( );
+
+    private ZonedDateTime lastGathered;
+
+    private long loadedAt = 0;
+
+    private long changes = 0;
+
+    private List<RssFeedEntry> rendered;
+
+    ArtifactFeedBuffer( int capacity )
+    {
+        this.capacity = Math.max( capacity, 1 );
+        this.artifacts = new ArrayDeque<>( this.capacity );
+    }
+
+    /**
+     * @return <code>true</code>, if the buffer was never loaded or the last full load is older than the interval
+     */
+    boolean isExpired( long now, long refreshInterval )
+    {
+        return loadedAt == 0 || now - loadedAt > refreshInterval;
+    }
+
+    /**
+     * Removes all artifacts and marks the buffer as loaded at the given time.
+     */
+    void reset( long now )
+    {
+        artifacts.clear( );
+        keys.clear( );
+        lastGathered = null;
+        rendered = null;
+        loadedAt = now;
+        changes++;
+    }
+
+    /**
+     * Adds the artifacts returned by a query, that is ordered by the gathered date with the newest artifact first.
+     * Artifacts that are already in the buffer are ignored.
+     *
+     * @param newestFirst the artifacts with the newest first
+     * @param saturated <code>true</code>, if the query returned as many artifacts as requested, i.e. older new
+     * artifacts may be missing. The buffer is cleared before, so it does not contain gaps.
+     */
+    void addNewestFirst( List<ArtifactMetadata> newestFirst, boolean saturated )
+    {
+        if ( saturated )
+        {
+            artifacts.clear( );
+            keys.clear( );
+            rendered = null;
+            changes++;
+        }
+        ListIterator<ArtifactMetadata> it = newestFirst.listIterator( newestFirst.size( ) );
+        while ( it.hasPrevious( ) )
+        {
+            ArtifactMetadata artifact = it.previous( );
+            if ( !keys.add( key( artifact ) ) )
+            {
+                continue;
+            }
+            artifacts.addLast( artifact );
+            if ( lastGathered == null || artifact.getWhenGathered( ).isAfter( lastGathered ) )
+            {
+                lastGathered = artifact.getWhenGathered( );
+            }
+            if ( artifacts.size( ) > capacity )
+            {
+                keys.remove( key( artifacts.removeFirst( ) ) );
+            }
+            rendered = null;
+            changes++;
+        }
+    }
+
+    /**
+     * @return the gathered date of the newest artifact, or <code>null</code>, if the buffer is empty
+     */
+    ZonedDateTime getLastGathered( )
+    {
+        return artifacts.isEmpty( ) ? null : lastGathered;
+    }
+
+    /**
+     * Returns a stamp that changes whenever the content of the buffer changes. The time of the last full load is part
+     * of the stamp, so it differs from the stamps of buffers created before.
+     */
+    String getStamp( )
+    {
+        return Long.toString( loadedAt, 36 ) + "-" + Long.toString( changes, 36 );
+    }
+
+    Collection<ArtifactMetadata> getArtifacts( )
+    {
+        return artifacts;
+    }
+
+    int size( )
+    {
+        return artifacts.size( );
+    }
+
+    List<RssFeedEntry> getRendered( )
+    {
+        return rendered;
+    }
+
+    void setRendered( List<RssFeedEntry> rendered )
+    {
+        this.rendered = rendered;
+    }
+
+    private static String key( ArtifactMetadata artifact )
+    {
+        return artifact.getRepositoryId( ) + "/" + artifact.getNamespace( ) + "/" + artifact.getProject( ) + "/"
+            + artifact.getProjectVersion( ) + "/" + artifact.getId( );
+    }
+}
@@ -21,6 +21,7 @@
 
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.FeedException;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -35,23 +36,38 @@
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Retrieve and process all artifacts of a repository from the database and generate a rss feed.
  * The artifacts will be grouped by the date when the artifacts were gathered.
  * Each group will appear as one entry in the feed.
+ * <p>
+ * The newest artifacts of each repository are kept in a bounded buffer. Each request only reads the artifacts
+ * gathered since the previous request, the feed entries are rendered again only if the buffer changed.
  *
  */
 @Service("rssFeedProcessor#new-artifacts")
 public class NewArtifactsRssFeedProcessor
     extends AbstractArtifactsRssFeedProcessor
 {
+    public static final int DEFAULT_MAX_ARTIFACTS = 500;
+
     private int numberOfDaysBeforeNow = 30;
 
+    private int maxArtifacts = DEFAULT_MAX_ARTIFACTS;
+
+    private long refreshInterval = TimeUnit.HOURS.toMillis( 1 );
+
+    private final Map<String, ArtifactFeedBuffer> feedBuffers = new ConcurrentHashMap<>();
+
     private static final String title = "New Artifacts in Repository ";
 
     private static final String desc = "These are the new artifacts found in the repository ";
@@ -88,24 +104,86 @@ public SyndFeed process( Map<String, String> reqParams )
         return null;
     }
 
+    /**
+     * The stamp of the feed is the stamp of the buffer of the repository, after it was updated with the artifacts
+     * gathered since the previous request.
+     */
+    @Override
+    public String getFeedStamp( Map<String, String> reqParams )
+        throws FeedException
+    {
+        String repoId = reqParams.get( RssFeedProcessor.KEY_REPO_ID );
+        if ( repoId == null )
+        {
+            return null;
+        }
+        ArtifactFeedBuffer buffer = feedBuffers.computeIfAbsent( repoId, id -> new ArtifactFeedBuffer( maxArtifacts ) );
+        synchronized ( buffer )
+        {
+            updateBuffer( repoId, buffer );
+            return buffer.getStamp();
+        }
+    }
+
     private SyndFeed processNewArtifactsInRepo( String repoId )
         throws FeedException
     {
+        ArtifactFeedBuffer buffer = feedBuffers.computeIfAbsent( repoId, id -> new ArtifactFeedBuffer( maxArtifacts ) );
+        List<RssFeedEntry> entries;
+        synchronized ( buffer )
+        {
+            updateBuffer( repoId, buffer );
+            entries = buffer.getRendered();
+            if ( entries == null )
+            {
+                entries = buildEntries( buffer.getArtifacts() );
+                buffer.setRendered( entries );
+            }
+        }
 
-        ZonedDateTime greaterThanThisDate = ZonedDateTime.now().minusDays(
+        return generator.generateFeed( getTitle() + "\'" + repoId + "\'",
+                                       "New artifacts found in repository " + "\'" + repoId + "\'" +
+                                           " during repository scan.", entries );
+    }
+
+    /**
+     * Reads the artifacts gathered since the last update into the buffer. The query is limited to the capacity of
+     * the buffer. The buffer is fully reloaded after the refresh interval, to drop artifacts that were removed or
+     * left the time window of the feed.
+     */
+    private void updateBuffer( String repoId, ArtifactFeedBuffer buffer )
+        throws FeedException
+    {
+        long now = System.currentTimeMillis();
+        ZonedDateTime windowStart = ZonedDateTime.now().minusDays(
                 getNumberOfDaysBeforeNow()
         ).truncatedTo(ChronoUnit.SECONDS);
+        if ( buffer.isExpired( now, refreshInterval ) )
+        {
+            buffer.reset( now );
+        }
+        ZonedDateTime lastGathered = buffer.getLastGathered();
+        // the start is inclusive, artifacts with the same date as the newest one are skipped by the buffer
+        ZonedDateTime greaterThanThisDate =
+            lastGathered != null && lastGathered.isAfter( windowStart ) ? lastGathered : windowStart;
         List<ArtifactMetadata> artifacts;
-        try(RepositorySession session = repositorySessionFactory.createSession())
+        try(RepositorySession session = repositorySessionFactory.createSession();
+            Stream<ArtifactMetadata> stream = session.getRepository().getArtifactByDateRangeStream(
+                session, repoId, greaterThanThisDate, null, new QueryParameter( false, 0, maxArtifacts ) ))
         {
-            artifacts = session.getRepository().getArtifactsByDateRange(session , repoId, greaterThanThisDate, null );
+            artifacts = stream.collect( Collectors.toList() );
         }
         catch ( MetadataRepositoryException e )
         {
             throw new FeedException( "Unable to construct feed, metadata could not be retrieved: " + e.getMessage(),
                                      e );
         }
+        buffer.addNewestFirst( artifacts, artifacts.size() >= maxArtifacts );
+        log.debug( "Feed buffer of repository {} holds {} artifacts", repoId, buffer.size() );
+    }
 
+    private List<RssFeedEntry> buildEntries( Collection<ArtifactMetadata> artifacts )
+    {
         long tmp = 0;
         RssFeedEntry entry = null;
         List<RssFeedEntry> entries = new ArrayList<>();
@@ -145,10 +223,7 @@ private SyndFeed processNewArtifactsInRepo( String repoId )
             tmp = whenGathered;
             idx++;
         }
-
-        return generator.generateFeed( getTitle() + "\'" + repoId + "\'",
-                                       "New artifacts found in repository " + "\'" + repoId + "\'" +
-                                           " during repository scan.", entries );
+        return entries;
     }
 
     @Override
@@ -181,6 +256,34 @@ public int getNumberOfDaysBeforeNow()
     public void setNumberOfDaysBeforeNow( int numberOfDaysBeforeNow )
     {
         this.numberOfDaysBeforeNow = numberOfDaysBeforeNow;
+        feedBuffers.clear();
+    }
+
+    public int getMaxArtifacts()
+    {
+        return maxArtifacts;
+    }
+
+    /**
+     * Sets the maximum number of artifacts in a feed. Existing feed buffers are dropped.
+     */
+    public void setMaxArtifacts( int maxArtifacts )
+    {
+        this.maxArtifacts = maxArtifacts;
+        feedBuffers.clear();
+    }
+
+    public long getRefreshInterval()
+    {
+        return refreshInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds, after that a feed is fully reloaded from the metadata repository.
+     */
+    public void setRefreshInterval( long refreshInterval )
+    {
+        this.refreshInterval = refreshInterval;
     }
 
     public RepositorySessionFactory getRepositorySessionFactory( )
@@ -21,6 +21,7 @@
 
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.FeedException;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.*;
 import org.apache.archiva.repository.Repository;
@@ -35,14 +36,18 @@
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
 
 /**
  * Retrieve and process new versions of an artifact from the database and
  * generate a rss feed. The versions will be grouped by the date when the artifact
  * was gathered. Each group will appear as one entry in the feed.
+ * Only the newest artifacts, up to the configured maximum, are part of the feed.
  *
  */
 @Service("rssFeedProcessor#new-versions")
@@ -55,6 +60,8 @@
 
     private static final String desc = "These are the new versions of artifact ";
 
+    private int maxArtifacts = NewArtifactsRssFeedProcessor.DEFAULT_MAX_ARTIFACTS;
+
     @Inject
     private RssFeedGenerator generator;
 
@@ -64,6 +71,12 @@
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    /**
+     * The artifacts read for the last stamp of the current thread. The feed servlet asks for the stamp and then for
+     * the feed of the same request, so {@link #process(Map)} takes these artifacts instead of reading them again.
+     */
+    private final ThreadLocal<StampedArtifacts> stampedArtifacts = new ThreadLocal<>();
+
     /**
      * Process all versions of the artifact which had a rss feed request.
      */
@@ -82,10 +95,45 @@ public SyndFeed process( Map<String, String> reqParams )
         return null;
     }
 
-    private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId )
+    /**
+     * The stamp of the feed is built from the number of artifacts and the gathered dates of the oldest and the newest
+     * one, so it changes, if an artifact is added or removed.
+     */
+    @Override
+    public String getFeedStamp( Map<String, String> reqParams )
+        throws FeedException
+    {
+        String groupId = reqParams.get( RssFeedProcessor.KEY_GROUP_ID );
+        String artifactId = reqParams.get( RssFeedProcessor.KEY_ARTIFACT_ID );
+        stampedArtifacts.remove();
+        if ( groupId == null || artifactId == null )
+        {
+            return null;
+        }
+        List<ArtifactMetadata> artifacts = getNewestArtifacts( groupId, artifactId );
+        stampedArtifacts.set( new StampedArtifacts( groupId + ":" + artifactId, artifacts ) );
+        if ( artifacts.isEmpty() )
+        {
+            return "0";
+        }
+        return artifacts.size() + "-" + Long.toString(
+            artifacts.get( 0 ).getWhenGathered().toInstant().toEpochMilli(), 36 ) + "-" + Long.toString(
+            artifacts.get( artifacts.size() - 1 ).getWhenGathered().toInstant().toEpochMilli(), 36 );
+    }
+
+    /**
+     * Reads the newest artifacts of all versions. Each version is read with a query ordered by the gathered date and
+     * limited to the maximum number of artifacts of the feed.
+     *
+     * @return the artifacts ordered by the gathered date, the oldest first
+     */
+    private List<ArtifactMetadata> getNewestArtifacts( String groupId, String artifactId )
         throws FeedException
     {
-        List<ArtifactMetadata> artifacts = new ArrayList<>();
+        // only the newest artifacts are kept, the oldest one is at the head of the queue
+        PriorityQueue<ArtifactMetadata> newest =
+            new PriorityQueue<>( Comparator.comparing( ArtifactMetadata::getWhenGathered ) );
+        QueryParameter newestFirst = new QueryParameter( false, 0, maxArtifacts, "whenGathered" );
         try(RepositorySession session = repositorySessionFactory.createSession())
         {
             final MetadataRepository metadataRepository = session.getRepository( );
@@ -95,7 +143,17 @@ private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId
                 Collection<String> versions = metadataRepository.getProjectVersions( session, repoId, groupId, artifactId );
                 for ( String version : versions )
                 {
-                    artifacts.addAll( metadataRepository.getArtifacts(session , repoId, groupId, artifactId, version ) );
+                    try ( Stream<ArtifactMetadata> stream = metadataRepository.getArtifactStream( session, repoId,
+                        groupId, artifactId, version, newestFirst ) )
+                    {
+                        stream.forEach( artifact -> {
+                            newest.add( artifact );
+                            if ( newest.size() > maxArtifacts )
+                            {
+                                newest.poll();
+                            }
+                        } );
+                    }
                 }
             }
         }
@@ -110,6 +168,22 @@ private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId
                                      e );
         }
 
+        List<ArtifactMetadata> artifacts = new ArrayList<>( newest );
+        artifacts.sort( newest.comparator() );
+        return artifacts;
+    }
+
+    private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId )
+        throws FeedException
+    {
+        String key = groupId + ":" + artifactId;
+
+        StampedArtifacts stamped = stampedArtifacts.get();
+        stampedArtifacts.remove();
+        List<ArtifactMetadata> artifacts = stamped != null && stamped.key.equals( key )
+            ? stamped.artifacts
+            : getNewestArtifacts( groupId, artifactId );
+
         long tmp = 0;
         RssFeedEntry entry = null;
         List<RssFeedEntry> entries = new ArrayList<>();
@@ -150,8 +224,6 @@ private SyndFeed processNewVersionsOfArtifact( String groupId, String artifactId
             idx++;
         }
 
-        String key = groupId + ":" + artifactId;
-
         return generator.generateFeed( getTitle() + "\'" + key + "\'",
                                        "New versions of artifact " + "\'" + key + "\' found during repository scan.",
                                        entries );
@@ -179,6 +251,16 @@ public void setGenerator( RssFeedGenerator generator )
         this.generator = generator;
     }
 
+    public int getMaxArtifacts()
+    {
+        return maxArtifacts;
+    }
+
+    public void setMaxArtifacts( int maxArtifacts )
+    {
+        this.maxArtifacts = maxArtifacts;
+    }
+
     public RepositorySessionFactory getRepositorySessionFactory( )
     {
         return repositorySessionFactory;
@@ -198,4 +280,17 @@ public void setRepositoryRegistry( RepositoryRegistry repositoryRegistry )
     {
         this.repositoryRegistry = repositoryRegistry;
     }
+
+    private static class StampedArtifacts
+    {
+        private final String key;
+
+        private final List<ArtifactMetadata> artifacts;
+
+        StampedArtifacts( String key, List<ArtifactMetadata> artifacts )
+        {
+            this.key = key;
+            this.artifacts = artifacts;
+        }
+    }
 }
@@ -37,4 +37,18 @@
 
     SyndFeed process( Map<String, String> reqParams )
         throws FeedException;
+
+    /**
+     * Returns a stamp that changes whenever the feed for the given parameters changes. It is computed without
+     * rendering the feed and is used as entity tag of the response.
+     *
+     * @param reqParams the request parameters
+     * @return the stamp, or <code>null</code>, if the processor cannot tell when the feed changes
+     * @throws FeedException if the data of the feed could not be retrieved
+     */
+    default String getFeedStamp( Map<String, String> reqParams )
+        throws FeedException
+    {
+        return null;
+    }
 }
@@ -22,6 +22,7 @@
 import com.rometools.rome.feed.synd.SyndEntry;
 import com.rometools.rome.feed.synd.SyndFeed;
 import junit.framework.TestCase;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.AbstractMetadataRepository;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -40,11 +41,13 @@
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.stream.Stream;
 
 @RunWith (ArchivaBlockJUnit4ClassRunner.class)
 public class NewArtifactsRssFeedProcessorTest
@@ -137,6 +140,75 @@ public void testProcess()
         assertTrue( entries.get( 0 ).getPublishedDate().toInstant().truncatedTo( ChronoUnit.MILLIS ).equals( whenGathered.toInstant().truncatedTo( ChronoUnit.MILLIS ) ) );
     }
 
+    @Test
+    public void testIncrementalUpdate()
+        throws Exception
+    {
+        newArtifactsProcessor.setMaxArtifacts( 3 );
+        ZonedDateTime whenGathered = ZonedDateTime.now().minusHours( 1 ).truncatedTo( ChronoUnit.MILLIS );
+        List<ArtifactMetadata> artifacts = new ArrayList<>();
+        artifacts.add( createArtifact( "artifact-one", "1.0", whenGathered ) );
+        metadataRepository.setArtifactsByDateRange( artifacts );
+
+        Map<String, String> reqParams = new HashMap<>();
+        reqParams.put( RssFeedProcessor.KEY_REPO_ID, TEST_REPO );
+
+        SyndFeed feed = newArtifactsProcessor.process( reqParams );
+        assertEquals( 1, feed.getEntries().size() );
+        assertEquals( 3, metadataRepository.getQueryParameter().getLimit() );
+        assertFalse( metadataRepository.getQueryParameter().isAscending() );
+
+        // only the artifacts since the newest one are read
+        ZonedDateTime whenGatheredNext = whenGathered.plusMinutes( 10 );
+        artifacts.add( createArtifact( "artifact-two", "1.0", whenGatheredNext ) );
+        feed = newArtifactsProcessor.process( reqParams );
+
+        assertEquals( whenGathered.toInstant(), metadataRepository.getFrom().toInstant() );
+        List<SyndEntry> entries = feed.getEntries();
+        assertEquals( 2, entries.size() );
+        assertEquals( 1, countMatches( entries.get( 0 ).getDescription().getValue(), "artifact-one" ) );
+        assertEquals( 1, countMatches( entries.get( 1 ).getDescription().getValue(), "artifact-two" ) );
+
+        // the feed is bounded, the oldest artifact is dropped
+        ZonedDateTime whenGatheredLast = whenGathered.plusMinutes( 20 );
+        artifacts.add( createArtifact( "artifact-three", "1.0", whenGatheredLast ) );
+        artifacts.add( createArtifact( "artifact-three", "1.1", whenGatheredLast ) );
+        feed = newArtifactsProcessor.process( reqParams );
+
+        assertEquals( whenGatheredNext.toInstant(), metadataRepository.getFrom().toInstant() );
+        entries = feed.getEntries();
+        assertEquals( 2, entries.size() );
+        assertEquals( 1, countMatches( entries.get( 0 ).getDescription().getValue(), "artifact-two" ) );
+        assertEquals( 2, countMatches( entries.get( 1 ).getDescription().getValue(), "artifact-three" ) );
+        assertTrue( feed.getPublishedDate().toInstant().truncatedTo( ChronoUnit.MILLIS ).equals(
+            whenGatheredLast.toInstant().truncatedTo( ChronoUnit.MILLIS ) ) );
+    }
+
+    @Test
+    public void testFeedStampChangesWithBuffer()
+        throws Exception
+    {
+        ZonedDateTime whenGathered = ZonedDateTime.now().minusHours( 1 ).truncatedTo( ChronoUnit.MILLIS );
+        List<ArtifactMetadata> artifacts = new ArrayList<>();
+        artifacts.add( createArtifact( "artifact-one", "1.0", whenGathered ) );
+        metadataRepository.setArtifactsByDateRange( artifacts );
+
+        Map<String, String> reqParams = new HashMap<>();
+        reqParams.put( RssFeedProcessor.KEY_REPO_ID, TEST_REPO );
+
+        String stamp = newArtifactsProcessor.getFeedStamp( reqParams );
+        assertNotNull( stamp );
+        assertEquals( stamp, newArtifactsProcessor.getFeedStamp( reqParams ) );
+
+        artifacts.add( createArtifact( "artifact-two", "1.0", whenGathered.plusMinutes( 10 ) ) );
+        assertFalse( stamp.equals( newArtifactsProcessor.getFeedStamp( reqParams ) ) );
+    }
+
+    private static int countMatches( String text, String part )
+    {
+        return text.split( part, -1 ).length - 1;
+    }
+
     private ArtifactMetadata createArtifact( String artifactId, String version, ZonedDateTime whenGathered )
     {
         ArtifactMetadata artifact = new ArtifactMetadata();
@@ -162,13 +234,26 @@ private ArtifactMetadata createArtifact( String artifactId, String version, Zone
 
 
 
+        private QueryParameter queryParameter;
+
         @Override
-        public List<ArtifactMetadata> getArtifactsByDateRange(RepositorySession session, String repoId, ZonedDateTime from, ZonedDateTime to )
+        public Stream<ArtifactMetadata> getArtifactByDateRangeStream( RepositorySession session, String repoId,
+                                                                      ZonedDateTime from, ZonedDateTime to,
+                                                                      QueryParameter queryParameter )
         {
             setRepoId( repoId );
             setFrom( from );
             setTo( to );
-            return artifactsByDateRange;
+            this.queryParameter = queryParameter;
+            Comparator<ArtifactMetadata> comparator = Comparator.comparing( ArtifactMetadata::getWhenGathered );
+            return artifactsByDateRange.stream().filter( a -> !a.getWhenGathered().isBefore( from ) ).sorted(
+                queryParameter.isAscending() ? comparator : comparator.reversed() ).skip(
+                queryParameter.getOffset() ).limit( queryParameter.getLimit() );
+        }
+
+        public QueryParameter getQueryParameter()
+        {
+            return queryParameter;
         }
 
         public void setFrom(ZonedDateTime from )
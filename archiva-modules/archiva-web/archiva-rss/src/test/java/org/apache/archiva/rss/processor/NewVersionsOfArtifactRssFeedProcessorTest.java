@@ -23,6 +23,7 @@
 import com.rometools.rome.feed.synd.SyndFeed;
 import junit.framework.TestCase;
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -34,6 +35,7 @@
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
 import org.apache.archiva.rss.RssFeedGenerator;
 import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
 import org.junit.Before;
@@ -50,9 +52,13 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
 
 @RunWith(ArchivaBlockJUnit4ClassRunner.class)
 public class NewVersionsOfArtifactRssFeedProcessorTest
@@ -139,12 +145,12 @@ public void testProcess()
 
             expect(metadataRepository.getProjectVersions(session, TEST_REPO, GROUP_ID, ARTIFACT_ID)).andReturn(
                     Arrays.asList("1.0.1", "1.0.2", "1.0.3-SNAPSHOT"));
-            expect(metadataRepository.getArtifacts(session, TEST_REPO, GROUP_ID, ARTIFACT_ID, "1.0.1")).andReturn(
-                    Collections.singletonList(artifact1));
-            expect(metadataRepository.getArtifacts(session, TEST_REPO, GROUP_ID, ARTIFACT_ID, "1.0.2")).andReturn(
-                    Collections.singletonList(artifact2));
-            expect(metadataRepository.getArtifacts(session, TEST_REPO, GROUP_ID, ARTIFACT_ID, "1.0.3-SNAPSHOT")).andReturn(
-                    Collections.singletonList(artifact3));
+            expect(metadataRepository.getArtifactStream(eq(session), eq(TEST_REPO), eq(GROUP_ID), eq(ARTIFACT_ID), eq("1.0.1"),
+                    isA(QueryParameter.class))).andReturn(Stream.of(artifact1));
+            expect(metadataRepository.getArtifactStream(eq(session), eq(TEST_REPO), eq(GROUP_ID), eq(ARTIFACT_ID), eq("1.0.2"),
+                    isA(QueryParameter.class))).andReturn(Stream.of(artifact2));
+            expect(metadataRepository.getArtifactStream(eq(session), eq(TEST_REPO), eq(GROUP_ID), eq(ARTIFACT_ID), eq("1.0.3-SNAPSHOT"),
+                    isA(QueryParameter.class))).andReturn(Stream.of(artifact3));
         metadataRepositoryControl.replay();
 
         SyndFeed feed = newVersionsProcessor.process( reqParams );
@@ -169,6 +175,67 @@ public void testProcess()
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testFeedStampReadsNewestArtifactsByDate()
+        throws Exception
+    {
+        newVersionsProcessor.setMaxArtifacts( 2 );
+        ZonedDateTime whenGathered = ZonedDateTime.ofInstant( new Date( 123456789 ).toInstant(), ZoneId.systemDefault() );
+        ZonedDateTime whenGatheredNext = whenGathered.plusHours( 1 );
+
+        Map<String, String> reqParams = new HashMap<>();
+        reqParams.put( RssFeedProcessor.KEY_GROUP_ID, GROUP_ID );
+        reqParams.put( RssFeedProcessor.KEY_ARTIFACT_ID, ARTIFACT_ID );
+
+        Capture<QueryParameter> queryParameter = EasyMock.newCapture();
+        expect( metadataRepository.getProjectVersions( session, TEST_REPO, GROUP_ID, ARTIFACT_ID ) ).andReturn(
+            Arrays.asList( "1.0.1", "1.0.2" ) ).times( 2 );
+        expect( metadataRepository.getArtifactStream( eq( session ), eq( TEST_REPO ), eq( GROUP_ID ), eq( ARTIFACT_ID ),
+                                                      eq( "1.0.1" ), capture( queryParameter ) ) ).andReturn(
+            Stream.of( createArtifact( whenGathered, "1.0.1" ) ) ).andReturn(
+            Stream.of( createArtifact( whenGathered, "1.0.1" ) ) );
+        expect( metadataRepository.getArtifactStream( eq( session ), eq( TEST_REPO ), eq( GROUP_ID ), eq( ARTIFACT_ID ),
+                                                      eq( "1.0.2" ), isA( QueryParameter.class ) ) ).andReturn(
+            Stream.of( createArtifact( whenGathered, "1.0.2" ) ) ).andReturn(
+            Stream.of( createArtifact( whenGatheredNext, "1.0.2" ) ) );
+        metadataRepositoryControl.replay();
+
+        String stamp = newVersionsProcessor.getFeedStamp( reqParams );
+        assertEquals( 2, queryParameter.getValue().getLimit() );
+        assertFalse( queryParameter.getValue().isAscending() );
+        assertEquals( Collections.singletonList( "whenGathered" ), queryParameter.getValue().getSortFields() );
+
+        // a newer artifact changes the stamp
+        assertFalse( stamp.equals( newVersionsProcessor.getFeedStamp( reqParams ) ) );
+
+        metadataRepositoryControl.verify();
+    }
+
+    @Test
+    public void testProcessReusesArtifactsOfFeedStamp()
+        throws Exception
+    {
+        ZonedDateTime whenGathered = ZonedDateTime.ofInstant( new Date( 123456789 ).toInstant(), ZoneId.systemDefault() );
+
+        Map<String, String> reqParams = new HashMap<>();
+        reqParams.put( RssFeedProcessor.KEY_GROUP_ID, GROUP_ID );
+        reqParams.put( RssFeedProcessor.KEY_ARTIFACT_ID, ARTIFACT_ID );
+
+        // the artifacts are read once for the stamp and the feed of the request
+        expect( metadataRepository.getProjectVersions( session, TEST_REPO, GROUP_ID, ARTIFACT_ID ) ).andReturn(
+            Arrays.asList( "1.0.1" ) );
+        expect( metadataRepository.getArtifactStream( eq( session ), eq( TEST_REPO ), eq( GROUP_ID ), eq( ARTIFACT_ID ),
+                                                      eq( "1.0.1" ), isA( QueryParameter.class ) ) ).andReturn(
+            Stream.of( createArtifact( whenGathered, "1.0.1" ) ) );
+        metadataRepositoryControl.replay();
+
+        assertNotNull( newVersionsProcessor.getFeedStamp( reqParams ) );
+        SyndFeed feed = newVersionsProcessor.process( reqParams );
+        assertEquals( 1, feed.getEntries().size() );
+
+        metadataRepositoryControl.verify();
+    }
+
     private ArtifactMetadata createArtifact(ZonedDateTime whenGathered, String version )
     {
         ArtifactMetadata artifact = new ArtifactMetadata();
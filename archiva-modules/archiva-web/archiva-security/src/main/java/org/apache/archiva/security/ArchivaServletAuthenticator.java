@@ -54,6 +54,9 @@
     @Inject
     private SecuritySystem securitySystem;
 
+    @Inject
+    private AuthorizationDecisionCache decisionCache;
+
     @Override
     public boolean isAuthenticated( HttpServletRequest request, AuthenticationResult result )
         throws AuthenticationException, AccountLockedException, MustChangePasswordException
@@ -73,6 +76,17 @@ public boolean isAuthorized( HttpServletRequest request, SecuritySession securit
     {
         // TODO: also check for permission to proxy the resource when MRM-579 is implemented
 
+        // Only granted decisions are taken from the cache, denials are evaluated again for the error details.
+        // The cache is not used for a locked account or an account that must change the password, the security
+        // system checks the account state for each call.
+        String principal = getPrincipal( securitySession );
+        if ( decisionCache != null && isAccountUsable( securitySession ) && Boolean.TRUE.equals(
+            decisionCache.get( principal, repositoryId, permission ) ) )
+        {
+            return true;
+        }
+        long generation = decisionCache != null ? decisionCache.getGeneration() : 0;
+
         AuthorizationResult authzResult = securitySystem.authorize( securitySession, permission, repositoryId );
 
         if ( !authzResult.isAuthorized() )
@@ -87,9 +101,28 @@ public boolean isAuthorized( HttpServletRequest request, SecuritySession securit
             throw new UnauthorizedException( "User account is locked" );
         }
 
+        if ( decisionCache != null )
+        {
+            decisionCache.put( principal, repositoryId, permission, true, generation );
+        }
         return true;
     }
 
+    private static boolean isAccountUsable( SecuritySession securitySession )
+    {
+        User user = securitySession == null ? null : securitySession.getUser();
+        return user == null || ( !user.isLocked() && !user.isPasswordChangeRequired() );
+    }
+
+    private static String getPrincipal( SecuritySession securitySession )
+    {
+        if ( securitySession == null || !securitySession.isAuthenticated() || securitySession.getUser() == null )
+        {
+            return null;
+        }
+        return securitySession.getUser().getUsername();
+    }
+
     @Override
     public boolean isAuthorized( String principal, String repoId, String permission )
         throws UnauthorizedException
@@ -107,10 +140,22 @@ public boolean isAuthorized( String principal, String repoId, String permission
                 throw new UnauthorizedException( "User account is locked." );
             }
 
+            Boolean cached = decisionCache != null ? decisionCache.get( principal, repoId, permission ) : null;
+            if ( cached != null )
+            {
+                return cached;
+            }
+            long generation = decisionCache != null ? decisionCache.getGeneration() : 0;
+
             AuthenticationResult authn = new AuthenticationResult( true, principal, null );
             SecuritySession securitySession = new DefaultSecuritySession( authn, user );
 
-            return securitySystem.isAuthorized( securitySession, permission, repoId );
+            boolean authorized = securitySystem.isAuthorized( securitySession, permission, repoId );
+            if ( decisionCache != null )
+            {
+                decisionCache.put( principal, repoId, permission, authorized, generation );
+            }
+            return authorized;
         }
         catch ( UserNotFoundException e )
         {
@@ -136,4 +181,14 @@ public void setSecuritySystem( SecuritySystem securitySystem )
     {
         this.securitySystem = securitySystem;
     }
+
+    public AuthorizationDecisionCache getDecisionCache()
+    {
+        return decisionCache;
+    }
+
+    public void setDecisionCache( AuthorizationDecisionCache decisionCache )
+    {
+        this.decisionCache = decisionCache;
+    }
 }
@@ -0,0 +1,303 @@
+package org.apache.archiva.security;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.event.EventHandler;
+import org.apache.archiva.repository.RepositoryRegistry;
+import org.apache.archiva.repository.event.LifecycleEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Caches the authorization decisions for principal, repository and operation. The servlet authenticator
+ * checks the permissions of each request and for each member of a repository group, the cache avoids the
+ * evaluation of the RBAC model for each check.
+ * <p>
+ * The decisions expire after a short time. In addition, they are invalidated, if the RBAC model is changed:
+ * changes of roles, permissions, operations and resources invalidate all decisions, changes of a user
+ * assignment invalidate the decisions of the principal. Repository lifecycle events invalidate the decisions
+ * for the repository.
+ *
+ * @since 3.0
+ */
+@Service( "authorizationDecisionCache#default" )
+public class AuthorizationDecisionCache
+{
+    private static final Logger log = LoggerFactory.getLogger( AuthorizationDecisionCache.class );
+
+    public static final long DEFAULT_TIME_TO_LIVE = 10000;
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    @Inject
+    private RepositoryRegistry repositoryRegistry;
+
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private final ConcurrentHashMap<DecisionKey, Decision> decisions = new ConcurrentHashMap<>( );
+
+    // Incremented by each invalidation, decisions computed before are not stored
+    private final AtomicLong generation = new AtomicLong( );
+
+    private final LongAdder hits = new LongAdder( );
+
+    private final LongAdder misses = new LongAdder( );
+
+    private final EventHandler<LifecycleEvent> lifecycleHandler = event -> {
+        if ( event.getRepository( ) != null )
+        {
+            invalidateRepository( event.getRepository( ).getId( ) );
+        }
+    };
+
+    @PostConstruct
+    public void initialize( )
+    {
+        if ( repositoryRegistry != null )
+        {
+            repositoryRegistry.registerEventHandler( LifecycleEvent.ANY, lifecycleHandler );
+        }
+    }
+
+    /**
+     * Returns the cached decision.
+     *
+     * @param principal the user name
+     * @param repositoryId the repository id
+     * @param operation the operation, that is checked
+     * @return {@link Boolean#TRUE}, if access was granted, {@link Boolean#FALSE}, if access was denied, or
+     * <code>null</code>, if there is no valid decision in the cache
+     */
+    public Boolean get( String principal, String repositoryId, String operation )
+    {
+        if ( principal == null || repositoryId == null || operation == null )
+        {
+            return null;
+        }
+        DecisionKey key = new DecisionKey( principal, repositoryId, operation );
+        Decision decision = decisions.get( key );
+        if ( decision != null )
+        {
+            if ( decision.expires > System.currentTimeMillis( ) )
+            {
+                hits.increment( );
+                return decision.granted;
+            }
+            decisions.remove( key, decision );
+        }
+        misses.increment( );
+        return null;
+    }
+
+    /**
+     * Returns the current generation. The generation must be retrieved before the decision is computed and
+     * passed to {@link #put(String, String, String, boolean, long)}.
+     *
+     * @return the current generation
+     */
+    public long getGeneration( )
+    {
+        return generation.get( );
+    }
+
+    /**
+     * Stores the decision. The decision is not stored, if the cache was invalidated after the given generation,
+     * because the decision may be based on outdated data.
+     *
+     * @param principal the user name
+     * @param repositoryId the repository id
+     * @param operation the operation, that is checked
+     * @param granted <code>true</code>, if access was granted
+     * @param generation the generation retrieved before the decision was computed
+     */
+    public void put( String principal, String repositoryId, String operation, boolean granted, long generation )
+    {
+        if ( principal == null || repositoryId == null || operation == null )
+        {
+            return;
+        }
+        if ( decisions.size( ) >= maxEntries )
+        {
+            long now = System.currentTimeMillis( );
+            decisions.values( ).removeIf( decision -> decision.expires <= now );
+            if ( decisions.size( ) >= maxEntries )
+            {
+                decisions.clear( );
+            }
+        }
+        decisions.put( new DecisionKey( principal, repositoryId, operation ),
+                       new Decision( granted, System.currentTimeMillis( ) + timeToLive ) );
+        if ( this.generation.get( ) != generation )
+        {
+            // an invalidation happened while the decision was computed
+            decisions.remove( new DecisionKey( principal, repositoryId, operation ) );
+        }
+    }
+
+    /**
+     * Removes the decisions of the given principal, e.g. after the user assignment was changed.
+     *
+     * @param principal the user name
+     */
+    public void invalidatePrincipal( String principal )
+    {
+        invalidate( key -> key.principal.equals( principal ) );
+        log.debug( "Invalidated authorization decisions of principal {}", principal );
+    }
+
+    /**
+     * Removes the decisions for the given repository.
+     *
+     * @param repositoryId the repository id
+     */
+    public void invalidateRepository( String repositoryId )
+    {
+        invalidate( key -> key.repositoryId.equals( repositoryId ) );
+        log.debug( "Invalidated authorization decisions for repository {}", repositoryId );
+    }
+
+    /**
+     * Removes all decisions, e.g. after roles or permissions were changed.
+     */
+    public void invalidateAll( )
+    {
+        generation.incrementAndGet( );
+        decisions.clear( );
+        log.debug( "Invalidated all authorization decisions" );
+    }
+
+    private void invalidate( Predicate<DecisionKey> filter )
+    {
+        generation.incrementAndGet( );
+        decisions.keySet( ).removeIf( filter );
+    }
+
+    public long getHits( )
+    {
+        return hits.sum( );
+    }
+
+    public long getMisses( )
+    {
+        return misses.sum( );
+    }
+
+    /**
+     * @return the ratio of cache hits to all lookups, 0 if there were no lookups
+     */
+    public double getHitRate( )
+    {
+        long hitCount = hits.sum( );
+        long total = hitCount + misses.sum( );
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size( )
+    {
+        return decisions.size( );
+    }
+
+    public long getTimeToLive( )
+    {
+        return timeToLive;
+    }
+
+    public void setTimeToLive( long timeToLive )
+    {
+        this.timeToLive = timeToLive;
+    }
+
+    public int getMaxEntries( )
+    {
+        return maxEntries;
+    }
+
+    public void setMaxEntries( int maxEntries )
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setRepositoryRegistry( RepositoryRegistry repositoryRegistry )
+    {
+        this.repositoryRegistry = repositoryRegistry;
+    }
+
+    private static final class DecisionKey
+    {
+        private final String principal;
+
+        private final String repositoryId;
+
+        private final String operation;
+
+        DecisionKey( String principal, String repositoryId, String operation )
+        {
+            this.principal = principal;
+            this.repositoryId = repositoryId;
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof DecisionKey ) )
+            {
+                return false;
+            }
+            DecisionKey that = (DecisionKey) o;
+            return principal.equals( that.principal ) && repositoryId.equals( that.repositoryId )
+                && operation.equals( that.operation );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Objects.hash( principal, repositoryId, operation );
+        }
+    }
+
+    private static final class Decision
+    {
+        private final boolean granted;
+
+        private final long expires;
+
+        Decision( boolean granted, long expires )
+        {
+            this.granted = granted;
+            this.expires = expires;
+        }
+    }
+}
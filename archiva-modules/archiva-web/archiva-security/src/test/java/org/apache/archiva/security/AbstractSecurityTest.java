@@ -86,6 +86,9 @@
     @Inject
     protected UserRepositories userRepos;
 
+    @Inject
+    protected AuthorizationDecisionCache decisionCache;
+
     protected void setupRepository( String repoId )
         throws Exception
     {
@@ -154,6 +157,9 @@ public void setUp()
 
         repositoryRegistry.setArchivaConfiguration(archivaConfiguration);
         repositoryRegistry.reload();
+
+        // The role manager of the tests writes to the rbac manager directly
+        decisionCache.invalidateAll();
     }
 
     protected void restoreGuestInitialValues( String userId )
@@ -172,5 +178,6 @@ protected void restoreGuestInitialValues( String userId )
         userAssignment.setRoleNames( Lists.newArrayList( "Guest" ) );
         rbacManager.saveUserAssignment( userAssignment );
         CacheManager.getInstance().clearAll();
+        decisionCache.invalidateAll();
     }
 }
@@ -254,4 +254,74 @@ public void testIsAuthorizedGuestUserHasNoReadAccess()
         assertFalse( isAuthorized );
     }
 
+    @Test
+    public void testIsAuthorizedLockedUserSkipsCachedDecision()
+        throws Exception
+    {
+        createUser( USER_ALPACA, "Al 'Archiva' Paca" );
+
+        assignRepositoryManagerRole( USER_ALPACA, "corporate" );
+
+        User user = securitySystem.getUserManager().findUser( USER_ALPACA );
+        AuthenticationResult result = new AuthenticationResult( true, USER_ALPACA, null );
+        SecuritySession session = new DefaultSecuritySession( result, user );
+        assertTrue(
+            servletAuth.isAuthorized( request, session, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_UPLOAD ) );
+        long hits = decisionCache.getHits();
+
+        // the granted decision is cached, but it is not used for a locked account or an account that must change
+        // the password
+        user.setLocked( true );
+        checkAuthorizationWithoutCache( session, hits );
+        user.setLocked( false );
+        user.setPasswordChangeRequired( true );
+        checkAuthorizationWithoutCache( session, hits );
+
+        user.setPasswordChangeRequired( false );
+        assertTrue(
+            servletAuth.isAuthorized( request, session, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_UPLOAD ) );
+        assertEquals( hits + 1, decisionCache.getHits() );
+
+        restoreGuestInitialValues( USER_ALPACA );
+    }
+
+    private void checkAuthorizationWithoutCache( SecuritySession session, long hits )
+        throws Exception
+    {
+        try
+        {
+            servletAuth.isAuthorized( request, session, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_UPLOAD );
+        }
+        catch ( UnauthorizedException e )
+        {
+            // the security system denies the locked account
+        }
+        assertEquals( hits, decisionCache.getHits() );
+    }
+
+    @Test
+    public void testIsAuthorizedDecisionIsCached()
+        throws Exception
+    {
+        long hits = decisionCache.getHits();
+        assertFalse(
+            servletAuth.isAuthorized( USER_GUEST, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_ACCESS ) );
+
+        // the role manager of the test bypasses the invalidation, the cached decision is used
+        assignRepositoryObserverRole( USER_GUEST, "corporate" );
+        assertFalse(
+            servletAuth.isAuthorized( USER_GUEST, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_ACCESS ) );
+        assertEquals( hits + 1, decisionCache.getHits() );
+
+        decisionCache.invalidatePrincipal( USER_GUEST );
+        assertTrue(
+            servletAuth.isAuthorized( USER_GUEST, "corporate", ArchivaRoleConstants.OPERATION_REPOSITORY_ACCESS ) );
+
+        decisionCache.invalidateRepository( "corporate" );
+        assertEquals( 0, decisionCache.size() );
+
+        // cleanup previously add karma
+        restoreGuestInitialValues( USER_GUEST );
+    }
+
 }
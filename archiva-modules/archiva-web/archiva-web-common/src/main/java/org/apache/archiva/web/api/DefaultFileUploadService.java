@@ -24,9 +24,11 @@
 import org.apache.archiva.admin.model.admin.ArchivaAdministration;
 import org.apache.archiva.admin.model.beans.ManagedRepository;
 import org.apache.archiva.admin.model.managed.ManagedRepositoryAdmin;
+import org.apache.archiva.checksum.Checksum;
 import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.checksum.ChecksumUtil;
 import org.apache.archiva.checksum.ChecksummedFile;
+import org.apache.archiva.checksum.StreamingChecksum;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.configuration.ArchivaConfiguration;
@@ -111,6 +113,8 @@
 
     private final String FS = FileSystems.getDefault().getSeparator();
 
+    private static final String STAGING_SUFFIX = ".uploading";
+
     @Inject
     @Named(value = "archivaTaskScheduler#repository")
     private ArchivaTaskScheduler<RepositoryTask> scheduler;
@@ -169,10 +173,21 @@ public FileMetadata post(MultipartBody multipartBody)
                 throw e;
             }
 
+            // The checksums are calculated while the data is written, so we need no further pass over the
+            // uploaded data. Files that are never saved are removed by the UploadedFilesSessionCleaner.
             Path tmpFile = Files.createTempFile("upload-artifact", ".tmp");
-            tmpFile.toFile().deleteOnExit();
-            IOUtils.copy(file.getDataHandler().getInputStream(), new FileOutputStream(tmpFile.toFile()));
+            List<Checksum> checksums;
+            try (InputStream is = file.getDataHandler().getInputStream();
+                 OutputStream os = Files.newOutputStream(tmpFile)) {
+                checksums = StreamingChecksum.copyAndUpdate(is, os, algorithms);
+            } catch (IOException e) {
+                Files.deleteIfExists(tmpFile);
+                throw e;
+            }
             FileMetadata fileMetadata = new FileMetadata(fileName, Files.size(tmpFile), "theurl");
+            for (Checksum checksum : checksums) {
+                fileMetadata.getChecksums().put(checksum.getAlgorithm(), checksum.getChecksum());
+            }
             fileMetadata.setServerFileName(tmpFile.toString());
             fileMetadata.setClassifier(classifier);
             fileMetadata.setDeleteUrl(tmpFile.getFileName().toString());
@@ -380,7 +395,7 @@ protected void savePomFile(String repositoryId, FileMetadata fileMetadata, Strin
             }
             pomFilename = FilenameUtils.removeExtension(pomFilename) + ".pom";
 
-            copyFile(Paths.get(fileMetadata.getServerFileName()), targetPath, pomFilename, fixChecksums);
+            copyFile(fileMetadata, targetPath, pomFilename, fixChecksums);
             triggerAuditEvent(repoConfig.getId(), targetPath.resolve(pomFilename).toString(), AuditEvent.UPLOAD_FILE);
             queueRepositoryTask(repoConfig.getId(), targetPath.resolve(pomFilename));
             log.debug("Finished Saving POM");
@@ -455,7 +470,7 @@ protected void saveFile(String repositoryId, FileMetadata fileMetadata, boolean
                             "Overwriting released artifacts in repository '" + repoConfig.getId() + "' is not allowed.",
                             Response.Status.BAD_REQUEST.getStatusCode(), null);
                 } else {
-                    copyFile(Paths.get(fileMetadata.getServerFileName()), targetPath, filename, fixChecksums);
+                    copyFile(fileMetadata, targetPath, filename, fixChecksums);
                     triggerAuditEvent(repoConfig.getId(), artifactPath.toString(), AuditEvent.UPLOAD_FILE);
                     queueRepositoryTask(repoConfig.getId(), targetFile);
                 }
@@ -580,13 +595,38 @@ private void queueRepositoryTask(String repositoryId, StorageAsset localFile) {
         }
     }
 
-    private void copyFile(Path sourceFile, StorageAsset targetPath, String targetFilename, boolean fixChecksums)
+    /**
+     * Moves the uploaded file into place. If the upload lives on the same file store as the repository, the
+     * file is renamed to the target. Otherwise the data is moved once into a staging file in the target directory,
+     * which is then renamed, so readers never see a partially written artifact. The checksum files are written
+     * from the values calculated during upload, if they are available for all configured algorithms.
+     */
+    private void copyFile(FileMetadata fileMetadata, StorageAsset targetPath, String targetFilename, boolean fixChecksums)
             throws IOException {
-
-        targetPath.resolve(targetFilename).replaceDataFromFile(sourceFile);
+        Path sourceFile = Paths.get(fileMetadata.getServerFileName());
+        StorageAsset targetFile = targetPath.resolve(targetFilename);
+        if (!targetPath.exists()) {
+            targetPath.create();
+        }
+        if (Files.getFileStore(sourceFile).equals(Files.getFileStore(targetPath.getFilePath()))) {
+            targetFile.replaceDataFromFile(sourceFile);
+        } else {
+            Path stagingFile = targetPath.getFilePath().resolve("." + targetFilename + STAGING_SUFFIX);
+            try {
+                Files.move(sourceFile, stagingFile, StandardCopyOption.REPLACE_EXISTING);
+                targetFile.replaceDataFromFile(stagingFile);
+            } finally {
+                Files.deleteIfExists(stagingFile);
+            }
+        }
 
         if (fixChecksums) {
-            fixChecksums(targetPath.resolve(targetFilename));
+            Map<ChecksumAlgorithm, String> checksums = fileMetadata.getChecksums();
+            if (checksums != null && checksums.keySet().containsAll(algorithms)) {
+                new ChecksummedFile(targetFile.getFilePath()).writeChecksums(checksums);
+            } else {
+                fixChecksums(targetFile);
+            }
         }
     }
 
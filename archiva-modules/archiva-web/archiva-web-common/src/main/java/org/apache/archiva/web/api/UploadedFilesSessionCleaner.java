@@ -0,0 +1,76 @@
+package org.apache.archiva.web.api;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.web.model.FileMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * This http session listener deletes the files that have been uploaded during a session
+ * but were never saved to a repository. Without it the staged upload files would stay in the
+ * temporary directory until somebody removes them manually.
+ *
+ * @since 3.0
+ */
+public class UploadedFilesSessionCleaner
+    implements HttpSessionListener
+{
+
+    private Logger log = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    public void sessionCreated( HttpSessionEvent httpSessionEvent )
+    {
+        // no op
+    }
+
+    @Override
+    public void sessionDestroyed( HttpSessionEvent httpSessionEvent )
+    {
+        @SuppressWarnings( "unchecked" ) List<FileMetadata> fileMetadatas =
+            (List<FileMetadata>) httpSessionEvent.getSession().getAttribute( FileUploadService.FILES_SESSION_KEY );
+        if ( fileMetadatas == null )
+        {
+            return;
+        }
+        for ( FileMetadata fileMetadata : fileMetadatas )
+        {
+            try
+            {
+                if ( Files.deleteIfExists( Paths.get( fileMetadata.getServerFileName() ) ) )
+                {
+                    log.debug( "cleanup uploaded file {}", fileMetadata.getServerFileName() );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not delete uploaded file {}: {}", fileMetadata.getServerFileName(), e.getMessage() );
+            }
+        }
+        fileMetadatas.clear();
+    }
+}
@@ -18,8 +18,13 @@
  * under the License.
  */
 
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * @author Olivier Lamy
@@ -49,6 +54,8 @@
 
     private boolean pomFile;
 
+    private Map<ChecksumAlgorithm, String> checksums = new EnumMap<>( ChecksumAlgorithm.class );
+
     public FileMetadata()
     {
         // no op
@@ -149,6 +156,20 @@ public void setPomFile( boolean pomFile )
         this.pomFile = pomFile;
     }
 
+    /**
+     * The checksums calculated while the uploaded data was stored on the server.
+     */
+    @XmlTransient
+    public Map<ChecksumAlgorithm, String> getChecksums()
+    {
+        return checksums;
+    }
+
+    public void setChecksums( Map<ChecksumAlgorithm, String> checksums )
+    {
+        this.checksums = checksums;
+    }
+
     public String getServerFileName()
     {
         return serverFileName;
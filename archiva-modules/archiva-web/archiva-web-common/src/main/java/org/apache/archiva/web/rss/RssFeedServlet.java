@@ -174,6 +174,20 @@ else if ( ( groupId != null ) && ( artifactId != null ) )
                 return;
             }
 
+            // the entity tag is derived from the stamp of the feed data, so an unchanged feed is neither built nor
+            // rendered again
+            String stamp = processor.getFeedStamp( map );
+            if ( stamp != null )
+            {
+                String etag = "\"" + stamp + "\"";
+                res.setHeader( "ETag", etag );
+                if ( matchesEtag( req.getHeader( "If-None-Match" ), etag ) )
+                {
+                    res.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+                    return;
+                }
+            }
+
             feed = processor.process( map );
 
             if ( feed == null )
@@ -326,6 +340,23 @@ else if ( artifactId != null && groupId != null )
         throw new UnauthorizedException( "Access denied." );
     }
 
+    private static boolean matchesEtag( String ifNoneMatch, String etag )
+    {
+        if ( StringUtils.isEmpty( ifNoneMatch ) )
+        {
+            return false;
+        }
+        for ( String candidate : StringUtils.split( ifNoneMatch, ',' ) )
+        {
+            String value = StringUtils.removeStart( candidate.trim(), "W/" );
+            if ( "*".equals( value ) || etag.equals( value ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private List<String> getObservableRepos( String principal )
     {
         try
@@ -31,6 +31,7 @@
 import org.apache.archiva.redback.rbac.Resource;
 import org.apache.archiva.redback.rbac.Role;
 import org.apache.archiva.redback.rbac.UserAssignment;
+import org.apache.archiva.security.AuthorizationDecisionCache;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
@@ -91,6 +92,9 @@
     @Named( value = "cache#effectiveRoleSet" )
     private Cache<String, Set<Role>> effectiveRoleSetCache;
 
+    @Inject
+    private AuthorizationDecisionCache decisionCache;
+
     @Override
     public void initialize()
     {
@@ -181,6 +185,8 @@ public Role saveRole( Role role )
                 lastException = e;
             }
         }
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -209,6 +215,8 @@ public void saveRoles( Collection<Role> roles )
                 lastException = e;
             }
         }
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -303,6 +311,8 @@ public void removeRole( Role role )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -345,6 +355,8 @@ public Permission savePermission( Permission permission )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -440,6 +452,8 @@ public void removePermission( Permission permission )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -475,6 +489,8 @@ public Operation saveOperation( Operation operation )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -569,6 +585,8 @@ public void removeOperation( Operation operation )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -604,6 +622,8 @@ public Resource saveResource( Resource resource )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -698,6 +718,8 @@ public void removeResource( Resource resource )
             }
         }
 
+        decisionCache.invalidateAll();
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -733,6 +755,8 @@ public UserAssignment saveUserAssignment( UserAssignment userAssignment )
             }
         }
 
+        decisionCache.invalidatePrincipal( userAssignment.getPrincipal() );
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
@@ -924,6 +948,8 @@ public void removeUserAssignment( UserAssignment userAssignment )
             }
         }
 
+        decisionCache.invalidatePrincipal( userAssignment.getPrincipal() );
+
         if ( lastException != null && allFailed )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
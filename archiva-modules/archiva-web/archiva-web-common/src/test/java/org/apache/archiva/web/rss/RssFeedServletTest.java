@@ -433,6 +433,15 @@ public void testRequestNewArtifactsInRepo()
         assertEquals( "Should have been an OK response code.", HttpServletResponse.SC_OK,
                       mockHttpServletResponse.getStatus() );
 
+        String etag = mockHttpServletResponse.getHeader( "ETag" );
+        assertNotNull( etag );
+
+        // the unchanged feed is not sent again
+        request.addHeader( "If-None-Match", etag );
+        mockHttpServletResponse = new MockHttpServletResponse();
+        rssFeedServlet.doGet( request, mockHttpServletResponse );
+        assertEquals( HttpServletResponse.SC_NOT_MODIFIED, mockHttpServletResponse.getStatus() );
+        assertEquals( "", mockHttpServletResponse.getContentAsString() );
     }
 
     @Test
@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.AbstractMetadataRepository;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -29,6 +30,7 @@
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class TestMetadataRepository
     extends AbstractMetadataRepository
@@ -96,6 +98,14 @@ public List<ArtifactMetadata> getArtifactsByDateRange(RepositorySession session,
         return artifacts;
     }
 
+    @Override
+    public Stream<ArtifactMetadata> getArtifactByDateRangeStream( RepositorySession session, String repositoryId,
+                                                                  ZonedDateTime startTime, ZonedDateTime endTime,
+                                                                  QueryParameter queryParameter )
+    {
+        return artifacts.stream().skip( queryParameter.getOffset() ).limit( queryParameter.getLimit() );
+    }
+
 
     @Override
     public List<ArtifactMetadata> getArtifacts( RepositorySession session, String repoId, String namespace, String projectId,
@@ -104,6 +114,14 @@ public List<ArtifactMetadata> getArtifacts( RepositorySession session, String re
         return artifacts;
     }
 
+    @Override
+    public Stream<ArtifactMetadata> getArtifactStream( RepositorySession session, String repoId, String namespace,
+                                                       String projectId, String projectVersion,
+                                                       QueryParameter queryParameter )
+    {
+        return artifacts.stream().skip( queryParameter.getOffset() ).limit( queryParameter.getLimit() );
+    }
+
     @Override
     public List<ArtifactMetadata> getArtifacts( RepositorySession session, String repositoryId )
     {
@@ -19,11 +19,14 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.ProjectVersionMetadata;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
 
+import java.util.Collection;
+
 /**
  * Listen to events on the repository. This class is a stopgap
  * refactoring measure until an event bus is in place to handle
@@ -39,6 +42,22 @@
     void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace, String project,
                          String version, String id );
 
+    /**
+     * Called once for all artifacts of a project version, that were deleted together. The artifact
+     * metadata is passed, so listeners do not need to read it from the metadata repository.
+     * The default implementation calls {@link #deleteArtifact} for each artifact.
+     *
+     * @since 3.0
+     */
+    default void deleteArtifacts( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                  String project, String projectVersion, Collection<ArtifactMetadata> artifacts )
+    {
+        for ( ArtifactMetadata artifact : artifacts )
+        {
+            deleteArtifact( metadataRepository, repositoryId, namespace, project, artifact.getVersion( ), artifact.getId( ) );
+        }
+    }
+
     void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
                       ProjectVersionMetadata metadata );
 
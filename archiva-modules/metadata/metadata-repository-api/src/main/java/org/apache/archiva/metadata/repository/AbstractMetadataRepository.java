@@ -30,6 +30,7 @@
 
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public abstract class AbstractMetadataRepository
@@ -84,6 +85,34 @@ public List<String> getMetadataFacets( RepositorySession session, String reposit
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<String> getMetadataFacets( RepositorySession session, String repositoryId, String facetId,
+                                           QueryParameter queryParameter )
+        throws MetadataRepositoryException
+    {
+        return getMetadataFacets( session, repositoryId, facetId, null, null, queryParameter );
+    }
+
+    /**
+     * Default implementation, that reads the complete list of facet names once, and returns the sorted names
+     * of the requested range.
+     */
+    @Override
+    public List<String> getMetadataFacets( RepositorySession session, String repositoryId, String facetId,
+                                           String fromName, String toName, QueryParameter queryParameter )
+        throws MetadataRepositoryException
+    {
+        List<String> names = getMetadataFacets( session, repositoryId, facetId );
+        if ( names == null || names.isEmpty( ) )
+        {
+            return Collections.emptyList( );
+        }
+        Comparator<String> order = queryParameter.isAscending( ) ? Comparator.naturalOrder( ) : Comparator.reverseOrder( );
+        return names.stream( ).filter( name -> fromName == null || name.compareTo( fromName ) >= 0 )
+            .filter( name -> toName == null || name.compareTo( toName ) <= 0 ).sorted( order )
+            .skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) ).collect( Collectors.toList( ) );
+    }
+
     @Override
     public boolean hasMetadataFacet( RepositorySession session, String repositoryId, String facetId )
         throws MetadataRepositoryException
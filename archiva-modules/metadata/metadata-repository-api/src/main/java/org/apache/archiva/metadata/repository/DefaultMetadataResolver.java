@@ -20,17 +20,21 @@
  */
 
 import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.model.MetadataFacet;
+import org.apache.archiva.metadata.model.MetadataFacetFactory;
 import org.apache.archiva.metadata.model.ProjectMetadata;
 import org.apache.archiva.metadata.model.ProjectVersionMetadata;
 import org.apache.archiva.metadata.model.ProjectVersionReference;
 import org.apache.archiva.filter.ExcludesFilter;
 import org.apache.archiva.metadata.repository.storage.ReadMetadataRequest;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorage;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataInvalidException;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataNotFoundException;
 import org.apache.archiva.metadata.repository.storage.RepositoryStorageRuntimeException;
 import org.apache.archiva.components.cache.Cache;
 import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.commons.lang3.SerializationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +44,9 @@
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * <p>
@@ -95,6 +101,19 @@
     @Named( value = "cache#namespaces" )
     private Cache<String, Collection<String>> namespacesCache;
 
+    /**
+     * Cache for the results of the storage fallback in {@link #resolveProjectVersion}. Successful results and
+     * failures are kept, as long as the storage stamps of the project version and of its parent are unchanged.
+     * The cached metadata is never handed out, callers get a copy. A cached failure is reported to the listeners
+     * again on each hit.
+     */
+    @Inject
+    @Named( value = "cache#projectVersionResolutions" )
+    private Cache<String, StorageResolution> resolutionCache;
+
+    @Inject
+    private MetadataService metadataService;
+
     @Override
     public ProjectVersionMetadata resolveProjectVersion( RepositorySession session, String repoId, String namespace,
                                                          String projectId, String projectVersion )
@@ -111,12 +130,38 @@ public ProjectVersionMetadata resolveProjectVersion( RepositorySession session,
         //       may then work here and be more efficient than always trying again)
         if ( metadata == null || metadata.isIncomplete() )
         {
+            ReadMetadataRequest readMetadataRequest =
+                new ReadMetadataRequest().repositoryId( repoId ).namespace( namespace ).projectId(
+                    projectId ).projectVersion( projectVersion ).browsingRequest( true );
+            String cacheKey = repoId + ":" + namespace + ":" + projectId + ":" + projectVersion;
+            String stamp = resolutionCache == null ? null
+                : repositoryStorage.getProjectVersionMetadataStamp( readMetadataRequest );
+            StorageResolution resolution = stamp == null ? null : resolutionCache.get( cacheKey );
+            if ( resolution != null && stamp.equals( resolution.stamp ) && ( resolution.metadata == null
+                || Objects.equals( resolution.parentStamp,
+                                   repositoryStorage.getParentMetadataStamp( readMetadataRequest, resolution.metadata ) ) ) )
+            {
+                // the POM and its parent are unchanged since the last try, reading it again would give the same result
+                log.debug( "Using cached storage resolution for {}", cacheKey );
+                if ( resolution.failure != null )
+                {
+                    // the listeners are notified of the problem on each resolution, as without the cache
+                    for ( RepositoryListener listener : listeners )
+                    {
+                        listener.addArtifactProblem( session, repoId, namespace, projectId, projectVersion,
+                                                     resolution.failure );
+                    }
+                }
+                if ( resolution.failure instanceof RepositoryStorageMetadataInvalidException )
+                {
+                    throw new MetadataResolutionException( resolution.failure.getMessage(), resolution.failure );
+                }
+                return resolution.metadata != null ? copy( resolution.metadata ) : metadata;
+            }
             try
             {
-                ReadMetadataRequest readMetadataRequest =
-                    new ReadMetadataRequest().repositoryId( repoId ).namespace( namespace ).projectId(
-                        projectId ).projectVersion( projectVersion ).browsingRequest( true );
                 metadata = repositoryStorage.readProjectVersionMetadata( readMetadataRequest );
+                putResolution( cacheKey, stamp, readMetadataRequest, metadata );
 
                 log.debug( "Resolved project version metadata from storage: {}", metadata );
 
@@ -147,6 +192,7 @@ public ProjectVersionMetadata resolveProjectVersion( RepositorySession session,
             }
             catch ( RepositoryStorageMetadataInvalidException e )
             {
+                putFailure( cacheKey, stamp, e );
                 for ( RepositoryListener listener : listeners )
                 {
                     listener.addArtifactProblem( session, repoId, namespace, projectId, projectVersion, e );
@@ -155,6 +201,7 @@ public ProjectVersionMetadata resolveProjectVersion( RepositorySession session,
             }
             catch ( RepositoryStorageMetadataNotFoundException e )
             {
+                putFailure( cacheKey, stamp, e );
                 for ( RepositoryListener listener : listeners )
                 {
                     listener.addArtifactProblem( session, repoId, namespace, projectId, projectVersion, e );
@@ -174,6 +221,63 @@ public ProjectVersionMetadata resolveProjectVersion( RepositorySession session,
         return metadata;
     }
 
+    private void putResolution( String cacheKey, String stamp, ReadMetadataRequest readMetadataRequest,
+                                ProjectVersionMetadata metadata )
+    {
+        if ( stamp != null )
+        {
+            ProjectVersionMetadata cached = copy( metadata );
+            if ( cached != null )
+            {
+                String parentStamp = repositoryStorage.getParentMetadataStamp( readMetadataRequest, metadata );
+                resolutionCache.put( cacheKey, new StorageResolution( stamp, parentStamp, cached, null ) );
+            }
+        }
+    }
+
+    private void putFailure( String cacheKey, String stamp, RepositoryStorageMetadataException failure )
+    {
+        if ( stamp != null )
+        {
+            resolutionCache.put( cacheKey, new StorageResolution( stamp, null, null, failure ) );
+        }
+    }
+
+    /*
+     * Returns a copy of the given metadata, that shares no mutable state with it. Facets are copied by
+     * their factories, if a facet cannot be copied, null is returned and the metadata is not cached.
+     */
+    private ProjectVersionMetadata copy( ProjectVersionMetadata metadata )
+    {
+        ProjectVersionMetadata copy = new ProjectVersionMetadata();
+        copy.setId( metadata.getId() );
+        copy.setName( metadata.getName() );
+        copy.setDescription( metadata.getDescription() );
+        copy.setUrl( metadata.getUrl() );
+        copy.setIncomplete( metadata.isIncomplete() );
+        copy.setOrganization( SerializationUtils.clone( metadata.getOrganization() ) );
+        copy.setIssueManagement( SerializationUtils.clone( metadata.getIssueManagement() ) );
+        copy.setScm( SerializationUtils.clone( metadata.getScm() ) );
+        copy.setCiManagement( SerializationUtils.clone( metadata.getCiManagement() ) );
+        copy.setLicenses( SerializationUtils.clone( new ArrayList<>( metadata.getLicenses() ) ) );
+        copy.setMailingLists( SerializationUtils.clone( new ArrayList<>( metadata.getMailingLists() ) ) );
+        copy.setDependencies( SerializationUtils.clone( new ArrayList<>( metadata.getDependencies() ) ) );
+        copy.setProperties( new HashMap<>( metadata.getProperties() ) );
+        for ( MetadataFacet facet : metadata.getFacetList() )
+        {
+            MetadataFacetFactory<?> factory = metadataService == null ? null : metadataService.getFactory( facet.getFacetId() );
+            if ( factory == null )
+            {
+                log.debug( "Not caching {}, the facet {} cannot be copied", metadata.getId(), facet.getFacetId() );
+                return null;
+            }
+            MetadataFacet facetCopy = factory.createMetadataFacet();
+            facetCopy.fromProperties( facet.toProperties() );
+            copy.addFacet( facetCopy );
+        }
+        return copy;
+    }
+
     @Override
     public Collection<ProjectVersionReference> resolveProjectReferences( RepositorySession session, String repoId,
                                                                          String namespace, String projectId,
@@ -472,4 +576,27 @@ private Collection<String> createArtifactIdList( Collection<ArtifactMetadata> ar
         }
         return artifactIds;
     }
+
+    /**
+     * Result of reading the project version metadata from the repository storage.
+     */
+    private static final class StorageResolution
+    {
+        private final String stamp;
+
+        private final String parentStamp;
+
+        private final ProjectVersionMetadata metadata;
+
+        private final RepositoryStorageMetadataException failure;
+
+        StorageResolution( String stamp, String parentStamp, ProjectVersionMetadata metadata,
+                           RepositoryStorageMetadataException failure )
+        {
+            this.stamp = stamp;
+            this.parentStamp = parentStamp;
+            this.metadata = metadata;
+            this.failure = failure;
+        }
+    }
 }
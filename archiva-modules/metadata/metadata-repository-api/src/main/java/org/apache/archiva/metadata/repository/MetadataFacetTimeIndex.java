@@ -0,0 +1,120 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.QueryParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Time ordered access to the repository level facet names of a single facet id. This is usable
+ * for facets, whose names start with a fixed width timestamp (e.g. audit events and scan statistics),
+ * so that the lexical order of the names is the time order.
+ * <p>
+ * The names of a time range are read with a single range query
+ * {@link MetadataRepository#getMetadataFacets(RepositorySession, String, String, String, String, QueryParameter)},
+ * newest first. Names, that do not start with a timestamp, are skipped. Nothing is kept in memory, the metadata
+ * repository is the only source of the names.
+ *
+ * @since 3.0
+ */
+public class MetadataFacetTimeIndex
+{
+    private static final Logger log = LoggerFactory.getLogger( MetadataFacetTimeIndex.class );
+
+    private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone( "UTC" );
+
+    // Sorts after any suffix of a name, that starts with the same timestamp
+    private static final char MAX_SUFFIX = '\uffff';
+
+    private final String facetId;
+
+    private final String timestampFormat;
+
+    /**
+     * @param facetId the facet id of the indexed facets
+     * @param timestampFormat the {@link SimpleDateFormat} pattern, that is used for the start of the facet names
+     */
+    public MetadataFacetTimeIndex( String facetId, String timestampFormat )
+    {
+        this.facetId = facetId;
+        this.timestampFormat = timestampFormat;
+    }
+
+    /**
+     * Returns the names of the facets between the given start and end time. Both limits are inclusive.
+     *
+     * @param session the repository session
+     * @param metadataRepository the metadata repository
+     * @param repositoryId the repository id
+     * @param startTime the start time, or <code>null</code> for no lower limit
+     * @param endTime the end time, or <code>null</code> for no upper limit
+     * @return the names, the most recent first
+     * @throws MetadataRepositoryException if the names could not be read
+     */
+    public List<String> getNamesInRange( RepositorySession session, MetadataRepository metadataRepository,
+                                         String repositoryId, Date startTime, Date endTime )
+        throws MetadataRepositoryException
+    {
+        List<String> result = new ArrayList<>( );
+        if ( startTime != null && endTime != null && startTime.after( endTime ) )
+        {
+            return result;
+        }
+        SimpleDateFormat fmt = createFormat( );
+        String lower = startTime == null ? null : fmt.format( startTime );
+        String upper = endTime == null ? null : fmt.format( endTime ) + MAX_SUFFIX;
+        for ( String name : metadataRepository.getMetadataFacets( session, repositoryId, facetId, lower, upper,
+            new QueryParameter( false, 0, Long.MAX_VALUE ) ) )
+        {
+            try
+            {
+                fmt.parse( name );
+                result.add( name );
+            }
+            catch ( ParseException e )
+            {
+                log.error( "Invalid facet name {} found for facet {} in the metadata repository: {}", name, facetId,
+                    e.getMessage( ) );
+                // continue and ignore this one
+            }
+        }
+        return result;
+    }
+
+    public String getFacetId( )
+    {
+        return facetId;
+    }
+
+    private SimpleDateFormat createFormat( )
+    {
+        SimpleDateFormat fmt = new SimpleDateFormat( timestampFormat );
+        fmt.setTimeZone( UTC_TIME_ZONE );
+        return fmt;
+    }
+}
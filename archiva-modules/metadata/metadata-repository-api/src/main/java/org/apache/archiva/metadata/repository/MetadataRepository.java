@@ -161,6 +161,44 @@ void updateNamespace( RepositorySession session, String repositoryId, String nam
     List<String> getMetadataFacets( RepositorySession session, String repositoryId, String facetId )
         throws MetadataRepositoryException;
 
+    /**
+     * Return the facet names stored for the given facet id on the repository level, ordered by name.
+     * The order (ascending or descending), the offset and the limit are taken from the query parameter, the
+     * sort fields are ignored. Implementations may use an index, so facets added in the current session may not
+     * be part of the result before the session is saved.
+     *
+     * @param session        The repository session
+     * @param repositoryId   The repository id
+     * @param facetId        The facet id
+     * @param queryParameter The order and range of the returned names
+     * @return The list of facet names, or an empty list, if there are no facets stored on this repository for the given facet id.
+     * @throws MetadataRepositoryException if something goes wrong
+     * @since 3.0
+     */
+    List<String> getMetadataFacets( RepositorySession session, String repositoryId, String facetId,
+                                    QueryParameter queryParameter )
+        throws MetadataRepositoryException;
+
+    /**
+     * Return the facet names stored for the given facet id on the repository level, that are between the given
+     * names, ordered by name. Both limits are inclusive and compared lexically. The order, the offset and the limit
+     * are taken from the query parameter, the sort fields are ignored. Implementations should restrict the range
+     * in the store, so only the names of the range are read.
+     *
+     * @param session        The repository session
+     * @param repositoryId   The repository id
+     * @param facetId        The facet id
+     * @param fromName       The lowest name of the range, or <code>null</code> for no lower limit
+     * @param toName         The highest name of the range, or <code>null</code> for no upper limit
+     * @param queryParameter The order and range of the returned names
+     * @return The list of facet names, or an empty list, if there are no facets in the given range.
+     * @throws MetadataRepositoryException if something goes wrong
+     * @since 3.0
+     */
+    List<String> getMetadataFacets( RepositorySession session, String repositoryId, String facetId,
+                                    String fromName, String toName, QueryParameter queryParameter )
+        throws MetadataRepositoryException;
+
 
     /**
      * The same as {@link #getMetadataFacetStream(RepositorySession, String, Class, QueryParameter)}
@@ -87,5 +87,35 @@ void applyServerSideRelocation( ManagedRepository managedRepository, ArtifactRef
     String getFilePathWithVersion( final String requestPath, ManagedRepositoryContent managedRepositoryContent )
             throws RelocationException, XMLException, IOException;
 
+    /**
+     * Returns a value, that changes whenever the source of the project version metadata changes (e.g. the
+     * modification time and size of the POM file). The value is used to detect, if a previous result of
+     * {@link #readProjectVersionMetadata(ReadMetadataRequest)} is still valid.
+     *
+     * @param readMetadataRequest the request
+     * @return the stamp, or <code>null</code>, if the storage is not able to detect changes
+     * @since 3.0
+     */
+    default String getProjectVersionMetadataStamp( ReadMetadataRequest readMetadataRequest )
+    {
+        return null;
+    }
+
+    /**
+     * Returns a value, that changes whenever the parent of the given project version metadata changes
+     * (e.g. the parent POM file). Values inherited from the parent are part of the metadata, so a previous
+     * result of {@link #readProjectVersionMetadata(ReadMetadataRequest)} is only valid, as long as this value
+     * is unchanged too.
+     *
+     * @param readMetadataRequest the request
+     * @param metadata the metadata, that was read for the request
+     * @return the stamp, or <code>null</code>, if the metadata has no parent or changes are not detected
+     * @since 3.0
+     */
+    default String getParentMetadataStamp( ReadMetadataRequest readMetadataRequest, ProjectVersionMetadata metadata )
+    {
+        return null;
+    }
+
 
 }
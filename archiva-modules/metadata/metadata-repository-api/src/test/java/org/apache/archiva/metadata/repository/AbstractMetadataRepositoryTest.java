@@ -959,6 +959,65 @@ public void testGetMetadataFacetsStreamWithOffset( )
         }
     }
 
+    @Test
+    public void testGetMetadataFacetsWithQueryParameter( )
+        throws Exception
+    {
+        try ( RepositorySession session = getSessionFactory( ).createSession( ) )
+        {
+            for ( int i = 0; i < 20; i++ )
+            {
+                getRepository( ).addMetadataFacet( session, TEST_REPO_ID, new TestMetadataFacet( TEST_FACET_ID, TEST_VALUE, TEST_NAME + "/" + String.format( "%03d", i ) ) );
+            }
+        }
+
+        try ( RepositorySession session = getSessionFactory( ).createSession( ) )
+        {
+            session.refreshAndDiscard( );
+            tryAssert( ( ) -> {
+                List<String> names = getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID, new QueryParameter( 5, 3 ) );
+                assertEquals( Arrays.asList( TEST_NAME + "/005", TEST_NAME + "/006", TEST_NAME + "/007" ), names );
+
+                // the newest first
+                names = getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID, new QueryParameter( false, 0, 2 ) );
+                assertEquals( Arrays.asList( TEST_NAME + "/019", TEST_NAME + "/018" ), names );
+
+                assertTrue( getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID, new QueryParameter( 20, 10 ) ).isEmpty( ) );
+            }, 5, 500 );
+        }
+    }
+
+    @Test
+    public void testGetMetadataFacetsInRange( )
+        throws Exception
+    {
+        try ( RepositorySession session = getSessionFactory( ).createSession( ) )
+        {
+            for ( int i = 0; i < 20; i++ )
+            {
+                getRepository( ).addMetadataFacet( session, TEST_REPO_ID, new TestMetadataFacet( TEST_FACET_ID, TEST_VALUE, TEST_NAME + "/" + String.format( "%03d", i ) ) );
+            }
+        }
+
+        try ( RepositorySession session = getSessionFactory( ).createSession( ) )
+        {
+            session.refreshAndDiscard( );
+            tryAssert( ( ) -> {
+                List<String> names = getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID,
+                    TEST_NAME + "/005", TEST_NAME + "/008", new QueryParameter( false, 0, 10 ) );
+                assertEquals( Arrays.asList( TEST_NAME + "/008", TEST_NAME + "/007", TEST_NAME + "/006", TEST_NAME + "/005" ), names );
+
+                names = getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID,
+                    null, TEST_NAME + "/001", new QueryParameter( ) );
+                assertEquals( Arrays.asList( TEST_NAME + "/000", TEST_NAME + "/001" ), names );
+
+                names = getRepository( ).getMetadataFacets( session, TEST_REPO_ID, TEST_FACET_ID,
+                    TEST_NAME + "/017", null, new QueryParameter( 1, 10 ) );
+                assertEquals( Arrays.asList( TEST_NAME + "/018", TEST_NAME + "/019" ), names );
+            }, 5, 500 );
+        }
+    }
+
     @Test
     public void testGetArtifactsByDateRangeStreamLowerAndUpperBound( )
             throws Exception
@@ -0,0 +1,231 @@
+package org.apache.archiva.metadata.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.components.cache.Cache;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.generic.GenericMetadataFacet;
+import org.apache.archiva.metadata.generic.GenericMetadataFacetFactory;
+import org.apache.archiva.metadata.model.Dependency;
+import org.apache.archiva.metadata.model.MetadataFacetFactory;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorage;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataNotFoundException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the cache of the storage results in {@link DefaultMetadataResolver#resolveProjectVersion}.
+ */
+public class DefaultMetadataResolverTest
+{
+    private static final String TEST_REPO_ID = "test";
+
+    private static final String TEST_NAMESPACE = "org.apache.archiva";
+
+    private static final String TEST_PROJECT = "archiva-test";
+
+    private static final String TEST_VERSION = "1.0";
+
+    private DefaultMetadataResolver resolver;
+
+    private RepositorySession session;
+
+    private final AtomicInteger storageReads = new AtomicInteger( );
+
+    private String stamp = "1";
+
+    private String parentStamp = "parent-1";
+
+    private boolean missing = false;
+
+    private final List<RepositoryStorageMetadataException> problems = new ArrayList<>( );
+
+    @Before
+    public void setUp( )
+    {
+        resolver = new DefaultMetadataResolver( );
+        MetadataService metadataService = new MetadataService( );
+        metadataService.setMetadataFacetFactories(
+            Collections.<MetadataFacetFactory>singletonList( new GenericMetadataFacetFactory( ) ) );
+        ReflectionTestUtils.setField( resolver, "metadataService", metadataService );
+        ReflectionTestUtils.setField( resolver, "resolutionCache", createCache( ) );
+        ReflectionTestUtils.setField( resolver, "repositoryStorage", createStorage( ) );
+        ReflectionTestUtils.setField( resolver, "listeners", Collections.singletonList( createListener( ) ) );
+
+        // the metadata repository has no metadata, so the storage is used
+        MetadataRepository metadataRepository = (MetadataRepository) Proxy.newProxyInstance(
+            getClass( ).getClassLoader( ), new Class[]{ MetadataRepository.class }, ( proxy, method, args ) -> null );
+        session = new RepositorySession( metadataRepository, resolver );
+    }
+
+    @Test
+    public void cacheHitReturnsCopy( ) throws Exception
+    {
+        ProjectVersionMetadata first = resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 1 );
+
+        // changes by the caller must not change the cached result
+        first.setName( "changed" );
+        first.getDependencies( ).get( 0 ).setArtifactId( "changed" );
+        first.addDependency( new Dependency( ) );
+        ( (GenericMetadataFacet) first.getFacet( GenericMetadataFacet.FACET_ID ) ).getAdditionalProperties( )
+            .put( "key", "changed" );
+
+        ProjectVersionMetadata second = resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 1 );
+        assertThat( second ).isNotSameAs( first );
+        assertThat( second.getName( ) ).isEqualTo( "Archiva Test" );
+        assertThat( second.getDependencies( ) ).hasSize( 1 );
+        assertThat( second.getDependencies( ).get( 0 ).getArtifactId( ) ).isEqualTo( "dependency" );
+        GenericMetadataFacet facet = (GenericMetadataFacet) second.getFacet( GenericMetadataFacet.FACET_ID );
+        assertThat( facet.getAdditionalProperties( ) ).containsEntry( "key", "value" );
+
+        assertThat( resolve( ) ).isNotSameAs( second );
+        assertThat( storageReads.get( ) ).isEqualTo( 1 );
+    }
+
+    @Test
+    public void changedStampInvalidatesEntry( ) throws Exception
+    {
+        resolve( );
+        stamp = "2";
+        resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 2 );
+        resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 2 );
+    }
+
+    @Test
+    public void changedParentInvalidatesEntry( ) throws Exception
+    {
+        resolve( );
+        parentStamp = "parent-2";
+        resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 2 );
+        resolve( );
+        assertThat( storageReads.get( ) ).isEqualTo( 2 );
+    }
+
+    @Test
+    public void cachedFailureIsReportedToListeners( ) throws Exception
+    {
+        missing = true;
+        assertThat( resolve( ) ).isNull( );
+        assertThat( resolve( ) ).isNull( );
+        assertThat( storageReads.get( ) ).isEqualTo( 1 );
+        assertThat( problems ).hasSize( 2 );
+        assertThat( problems.get( 1 ) ).isSameAs( problems.get( 0 ) );
+    }
+
+    private ProjectVersionMetadata resolve( ) throws MetadataResolutionException
+    {
+        return resolver.resolveProjectVersion( session, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_VERSION );
+    }
+
+    private RepositoryStorage createStorage( )
+    {
+        return (RepositoryStorage) Proxy.newProxyInstance( getClass( ).getClassLoader( ),
+                                                           new Class[]{ RepositoryStorage.class },
+                                                           ( proxy, method, args ) -> {
+            switch ( method.getName( ) )
+            {
+                case "getProjectVersionMetadataStamp":
+                    return stamp;
+                case "getParentMetadataStamp":
+                    return parentStamp;
+                case "readProjectVersionMetadata":
+                    storageReads.incrementAndGet( );
+                    if ( missing )
+                    {
+                        throw new RepositoryStorageMetadataNotFoundException( "missing" );
+                    }
+                    return createMetadata( );
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    private RepositoryListener createListener( )
+    {
+        return (RepositoryListener) Proxy.newProxyInstance( getClass( ).getClassLoader( ),
+                                                            new Class[]{ RepositoryListener.class },
+                                                            ( proxy, method, args ) -> {
+            if ( "addArtifactProblem".equals( method.getName( ) ) )
+            {
+                problems.add( (RepositoryStorageMetadataException) args[5] );
+            }
+            return null;
+        } );
+    }
+
+    private static ProjectVersionMetadata createMetadata( )
+    {
+        ProjectVersionMetadata metadata = new ProjectVersionMetadata( );
+        metadata.setId( TEST_VERSION );
+        metadata.setName( "Archiva Test" );
+        Dependency dependency = new Dependency( );
+        dependency.setNamespace( TEST_NAMESPACE );
+        dependency.setArtifactId( "dependency" );
+        dependency.setVersion( TEST_VERSION );
+        metadata.addDependency( dependency );
+        GenericMetadataFacet facet = new GenericMetadataFacet( );
+        Map<String, String> properties = new HashMap<>( );
+        properties.put( "key", "value" );
+        facet.setAdditionalProperties( properties );
+        metadata.addFacet( facet );
+        return metadata;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Cache<String, Object> createCache( )
+    {
+        Map<Object, Object> entries = new HashMap<>( );
+        return (Cache<String, Object>) Proxy.newProxyInstance( DefaultMetadataResolverTest.class.getClassLoader( ),
+                                                               new Class[]{ Cache.class }, ( proxy, method, args ) -> {
+            switch ( method.getName( ) )
+            {
+                case "get":
+                    return entries.get( args[0] );
+                case "put":
+                    return entries.put( args[0], args[1] );
+                case "remove":
+                    return entries.remove( args[0] );
+                case "hasKey":
+                    return entries.containsKey( args[0] );
+                default:
+                    return null;
+            }
+        } );
+    }
+}
@@ -0,0 +1,463 @@
+package org.apache.archiva.metadata.repository.stats.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.model.MetadataFacet;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.RepositorySession;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Thread safe statistics counters of a single repository. The counters are updated
+ * for each artifact that is added or removed, so the current statistics are available
+ * without walking the metadata tree.
+ * <p>
+ * The group and project counts follow the metadata walk: a project is counted, if it was found by
+ * the walk or if at least one artifact of the project exists. A namespace is counted, if it contains
+ * at least one counted project.
+ * <p>
+ * The counters keep the size of each counted artifact by its identity, so an artifact that is replaced
+ * is only adjusted and not counted again. The counters are stored as repository facet, so they survive a restart.
+ * Only the artifacts that were counted after the stamp are stored with their identity. Artifacts with a
+ * modification time before the stamp are treated as counted, if their identity is not known.
+ *
+ * @since 3.0
+ */
+public class RepositoryStatisticsCounters implements RepositoryStatisticsProvider, MetadataFacet
+{
+    public static final String FACET_ID = "org.apache.archiva.metadata.repository.stats.counters";
+
+    /**
+     * There is only one counters facet per repository
+     */
+    public static final String NAME = "counters";
+
+    private static final String TYPE_PREFIX = "type.";
+
+    private static final String PROJECT_PREFIX = "project.";
+
+    private static final String ARTIFACT_PREFIX = "artifact.";
+
+    /**
+     * Separates the parts of the project and artifact keys. The keys are used as property names,
+     * so the separator must be valid in all metadata stores.
+     */
+    private static final char KEY_SEPARATOR = '@';
+
+    private static final char VALUE_SEPARATOR = ',';
+
+    private final LongAdder artifactCount = new LongAdder( );
+
+    private final LongAdder artifactFileSize = new LongAdder( );
+
+    private final Map<String, LongAdder> typeCounts = new ConcurrentHashMap<>( );
+
+    private final Map<String, Long> projectArtifacts = new ConcurrentHashMap<>( );
+
+    private final Map<String, Long> namespaceProjects = new ConcurrentHashMap<>( );
+
+    /**
+     * The counted artifacts by their identity
+     */
+    private final Map<String, CountedArtifact> artifacts = new ConcurrentHashMap<>( );
+
+    /**
+     * The property keys of projects and artifacts that were removed after the counters were restored.
+     * They are stored with an empty value, because the metadata stores do not remove facet properties
+     * that are missing on update.
+     */
+    private final Set<String> removedKeys = ConcurrentHashMap.newKeySet( );
+
+    private volatile long stamp = 0L;
+
+    /**
+     * Counts the given artifact, if it was not counted before. If the artifact is known by its identity,
+     * only the size is adjusted. Artifact files with a modification time before the stamp are counted already.
+     * This does not need a lookup in the metadata repository.
+     *
+     * @param artifact the artifact that was added or updated in the repository
+     * @return <code>true</code>, if the artifact was counted, otherwise <code>false</code>
+     */
+    public boolean artifactUpdated( ArtifactMetadata artifact )
+    {
+        final long modified = artifact.getFileLastModified( ) == null ? Long.MAX_VALUE
+            : artifact.getFileLastModified( ).toInstant( ).toEpochMilli( );
+        final long size = artifact.getSize( );
+        final AtomicBoolean added = new AtomicBoolean( false );
+        artifacts.compute( artifactKey( artifact ), ( key, counted ) -> {
+            if ( counted != null )
+            {
+                // The artifact was replaced
+                artifactFileSize.add( size - counted.size );
+                return new CountedArtifact( size, Math.max( modified, counted.modified ) );
+            }
+            if ( modified < stamp )
+            {
+                return null;
+            }
+            added.set( true );
+            return new CountedArtifact( size, modified );
+        } );
+        if ( added.get( ) )
+        {
+            removedKeys.remove( ARTIFACT_PREFIX + artifactKey( artifact ) );
+            add( artifact.getNamespace( ), artifact.getProject( ), size, getType( artifact ) );
+        }
+        return added.get( );
+    }
+
+    /**
+     * Adds the given artifact to the counters. The namespace and project are taken from the artifact.
+     *
+     * @param artifact the artifact that was added to the repository
+     */
+    public void artifactAdded( ArtifactMetadata artifact )
+    {
+        addArtifact( artifact.getNamespace( ), artifact.getProject( ), artifact );
+    }
+
+    /**
+     * Adds the given artifact to the counters and remembers its identity.
+     *
+     * @param namespace the namespace, where the artifact was found
+     * @param project the project, where the artifact was found
+     * @param artifact the artifact
+     */
+    public void addArtifact( String namespace, String project, ArtifactMetadata artifact )
+    {
+        CountedArtifact previous = artifacts.put( artifactKey( artifact ), new CountedArtifact( artifact.getSize( ),
+            artifact.getFileLastModified( ) == null ? 0L : artifact.getFileLastModified( ).toInstant( ).toEpochMilli( ) ) );
+        if ( previous == null )
+        {
+            add( namespace, project, artifact.getSize( ), getType( artifact ) );
+        }
+        else
+        {
+            artifactFileSize.add( artifact.getSize( ) - previous.size );
+        }
+    }
+
+    /**
+     * Removes the given artifact from the counters. The namespace and project are taken from the artifact.
+     *
+     * @param artifact the artifact that was removed from the repository
+     */
+    public void artifactRemoved( ArtifactMetadata artifact )
+    {
+        String key = artifactKey( artifact );
+        CountedArtifact counted = artifacts.remove( key );
+        if ( counted != null )
+        {
+            removedKeys.add( ARTIFACT_PREFIX + key );
+        }
+        remove( artifact.getNamespace( ), artifact.getProject( ), counted == null ? artifact.getSize( ) : counted.size,
+            getType( artifact ) );
+    }
+
+    /**
+     * Adds a project without artifacts. The project and its namespace are counted, until the project
+     * is removed together with its last artifact.
+     *
+     * @param namespace the namespace of the project
+     * @param project the project id
+     */
+    public void addProject( String namespace, String project )
+    {
+        projectArtifacts.computeIfAbsent( projectKey( namespace, project ), key -> {
+            namespaceProjects.merge( namespace, 1L, Long::sum );
+            removedKeys.remove( PROJECT_PREFIX + key );
+            return 0L;
+        } );
+    }
+
+    /**
+     * Adds a single artifact to the counters.
+     *
+     * @param namespace the namespace of the project
+     * @param project the project id
+     * @param size the file size of the artifact
+     * @param type the artifact type, may be <code>null</code>
+     */
+    public void add( String namespace, String project, long size, String type )
+    {
+        projectArtifacts.compute( projectKey( namespace, project ), ( key, count ) -> {
+            if ( count == null )
+            {
+                namespaceProjects.merge( namespace, 1L, Long::sum );
+                removedKeys.remove( PROJECT_PREFIX + key );
+                return 1L;
+            }
+            return count + 1;
+        } );
+        artifactCount.increment( );
+        artifactFileSize.add( size );
+        if ( type != null )
+        {
+            typeCounts.computeIfAbsent( type, t -> new LongAdder( ) ).increment( );
+        }
+    }
+
+    /**
+     * Removes a single artifact from the counters. Artifacts of projects that are not known
+     * to the counters, or that have no counted artifacts, are ignored.
+     *
+     * @param namespace the namespace of the project
+     * @param project the project id
+     * @param size the file size of the artifact
+     * @param type the artifact type, may be <code>null</code>
+     */
+    public void remove( String namespace, String project, long size, String type )
+    {
+        final AtomicBoolean known = new AtomicBoolean( false );
+        projectArtifacts.computeIfPresent( projectKey( namespace, project ), ( key, count ) -> {
+            if ( count < 1L )
+            {
+                return count;
+            }
+            known.set( true );
+            if ( count > 1L )
+            {
+                return count - 1;
+            }
+            namespaceProjects.computeIfPresent( namespace, ( ns, projects ) -> projects > 1L ? projects - 1 : null );
+            removedKeys.add( PROJECT_PREFIX + key );
+            return null;
+        } );
+        if ( known.get( ) )
+        {
+            artifactCount.decrement( );
+            artifactFileSize.add( -size );
+            if ( type != null )
+            {
+                LongAdder typeCount = typeCounts.get( type );
+                if ( typeCount != null )
+                {
+                    typeCount.decrement( );
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the stamp. Artifacts modified before the stamp are treated as counted. The stamp is usually
+     * the start time of the last completed repository scan or metadata walk.
+     *
+     * @param stamp the time in milliseconds since the epoch
+     */
+    public void setStamp( long stamp )
+    {
+        this.stamp = stamp;
+    }
+    public long getStamp( )
+    {
+        return stamp;
+    }
+
+    public long getTotalArtifactCount( )
+    {
+        return artifactCount.sum( );
+    }
+
+    public long getTotalArtifactFileSize( )
+    {
+        return artifactFileSize.sum( );
+    }
+
+    public long getTotalProjectCount( )
+    {
+        return projectArtifacts.size( );
+    }
+
+    public long getTotalGroupCount( )
+    {
+        return namespaceProjects.size( );
+    }
+
+    public long getTotalCountForType( String type )
+    {
+        LongAdder typeCount = typeCounts.get( type );
+        return typeCount == null ? 0 : typeCount.sum( );
+    }
+
+    /**
+     * Copies the current counter values to the given statistics object.
+     *
+     * @param statistics the statistics object that should be filled
+     */
+    public void populateStatistics( RepositoryStatistics statistics )
+    {
+        statistics.setTotalArtifactCount( getTotalArtifactCount( ) );
+        statistics.setTotalArtifactFileSize( getTotalArtifactFileSize( ) );
+        statistics.setTotalProjectCount( getTotalProjectCount( ) );
+        statistics.setTotalGroupCount( getTotalGroupCount( ) );
+        for ( Map.Entry<String, LongAdder> entry : typeCounts.entrySet( ) )
+        {
+            long count = entry.getValue( ).sum( );
+            if ( count > 0 )
+            {
+                statistics.setTotalCountForType( entry.getKey( ), count );
+            }
+        }
+    }
+
+    /**
+     * The counters do not need the metadata repository, the arguments besides the
+     * statistics object are ignored.
+     */
+    @Override
+    public void populateStatistics( RepositorySession repositorySession, MetadataRepository repository,
+                                    String repositoryId, RepositoryStatistics statistics )
+    {
+        populateStatistics( statistics );
+    }
+
+    @Override
+    public String getFacetId( )
+    {
+        return FACET_ID;
+    }
+
+    @Override
+    public String getName( )
+    {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, String> toProperties( )
+    {
+        Map<String, String> properties = new HashMap<>( );
+        properties.put( "artifactCount", String.valueOf( getTotalArtifactCount( ) ) );
+        properties.put( "artifactFileSize", String.valueOf( getTotalArtifactFileSize( ) ) );
+        properties.put( "stamp", String.valueOf( stamp ) );
+        for ( Map.Entry<String, LongAdder> entry : typeCounts.entrySet( ) )
+        {
+            properties.put( TYPE_PREFIX + entry.getKey( ), String.valueOf( entry.getValue( ).sum( ) ) );
+        }
+        for ( String key : removedKeys )
+        {
+            properties.put( key, "" );
+        }
+        for ( Map.Entry<String, Long> entry : projectArtifacts.entrySet( ) )
+        {
+            properties.put( PROJECT_PREFIX + entry.getKey( ), String.valueOf( entry.getValue( ) ) );
+        }
+        // Artifacts modified before the stamp are treated as counted, they are not stored
+        for ( Map.Entry<String, CountedArtifact> entry : artifacts.entrySet( ) )
+        {
+            if ( entry.getValue( ).modified >= stamp )
+            {
+                properties.put( ARTIFACT_PREFIX + entry.getKey( ),
+                    String.valueOf( entry.getValue( ).modified ) + VALUE_SEPARATOR + entry.getValue( ).size );
+            }
+        }
+        return properties;
+    }
+
+    @Override
+    public void fromProperties( Map<String, String> properties )
+    {
+        artifactCount.reset( );
+        artifactCount.add( Long.parseLong( properties.getOrDefault( "artifactCount", "0" ) ) );
+        artifactFileSize.reset( );
+        artifactFileSize.add( Long.parseLong( properties.getOrDefault( "artifactFileSize", "0" ) ) );
+        stamp = Long.parseLong( properties.getOrDefault( "stamp", "0" ) );
+        typeCounts.clear( );
+        projectArtifacts.clear( );
+        namespaceProjects.clear( );
+        artifacts.clear( );
+        removedKeys.clear( );
+        for ( Map.Entry<String, String> entry : properties.entrySet( ) )
+        {
+            String key = entry.getKey( );
+            String value = entry.getValue( );
+            if ( value == null || value.isEmpty( ) )
+            {
+                // removed project or artifact
+                if ( key.startsWith( PROJECT_PREFIX ) || key.startsWith( ARTIFACT_PREFIX ) )
+                {
+                    removedKeys.add( key );
+                }
+            }
+            else if ( key.startsWith( TYPE_PREFIX ) )
+            {
+                LongAdder typeCount = new LongAdder( );
+                typeCount.add( Long.parseLong( value ) );
+                typeCounts.put( key.substring( TYPE_PREFIX.length( ) ), typeCount );
+            }
+            else if ( key.startsWith( PROJECT_PREFIX ) )
+            {
+                String projectKey = key.substring( PROJECT_PREFIX.length( ) );
+                projectArtifacts.put( projectKey, Long.valueOf( value ) );
+                namespaceProjects.merge( projectKey.substring( 0, projectKey.lastIndexOf( KEY_SEPARATOR ) ), 1L,
+                    Long::sum );
+            }
+            else if ( key.startsWith( ARTIFACT_PREFIX ) )
+            {
+                int idx = value.indexOf( VALUE_SEPARATOR );
+                long modified = Long.parseLong( value.substring( 0, idx ) );
+                if ( modified >= stamp )
+                {
+                    artifacts.put( key.substring( ARTIFACT_PREFIX.length( ) ),
+                        new CountedArtifact( Long.parseLong( value.substring( idx + 1 ) ), modified ) );
+                }
+            }
+        }
+    }
+
+    private static String getType( ArtifactMetadata artifact )
+    {
+        MavenArtifactFacet facet = (MavenArtifactFacet) artifact.getFacet( MavenArtifactFacet.FACET_ID );
+        return facet == null ? null : facet.getType( );
+    }
+
+    private static String projectKey( String namespace, String project )
+    {
+        return namespace + KEY_SEPARATOR + project;
+    }
+
+    private static String artifactKey( ArtifactMetadata artifact )
+    {
+        return projectKey( artifact.getNamespace( ), artifact.getProject( ) ) + KEY_SEPARATOR + artifact.getProjectVersion( )
+            + KEY_SEPARATOR + artifact.getId( );
+    }
+
+    private static final class CountedArtifact
+    {
+        private final long size;
+
+        private final long modified;
+
+        private CountedArtifact( long size, long modified )
+        {
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
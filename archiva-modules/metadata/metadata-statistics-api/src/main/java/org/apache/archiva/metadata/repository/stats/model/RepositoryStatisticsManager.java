@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 
 import java.util.Date;
@@ -48,4 +49,43 @@ void deleteStatistics( String repositoryId )
     List<RepositoryStatistics> getStatisticsInRange( String repositoryId,
                                                      Date startTime, Date endTime )
         throws MetadataRepositoryException;
+
+    /**
+     * Returns the current statistics of the repository. The values are maintained incrementally
+     * by the artifact events since the last scan and are stored with the repository metadata. The metadata
+     * repository is only walked, if no stored counters exist.
+     *
+     * @param repositoryId the repository id
+     * @return the statistics with the current artifact, project and group counts
+     * @throws MetadataRepositoryException if the initial counters could not be created
+     */
+    RepositoryStatistics getCurrentStatistics( String repositoryId )
+        throws MetadataRepositoryException;
+
+    /**
+     * Updates the statistics counters for a new or changed artifact. Artifacts that are counted already
+     * are detected by their identity or the file modification time, so the caller does not need to look up
+     * the previous data. A replaced artifact is not counted again.
+     *
+     * @param artifact the current artifact data
+     */
+    void artifactUpdated( ArtifactMetadata artifact );
+
+    /**
+     * Updates the statistics counters for a removed artifact.
+     *
+     * @param artifact the artifact data, before the removal
+     */
+    void artifactRemoved( ArtifactMetadata artifact );
+
+    /**
+     * Recreates the statistics counters by walking the complete metadata repository. This should only
+     * be necessary, if the counters are not consistent with the repository content.
+     *
+     * @param repositoryId the repository id
+     * @return the statistics after the rebuild
+     * @throws MetadataRepositoryException if the metadata repository could not be accessed
+     */
+    RepositoryStatistics rebuildStatistics( String repositoryId )
+        throws MetadataRepositoryException;
 }
@@ -20,7 +20,6 @@
  */
 
 import org.apache.archiva.metadata.model.ArtifactMetadata;
-import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.MetadataResolutionException;
@@ -56,52 +55,58 @@ public void populateStatistics( RepositorySession repositorySession, MetadataRep
                                     RepositoryStatistics repositoryStatistics )
         throws MetadataRepositoryException
     {
+        collectCounters( repositorySession, metadataRepository, repositoryId ).populateStatistics( repositoryStatistics );
+    }
+
+    /**
+     * Walks each namespace of the given repository id and returns counters that contain
+     * all artifacts found. The counters can be updated incrementally afterwards.
+     *
+     * @param repositorySession
+     * @param metadataRepository The repository implementation
+     * @param repositoryId The repository Id
+     * @return the counters for the repository
+     * @throws MetadataRepositoryException Throws the repository exception, if an error occurs while accessing the repository.
+     */
+    public RepositoryStatisticsCounters collectCounters( RepositorySession repositorySession, MetadataRepository metadataRepository,
+                                                         String repositoryId )
+        throws MetadataRepositoryException
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
         try
         {
             for ( String ns : metadataRepository.getRootNamespaces( repositorySession, repositoryId ) )
             {
-                walkRepository( repositorySession, metadataRepository, repositoryStatistics, repositoryId, ns );
+                walkRepository( repositorySession, metadataRepository, counters, repositoryId, ns );
             }
         }
         catch ( MetadataResolutionException e )
         {
             throw new MetadataRepositoryException( e.getMessage(), e );
         }
+        return counters;
     }
 
-    private void walkRepository( RepositorySession repositorySession, MetadataRepository metadataRepository, RepositoryStatistics stats, String repositoryId,
+    private void walkRepository( RepositorySession repositorySession, MetadataRepository metadataRepository, RepositoryStatisticsCounters counters, String repositoryId,
                                  String ns )
         throws MetadataResolutionException
     {
         for ( String namespace : metadataRepository.getChildNamespaces( repositorySession , repositoryId, ns ) )
         {
-            walkRepository( repositorySession, metadataRepository, stats, repositoryId, ns + "." + namespace );
+            walkRepository( repositorySession, metadataRepository, counters, repositoryId, ns + "." + namespace );
         }
 
         Collection<String> projects = metadataRepository.getProjects( repositorySession , repositoryId, ns );
-        if ( !projects.isEmpty() )
+        for ( String project : projects )
         {
-            stats.setTotalGroupCount( stats.getTotalGroupCount() + 1 );
-            stats.setTotalProjectCount( stats.getTotalProjectCount() + projects.size() );
-
-            for ( String project : projects )
+            // projects are counted, even if they do not contain any artifacts
+            counters.addProject( ns, project );
+            for ( String version : metadataRepository.getProjectVersions( repositorySession , repositoryId, ns, project ) )
             {
-                for ( String version : metadataRepository.getProjectVersions( repositorySession , repositoryId, ns, project ) )
+                for ( ArtifactMetadata artifact : metadataRepository.getArtifacts( repositorySession , repositoryId, ns,
+                    project, version ) )
                 {
-                    for ( ArtifactMetadata artifact : metadataRepository.getArtifacts( repositorySession , repositoryId, ns,
-                        project, version ) )
-                    {
-                        stats.setTotalArtifactCount( stats.getTotalArtifactCount() + 1 );
-                        stats.setTotalArtifactFileSize( stats.getTotalArtifactFileSize() + artifact.getSize() );
-
-                        MavenArtifactFacet facet =
-                            (MavenArtifactFacet) artifact.getFacet( MavenArtifactFacet.FACET_ID );
-                        if ( facet != null )
-                        {
-                            String type = facet.getType();
-                            stats.setTotalCountForType( type, stats.getTotalCountForType( type ) + 1 );
-                        }
-                    }
+                    counters.addArtifact( ns, project, artifact );
                 }
             }
         }
@@ -0,0 +1,223 @@
+package org.apache.archiva.metadata.repository.stats.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryStatisticsCountersTest
+{
+    @Test
+    public void addAndRemove( ) throws Exception
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        counters.add( "org.apache", "archiva", 100, "jar" );
+        counters.add( "org.apache", "archiva", 10, "pom" );
+        counters.add( "org.apache", "maven", 200, "jar" );
+        counters.add( "com.example", "example", 50, null );
+
+        assertEquals( 4, counters.getTotalArtifactCount( ) );
+        assertEquals( 360, counters.getTotalArtifactFileSize( ) );
+        assertEquals( 3, counters.getTotalProjectCount( ) );
+        assertEquals( 2, counters.getTotalGroupCount( ) );
+        assertEquals( 2, counters.getTotalCountForType( "jar" ) );
+
+        counters.remove( "com.example", "example", 50, null );
+        counters.remove( "org.apache", "maven", 200, "jar" );
+        // unknown projects are ignored
+        counters.remove( "org.unknown", "unknown", 1000, "jar" );
+
+        DefaultRepositoryStatistics stats = new DefaultRepositoryStatistics( );
+        counters.populateStatistics( stats );
+        assertEquals( 2, stats.getTotalArtifactCount( ) );
+        assertEquals( 110, stats.getTotalArtifactFileSize( ) );
+        assertEquals( 1, stats.getTotalProjectCount( ) );
+        assertEquals( 1, stats.getTotalGroupCount( ) );
+        assertEquals( 1, stats.getTotalCountForType( "jar" ) );
+        assertEquals( 1, stats.getTotalCountForType( "pom" ) );
+    }
+
+    @Test
+    public void concurrentUpdates( ) throws Exception
+    {
+        final RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( );
+            for ( int i = 0; i < 4; i++ )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    for ( int j = 0; j < 1000; j++ )
+                    {
+                        counters.add( "org.test" + ( j % 10 ), "project" + ( j % 20 ), 1, "jar" );
+                    }
+                    for ( int j = 0; j < 500; j++ )
+                    {
+                        counters.remove( "org.test" + ( j % 10 ), "project" + ( j % 20 ), 1, "jar" );
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get( );
+            }
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+        assertEquals( 2000, counters.getTotalArtifactCount( ) );
+        assertEquals( 2000, counters.getTotalArtifactFileSize( ) );
+        assertEquals( 2000, counters.getTotalCountForType( "jar" ) );
+        assertEquals( 20, counters.getTotalProjectCount( ) );
+        assertEquals( 10, counters.getTotalGroupCount( ) );
+    }
+
+    @Test
+    public void artifactUpdatedCountsOnlyChangesSinceStamp( ) throws Exception
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        counters.setStamp( 1000L );
+
+        assertFalse( counters.artifactUpdated( createArtifact( "archiva", "1.0", 500L ) ) );
+        assertTrue( counters.artifactUpdated( createArtifact( "archiva", "1.1", 1500L ) ) );
+        assertFalse( counters.artifactUpdated( createArtifact( "archiva", "1.1", 1500L ) ) );
+        assertEquals( 1, counters.getTotalArtifactCount( ) );
+
+        // the next scan started after the change, the entry is not needed anymore
+        counters.setStamp( 2000L );
+        assertFalse( counters.artifactUpdated( createArtifact( "archiva", "1.1", 1500L ) ) );
+
+        counters.artifactRemoved( createArtifact( "archiva", "1.1", 1500L ) );
+        assertEquals( 0, counters.getTotalArtifactCount( ) );
+        assertTrue( counters.artifactUpdated( createArtifact( "archiva", "1.2", 2500L ) ) );
+        assertEquals( 1, counters.getTotalArtifactCount( ) );
+    }
+
+    @Test
+    public void replacedArtifactIsNotCountedAgain( ) throws Exception
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        // the artifact was found by the walk
+        counters.addArtifact( "org.apache", "archiva", createArtifact( "archiva", "1.0", 500L ) );
+        counters.setStamp( 1000L );
+
+        ArtifactMetadata replaced = createArtifact( "archiva", "1.0", 1500L );
+        replaced.setSize( 25L );
+        assertFalse( counters.artifactUpdated( replaced ) );
+        assertFalse( counters.artifactUpdated( replaced ) );
+        assertEquals( 1, counters.getTotalArtifactCount( ) );
+        assertEquals( 25L, counters.getTotalArtifactFileSize( ) );
+        assertEquals( 1, counters.getTotalCountForType( "jar" ) );
+
+        counters.artifactRemoved( createArtifact( "archiva", "1.0", 1500L ) );
+        assertEquals( 0, counters.getTotalArtifactCount( ) );
+        assertEquals( 0L, counters.getTotalArtifactFileSize( ) );
+    }
+
+    @Test
+    public void projectsWithoutArtifacts( ) throws Exception
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        counters.addProject( "org.apache", "archiva" );
+        counters.addProject( "com.example", "example" );
+        counters.add( "org.apache", "archiva", 100, "jar" );
+
+        assertEquals( 1, counters.getTotalArtifactCount( ) );
+        assertEquals( 2, counters.getTotalProjectCount( ) );
+        assertEquals( 2, counters.getTotalGroupCount( ) );
+
+        // a project without counted artifacts is not affected by unknown removals
+        counters.remove( "com.example", "example", 50, null );
+        assertEquals( 1, counters.getTotalArtifactCount( ) );
+        assertEquals( 2, counters.getTotalProjectCount( ) );
+
+        counters.remove( "org.apache", "archiva", 100, "jar" );
+        assertEquals( 0, counters.getTotalArtifactCount( ) );
+        assertEquals( 1, counters.getTotalProjectCount( ) );
+        assertEquals( 1, counters.getTotalGroupCount( ) );
+    }
+
+    @Test
+    public void storedProperties( ) throws Exception
+    {
+        RepositoryStatisticsCounters counters = new RepositoryStatisticsCounters( );
+        counters.add( "org.apache", "archiva", 100, "jar" );
+        counters.add( "org.apache", "maven", 200, "pom" );
+        counters.add( "com.example", "example", 50, null );
+        counters.setStamp( 1000L );
+        counters.artifactUpdated( createArtifact( "archiva", "1.1", 1500L ) );
+
+        RepositoryStatisticsCounters restored = new RepositoryStatisticsCounters( );
+        restored.fromProperties( counters.toProperties( ) );
+
+        assertEquals( 4, restored.getTotalArtifactCount( ) );
+        assertEquals( 100 + 200 + 50 + 10, restored.getTotalArtifactFileSize( ) );
+        assertEquals( 3, restored.getTotalProjectCount( ) );
+        assertEquals( 2, restored.getTotalGroupCount( ) );
+        assertEquals( 2, restored.getTotalCountForType( "jar" ) );
+        assertEquals( 1, restored.getTotalCountForType( "pom" ) );
+        assertEquals( 1000L, restored.getStamp( ) );
+        // the artifact counted after the stamp is not counted again
+        assertFalse( restored.artifactUpdated( createArtifact( "archiva", "1.1", 1500L ) ) );
+
+        restored.remove( "org.apache", "maven", 200, "pom" );
+        assertEquals( 2, restored.getTotalProjectCount( ) );
+        assertEquals( 2, restored.getTotalGroupCount( ) );
+
+        // each project is stored in its own property, removed projects are stored without value
+        Map<String, String> properties = restored.toProperties( );
+        assertEquals( "2", properties.get( "project.org.apache@archiva" ) );
+        assertEquals( "", properties.get( "project.org.apache@maven" ) );
+        RepositoryStatisticsCounters reloaded = new RepositoryStatisticsCounters( );
+        reloaded.fromProperties( properties );
+        assertEquals( 2, reloaded.getTotalProjectCount( ) );
+        assertEquals( 2, reloaded.getTotalGroupCount( ) );
+    }
+
+    private static ArtifactMetadata createArtifact( String project, String version, long lastModified )
+    {
+        ArtifactMetadata artifact = new ArtifactMetadata( );
+        artifact.setNamespace( "org.apache" );
+        artifact.setProject( project );
+        artifact.setProjectVersion( version );
+        artifact.setVersion( version );
+        artifact.setId( project + "-" + version + ".jar" );
+        artifact.setSize( 10L );
+        artifact.setFileLastModified( lastModified );
+        MavenArtifactFacet facet = new MavenArtifactFacet( );
+        facet.setType( "jar" );
+        artifact.addFacet( facet );
+        return artifact;
+    }
+}
@@ -0,0 +1,355 @@
+package org.apache.archiva.audit;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded queue for audit events, that are written to the metadata repository in batches by a
+ * background thread. Adding an event never blocks, the queue uses a non blocking linked queue and
+ * an atomic size counter. If the queue is full, the {@link OverflowPolicy} decides what happens
+ * with the event.
+ * <p>
+ * Each batch is written with a single repository session and a single save.
+ *
+ * @since 3.0
+ */
+public class AuditEventQueue
+{
+    private static final Logger log = LoggerFactory.getLogger( AuditEventQueue.class );
+
+    /**
+     * Defines the behaviour, if an event is added to a full queue.
+     */
+    public enum OverflowPolicy
+    {
+        /**
+         * The new event is dropped.
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest event in the queue is dropped to make room for the new event.
+         */
+        DROP_OLDEST,
+        /**
+         * The event is written synchronously by the calling thread. This slows down the producer
+         * (back pressure), but no event is lost.
+         */
+        WRITE_THROUGH
+    }
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+
+    private final AuditManager auditManager;
+
+    private final RepositorySessionFactory repositorySessionFactory;
+
+    private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>( );
+
+    private final AtomicInteger size = new AtomicInteger( );
+
+    private final AtomicLong droppedCount = new AtomicLong( );
+
+    private final AtomicLong writtenCount = new AtomicLong( );
+
+    private int capacity = DEFAULT_CAPACITY;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    private volatile boolean running = false;
+
+    // set by shutdown, afterwards the events are written by the calling thread
+    private volatile boolean stopped = false;
+
+    private volatile Thread flushThread;
+
+    public AuditEventQueue( AuditManager auditManager, RepositorySessionFactory repositorySessionFactory )
+    {
+        this.auditManager = auditManager;
+        this.repositorySessionFactory = repositorySessionFactory;
+    }
+
+    /**
+     * Starts the background thread, that writes the events.
+     */
+    public synchronized void start( )
+    {
+        if ( running )
+        {
+            return;
+        }
+        running = true;
+        stopped = false;
+        Thread thread = new Thread( this::flushLoop, "archiva-audit-writer" );
+        thread.setDaemon( true );
+        flushThread = thread;
+        thread.start( );
+    }
+
+    /**
+     * Stops the background thread and writes the remaining events.
+     *
+     * @param timeout the maximum time to wait for the background thread
+     * @param unit the unit of the timeout value
+     */
+    public synchronized void shutdown( long timeout, TimeUnit unit )
+    {
+        if ( !running )
+        {
+            return;
+        }
+        running = false;
+        stopped = true;
+        Thread thread = flushThread;
+        LockSupport.unpark( thread );
+        try
+        {
+            thread.join( unit.toMillis( timeout ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        flushThread = null;
+        // events that were added after the thread finished
+        flush( );
+    }
+
+    /**
+     * Adds the event to the queue. The method does not block, besides the {@link OverflowPolicy#WRITE_THROUGH}
+     * policy, if the queue is full. After {@link #shutdown(long, TimeUnit)} there is no background thread
+     * anymore, so the event is written synchronously by the calling thread.
+     *
+     * @param event the event to store
+     * @return <code>true</code>, if the event was queued or written, <code>false</code> if it was dropped
+     */
+    public boolean offer( AuditEvent event )
+    {
+        if ( stopped )
+        {
+            write( Collections.singletonList( event ) );
+            return true;
+        }
+        if ( reserve( ) )
+        {
+            queue.offer( event );
+            if ( stopped )
+            {
+                // the shutdown may have drained the queue before the event was added
+                flush( );
+            }
+            else if ( size.get( ) >= batchSize )
+            {
+                LockSupport.unpark( flushThread );
+            }
+            return true;
+        }
+        switch ( overflowPolicy )
+        {
+            case DROP_OLDEST:
+                AuditEvent oldest = queue.poll( );
+                queue.offer( event );
+                if ( oldest != null )
+                {
+                    dropped( oldest );
+                }
+                else
+                {
+                    size.incrementAndGet( );
+                }
+                if ( stopped )
+                {
+                    flush( );
+                }
+                else
+                {
+                    LockSupport.unpark( flushThread );
+                }
+                return true;
+            case WRITE_THROUGH:
+                write( Collections.singletonList( event ) );
+                return true;
+            default:
+                dropped( event );
+                return false;
+        }
+    }
+
+    /**
+     * Writes all queued events in batches. This is called by the background thread, but may be
+     * called directly, e.g. before a shutdown.
+     */
+    public void flush( )
+    {
+        List<AuditEvent> batch;
+        while ( !( batch = drain( ) ).isEmpty( ) )
+        {
+            write( batch );
+        }
+    }
+
+    private boolean reserve( )
+    {
+        int current;
+        do
+        {
+            current = size.get( );
+            if ( current >= capacity )
+            {
+                return false;
+            }
+        }
+        while ( !size.compareAndSet( current, current + 1 ) );
+        return true;
+    }
+
+    private List<AuditEvent> drain( )
+    {
+        List<AuditEvent> batch = new ArrayList<>( );
+        AuditEvent event;
+        while ( batch.size( ) < batchSize && ( event = queue.poll( ) ) != null )
+        {
+            size.decrementAndGet( );
+            batch.add( event );
+        }
+        return batch;
+    }
+
+    private void flushLoop( )
+    {
+        while ( running )
+        {
+            flush( );
+            if ( running && size.get( ) < batchSize )
+            {
+                LockSupport.parkNanos( this, TimeUnit.MILLISECONDS.toNanos( flushIntervalMs ) );
+            }
+        }
+        flush( );
+    }
+
+    private void write( List<AuditEvent> batch )
+    {
+        try ( RepositorySession session = repositorySessionFactory.createSession( ) )
+        {
+            auditManager.addAuditEvents( session, batch );
+            session.save( );
+            writtenCount.addAndGet( batch.size( ) );
+        }
+        catch ( MetadataRepositoryException | MetadataSessionException e )
+        {
+            log.warn( "Unable to write {} audit events to repository: {}", batch.size( ), e.getMessage( ), e );
+        }
+        catch ( RuntimeException e )
+        {
+            // the writer thread must survive errors of the metadata store
+            log.error( "Unexpected error while writing audit events: {}", e.getMessage( ), e );
+        }
+    }
+
+    private void dropped( AuditEvent event )
+    {
+        long count = droppedCount.incrementAndGet( );
+        if ( count == 1 || count % 1000 == 0 )
+        {
+            log.warn( "Audit event queue is full, {} events dropped so far. Last dropped: {} {}", count,
+                event.getAction( ), event.getResource( ) );
+        }
+    }
+
+    public int getQueueSize( )
+    {
+        return size.get( );
+    }
+
+    public long getDroppedCount( )
+    {
+        return droppedCount.get( );
+    }
+
+    public long getWrittenCount( )
+    {
+        return writtenCount.get( );
+    }
+
+    public int getCapacity( )
+    {
+        return capacity;
+    }
+
+    public void setCapacity( int capacity )
+    {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize( )
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize( int batchSize )
+    {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMs( )
+    {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs( long flushIntervalMs )
+    {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public OverflowPolicy getOverflowPolicy( )
+    {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy( OverflowPolicy overflowPolicy )
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+}
@@ -22,6 +22,7 @@
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.RepositorySession;
 
 import java.util.Collection;
 import java.util.Date;
@@ -35,6 +36,16 @@ List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRepository
     void addAuditEvent( MetadataRepository repository, AuditEvent event )
         throws MetadataRepositoryException;
 
+    /**
+     * Adds the given events to the metadata repository using the given session. The caller
+     * is responsible for saving the session.
+     *
+     * @param session the session used for all events
+     * @param events  the events to add, events without repository id are ignored
+     */
+    void addAuditEvents( RepositorySession session, Collection<AuditEvent> events )
+        throws MetadataRepositoryException;
+
     void deleteAuditEvents( MetadataRepository metadataRepository, String repositoryId )
         throws MetadataRepositoryException;
 
@@ -19,7 +19,9 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataFacetTimeIndex;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -29,15 +31,12 @@
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
-import java.util.TimeZone;
 
 /**
  *
@@ -50,7 +49,8 @@
 
     private static final Logger log = LoggerFactory.getLogger( DefaultAuditManager.class );
 
-    private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone( "UTC" );
+    private final MetadataFacetTimeIndex auditIndex =
+        new MetadataFacetTimeIndex( AuditEvent.FACET_ID, AuditEvent.TIMESTAMP_FORMAT );
 
     @Inject
     RepositorySessionFactory repositorySessionFactory;
@@ -61,10 +61,11 @@ public List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRep
         throws MetadataRepositoryException
     {
         try(RepositorySession session = repositorySessionFactory.createSession()) {
-            // TODO: consider a more efficient implementation that directly gets the last ten from the content repository
+            // only the most recent events of each repository can be part of the result
             List<AuditRecord> records = new ArrayList<>();
             for (String repositoryId : repositoryIds) {
-                List<String> names = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
+                List<String> names = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID,
+                        new QueryParameter(false, 0, NUM_RECENT_EVENTS));
                 for (String name : names) {
                     records.add(new AuditRecord(repositoryId, name));
                 }
@@ -77,7 +78,9 @@ public List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRep
                 AuditEvent auditEvent = (AuditEvent) metadataRepository.getMetadataFacet(session,
                         record.repositoryId,
                         AuditEvent.FACET_ID, record.name);
-                events.add(auditEvent);
+                if (auditEvent != null) {
+                    events.add(auditEvent);
+                }
             }
             return events;
         }
@@ -95,6 +98,20 @@ public void addAuditEvent( MetadataRepository repository, AuditEvent event )
         }
     }
 
+    @Override
+    public void addAuditEvents( RepositorySession session, Collection<AuditEvent> events )
+        throws MetadataRepositoryException
+    {
+        MetadataRepository metadataRepository = session.getRepository();
+        for ( AuditEvent event : events )
+        {
+            if ( event.getRepositoryId() != null )
+            {
+                metadataRepository.addMetadataFacet( session, event.getRepositoryId(), event );
+            }
+        }
+    }
+
     @Override
     public void deleteAuditEvents( MetadataRepository metadataRepository, String repositoryId )
         throws MetadataRepositoryException
@@ -121,23 +138,14 @@ public List<AuditEvent> getAuditEventsInRange( MetadataRepository metadataReposi
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             List<AuditEvent> results = new ArrayList<>();
             for (String repositoryId : repositoryIds) {
-                List<String> list = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
-                for (String name : list) {
-                    try {
-                        Date date = createNameFormat().parse(name);
-                        if ((startTime == null || !date.before(startTime)) && (endTime == null || !date.after(
-                                endTime))) {
-                            AuditEvent event = (AuditEvent) metadataRepository.getMetadataFacet(session,
-                                    repositoryId,
-                                    AuditEvent.FACET_ID, name);
-
-                            if (resource == null || event.getResource().startsWith(resource)) {
-                                results.add(event);
-                            }
-                        }
-                    } catch (ParseException e) {
-                        log.error("Invalid audit event found in the metadata repository: {}", e.getMessage());
-                        // continue and ignore this one
+                for (String name : auditIndex.getNamesInRange(session, metadataRepository, repositoryId, startTime,
+                        endTime)) {
+                    AuditEvent event = (AuditEvent) metadataRepository.getMetadataFacet(session,
+                            repositoryId,
+                            AuditEvent.FACET_ID, name);
+
+                    if (event != null && (resource == null || event.getResource().startsWith(resource))) {
+                        results.add(event);
                     }
                 }
             }
@@ -151,13 +159,6 @@ public int compare(AuditEvent o1, AuditEvent o2) {
         }
     }
 
-    private static SimpleDateFormat createNameFormat()
-    {
-        SimpleDateFormat fmt = new SimpleDateFormat( AuditEvent.TIMESTAMP_FORMAT );
-        fmt.setTimeZone( UTC_TIME_ZONE );
-        return fmt;
-    }
-
     private static final class AuditRecord
         implements Comparable<AuditRecord>
     {
@@ -19,19 +19,27 @@
  * under the License.
  */
 
+import org.apache.archiva.configuration.ArchivaConfiguration;
+import org.apache.archiva.configuration.ArchivaRuntimeConfiguration;
+import org.apache.archiva.configuration.AuditQueueConfiguration;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
-import org.apache.archiva.metadata.repository.MetadataRepositoryException;
-import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.metadata.audit.AuditListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
 
 /**
- *
+ * Stores the upload events in the metadata repository. The events are written asynchronously
+ * in batches by the {@link AuditEventQueue}, so that the audit does not add latency to the
+ * request. The queue is configured by the audit queue configuration of the archiva runtime
+ * configuration.
  */
 @Service("auditListener#metadata")
 public class MetadataAuditListener
@@ -39,6 +47,8 @@
 {
     private static final Logger log = LoggerFactory.getLogger( MetadataAuditListener.class );
 
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
     /**
      *
      */
@@ -47,44 +57,84 @@
 
     /**
      * FIXME: this could be multiple implementations and needs to be configured.
-     *  It also starts a separate session to the originator of the audit event that we may rather want to pass through.
      */
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
-    @Override
-    public void auditEvent( AuditEvent event )
+    @Inject
+    @Named( value = "archivaConfiguration#default" )
+    private ArchivaConfiguration archivaConfiguration;
+
+    private AuditEventQueue eventQueue;
+
+    @PostConstruct
+    public void initialize( )
     {
-        // for now we only log upload events, some of the others are quite noisy
-        if ( event.getAction().equals( AuditEvent.CREATE_FILE ) || event.getAction().equals( AuditEvent.UPLOAD_FILE ) ||
-            event.getAction().equals( AuditEvent.MERGING_REPOSITORIES ) )
+        eventQueue = new AuditEventQueue( auditManager, repositorySessionFactory );
+        configureQueue( );
+        eventQueue.start( );
+    }
+
+    private void configureQueue( )
+    {
+        ArchivaRuntimeConfiguration runtimeConfiguration =
+            archivaConfiguration.getConfiguration( ).getArchivaRuntimeConfiguration( );
+        AuditQueueConfiguration queueConfiguration =
+            runtimeConfiguration == null ? null : runtimeConfiguration.getAuditQueueConfiguration( );
+        if ( queueConfiguration == null )
+        {
+            return;
+        }
+        if ( queueConfiguration.getCapacity( ) > 0 )
+        {
+            eventQueue.setCapacity( queueConfiguration.getCapacity( ) );
+        }
+        if ( queueConfiguration.getBatchSize( ) > 0 )
+        {
+            eventQueue.setBatchSize( queueConfiguration.getBatchSize( ) );
+        }
+        if ( queueConfiguration.getFlushInterval( ) > 0 )
+        {
+            eventQueue.setFlushIntervalMs( queueConfiguration.getFlushInterval( ) );
+        }
+        if ( queueConfiguration.getOverflowPolicy( ) != null )
         {
-            RepositorySession repositorySession = null;
-            try
-            {
-                repositorySession = repositorySessionFactory.createSession();
-            }
-            catch ( MetadataRepositoryException e )
-            {
-                e.printStackTrace( );
-            }
             try
             {
-                auditManager.addAuditEvent( repositorySession.getRepository(), event );
-                repositorySession.save();
-            }
-            catch ( MetadataRepositoryException e )
-            {
-                log.warn( "Unable to write audit event to repository: {}", e.getMessage(), e );
+                eventQueue.setOverflowPolicy(
+                    AuditEventQueue.OverflowPolicy.valueOf( queueConfiguration.getOverflowPolicy( ).trim( ).toUpperCase( ) ) );
             }
-            catch ( org.apache.archiva.metadata.repository.MetadataSessionException e )
+            catch ( IllegalArgumentException e )
             {
-                e.printStackTrace( );
+                log.warn( "Unknown overflow policy {} of the audit event queue, using {}",
+                          queueConfiguration.getOverflowPolicy( ), eventQueue.getOverflowPolicy( ) );
             }
-            finally
+        }
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        eventQueue.shutdown( SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS );
+    }
+
+    @Override
+    public void auditEvent( AuditEvent event )
+    {
+        // for now we only log upload events, some of the others are quite noisy
+        if ( event.getAction().equals( AuditEvent.CREATE_FILE ) || event.getAction().equals( AuditEvent.UPLOAD_FILE ) ||
+            event.getAction().equals( AuditEvent.MERGING_REPOSITORIES ) )
+        {
+            // ignore those with no repository - they will still be logged to the textual audit log
+            if ( event.getRepositoryId() != null )
             {
-                repositorySession.close();
+                eventQueue.offer( event );
             }
         }
     }
+
+    public AuditEventQueue getEventQueue( )
+    {
+        return eventQueue;
+    }
 }
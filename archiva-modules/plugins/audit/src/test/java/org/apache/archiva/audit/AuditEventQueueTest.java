@@ -0,0 +1,211 @@
+package org.apache.archiva.audit;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class AuditEventQueueTest
+    extends TestCase
+{
+    private static final String TEST_REPO_ID = "test-repo";
+
+    private final List<List<AuditEvent>> batches = new ArrayList<>( );
+
+    private final AtomicInteger sessions = new AtomicInteger( );
+
+    private final AtomicInteger saves = new AtomicInteger( );
+
+    private AuditEventQueue queue;
+
+    @Override
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+
+        DefaultAuditManager auditManager = new DefaultAuditManager( )
+        {
+            @Override
+            public void addAuditEvents( RepositorySession session, Collection<AuditEvent> events )
+            {
+                synchronized ( batches )
+                {
+                    batches.add( new ArrayList<>( events ) );
+                }
+            }
+        };
+        RepositorySessionFactory sessionFactory = new RepositorySessionFactory( )
+        {
+            @Override
+            public void open( )
+            {
+            }
+
+            @Override
+            public boolean isOpen( )
+            {
+                return true;
+            }
+
+            @Override
+            public RepositorySession createSession( )
+            {
+                sessions.incrementAndGet( );
+                return new RepositorySession( null, null )
+                {
+                    @Override
+                    public void save( )
+                        throws MetadataSessionException
+                    {
+                        saves.incrementAndGet( );
+                    }
+                };
+            }
+
+            @Override
+            public void close( )
+            {
+            }
+        };
+        queue = new AuditEventQueue( auditManager, sessionFactory );
+    }
+
+    @Test
+    public void testFlushInBatches( )
+    {
+        queue.setBatchSize( 2 );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertTrue( queue.offer( createEvent( i ) ) );
+        }
+        assertEquals( 5, queue.getQueueSize( ) );
+
+        queue.flush( );
+
+        assertEquals( 0, queue.getQueueSize( ) );
+        assertEquals( 3, batches.size( ) );
+        assertEquals( 2, batches.get( 0 ).size( ) );
+        assertEquals( 1, batches.get( 2 ).size( ) );
+        assertEquals( 3, sessions.get( ) );
+        assertEquals( 3, saves.get( ) );
+        assertEquals( 5, queue.getWrittenCount( ) );
+    }
+
+    @Test
+    public void testDropNewest( )
+    {
+        queue.setCapacity( 2 );
+        queue.setOverflowPolicy( AuditEventQueue.OverflowPolicy.DROP_NEWEST );
+
+        assertTrue( queue.offer( createEvent( 0 ) ) );
+        assertTrue( queue.offer( createEvent( 1 ) ) );
+        assertFalse( queue.offer( createEvent( 2 ) ) );
+        assertEquals( 1, queue.getDroppedCount( ) );
+
+        queue.flush( );
+        assertEquals( "resource/0", batches.get( 0 ).get( 0 ).getResource( ) );
+        assertEquals( "resource/1", batches.get( 0 ).get( 1 ).getResource( ) );
+    }
+
+    @Test
+    public void testDropOldest( )
+    {
+        queue.setCapacity( 2 );
+        queue.setOverflowPolicy( AuditEventQueue.OverflowPolicy.DROP_OLDEST );
+
+        assertTrue( queue.offer( createEvent( 0 ) ) );
+        assertTrue( queue.offer( createEvent( 1 ) ) );
+        assertTrue( queue.offer( createEvent( 2 ) ) );
+        assertEquals( 1, queue.getDroppedCount( ) );
+        assertEquals( 2, queue.getQueueSize( ) );
+
+        queue.flush( );
+        assertEquals( "resource/1", batches.get( 0 ).get( 0 ).getResource( ) );
+        assertEquals( "resource/2", batches.get( 0 ).get( 1 ).getResource( ) );
+    }
+
+    @Test
+    public void testWriteThrough( )
+    {
+        queue.setCapacity( 1 );
+        queue.setOverflowPolicy( AuditEventQueue.OverflowPolicy.WRITE_THROUGH );
+
+        assertTrue( queue.offer( createEvent( 0 ) ) );
+        assertTrue( queue.offer( createEvent( 1 ) ) );
+
+        // the second event is written directly
+        assertEquals( 1, batches.size( ) );
+        assertEquals( "resource/1", batches.get( 0 ).get( 0 ).getResource( ) );
+        assertEquals( 0, queue.getDroppedCount( ) );
+        assertEquals( 1, queue.getQueueSize( ) );
+    }
+
+    @Test
+    public void testBackgroundWriter( )
+    {
+        queue.setBatchSize( 10 );
+        queue.setFlushIntervalMs( 10 );
+        queue.start( );
+        for ( int i = 0; i < 25; i++ )
+        {
+            queue.offer( createEvent( i ) );
+        }
+        queue.shutdown( 5, TimeUnit.SECONDS );
+
+        assertEquals( 25, queue.getWrittenCount( ) );
+        assertEquals( 0, queue.getQueueSize( ) );
+        assertEquals( sessions.get( ), batches.size( ) );
+    }
+
+    @Test
+    public void testOfferAfterShutdown( )
+    {
+        queue.start( );
+        queue.shutdown( 5, TimeUnit.SECONDS );
+
+        // there is no writer thread anymore, so the event is written directly
+        assertTrue( queue.offer( createEvent( 0 ) ) );
+        assertEquals( 1, queue.getWrittenCount( ) );
+        assertEquals( 0, queue.getQueueSize( ) );
+        assertEquals( "resource/0", batches.get( 0 ).get( 0 ).getResource( ) );
+    }
+
+    private static AuditEvent createEvent( int num )
+    {
+        AuditEvent event = new AuditEvent( TEST_REPO_ID, "test_user", "resource/" + num, AuditEvent.UPLOAD_FILE );
+        return event;
+    }
+}
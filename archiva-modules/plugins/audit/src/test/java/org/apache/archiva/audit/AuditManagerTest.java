@@ -21,6 +21,7 @@
 
 import junit.framework.TestCase;
 import org.apache.archiva.configuration.ManagedRepositoryConfiguration;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -39,11 +40,13 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
 
 @RunWith(ArchivaBlockJUnit4ClassRunner.class)
 public class AuditManagerTest
@@ -125,8 +128,7 @@ public void testGetMostRecentEvents()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    getEventNames(expectedEvents));
+            expectFacetNames(TEST_REPO_ID, getEventNames(expectedEvents));
 
             for (AuditEvent event : expectedEvents.subList(1, expectedEvents.size())) {
                 EasyMock.expect(
@@ -165,8 +167,7 @@ public void testGetMostRecentEventsLessThan10()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    getEventNames(expectedEvents));
+            expectFacetNames(TEST_REPO_ID, getEventNames(expectedEvents));
             for (AuditEvent event : expectedEvents) {
                 EasyMock.expect(
                         metadataRepository.getMetadataFacet(session, TEST_REPO_ID, AuditEvent.FACET_ID, event.getName())).andReturn(
@@ -210,10 +211,8 @@ public void testGetMostRecentEventsInterleavedRepositories()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    eventNames.get(TEST_REPO_ID));
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID_2, AuditEvent.FACET_ID)).andReturn(
-                    eventNames.get(TEST_REPO_ID_2));
+            expectFacetNames(TEST_REPO_ID, eventNames.get(TEST_REPO_ID));
+            expectFacetNames(TEST_REPO_ID_2, eventNames.get(TEST_REPO_ID_2));
 
             for (AuditEvent event : events.subList(1, events.size())) {
                 EasyMock.expect(metadataRepository.getMetadataFacet(session, event.getRepositoryId(),
@@ -246,8 +245,7 @@ public void testGetMostRecentEventsWhenEmpty()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Collections.<String>emptyList());
+            expectFacetNames(TEST_REPO_ID, Collections.<String>emptyList());
         metadataRepositoryControl.replay();
 
         assertTrue( auditManager.getMostRecentAuditEvents( metadataRepository,
@@ -276,6 +274,42 @@ public void testAddAuditEvent()
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testGetMostRecentEventsAfterAdd()
+        throws Exception
+    {
+        AuditEvent event1 = createEvent( AUDIT_EVENT_BASE + MILLIS_FORMAT.format( 1 ) );
+        AuditEvent event2 = createEvent( AUDIT_EVENT_BASE + MILLIS_FORMAT.format( 2 ) );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
+        factoryControl.replay();
+        // the names are read from the metadata repository for each query
+        List<String> names = getEventNames( Collections.singletonList( event1 ) );
+        expectFacetNames( TEST_REPO_ID, names );
+        EasyMock.expect( metadataRepository.getMetadataFacet( session, TEST_REPO_ID, AuditEvent.FACET_ID,
+                                                              event1.getName() ) ).andReturn( event1 ).times( 2 );
+        metadataRepository.addMetadataFacet( session, TEST_REPO_ID, event2 );
+        EasyMock.expect( metadataRepository.getMetadataFacet( session, TEST_REPO_ID, AuditEvent.FACET_ID,
+                                                              event2.getName() ) ).andReturn( event2 );
+        metadataRepositoryControl.replay();
+
+        List<AuditEvent> events =
+            auditManager.getMostRecentAuditEvents( metadataRepository, Collections.singletonList( TEST_REPO_ID ) );
+        assertEquals( 1, events.size() );
+
+        auditManager.addAuditEvent( metadataRepository, event2 );
+        names.add( event2.getName() );
+
+        events = auditManager.getMostRecentAuditEvents( metadataRepository, Collections.singletonList( TEST_REPO_ID ) );
+        assertEquals( 2, events.size() );
+        assertTestEvent( events.get( 0 ), AUDIT_EVENT_BASE + MILLIS_FORMAT.format( 2 ), event2.getResource() );
+        assertTestEvent( events.get( 1 ), AUDIT_EVENT_BASE + MILLIS_FORMAT.format( 1 ), event1.getResource() );
+
+        metadataRepositoryControl.verify();
+    }
+
     @Test
     public void testAddAuditEventNoRepositoryId()
         throws Exception
@@ -328,8 +362,7 @@ public void testGetEventsRangeInside()
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
 
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(event1.getName(), expectedEvent.getName(), event3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(event1.getName(), expectedEvent.getName(), event3.getName()));
 
             // only match the middle one
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
@@ -365,8 +398,7 @@ public void testGetEventsRangeUpperOutside()
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
 
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(event1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(event1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
                     AuditEvent.FACET_ID, expectedEvent2.getName())).andReturn(expectedEvent2);
@@ -402,8 +434,7 @@ public void testGetEventsRangeLowerOutside()
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
 
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), event3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), event3.getName()));
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
                     AuditEvent.FACET_ID, expectedEvent1.getName())).andReturn(expectedEvent1);
@@ -441,8 +472,7 @@ public void testGetEventsRangeLowerAndUpperOutside()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
                     AuditEvent.FACET_ID, expectedEvent1.getName())).andReturn(expectedEvent1);
@@ -484,8 +514,7 @@ public void testGetEventsWithResource()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
 
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
@@ -525,8 +554,7 @@ public void testGetEventsWithNonExistantResource()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID)).andReturn(
-                    Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(expectedEvent1.getName(), expectedEvent2.getName(), expectedEvent3.getName()));
 
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID, AuditEvent.FACET_ID, expectedEvent1.getName())).andReturn(expectedEvent1);
@@ -564,11 +592,9 @@ public void testGetEventsRangeMultipleRepositories()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID))
-                    .andReturn(Arrays.asList(expectedEvent1.getName(), expectedEvent3.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(expectedEvent1.getName(), expectedEvent3.getName()));
 
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID_2, AuditEvent.FACET_ID))
-                    .andReturn(Arrays.asList(expectedEvent2.getName()));
+            expectFacetNamesInRange(TEST_REPO_ID_2, Arrays.asList(expectedEvent2.getName()));
 
 
             EasyMock.expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID, AuditEvent.FACET_ID, expectedEvent1.getName()))
@@ -594,6 +620,54 @@ public void testGetEventsRangeMultipleRepositories()
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testGetEventsRangeReadsOnlyNamesInRange()
+        throws Exception
+    {
+        int numEvents = 250;
+        List<AuditEvent> allEvents = new ArrayList<>( numEvents );
+        for ( int i = 0; i < numEvents; i++ )
+        {
+            allEvents.add( createEvent( AUDIT_EVENT_BASE + MILLIS_FORMAT.format( i ) ) );
+        }
+        final List<String> names = getEventNames( allEvents );
+        // names without timestamp are skipped
+        names.add( AUDIT_EVENT_BASE + "invalid" );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
+        factoryControl.replay();
+        // a single range query for each call
+        EasyMock.expect( metadataRepository.getMetadataFacets( EasyMock.eq( session ), EasyMock.eq( TEST_REPO_ID ),
+                                                               EasyMock.eq( AuditEvent.FACET_ID ),
+                                                               EasyMock.<String>anyObject(), EasyMock.<String>anyObject(),
+                                                               EasyMock.isA( QueryParameter.class ) ) ).andAnswer(
+            () -> getRange( names, EasyMock.getCurrentArguments() ) ).times( 2 );
+        List<AuditEvent> expectedEvents = new ArrayList<>( allEvents.subList( 50, 61 ) );
+        expectedEvents.addAll( allEvents.subList( 240, numEvents ) );
+        for ( AuditEvent event : expectedEvents )
+        {
+            EasyMock.expect( metadataRepository.getMetadataFacet( session, TEST_REPO_ID, AuditEvent.FACET_ID,
+                                                                  event.getName() ) ).andReturn( event );
+        }
+        metadataRepositoryControl.replay();
+
+        List<AuditEvent> events =
+            auditManager.getAuditEventsInRange( metadataRepository, Collections.singletonList( TEST_REPO_ID ),
+                                                allEvents.get( 50 ).getTimestamp(),
+                                                allEvents.get( 60 ).getTimestamp() );
+        assertEquals( 11, events.size() );
+        assertTestEvent( events.get( 0 ), AUDIT_EVENT_BASE + "060", getDefaultTestResourceName( "060" ) );
+        assertTestEvent( events.get( 10 ), AUDIT_EVENT_BASE + "050", getDefaultTestResourceName( "050" ) );
+
+        events = auditManager.getAuditEventsInRange( metadataRepository, Collections.singletonList( TEST_REPO_ID ),
+                                                     allEvents.get( 240 ).getTimestamp(), null );
+        assertEquals( 10, events.size() );
+
+        metadataRepositoryControl.verify();
+    }
+
     @Test
     public void testGetEventsRangeNotInside()
         throws Exception
@@ -609,8 +683,7 @@ public void testGetEventsRangeNotInside()
         factoryControl.reset();
         EasyMock.expect( repositorySessionFactory.createSession() ).andStubReturn( session );
         factoryControl.replay();
-            EasyMock.expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, AuditEvent.FACET_ID))
-                    .andReturn(Arrays.asList(name1, name2, name3));
+            expectFacetNamesInRange(TEST_REPO_ID, Arrays.asList(name1, name2, name3));
         metadataRepositoryControl.replay();
 
         List<AuditEvent> events =
@@ -678,4 +751,45 @@ private List<String> getEventNames( List<AuditEvent> events )
         }
         return names;
     }
+
+    /*
+     * The names are returned in the requested order and range, like the metadata repository does
+     */
+    private void expectFacetNames( String repositoryId, final List<String> names )
+        throws Exception
+    {
+        EasyMock.expect( metadataRepository.getMetadataFacets( EasyMock.eq( session ), EasyMock.eq( repositoryId ),
+                                                               EasyMock.eq( AuditEvent.FACET_ID ),
+                                                               EasyMock.isA( QueryParameter.class ) ) ).andAnswer(
+            () -> getPage( names, (QueryParameter) EasyMock.getCurrentArguments()[3] ) ).atLeastOnce();
+    }
+
+    /*
+     * The names of the range are returned in the requested order, like the metadata repository does
+     */
+    private void expectFacetNamesInRange( String repositoryId, final List<String> names )
+        throws Exception
+    {
+        EasyMock.expect( metadataRepository.getMetadataFacets( EasyMock.eq( session ), EasyMock.eq( repositoryId ),
+                                                               EasyMock.eq( AuditEvent.FACET_ID ),
+                                                               EasyMock.<String>anyObject(), EasyMock.<String>anyObject(),
+                                                               EasyMock.isA( QueryParameter.class ) ) ).andAnswer(
+            () -> getRange( names, EasyMock.getCurrentArguments() ) ).atLeastOnce();
+    }
+
+    private static List<String> getRange( List<String> names, Object[] arguments )
+    {
+        String fromName = (String) arguments[3];
+        String toName = (String) arguments[4];
+        return getPage( names.stream().filter( name -> fromName == null || name.compareTo( fromName ) >= 0 ).filter(
+            name -> toName == null || name.compareTo( toName ) <= 0 ).collect( Collectors.toList() ),
+                        (QueryParameter) arguments[5] );
+    }
+
+    private static List<String> getPage( List<String> names, QueryParameter queryParameter )
+    {
+        return names.stream().sorted( queryParameter.isAscending() ? Comparator.<String>naturalOrder()
+                                          : Comparator.<String>reverseOrder() ).skip( queryParameter.getOffset() ).limit(
+            queryParameter.getLimit() ).collect( Collectors.toList() );
+    }
 }
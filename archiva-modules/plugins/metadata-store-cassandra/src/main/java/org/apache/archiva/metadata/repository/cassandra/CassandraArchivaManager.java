@@ -58,4 +58,14 @@
 
     String getChecksumFamilyName();
 
+    /**
+     * @return the number of rows, that are fetched with a single query by the streaming methods
+     */
+    int getReadPageSize();
+
+    /**
+     * @return true, if the sessions collect the insertions and write them as batch on save
+     */
+    boolean isBatchWrites();
+
 }
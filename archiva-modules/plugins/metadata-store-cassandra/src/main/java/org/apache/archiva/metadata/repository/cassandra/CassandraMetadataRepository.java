@@ -25,7 +25,6 @@
 import me.prettyprint.cassandra.serializers.StringSerializer;
 import me.prettyprint.cassandra.service.template.ColumnFamilyResult;
 import me.prettyprint.cassandra.service.template.ColumnFamilyTemplate;
-import me.prettyprint.cassandra.service.template.ColumnFamilyUpdater;
 import me.prettyprint.cassandra.service.template.ThriftColumnFamilyTemplate;
 import me.prettyprint.hector.api.Keyspace;
 import me.prettyprint.hector.api.beans.ColumnSlice;
@@ -74,6 +73,7 @@
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -119,6 +119,23 @@
 
     private final StringSerializer ss = StringSerializer.get();
 
+    /**
+     * If true, the insertions and deletions of the update methods are collected and sent as a single batch by
+     * {@link #flushPendingWrites()}.
+     */
+    private boolean batchWrites = false;
+
+    private Mutator<String> pendingMutator;
+
+    // column family and row keys of rows, that are inserted by the pending mutator
+    private final Set<String> pendingKeys = new HashSet<>();
+
+    // keys of repositories, namespaces and projects, that are known to exist
+    private Set<String> knownEntityKeys = ConcurrentHashMap.newKeySet();
+
+    // keys of repositories, namespaces and projects, that are inserted by the pending mutator
+    private final Set<String> pendingEntityKeys = new HashSet<>();
+
     public CassandraMetadataRepository( MetadataService metadataService,
                                         ArchivaConfiguration configuration,
                                         CassandraArchivaManager cassandraArchivaManager )
@@ -177,6 +194,176 @@ public CassandraMetadataRepository( MetadataService metadataService,
     }
 
 
+    public boolean isBatchWrites()
+    {
+        return batchWrites;
+    }
+
+    /**
+     * Enables the batched write mode. In this mode the writes of the update methods, including the overwrites
+     * of existing rows and the deletions of replaced rows, are collected and written with a single
+     * mutation batch on {@link #flushPendingWrites()}. Read and remove methods flush the pending writes
+     * before they access the store, so callers see their own writes.
+     *
+     * @param batchWrites true, to enable batching
+     */
+    public void setBatchWrites( boolean batchWrites )
+    {
+        if ( !batchWrites )
+        {
+            flushPendingWrites();
+        }
+        this.batchWrites = batchWrites;
+    }
+
+    /**
+     * Sets the set of keys of repositories, namespaces and projects known to exist. The set may be shared
+     * between repository instances to avoid existence queries for repeated updates.
+     *
+     * @param knownEntityKeys a thread safe set
+     */
+    public void setKnownEntityKeys( Set<String> knownEntityKeys )
+    {
+        this.knownEntityKeys = knownEntityKeys;
+    }
+
+    /**
+     * Writes the pending mutations of the batched write mode.
+     */
+    public void flushPendingWrites()
+    {
+        if ( pendingMutator != null )
+        {
+            Mutator<String> mutator = pendingMutator;
+            pendingMutator = null;
+            pendingKeys.clear();
+            if ( mutator.getPendingMutationCount() > 0 )
+            {
+                MutationResult mutationResult = mutator.execute();
+                logger.debug( "time to write batch: {}", mutationResult.getExecutionTimeMicro() );
+            }
+            knownEntityKeys.addAll( pendingEntityKeys );
+            pendingEntityKeys.clear();
+        }
+    }
+
+    /**
+     * Drops the pending mutations of the batched write mode.
+     */
+    public void discardPendingWrites()
+    {
+        if ( pendingMutator != null )
+        {
+            pendingMutator.discardPendingMutations();
+            pendingMutator = null;
+        }
+        pendingKeys.clear();
+        pendingEntityKeys.clear();
+    }
+
+    /**
+     * Returns the mutator for insertions and deletions. In batched mode this is the shared pending mutator.
+     */
+    private Mutator<String> createMutator()
+    {
+        if ( batchWrites )
+        {
+            if ( pendingMutator == null )
+            {
+                pendingMutator = HFactory.createMutator( keyspace, ss );
+            }
+            return pendingMutator;
+        }
+        return HFactory.createMutator( keyspace, ss );
+    }
+
+    /**
+     * Executes the mutator, if not in batched mode. In batched mode the row key is registered as pending.
+     */
+    private void executeMutator( Mutator<String> mutator, String cf, String key )
+    {
+        if ( batchWrites )
+        {
+            markPending( cf, key );
+        }
+        else
+        {
+            mutator.execute();
+        }
+    }
+
+    /**
+     * Deletes the row. In batched mode the deletion is added to the pending mutator, so it is written or
+     * dropped together with the insertions of the batch.
+     */
+    private void deleteRow( ColumnFamilyTemplate<String, String> template, String key )
+    {
+        if ( batchWrites )
+        {
+            createMutator().addDeletion( key, template.getColumnFamily() );
+        }
+        else
+        {
+            template.deleteRow( key );
+        }
+    }
+
+    private void markPending( String cf, String key )
+    {
+        if ( batchWrites )
+        {
+            pendingKeys.add( cf + '|' + key );
+        }
+    }
+
+    /**
+     * Key for the pending project version rows of a version, as the rows are queried by the column values and
+     * not by the row key.
+     */
+    private static String getProjectVersionGroupKey( String repositoryId, String namespaceId, String projectId,
+                                                     String projectVersion )
+    {
+        return repositoryId + ':' + namespaceId + ':' + projectId + ':' + projectVersion;
+    }
+
+    private boolean isKnownEntity( String knownKey )
+    {
+        return knownEntityKeys.contains( knownKey ) || pendingEntityKeys.contains( knownKey );
+    }
+
+    /**
+     * Registers the entity as existing. Entities inserted in batched mode are shared with other
+     * instances after the batch is written.
+     */
+    private void addKnownEntity( String knownKey, boolean inserted )
+    {
+        if ( inserted && batchWrites )
+        {
+            pendingEntityKeys.add( knownKey );
+        }
+        else
+        {
+            knownEntityKeys.add( knownKey );
+        }
+    }
+
+    private boolean isPending( String cf, String key )
+    {
+        return pendingKeys.contains( cf + '|' + key );
+    }
+
+    /**
+     * Writes the pending insertions, if the row with the given key is part of them. This is used before
+     * the existence of a row is checked.
+     */
+    private void flushIfPending( String cf, String key )
+    {
+        if ( isPending( cf, key ) )
+        {
+            flushPendingWrites();
+        }
+    }
+
     /**
      * if the repository doesn't exist it will be created
      *
@@ -188,6 +375,12 @@ public Repository getOrCreateRepository( String repositoryId )
     {
         String cf = cassandraArchivaManager.getRepositoryFamilyName();
 
+        String knownKey = "repository:" + repositoryId;
+        if ( isKnownEntity( knownKey ) )
+        {
+            return new Repository( repositoryId );
+        }
+
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, StringSerializer.get(), StringSerializer.get(),
                                      StringSerializer.get() ) //
@@ -203,11 +396,11 @@ public Repository getOrCreateRepository( String repositoryId )
 
             try
             {
-                MutationResult mutationResult = HFactory.createMutator( keyspace, StringSerializer.get() ) //
+                Mutator<String> mutator = createMutator() //
                     .addInsertion( repositoryId, cf,
-                                   CassandraUtils.column( REPOSITORY_NAME.toString(), repository.getName() ) ) //
-                    .execute();
-                logger.debug( "time to insert repository: {}", mutationResult.getExecutionTimeMicro() );
+                                   CassandraUtils.column( REPOSITORY_NAME.toString(), repository.getName() ) );
+                executeMutator( mutator, cf, repositoryId );
+                addKnownEntity( knownKey, true );
                 return repository;
             }
             catch ( HInvalidRequestException e )
@@ -218,6 +411,7 @@ public Repository getOrCreateRepository( String repositoryId )
 
         }
 
+        addKnownEntity( knownKey, false );
         return new Repository(
             result.get().getList().get( 0 ).getColumnSlice().getColumnByName( REPOSITORY_NAME.toString() ).getValue() );
     }
@@ -249,22 +443,29 @@ private Namespace updateOrAddNamespace( String repositoryId, String namespaceId
     {
         try
         {
-            Repository repository = getOrCreateRepository( repositoryId );
-
             String key =
                 new Namespace.KeyBuilder().withNamespace( namespaceId ).withRepositoryId( repositoryId ).build();
+            String knownKey = "namespace:" + key;
+            if ( isKnownEntity( knownKey ) )
+            {
+                return new Namespace( namespaceId, new Repository( repositoryId ) );
+            }
+
+            Repository repository = getOrCreateRepository( repositoryId );
 
             Namespace namespace = getNamespace( repositoryId, namespaceId );
-            if ( namespace == null )
+            boolean inserted = namespace == null;
+            if ( inserted )
             {
                 String cf = cassandraArchivaManager.getNamespaceFamilyName();
                 namespace = new Namespace( namespaceId, repository );
-                HFactory.createMutator( keyspace, StringSerializer.get() )
+                Mutator<String> mutator = createMutator()
                     //  values
                     .addInsertion( key, cf, CassandraUtils.column( NAME.toString(), namespace.getName() ) ) //
-                    .addInsertion( key, cf, CassandraUtils.column( REPOSITORY_NAME.toString(), repository.getName() ) ) //
-                    .execute();
+                    .addInsertion( key, cf, CassandraUtils.column( REPOSITORY_NAME.toString(), repository.getName() ) );
+                executeMutator( mutator, cf, key );
             }
+            addKnownEntity( knownKey, inserted );
 
             return namespace;
         }
@@ -300,6 +501,8 @@ protected Namespace getNamespace( String repositoryId, String namespaceId )
     public void removeNamespace( RepositorySession session, String repositoryId, String namespaceId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
+        knownEntityKeys.clear();
 
         try
         {
@@ -378,6 +581,8 @@ public void removeNamespace( RepositorySession session, String repositoryId, Str
     public void removeRepository( RepositorySession session, final String repositoryId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
+        knownEntityKeys.clear();
 
         // TODO use cql queries to delete all
         List<String> namespacesKey = new ArrayList<>();
@@ -460,6 +665,7 @@ public void removeRepository( RepositorySession session, final String repository
     public List<String> getRootNamespaces( RepositorySession session, final String repoId )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -483,6 +689,7 @@ public List<String> getRootNamespaces( RepositorySession session, final String r
     public List<String> getChildNamespaces( RepositorySession session, final String repoId, final String namespaceId )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -542,6 +749,11 @@ protected List<String> getNamespaces( final String repoId )
     public void updateProject( RepositorySession session, String repositoryId, ProjectMetadata projectMetadata )
         throws MetadataRepositoryException
     {
+        String knownKey = "project:" + repositoryId + ":" + projectMetadata.getNamespace() + ":" + projectMetadata.getId();
+        if ( isKnownEntity( knownKey ) )
+        {
+            return;
+        }
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -555,6 +767,7 @@ public void updateProject( RepositorySession session, String repositoryId, Proje
         // project exists ? if yes return nothing to update here
         if ( result.get().getCount() > 0 )
         {
+            addKnownEntity( knownKey, false );
             return;
         }
         else
@@ -565,12 +778,13 @@ public void updateProject( RepositorySession session, String repositoryId, Proje
                 new Project.KeyBuilder().withProjectId( projectMetadata.getId() ).withNamespace( namespace ).build();
 
             String cf = cassandraArchivaManager.getProjectFamilyName();
-            projectTemplate.createMutator()
+            Mutator<String> mutator = createMutator()
                 //  values
                 .addInsertion( key, cf, CassandraUtils.column( PROJECT_ID.toString(), projectMetadata.getId() ) ) //
                 .addInsertion( key, cf, CassandraUtils.column( REPOSITORY_NAME.toString(), repositoryId ) ) //
-                .addInsertion( key, cf, CassandraUtils.column( NAMESPACE_ID.toString(), projectMetadata.getNamespace() ) )//
-                .execute();
+                .addInsertion( key, cf, CassandraUtils.column( NAMESPACE_ID.toString(), projectMetadata.getNamespace() ) );
+            executeMutator( mutator, cf, key );
+            addKnownEntity( knownKey, true );
         }
     }
 
@@ -578,6 +792,7 @@ public void updateProject( RepositorySession session, String repositoryId, Proje
     public List<String> getProjects( RepositorySession session, final String repoId, final String namespace )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -601,6 +816,8 @@ public List<String> getProjects( RepositorySession session, final String repoId,
     public void removeProject( RepositorySession session, final String repositoryId, final String namespaceId, final String projectId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
+        knownEntityKeys.clear();
 
         String key = new Project.KeyBuilder() //
             .withProjectId( projectId ) //
@@ -643,6 +860,7 @@ public void removeProject( RepositorySession session, final String repositoryId,
     public List<String> getProjectVersions( RepositorySession session, final String repoId, final String namespace, final String projectId )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -675,6 +893,7 @@ public List<String> getProjectVersions( RepositorySession session, final String
     public ProjectMetadata getProject( RepositorySession session, final String repoId, final String namespace, final String id )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -724,28 +943,24 @@ public void updateProjectVersion( RepositorySession session, String repositoryId
                                       ProjectVersionMetadata versionMetadata )
         throws MetadataRepositoryException
     {
-        try
-        {
-            Namespace namespace = getNamespace( repositoryId, namespaceId );
-
-            if ( namespace == null )
-            {
-                updateOrAddNamespace( repositoryId, namespaceId );
-            }
+        // both methods check the existence first
+        updateOrAddNamespace( repositoryId, namespaceId );
 
-            if ( getProject( session, repositoryId, namespaceId, projectId ) == null )
-            {
-                ProjectMetadata projectMetadata = new ProjectMetadata();
-                projectMetadata.setNamespace( namespaceId );
-                projectMetadata.setId( projectId );
-                updateProject( session, repositoryId, projectMetadata );
-            }
+        ProjectMetadata projectMetadata = new ProjectMetadata();
+        projectMetadata.setNamespace( namespaceId );
+        projectMetadata.setId( projectId );
+        updateProject( session, repositoryId, projectMetadata );
 
-        }
-        catch ( MetadataResolutionException e )
-        {
-            throw new MetadataRepositoryException( e.getMessage(), e );
-        }
+        // we don't test of repository and namespace really exist !
+        String key = new ProjectVersionMetadataModel.KeyBuilder() //
+            .withRepository( repositoryId ) //
+            .withNamespace( namespaceId ) //
+            .withProjectId( projectId ) //
+            .withProjectVersion( versionMetadata.getVersion() ) //
+            .withId( versionMetadata.getId() ) //
+            .build();
+        flushIfPending( cassandraArchivaManager.getProjectVersionMetadataFamilyName(),
+                        getProjectVersionGroupKey( repositoryId, namespaceId, projectId, versionMetadata.getId() ) );
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -782,20 +997,11 @@ public void updateProjectVersion( RepositorySession session, String repositoryId
         projectVersionMetadataModel.setDependencies( versionMetadata.getDependencies() );
         projectVersionMetadataModel.setLicenses( versionMetadata.getLicenses() );
 
-        // we don't test of repository and namespace really exist !
-        String key = new ProjectVersionMetadataModel.KeyBuilder() //
-            .withRepository( repositoryId ) //
-            .withNamespace( namespaceId ) //
-            .withProjectId( projectId ) //
-            .withProjectVersion( versionMetadata.getVersion() ) //
-            .withId( versionMetadata.getId() ) //
-            .build();
-
         // FIXME nested objects to store!!!
         if ( creation )
         {
             String cf = cassandraArchivaManager.getProjectVersionMetadataFamilyName();
-            Mutator<String> mutator = projectVersionMetadataTemplate.createMutator()
+            Mutator<String> mutator = createMutator()
                 //  values
                 .addInsertion( key, cf, column( PROJECT_ID.toString(), projectId ) ) //
                 .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) ) //
@@ -853,53 +1059,56 @@ public void updateProjectVersion( RepositorySession session, String repositoryId
 
             recordDependencies( key, versionMetadata.getDependencies(), repositoryId );
 
-            MutationResult mutationResult = mutator.execute();
+            executeMutator( mutator, cf,
+                            getProjectVersionGroupKey( repositoryId, namespaceId, projectId, versionMetadata.getVersion() ) );
         }
         else
         {
-            ColumnFamilyUpdater<String, String> updater = projectVersionMetadataTemplate.createUpdater( key );
-            addUpdateStringValue( updater, PROJECT_ID.toString(), projectId );
-            addUpdateStringValue( updater, REPOSITORY_NAME.toString(), repositoryId );
-            addUpdateStringValue( updater, NAMESPACE_ID.toString(), namespaceId );
-            addUpdateStringValue( updater, PROJECT_VERSION.toString(), versionMetadata.getVersion() );
-            addUpdateStringValue( updater, DESCRIPTION.toString(), versionMetadata.getDescription() );
+            // the existing row is overwritten with insertions, so the update is part of the pending batch
+            String cf = cassandraArchivaManager.getProjectVersionMetadataFamilyName();
+            Mutator<String> mutator = createMutator();
+            addInsertion( mutator, key, cf, PROJECT_ID.toString(), projectId );
+            addInsertion( mutator, key, cf, REPOSITORY_NAME.toString(), repositoryId );
+            addInsertion( mutator, key, cf, NAMESPACE_ID.toString(), namespaceId );
+            addInsertion( mutator, key, cf, PROJECT_VERSION.toString(), versionMetadata.getVersion() );
+            addInsertion( mutator, key, cf, DESCRIPTION.toString(), versionMetadata.getDescription() );
 
-            addUpdateStringValue( updater, NAME.toString(), versionMetadata.getName() );
+            addInsertion( mutator, key, cf, NAME.toString(), versionMetadata.getName() );
 
-            updater.setString( "incomplete", Boolean.toString( versionMetadata.isIncomplete() ) );
-            addUpdateStringValue( updater, URL.toString(), versionMetadata.getUrl() );
+            addInsertion( mutator, key, cf, "incomplete", Boolean.toString( versionMetadata.isIncomplete() ) );
+            addInsertion( mutator, key, cf, URL.toString(), versionMetadata.getUrl() );
 
             {
                 CiManagement ci = versionMetadata.getCiManagement();
                 if ( ci != null )
                 {
-                    addUpdateStringValue( updater, "ciManagement.system", ci.getSystem() );
-                    addUpdateStringValue( updater, "ciManagement.url", ci.getUrl() );
+                    addInsertion( mutator, key, cf, "ciManagement.system", ci.getSystem() );
+                    addInsertion( mutator, key, cf, "ciManagement.url", ci.getUrl() );
                 }
             }
             {
                 IssueManagement issueManagement = versionMetadata.getIssueManagement();
                 if ( issueManagement != null )
                 {
-                    addUpdateStringValue( updater, "issueManagement.system", issueManagement.getSystem() );
-                    addUpdateStringValue( updater, "issueManagement.url", issueManagement.getUrl() );
+                    addInsertion( mutator, key, cf, "issueManagement.system", issueManagement.getSystem() );
+                    addInsertion( mutator, key, cf, "issueManagement.url", issueManagement.getUrl() );
                 }
             }
             {
                 Organization organization = versionMetadata.getOrganization();
                 if ( organization != null )
                 {
-                    addUpdateStringValue( updater, "organization.name", organization.getName() );
-                    addUpdateStringValue( updater, "organization.url", organization.getUrl() );
+                    addInsertion( mutator, key, cf, "organization.name", organization.getName() );
+                    addInsertion( mutator, key, cf, "organization.url", organization.getUrl() );
                 }
             }
             {
                 Scm scm = versionMetadata.getScm();
                 if ( scm != null )
                 {
-                    addUpdateStringValue( updater, "scm.url", scm.getUrl() );
-                    addUpdateStringValue( updater, "scm.connection", scm.getConnection() );
-                    addUpdateStringValue( updater, "scm.developerConnection", scm.getDeveloperConnection() );
+                    addInsertion( mutator, key, cf, "scm.url", scm.getUrl() );
+                    addInsertion( mutator, key, cf, "scm.connection", scm.getConnection() );
+                    addInsertion( mutator, key, cf, "scm.developerConnection", scm.getDeveloperConnection() );
                 }
             }
 
@@ -913,7 +1122,8 @@ public void updateProjectVersion( RepositorySession session, String repositoryId
             removeDependencies( key );
             recordDependencies( key, versionMetadata.getDependencies(), repositoryId );
 
-            projectVersionMetadataTemplate.update( updater );
+            executeMutator( mutator, cf,
+                            getProjectVersionGroupKey( repositoryId, namespaceId, projectId, versionMetadata.getVersion() ) );
 
         }
 
@@ -933,6 +1143,7 @@ public ProjectVersionMetadata getProjectVersion( RepositorySession session, fina
                                                      final String projectId, final String projectVersion )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1053,7 +1264,7 @@ protected void recordChecksums( String repositoryId, String artifactMetadataKey,
         {
             return;
         }
-        Mutator<String> checksumMutator = this.checksumTemplate.createMutator();
+        Mutator<String> checksumMutator = createMutator();
         for ( Map.Entry<String, String> entry : checksums.entrySet())
         {
             // we don't care about the key as the real used one with the projectVersionMetadata
@@ -1068,11 +1279,13 @@ protected void recordChecksums( String repositoryId, String artifactMetadataKey,
             addInsertion(checksumMutator, keyChecksums, cfChecksums, REPOSITORY_NAME.toString(), repositoryId);
 
         }
-        checksumMutator.execute();
+        executeMutator( checksumMutator, cassandraArchivaManager.getChecksumFamilyName(), artifactMetadataKey );
     }
 
     protected void removeChecksums( String artifactMetadataKey )
     {
+        // pending rows of the key must be written, to be found by the query
+        flushIfPending( cassandraArchivaManager.getChecksumFamilyName(), artifactMetadataKey );
 
         QueryResult<OrderedRows<String, String, String>> result =
                 HFactory.createRangeSlicesQuery( cassandraArchivaManager.getKeyspace(), ss, ss, ss ) //
@@ -1089,7 +1302,7 @@ protected void removeChecksums( String artifactMetadataKey )
 
         for ( Row<String, String, String> row : result.get() )
         {
-            this.checksumTemplate.deleteRow( row.getKey() );
+            deleteRow( this.checksumTemplate, row.getKey() );
         }
 
     }
@@ -1124,7 +1337,7 @@ protected void recordMailingList( String projectVersionMetadataKey, List<Mailing
         {
             return;
         }
-        Mutator<String> mailingMutator = this.mailingListTemplate.createMutator();
+        Mutator<String> mailingMutator = createMutator();
         for ( MailingList mailingList : mailingLists )
         {
             // we don't care about the key as the real used one with the projectVersionMetadata
@@ -1149,11 +1362,13 @@ protected void recordMailingList( String projectVersionMetadataKey, List<Mailing
             }
 
         }
-        mailingMutator.execute();
+        executeMutator( mailingMutator, cassandraArchivaManager.getMailingListFamilyName(), projectVersionMetadataKey );
     }
 
     protected void removeMailingList( String projectVersionMetadataKey )
     {
+        // pending rows of the key must be written, to be found by the query
+        flushIfPending( cassandraArchivaManager.getMailingListFamilyName(), projectVersionMetadataKey );
 
         QueryResult<OrderedRows<String, String, String>> result =
             HFactory.createRangeSlicesQuery( cassandraArchivaManager.getKeyspace(), ss, ss, ss ) //
@@ -1170,7 +1385,7 @@ protected void removeMailingList( String projectVersionMetadataKey )
 
         for ( Row<String, String, String> row : result.get() )
         {
-            this.mailingListTemplate.deleteRow( row.getKey() );
+            deleteRow( this.mailingListTemplate, row.getKey() );
         }
 
     }
@@ -1222,7 +1437,7 @@ protected void recordLicenses( String projectVersionMetadataKey, List<License> l
         {
             return;
         }
-        Mutator<String> licenseMutator = this.licenseTemplate.createMutator();
+        Mutator<String> licenseMutator = createMutator();
 
         for ( License license : licenses )
         {
@@ -1238,11 +1453,13 @@ protected void recordLicenses( String projectVersionMetadataKey, List<License> l
             addInsertion( licenseMutator, keyLicense, cfLicense, URL.toString(), license.getUrl() );
 
         }
-        licenseMutator.execute();
+        executeMutator( licenseMutator, cassandraArchivaManager.getLicenseFamilyName(), projectVersionMetadataKey );
     }
 
     protected void removeLicenses( String projectVersionMetadataKey )
     {
+        // pending rows of the key must be written, to be found by the query
+        flushIfPending( cassandraArchivaManager.getLicenseFamilyName(), projectVersionMetadataKey );
 
         QueryResult<OrderedRows<String, String, String>> result =
             HFactory.createRangeSlicesQuery( cassandraArchivaManager.getKeyspace(), ss, ss, ss ) //
@@ -1253,7 +1470,7 @@ protected void removeLicenses( String projectVersionMetadataKey )
                 .execute();
         for ( Row<String, String, String> row : result.get() )
         {
-            this.licenseTemplate.deleteRow( row.getKey() );
+            deleteRow( this.licenseTemplate, row.getKey() );
         }
     }
 
@@ -1289,7 +1506,7 @@ protected void recordDependencies( String projectVersionMetadataKey, List<Depend
         {
             return;
         }
-        Mutator<String> dependencyMutator = this.dependencyTemplate.createMutator();
+        Mutator<String> dependencyMutator = createMutator();
 
         for ( Dependency dependency : dependencies )
         {
@@ -1320,11 +1537,13 @@ protected void recordDependencies( String projectVersionMetadataKey, List<Depend
             addInsertion( dependencyMutator, keyDependency, cfDependency, VERSION.toString(), dependency.getVersion() );
 
         }
-        dependencyMutator.execute();
+        executeMutator( dependencyMutator, cassandraArchivaManager.getDependencyFamilyName(), projectVersionMetadataKey );
     }
 
     protected void removeDependencies( String projectVersionMetadataKey )
     {
+        // pending rows of the key must be written, to be found by the query
+        flushIfPending( cassandraArchivaManager.getDependencyFamilyName(), projectVersionMetadataKey );
 
         QueryResult<OrderedRows<String, String, String>> result =
             HFactory.createRangeSlicesQuery( cassandraArchivaManager.getKeyspace(), ss, ss, ss ) //
@@ -1335,7 +1554,7 @@ protected void removeDependencies( String projectVersionMetadataKey )
                 .execute();
         for ( Row<String, String, String> row : result.get() )
         {
-            this.dependencyTemplate.deleteRow( row.getKey() );
+            deleteRow( this.dependencyTemplate, row.getKey() );
         }
     }
 
@@ -1397,11 +1616,7 @@ public void updateArtifact( RepositorySession session, String repositoryId, Stri
         throws MetadataRepositoryException
     {
 
-        Namespace namespace = getNamespace( repositoryId, namespaceId );
-        if ( namespace == null )
-        {
-            namespace = updateOrAddNamespace( repositoryId, namespaceId );
-        }
+        Namespace namespace = updateOrAddNamespace( repositoryId, namespaceId );
 
         ProjectMetadata projectMetadata = new ProjectMetadata();
         projectMetadata.setId( projectId );
@@ -1412,26 +1627,28 @@ public void updateArtifact( RepositorySession session, String repositoryId, Stri
             artifactMeta.getId() ).withProjectVersion( projectVersion ).build();
 
         // exists?
+        flushIfPending( cassandraArchivaManager.getArtifactMetadataFamilyName(), key );
 
         boolean exists = this.artifactMetadataTemplate.isColumnsExist( key );
 
         if ( exists )
         {
-            // updater
-            ColumnFamilyUpdater<String, String> updater = this.artifactMetadataTemplate.createUpdater( key );
-            updater.setLong( FILE_LAST_MODIFIED.toString(), artifactMeta.getFileLastModified().toInstant().toEpochMilli());
-            updater.setLong( WHEN_GATHERED.toString(), artifactMeta.getWhenGathered().toInstant().toEpochMilli() );
-            updater.setLong( SIZE.toString(), artifactMeta.getSize() );
-            addUpdateStringValue( updater, VERSION.toString(), artifactMeta.getVersion() );
+            // overwrite the columns with insertions, so the update is part of the pending batch
+            String cf = this.cassandraArchivaManager.getArtifactMetadataFamilyName();
+            Mutator<String> mutator = createMutator() //
+                .addInsertion( key, cf, column( FILE_LAST_MODIFIED.toString(), artifactMeta.getFileLastModified().toInstant().toEpochMilli() ) ) //
+                .addInsertion( key, cf, column( WHEN_GATHERED.toString(), artifactMeta.getWhenGathered().toInstant().toEpochMilli() ) ) //
+                .addInsertion( key, cf, column( SIZE.toString(), artifactMeta.getSize() ) );
+            addInsertion( mutator, key, cf, VERSION.toString(), artifactMeta.getVersion() );
             removeChecksums(key);
             recordChecksums(repositoryId, key, mapChecksums(artifactMeta.getChecksums()));
-            this.artifactMetadataTemplate.update( updater );
+            executeMutator( mutator, cf, key );
         }
         else
         {
             String cf = this.cassandraArchivaManager.getArtifactMetadataFamilyName();
             // create
-            this.artifactMetadataTemplate.createMutator() //
+            Mutator<String> mutator = createMutator() //
                 .addInsertion( key, cf, column( ID.toString(), artifactMeta.getId() ) )//
                 .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) ) //
                 .addInsertion( key, cf, column( NAMESPACE_ID.toString(), namespaceId ) ) //
@@ -1440,8 +1657,8 @@ public void updateArtifact( RepositorySession session, String repositoryId, Stri
                 .addInsertion( key, cf, column( VERSION.toString(), artifactMeta.getVersion() ) ) //
                 .addInsertion( key, cf, column( FILE_LAST_MODIFIED.toString(), artifactMeta.getFileLastModified().toInstant().toEpochMilli() ) ) //
                 .addInsertion( key, cf, column( SIZE.toString(), artifactMeta.getSize() ) ) //
-                .addInsertion( key, cf, column( WHEN_GATHERED.toString(), artifactMeta.getWhenGathered().toInstant().toEpochMilli() ) )//
-                .execute();
+                .addInsertion( key, cf, column( WHEN_GATHERED.toString(), artifactMeta.getWhenGathered().toInstant().toEpochMilli() ) );
+            executeMutator( mutator, cf, key );
             recordChecksums(repositoryId, key, mapChecksums(artifactMeta.getChecksums()));
         }
 
@@ -1453,30 +1670,38 @@ public void updateArtifact( RepositorySession session, String repositoryId, Stri
             .withId( artifactMeta.getId() ) //
             .build();
 
-        QueryResult<OrderedRows<String, String, String>> result = HFactory //
-            .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
-            .setColumnFamily( cassandraArchivaManager.getProjectVersionMetadataFamilyName() ) //
-            .setColumnNames( VERSION.toString() ) //
-            .addEqualsExpression( REPOSITORY_NAME.toString(), repositoryId ) //
-            .addEqualsExpression( NAMESPACE_ID.toString(), namespaceId ) //
-            .addEqualsExpression( PROJECT_ID.toString(), projectId ) //
-            .addEqualsExpression( PROJECT_VERSION.toString(), projectVersion ) //
-            .addEqualsExpression( VERSION.toString(), artifactMeta.getVersion() ) //
-            .execute();
+        // a pending row of the same version would be found by the query
+        String projectVersionGroupKey = getProjectVersionGroupKey( repositoryId, namespaceId, projectId, projectVersion );
+        exists = isPending( cassandraArchivaManager.getProjectVersionMetadataFamilyName(),
+                            projectVersionGroupKey + ':' + artifactMeta.getVersion() );
+        if ( !exists )
+        {
+            QueryResult<OrderedRows<String, String, String>> result = HFactory //
+                .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
+                .setColumnFamily( cassandraArchivaManager.getProjectVersionMetadataFamilyName() ) //
+                .setColumnNames( VERSION.toString() ) //
+                .addEqualsExpression( REPOSITORY_NAME.toString(), repositoryId ) //
+                .addEqualsExpression( NAMESPACE_ID.toString(), namespaceId ) //
+                .addEqualsExpression( PROJECT_ID.toString(), projectId ) //
+                .addEqualsExpression( PROJECT_VERSION.toString(), projectVersion ) //
+                .addEqualsExpression( VERSION.toString(), artifactMeta.getVersion() ) //
+                .execute();
 
-        exists = result.get().getCount() > 0;
+            exists = result.get().getCount() > 0;
+        }
 
         if ( !exists )
         {
             String cf = this.cassandraArchivaManager.getProjectVersionMetadataFamilyName();
 
-            projectVersionMetadataTemplate.createMutator() //
+            Mutator<String> mutator = createMutator() //
                 .addInsertion( key, cf, column( NAMESPACE_ID.toString(), namespace.getName() ) ) //
                 .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) ) //
                 .addInsertion( key, cf, column( PROJECT_VERSION.toString(), projectVersion ) ) //
                 .addInsertion( key, cf, column( PROJECT_ID.toString(), projectId ) ) //
-                .addInsertion( key, cf, column( VERSION.toString(), artifactMeta.getVersion() ) ) //
-                .execute();
+                .addInsertion( key, cf, column( VERSION.toString(), artifactMeta.getVersion() ) );
+            executeMutator( mutator, cf, projectVersionGroupKey );
+            markPending( cf, projectVersionGroupKey + ':' + artifactMeta.getVersion() );
 
         }
 
@@ -1502,6 +1727,7 @@ public List<String> getArtifactVersions( RepositorySession session, final String
                                              final String projectVersion )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1543,7 +1769,11 @@ private void updateFacets( final FacetedMetadata facetedMetadata,
             {
                 continue;
             }
-            // clean first
+            // clean first, pending rows of the same facet must be written, to be found by the query
+            String facetRowsKey = artifactMetadataModel.getRepositoryId() + ':' + artifactMetadataModel.getNamespace()
+                + ':' + artifactMetadataModel.getProject() + ':' + artifactMetadataModel.getProjectVersion() + ':'
+                + facetId;
+            flushIfPending( cf, facetRowsKey );
 
             QueryResult<OrderedRows<String, String, String>> result =
                 HFactory.createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1558,7 +1788,7 @@ private void updateFacets( final FacetedMetadata facetedMetadata,
 
             for ( Row<String, String, String> row : result.get().getList() )
             {
-                this.metadataFacetTemplate.deleteRow( row.getKey() );
+                deleteRow( this.metadataFacetTemplate, row.getKey() );
             }
 
             Map<String, String> properties = metadataFacet.toProperties();
@@ -1567,7 +1797,7 @@ private void updateFacets( final FacetedMetadata facetedMetadata,
             {
                 String key = new MetadataFacetModel.KeyBuilder().withKey( entry.getKey() ).withArtifactMetadataModel(
                     artifactMetadataModel ).withFacetId( facetId ).withName( metadataFacet.getName() ).build();
-                Mutator<String> mutator = metadataFacetTemplate.createMutator() //
+                Mutator<String> mutator = createMutator() //
                     .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), artifactMetadataModel.getRepositoryId() ) ) //
                     .addInsertion( key, cf, column( NAMESPACE_ID.toString(), artifactMetadataModel.getNamespace() ) ) //
                     .addInsertion( key, cf, column( PROJECT_ID.toString(), artifactMetadataModel.getProject() ) ) //
@@ -1581,7 +1811,7 @@ private void updateFacets( final FacetedMetadata facetedMetadata,
                     mutator.addInsertion( key, cf, column( NAME.toString(), metadataFacet.getName() ) );
                 }
 
-                mutator.execute();
+                executeMutator( mutator, cf, facetRowsKey );
             }
         }
     }
@@ -1591,6 +1821,7 @@ private void updateFacets( final FacetedMetadata facetedMetadata,
     public List<String> getMetadataFacets( RepositorySession session, final String repositoryId, final String facetId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1682,6 +1913,7 @@ public int characteristics( )
     @Override
     public <T extends MetadataFacet> Stream<T> getMetadataFacetStream(RepositorySession session, String repositoryId, Class<T> facetClazz, QueryParameter queryParameter) throws MetadataRepositoryException
     {
+        flushPendingWrites();
         final MetadataFacetFactory<T> metadataFacetFactory = getFacetFactory( facetClazz );
         final String facetId = metadataFacetFactory.getFacetId( );
 
@@ -1724,6 +1956,7 @@ public <T extends MetadataFacet> Stream<T> getMetadataFacetStream(RepositorySess
     public boolean hasMetadataFacet( RepositorySession session, String repositoryId, String facetId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         return !getMetadataFacets( session, repositoryId, facetId ).isEmpty();
     }
 
@@ -1731,6 +1964,7 @@ public boolean hasMetadataFacet( RepositorySession session, String repositoryId,
     public <T extends MetadataFacet> T getMetadataFacet( RepositorySession session, final String repositoryId, final Class<T> facetClazz, final String name )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         final MetadataFacetFactory<T> metadataFacetFactory = getFacetFactory( facetClazz );
         if (metadataFacetFactory==null) {
             return null;
@@ -1769,6 +2003,7 @@ public <T extends MetadataFacet> T getMetadataFacet( RepositorySession session,
     @Override
     public MetadataFacet getMetadataFacet( RepositorySession session, String repositoryId, String facetId, String name ) throws MetadataRepositoryException
     {
+        flushPendingWrites();
         return getMetadataFacet( session, repositoryId, getFactoryClassForId( facetId ), name );
     }
 
@@ -1782,30 +2017,23 @@ public void addMetadataFacet( RepositorySession session, String repositoryId, Me
             return;
         }
 
+        String cf = this.cassandraArchivaManager.getMetadataFacetFamilyName();
         if ( metadataFacet.toProperties().isEmpty() )
         {
             String key = new MetadataFacetModel.KeyBuilder().withRepositoryId( repositoryId ).withFacetId(
                 metadataFacet.getFacetId() ).withName( metadataFacet.getName() ).build();
 
+            flushIfPending( cf, key );
             boolean exists = this.metadataFacetTemplate.isColumnsExist( key );
 
-            if ( exists )
-            {
-                ColumnFamilyUpdater<String, String> updater = this.metadataFacetTemplate.createUpdater( key );
-                addUpdateStringValue( updater, FACET_ID.toString(), metadataFacet.getFacetId() );
-                addUpdateStringValue( updater, NAME.toString(), metadataFacet.getName() );
-                this.metadataFacetTemplate.update( updater );
-            }
-            else
+            Mutator<String> mutator = createMutator();
+            if ( !exists )
             {
-                String cf = this.cassandraArchivaManager.getMetadataFacetFamilyName();
-                this.metadataFacetTemplate.createMutator() //
-                    .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) ) //
-                    .addInsertion( key, cf, column( FACET_ID.toString(), metadataFacet.getFacetId() ) ) //
-                    .addInsertion( key, cf, column( NAME.toString(), metadataFacet.getName() ) ) //
-                    .execute();
+                mutator.addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) );
             }
-
+            addInsertion( mutator, key, cf, FACET_ID.toString(), metadataFacet.getFacetId() );
+            addInsertion( mutator, key, cf, NAME.toString(), metadataFacet.getName() );
+            executeMutator( mutator, cf, key );
         }
         else
         {
@@ -1814,24 +2042,19 @@ public void addMetadataFacet( RepositorySession session, String repositoryId, Me
                 String key = new MetadataFacetModel.KeyBuilder().withRepositoryId( repositoryId ).withFacetId(
                     metadataFacet.getFacetId() ).withName( metadataFacet.getName() ).withKey( entry.getKey() ).build();
 
+                flushIfPending( cf, key );
                 boolean exists = this.metadataFacetTemplate.isColumnsExist( key );
+                Mutator<String> mutator = createMutator();
                 if ( !exists )
                 {
-                    String cf = this.cassandraArchivaManager.getMetadataFacetFamilyName();
-                    this.metadataFacetTemplate.createMutator() //
+                    mutator //
                         .addInsertion( key, cf, column( REPOSITORY_NAME.toString(), repositoryId ) ) //
                         .addInsertion( key, cf, column( FACET_ID.toString(), metadataFacet.getFacetId() ) ) //
                         .addInsertion( key, cf, column( NAME.toString(), metadataFacet.getName() ) ) //
-                        .addInsertion( key, cf, column( KEY.toString(), entry.getKey() ) ) //
-                        .addInsertion( key, cf, column( VALUE.toString(), entry.getValue() ) ) //
-                        .execute();
-                }
-                else
-                {
-                    ColumnFamilyUpdater<String, String> updater = this.metadataFacetTemplate.createUpdater( key );
-                    addUpdateStringValue( updater, VALUE.toString(), entry.getValue() );
-                    this.metadataFacetTemplate.update( updater );
+                        .addInsertion( key, cf, column( KEY.toString(), entry.getKey() ) );
                 }
+                addInsertion( mutator, key, cf, VALUE.toString(), entry.getValue() );
+                executeMutator( mutator, cf, key );
             }
         }
     }
@@ -1840,6 +2063,7 @@ public void addMetadataFacet( RepositorySession session, String repositoryId, Me
     public void removeMetadataFacets( RepositorySession session, final String repositoryId, final String facetId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1860,6 +2084,7 @@ public void removeMetadataFacets( RepositorySession session, final String reposi
     public void removeMetadataFacet( RepositorySession session, final String repositoryId, final String facetId, final String name )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -1881,23 +2106,9 @@ public List<ArtifactMetadata> getArtifactsByDateRange( RepositorySession session
                                                            final ZonedDateTime endTime, QueryParameter queryParameter )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
-        LongSerializer ls = LongSerializer.get();
-        RangeSlicesQuery<String, String, Long> query = HFactory //
-            .createRangeSlicesQuery( keyspace, ss, ss, ls ) //
-            .setColumnFamily( cassandraArchivaManager.getArtifactMetadataFamilyName() ) //
-            .setColumnNames( ArtifactMetadataModel.COLUMNS ); //
-
-
-        if ( startTime != null )
-        {
-            query = query.addGteExpression( WHEN_GATHERED.toString(), startTime.toInstant().toEpochMilli() );
-        }
-        if ( endTime != null )
-        {
-            query = query.addLteExpression( WHEN_GATHERED.toString(), endTime.toInstant().toEpochMilli() );
-        }
-        QueryResult<OrderedRows<String, String, Long>> result = query.execute();
+        QueryResult<OrderedRows<String, String, Long>> result = createDateRangeQuery( startTime, endTime ).execute();
 
         List<ArtifactMetadata> artifactMetadatas = new ArrayList<>( result.get().getCount() );
         Iterator<Row<String, String, Long>> keyIter = result.get().iterator();
@@ -1933,12 +2144,88 @@ public List<ArtifactMetadata> getArtifactsByDateRange( RepositorySession session
     @Override
     public Stream<ArtifactMetadata> getArtifactByDateRangeStream( RepositorySession session, String repositoryId, ZonedDateTime startTime, ZonedDateTime endTime, QueryParameter queryParameter) throws MetadataRepositoryException
     {
-        Comparator<ArtifactMetadata> comp = getArtifactMetadataComparator(queryParameter, "whenGathered");
-        return getArtifactsByDateRange(session, repositoryId, startTime, endTime, queryParameter).stream().sorted(comp).skip(queryParameter.getOffset()).limit(queryParameter.getLimit());
+        flushPendingWrites();
+        final Comparator<ArtifactMetadata> comp = getArtifactMetadataComparator(queryParameter, "whenGathered");
+        final Comparator<Map.Entry<String, ArtifactMetadata>> entryComp = Map.Entry.comparingByValue( comp );
+        final long maxSize = getMaxResultSize( queryParameter );
+
+        // The rows are fetched page by page. Only the first offset+limit artifacts in sort order are kept,
+        // the checksums are read only for the artifacts that are returned.
+        Iterator<Row<String, String, Long>> rows =
+            new PagedRowIterator<>( createDateRangeQuery( startTime, endTime ), cassandraArchivaManager.getReadPageSize( ) );
+        Collection<Map.Entry<String, ArtifactMetadata>> selected;
+        PriorityQueue<Map.Entry<String, ArtifactMetadata>> queue = null;
+        if ( maxSize < Integer.MAX_VALUE )
+        {
+            queue = new PriorityQueue<>( (int) Math.min( maxSize + 1, 1024 ), entryComp.reversed( ) );
+            selected = queue;
+        }
+        else
+        {
+            selected = new ArrayList<>( );
+        }
+        while ( rows.hasNext( ) )
+        {
+            Row<String, String, Long> row = rows.next( );
+            ColumnSlice<String, Long> columnSlice = row.getColumnSlice( );
+            if ( StringUtils.equals( getAsStringValue( columnSlice, REPOSITORY_NAME.toString( ) ), repositoryId ) )
+            {
+                selected.add( new AbstractMap.SimpleImmutableEntry<>( row.getKey( ),
+                    mapArtifactMetadataLongColumns( columnSlice ) ) );
+                if ( queue != null && queue.size( ) > maxSize )
+                {
+                    queue.poll( );
+                }
+            }
+        }
+        return selected.stream( ).sorted( entryComp ).skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) )
+            .map( entry -> {
+                ArtifactMetadata artifactMetadata = entry.getValue( );
+                artifactMetadata.setChecksums( mapChecksumsReverse( getChecksums( entry.getKey( ) ) ) );
+                return artifactMetadata;
+            } );
+    }
+
+    private RangeSlicesQuery<String, String, Long> createDateRangeQuery( ZonedDateTime startTime, ZonedDateTime endTime )
+    {
+        LongSerializer ls = LongSerializer.get();
+        RangeSlicesQuery<String, String, Long> query = HFactory //
+            .createRangeSlicesQuery( keyspace, ss, ss, ls ) //
+            .setColumnFamily( cassandraArchivaManager.getArtifactMetadataFamilyName() ) //
+            .setColumnNames( ArtifactMetadataModel.COLUMNS ); //
+
+
+        if ( startTime != null )
+        {
+            query = query.addGteExpression( WHEN_GATHERED.toString(), startTime.toInstant().toEpochMilli() );
+        }
+        if ( endTime != null )
+        {
+            query = query.addLteExpression( WHEN_GATHERED.toString(), endTime.toInstant().toEpochMilli() );
+        }
+        return query;
+    }
+
+    /**
+     * Returns the number of rows, that must be read to return the requested result, or
+     * {@link Long#MAX_VALUE}, if the query is not limited.
+     */
+    private static long getMaxResultSize( QueryParameter queryParameter )
+    {
+        long offset = Math.max( queryParameter.getOffset( ), 0 );
+        long limit = queryParameter.getLimit( );
+        return limit > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + limit;
     }
 
 
     protected ArtifactMetadata mapArtifactMetadataLongColumnSlice( String key, ColumnSlice<String, Long> columnSlice )
+    {
+        ArtifactMetadata artifactMetadata = mapArtifactMetadataLongColumns( columnSlice );
+        artifactMetadata.setChecksums(mapChecksumsReverse(getChecksums(key)));
+        return artifactMetadata;
+    }
+
+    private ArtifactMetadata mapArtifactMetadataLongColumns( ColumnSlice<String, Long> columnSlice )
     {
         ArtifactMetadata artifactMetadata = new ArtifactMetadata();
         artifactMetadata.setNamespace( getAsStringValue( columnSlice, NAMESPACE_ID.toString() ) );
@@ -1956,7 +2243,6 @@ protected ArtifactMetadata mapArtifactMetadataLongColumnSlice( String key, Colum
         {
             artifactMetadata.setWhenGathered(ZonedDateTime.ofInstant(Instant.ofEpochMilli(whenGathered), STORAGE_TZ));
         }
-        artifactMetadata.setChecksums(mapChecksumsReverse(getChecksums(key)));
         return artifactMetadata;
     }
 
@@ -1986,6 +2272,7 @@ protected ArtifactMetadata mapArtifactMetadataStringColumnSlice( String key, Col
     public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session, final String repositoryId, final String checksum )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         // cql cannot run or in queries so running twice the query
         Map<String, ArtifactMetadata> artifactMetadataMap = new HashMap<>();
@@ -2036,6 +2323,7 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
     public List<ArtifactMetadata> getArtifactsByProjectVersionFacet( RepositorySession session, String key, String value, String repositoryId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         return this.getArtifactsByAttribute( session, key, value, repositoryId );
     }
 
@@ -2043,6 +2331,7 @@ public List<ArtifactMetadata> getArtifactsByProjectVersionFacet( RepositorySessi
     public List<ArtifactMetadata> getArtifactsByAttribute( RepositorySession session, String key, String value, String repositoryId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         RangeSlicesQuery<String, String, String> query =
             HFactory.createRangeSlicesQuery( keyspace, ss, ss, ss ) //
             .setColumnFamily( cassandraArchivaManager.getMetadataFacetFamilyName() ) //
@@ -2102,6 +2391,7 @@ public List<ArtifactMetadata> getArtifactsByAttribute( RepositorySession session
     public List<ArtifactMetadata> getArtifactsByProjectVersionAttribute( RepositorySession session, String key, String value, String repositoryId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         QueryResult<OrderedRows<String, String, String>> result =
             HFactory.createRangeSlicesQuery( keyspace, ss, ss, ss ) //
             .setColumnFamily( cassandraArchivaManager.getProjectVersionMetadataFamilyName() ) //
@@ -2144,6 +2434,7 @@ public void removeArtifact( RepositorySession session, final String repositoryId
                                 final String version, final String id )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         logger.debug( "removeTimestampedArtifact repositoryId: '{}', namespace: '{}', project: '{}', version: '{}', id: '{}'",
                       repositoryId, namespace, project, version, id );
         String key =
@@ -2167,6 +2458,7 @@ public void removeArtifact( RepositorySession session, final String repositoryId
     public void removeTimestampedArtifact( RepositorySession session, ArtifactMetadata artifactMetadata, String baseVersion )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         logger.debug( "removeTimestampedArtifact repositoryId: '{}', namespace: '{}', project: '{}', version: '{}', id: '{}'",
                       artifactMetadata.getRepositoryId(), artifactMetadata.getNamespace(),
                       artifactMetadata.getProject(), baseVersion, artifactMetadata.getId() );
@@ -2184,6 +2476,7 @@ public void removeFacetFromArtifact( RepositorySession session, final String rep
                                          final String version, final MetadataFacet metadataFacet )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         RangeSlicesQuery<String, String, String> query = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -2208,6 +2501,7 @@ public void removeFacetFromArtifact( RepositorySession session, final String rep
     public List<ArtifactMetadata> getArtifacts( RepositorySession session, final String repositoryId )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
 
         RangeSlicesQuery<String, String, String> query = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -2239,6 +2533,7 @@ public List<ProjectVersionReference> getProjectReferences( RepositorySession ses
                                                                String projectVersion )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
             .setColumnFamily( cassandraArchivaManager.getDependencyFamilyName() ) //
@@ -2276,6 +2571,8 @@ public void removeProjectVersion( RepositorySession session, final String repoId
                                       final String projectVersion )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
+        knownEntityKeys.clear();
 
         QueryResult<OrderedRows<String, String, String>> result = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -2319,6 +2616,7 @@ public List<ArtifactMetadata> getArtifacts( RepositorySession session, final Str
                                                 final String projectId, final String projectVersion )
         throws MetadataResolutionException
     {
+        flushPendingWrites();
 
         QueryResult<OrderedRows<String, String, String>> result =
             HFactory.createRangeSlicesQuery( keyspace, ss, ss, ss ) //
@@ -2464,6 +2762,7 @@ public List<ArtifactMetadata> searchArtifacts( final RepositorySession session,
                                                    final String text, final boolean exact )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         return this.getArtifactsByAttribute( session, null, text, repositoryId );
     }
 
@@ -2475,6 +2774,7 @@ public List<ArtifactMetadata> searchArtifacts( final RepositorySession session,
                                                    final String key, final String text, final boolean exact )
         throws MetadataRepositoryException
     {
+        flushPendingWrites();
         // TODO optimize
         List<ArtifactMetadata> artifacts = new LinkedList<ArtifactMetadata>();
         artifacts.addAll( this.getArtifactsByAttribute( session, key, text, repositoryId ) );
@@ -2486,6 +2786,7 @@ public List<ArtifactMetadata> searchArtifacts( final RepositorySession session,
     public Stream<ArtifactMetadata> getArtifactStream( final RepositorySession session, final String repositoryId,
                                                        final QueryParameter queryParameter ) throws MetadataResolutionException
     {
+        flushPendingWrites();
         RangeSlicesQuery<String, String, String> query = HFactory //
             .createRangeSlicesQuery( keyspace, ss, ss, ss ) //
             .setColumnFamily( cassandraArchivaManager.getArtifactMetadataFamilyName( ) ) //
@@ -2493,18 +2794,13 @@ public Stream<ArtifactMetadata> getArtifactStream( final RepositorySession sessi
 
         query = query.addEqualsExpression( REPOSITORY_NAME.toString(), repositoryId );
 
-        QueryResult<OrderedRows<String, String, String>> result = query.execute();
-
-        try
-        {
-            return StreamSupport.stream( createResultSpliterator( result, ( Row<String, String, String> row, ArtifactMetadata last ) ->
-                mapArtifactMetadataStringColumnSlice( row.getKey( ), row.getColumnSlice( ) ) ), false )
-                .skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) );
-        }
-        catch ( MetadataRepositoryException e )
-        {
-            throw new MetadataResolutionException( e.getMessage( ), e );
-        }
+        // Rows are fetched lazily page by page. Skipped rows are not mapped, and no more pages are read
+        // than needed for offset and limit.
+        int pageSize = (int) Math.min( cassandraArchivaManager.getReadPageSize( ), getMaxResultSize( queryParameter ) );
+        Iterator<Row<String, String, String>> rows = new PagedRowIterator<>( query, pageSize );
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( rows, Spliterator.ORDERED | Spliterator.NONNULL ), false )
+            .skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) )
+            .map( row -> mapArtifactMetadataStringColumnSlice( row.getKey( ), row.getColumnSlice( ) ) );
     }
 
     @Override
@@ -2512,10 +2808,16 @@ public Stream<ArtifactMetadata> getArtifactStream( final RepositorySession sessi
                                                        final String namespace, final String projectId, final String projectVersion,
                                                        final QueryParameter queryParameter ) throws MetadataResolutionException
     {
+        flushPendingWrites();
         // Currently we have to align the facets with the artifacts, which means querying artifacts, querying facets and combining them.
         // I so no stream friendly way to do this, so we just use the collection based method and return the stream.
         // TODO: Maybe we can query the facets for each artifact separately, but not sure, if this affects performance significantly
         //       We need some data to verify this.
-        return getArtifacts( session, repoId, namespace, projectId, projectVersion ).stream( ).skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) );
+        Stream<ArtifactMetadata> artifacts = getArtifacts( session, repoId, namespace, projectId, projectVersion ).stream( );
+        if ( !queryParameter.getSortFields( ).isEmpty( ) )
+        {
+            artifacts = artifacts.sorted( getArtifactMetadataComparator( queryParameter, "whenGathered" ) );
+        }
+        return artifacts.skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) );
     }
 }
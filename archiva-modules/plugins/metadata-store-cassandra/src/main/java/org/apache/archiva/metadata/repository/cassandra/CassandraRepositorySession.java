@@ -0,0 +1,77 @@
+package org.apache.archiva.metadata.repository.cassandra;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import me.prettyprint.hector.api.exceptions.HectorException;
+import org.apache.archiva.metadata.repository.MetadataResolver;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+
+/**
+ * Session implementation for the cassandra repository. If the repository is in the batched write mode, the
+ * writes of the update methods are written as a single batch on {@link #save()} and on {@link #close()}.
+ * {@link #revert()} drops the writes, that are not written yet.
+ *
+ * @since 3.0
+ */
+public class CassandraRepositorySession extends RepositorySession
+{
+    private final CassandraMetadataRepository repository;
+
+    public CassandraRepositorySession( CassandraMetadataRepository metadataRepository, MetadataResolver resolver )
+    {
+        super( metadataRepository, resolver );
+        this.repository = metadataRepository;
+    }
+
+    public CassandraMetadataRepository getCassandraRepository( )
+    {
+        return repository;
+    }
+
+    @Override
+    public void save( ) throws MetadataSessionException
+    {
+        super.save( );
+        try
+        {
+            repository.flushPendingWrites( );
+        }
+        catch ( HectorException e )
+        {
+            throw new MetadataSessionException( e.getMessage( ), e );
+        }
+    }
+
+    @Override
+    public void revert( ) throws MetadataSessionException
+    {
+        super.revert( );
+        repository.discardPendingWrites( );
+    }
+
+    @Override
+    public void close( )
+    {
+        super.close( );
+        // the writes of the cassandra repository were never bound to save, so they are not dropped here
+        repository.flushPendingWrites( );
+    }
+}
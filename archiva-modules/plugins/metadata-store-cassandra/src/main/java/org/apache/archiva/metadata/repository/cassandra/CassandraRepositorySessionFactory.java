@@ -35,6 +35,8 @@
 import javax.inject.Named;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Olivier Lamy
@@ -61,6 +63,14 @@ public class CassandraRepositorySessionFactory extends AbstractRepositorySession
     @Inject
     private MetadataService metadataService;
 
+    /**
+     * Maximum number of entries of the known entity keys, before the set is cleared.
+     */
+    private static final int MAX_KNOWN_ENTITY_KEYS = 100000;
+
+    // keys of repositories, namespaces and projects known to exist, shared by the sessions
+    private final Set<String> knownEntityKeys = ConcurrentHashMap.newKeySet();
+
     public void initialize()
     {
     }
@@ -76,7 +86,13 @@ public RepositorySession createSession() throws MetadataRepositoryException
     {
         CassandraMetadataRepository metadataRepository =
             new CassandraMetadataRepository( metadataService, configuration, cassandraArchivaManager );
-        return new RepositorySession( metadataRepository, metadataResolver );
+        if ( knownEntityKeys.size() > MAX_KNOWN_ENTITY_KEYS )
+        {
+            knownEntityKeys.clear();
+        }
+        metadataRepository.setKnownEntityKeys( knownEntityKeys );
+        metadataRepository.setBatchWrites( cassandraArchivaManager.isBatchWrites() );
+        return new CassandraRepositorySession( metadataRepository, metadataResolver );
     }
 
 }
@@ -118,6 +118,12 @@
     @Value("${cassandra.cluster.name}")
     private String clusterName;
 
+    @Value("${cassandra.readPageSize:500}")
+    private int readPageSize = 500;
+
+    @Value("${cassandra.batchWrites:true}")
+    private boolean batchWrites = true;
+
     @Inject
     private RepositorySessionFactoryBean repositorySessionFactoryBean;
 
@@ -603,4 +609,14 @@ public String getDependencyFamilyName()
     public String getChecksumFamilyName() {
         return checksumFamilyName;
     }
+
+    @Override
+    public int getReadPageSize() {
+        return readPageSize;
+    }
+
+    @Override
+    public boolean isBatchWrites() {
+        return batchWrites;
+    }
 }
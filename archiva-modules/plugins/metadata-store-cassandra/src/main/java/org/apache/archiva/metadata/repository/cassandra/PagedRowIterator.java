@@ -0,0 +1,123 @@
+package org.apache.archiva.metadata.repository.cassandra;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import me.prettyprint.hector.api.beans.OrderedRows;
+import me.prettyprint.hector.api.beans.Row;
+import me.prettyprint.hector.api.query.RangeSlicesQuery;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the rows of a range slices query, by fetching the rows page by page. Each page starts at the key
+ * of the last row of the previous page, so only a single page is held in memory.
+ * <p>
+ * The query is modified by the iterator (keys and row count), it must not be used concurrently.
+ *
+ * @param <V> the column value type
+ * @since 3.0
+ */
+class PagedRowIterator<V>
+    implements Iterator<Row<String, String, V>>
+{
+    private final RangeSlicesQuery<String, String, V> query;
+
+    private final int pageSize;
+
+    private Iterator<Row<String, String, V>> page = Collections.emptyIterator( );
+
+    private String lastKey;
+
+    private boolean exhausted = false;
+
+    private int fetchedPages = 0;
+
+    PagedRowIterator( RangeSlicesQuery<String, String, V> query, int pageSize )
+    {
+        this.query = query;
+        this.pageSize = Math.max( pageSize, 1 );
+    }
+
+    @Override
+    public boolean hasNext( )
+    {
+        while ( !page.hasNext( ) )
+        {
+            if ( exhausted )
+            {
+                return false;
+            }
+            fetchPage( );
+        }
+        return true;
+    }
+
+    @Override
+    public Row<String, String, V> next( )
+    {
+        if ( !hasNext( ) )
+        {
+            throw new NoSuchElementException( );
+        }
+        return page.next( );
+    }
+
+    private void fetchPage( )
+    {
+        // The start key is inclusive, the first row of the following pages is the last row of the previous page
+        int rowCount = lastKey == null ? pageSize : pageSize + 1;
+        query.setKeys( lastKey == null ? "" : lastKey, "" );
+        query.setRowCount( rowCount );
+        OrderedRows<String, String, V> rows = query.execute( ).get( );
+        fetchedPages++;
+        List<Row<String, String, V>> list = rows == null ? Collections.emptyList( ) : rows.getList( );
+        if ( list.size( ) < rowCount )
+        {
+            exhausted = true;
+        }
+        if ( !list.isEmpty( ) )
+        {
+            String firstKey = list.get( 0 ).getKey( );
+            String newLastKey = list.get( list.size( ) - 1 ).getKey( );
+            if ( lastKey != null && lastKey.equals( firstKey ) )
+            {
+                list = list.subList( 1, list.size( ) );
+            }
+            if ( newLastKey.equals( lastKey ) )
+            {
+                // no progress, avoids an endless loop
+                exhausted = true;
+            }
+            lastKey = newLastKey;
+        }
+        page = list.iterator( );
+    }
+
+    /**
+     * @return the number of queries, that were executed so far
+     */
+    int getFetchedPages( )
+    {
+        return fetchedPages;
+    }
+}
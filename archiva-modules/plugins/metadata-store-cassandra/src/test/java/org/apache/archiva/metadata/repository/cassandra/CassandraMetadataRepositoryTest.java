@@ -19,6 +19,8 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.QueryParameter;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.MetadataFacetFactory;
 import org.apache.archiva.metadata.repository.AbstractMetadataRepositoryTest;
 import org.apache.archiva.metadata.repository.MetadataRepository;
@@ -37,7 +39,9 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -138,6 +142,130 @@ public void clean_dependant_tables()
         assertThat( cmr.getDependencies( key ) ).isNotNull().isEmpty();
     }
 
+    @Test
+    public void artifact_stream_reads_pages()
+        throws Exception
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+        for ( int i = 0; i < 10; i++ )
+        {
+            ArtifactMetadata artifact = new ArtifactMetadata();
+            artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-" + i + ".jar" );
+            artifact.setNamespace( TEST_NAMESPACE );
+            artifact.setProject( TEST_PROJECT );
+            artifact.setProjectVersion( TEST_PROJECT_VERSION );
+            artifact.setVersion( TEST_PROJECT_VERSION );
+            artifact.setRepositoryId( TEST_REPO_ID );
+            artifact.setWhenGathered( now.minusMinutes( i ) );
+            cmr.updateArtifact( null, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION, artifact );
+        }
+
+        assertThat( cassandraArchivaManager.getReadPageSize() ).isLessThan( 10 );
+
+        List<ArtifactMetadata> all = cmr.getArtifactStream( null, TEST_REPO_ID, new QueryParameter() )
+            .collect( Collectors.toList() );
+        assertThat( all ).hasSize( 10 );
+        assertThat( all.stream().map( ArtifactMetadata::getId ).distinct().count() ).isEqualTo( 10 );
+
+        List<ArtifactMetadata> page = cmr.getArtifactStream( null, TEST_REPO_ID, new QueryParameter( 4, 4 ) )
+            .collect( Collectors.toList() );
+        assertThat( page ).containsExactlyElementsOf( all.subList( 4, 8 ) );
+
+        // sorted by whenGathered, the oldest artifact has the highest index
+        List<String> byDate = cmr.getArtifactByDateRangeStream( null, TEST_REPO_ID, now.minusHours( 1 ), now.plusHours( 1 ),
+                                                                 new QueryParameter( 2, 3 ) )
+            .map( ArtifactMetadata::getId ).collect( Collectors.toList() );
+        assertThat( byDate ).containsExactly( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-7.jar",
+                                             TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-6.jar",
+                                             TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-5.jar" );
+    }
+
+    @Test
+    public void batched_writes_are_written_on_save()
+        throws Exception
+    {
+        CassandraMetadataRepository batchRepository =
+            new CassandraMetadataRepository( new MetadataService( ), null, cassandraArchivaManager );
+        batchRepository.setBatchWrites( true );
+        CassandraRepositorySession batchSession = new CassandraRepositorySession( batchRepository, null );
+
+        ArtifactMetadata artifact = new ArtifactMetadata();
+        artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + ".jar" );
+        artifact.setNamespace( TEST_NAMESPACE );
+        artifact.setProject( TEST_PROJECT );
+        artifact.setProjectVersion( TEST_PROJECT_VERSION );
+        artifact.setVersion( TEST_PROJECT_VERSION );
+        artifact.setRepositoryId( TEST_REPO_ID );
+        artifact.setWhenGathered( ZonedDateTime.now() );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+        // the second update doesn't need to query or write the namespace and project again
+        artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + ".pom" );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+
+        // not written yet
+        assertThat( cmr.getArtifactStream( null, TEST_REPO_ID, new QueryParameter() ).count() ).isEqualTo( 0 );
+
+        batchSession.save();
+
+        assertThat( cmr.getArtifactStream( null, TEST_REPO_ID, new QueryParameter() ).count() ).isEqualTo( 2 );
+        assertThat( cmr.getProjects( null, TEST_REPO_ID, TEST_NAMESPACE ) ).containsExactly( TEST_PROJECT );
+
+        // reads of the batched repository see the pending writes
+        artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-sources.jar" );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+        assertThat( batchRepository.getArtifactStream( batchSession, TEST_REPO_ID, new QueryParameter() ).count() )
+            .isEqualTo( 3 );
+
+        artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + "-javadoc.jar" );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+        batchSession.revert();
+        batchSession.close();
+        assertThat( cmr.getArtifactStream( null, TEST_REPO_ID, new QueryParameter() ).count() ).isEqualTo( 3 );
+    }
+
+    @Test
+    public void batched_updates_of_existing_rows_are_reverted()
+        throws Exception
+    {
+        ArtifactMetadata artifact = new ArtifactMetadata();
+        artifact.setId( TEST_PROJECT + "-" + TEST_PROJECT_VERSION + ".jar" );
+        artifact.setNamespace( TEST_NAMESPACE );
+        artifact.setProject( TEST_PROJECT );
+        artifact.setProjectVersion( TEST_PROJECT_VERSION );
+        artifact.setVersion( TEST_PROJECT_VERSION );
+        artifact.setRepositoryId( TEST_REPO_ID );
+        artifact.setWhenGathered( ZonedDateTime.now() );
+        artifact.setFileLastModified( System.currentTimeMillis() );
+        artifact.setSize( 1 );
+        cmr.updateArtifact( null, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION, artifact );
+
+        CassandraMetadataRepository batchRepository =
+            new CassandraMetadataRepository( new MetadataService( ), null, cassandraArchivaManager );
+        batchRepository.setBatchWrites( true );
+        CassandraRepositorySession batchSession = new CassandraRepositorySession( batchRepository, null );
+
+        // the update of the existing row is part of the batch, like the insertions
+        artifact.setSize( 2 );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+        assertThat( cmr.getArtifacts( null, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION ).get( 0 )
+                        .getSize() ).isEqualTo( 1 );
+        batchSession.revert();
+        assertThat( cmr.getArtifacts( null, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION ).get( 0 )
+                        .getSize() ).isEqualTo( 1 );
+
+        artifact.setSize( 3 );
+        batchRepository.updateArtifact( batchSession, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION,
+                                        artifact );
+        batchSession.save();
+        batchSession.close();
+        assertThat( cmr.getArtifacts( null, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION ).get( 0 )
+                        .getSize() ).isEqualTo( 3 );
+    }
 
     @After
     public void shutdown()
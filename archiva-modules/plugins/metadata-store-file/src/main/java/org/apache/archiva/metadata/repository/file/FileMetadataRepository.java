@@ -1290,6 +1290,20 @@ public Stream<ArtifactMetadata> getArtifactStream( final RepositorySession sessi
         return getArtifacts( session, repoId, namespace, projectId, projectVersion ).stream( );
     }
 
+    @Override
+    public Stream<ArtifactMetadata> getArtifactStream( final RepositorySession session, final String repoId,
+                                                       final String namespace, final String projectId,
+                                                       final String projectVersion, final QueryParameter queryParameter )
+        throws MetadataResolutionException
+    {
+        Stream<ArtifactMetadata> artifacts = getArtifactStream( session, repoId, namespace, projectId, projectVersion );
+        if ( !queryParameter.getSortFields( ).isEmpty( ) )
+        {
+            artifacts = artifacts.sorted( getArtifactMetadataComparator( queryParameter, "whenGathered" ) );
+        }
+        return artifacts.skip( queryParameter.getOffset( ) ).limit( queryParameter.getLimit( ) );
+    }
+
     private void getArtifacts(RepositorySession session, List<ArtifactMetadata> artifacts, String repoId, String ns)
             throws MetadataResolutionException {
         for (String namespace : this.getChildNamespaces(session, repoId, ns)) {
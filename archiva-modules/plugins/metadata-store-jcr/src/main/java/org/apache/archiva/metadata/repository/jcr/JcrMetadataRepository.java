@@ -426,6 +426,56 @@ public List<String> getMetadataFacets(RepositorySession session, String reposito
         return facets;
     }
 
+    @Override
+    public List<String> getMetadataFacets(RepositorySession session, String repositoryId, String facetId,
+                                          QueryParameter queryParameter)
+            throws MetadataRepositoryException {
+        return getMetadataFacets(session, repositoryId, facetId, null, null, queryParameter);
+    }
+
+    /**
+     * Returns the facet names by an ordered query on the <code>archiva:name</code> property of the facet nodes,
+     * so only the nodes of the requested range are loaded.
+     */
+    @Override
+    public List<String> getMetadataFacets(RepositorySession session, String repositoryId, String facetId,
+                                          String fromName, String toName, QueryParameter queryParameter)
+            throws MetadataRepositoryException {
+        final Session jcrSession = getSession(session);
+        // only the name order is supported
+        QueryParameter nameOrder = new QueryParameter(queryParameter.isAscending(), queryParameter.getOffset(),
+                queryParameter.getLimit());
+        final String facetPath = '/' + getFacetPath(repositoryId, facetId);
+        StringBuilder query = new StringBuilder("SELECT * FROM [");
+        query.append(FACET_NODE_TYPE).append("] AS facet WHERE ISDESCENDANTNODE(facet, [")
+                .append(facetPath).append("]) AND [facet].[archiva:name] IS NOT NULL");
+        Map<String, String> params = new HashMap<>();
+        if (fromName != null) {
+            query.append(" AND [facet].[archiva:name] >= $fromName");
+            params.put("fromName", fromName);
+        }
+        if (toName != null) {
+            query.append(" AND [facet].[archiva:name] <= $toName");
+            params.put("toName", toName);
+        }
+        appendQueryParams(query, "facet", "archiva:name", nameOrder);
+        QueryResult result = runNativeJcrQuery(jcrSession, query.toString(), params, nameOrder.getOffset(),
+                nameOrder.getLimit());
+        List<String> facets = new ArrayList<>();
+        try {
+            RowIterator rows = result.getRows();
+            while (rows.hasNext()) {
+                Node node = rows.nextRow().getNode("facet");
+                if (node.hasProperty("archiva:name")) {
+                    facets.add(node.getProperty("archiva:name").getString());
+                }
+            }
+        } catch (RepositoryException e) {
+            throw new MetadataRepositoryException(e.getMessage(), e);
+        }
+        return facets;
+    }
+
     private <T> Spliterator<T> createResultSpliterator(QueryResult result, Function<Row, T> converter) throws MetadataRepositoryException {
         final RowIterator rowIterator;
         try {
@@ -507,12 +557,7 @@ public <T extends MetadataFacet> Stream<T> getMetadataFacetStream(RepositorySess
         final Session jcrSession = getSession(session);
         final MetadataFacetFactory<T> factory = metadataService.getFactory(facetClazz);
         final String facetId = factory.getFacetId();
-        final String facetPath = '/' + getFacetPath(repositoryId, facetId);
-        StringBuilder query = new StringBuilder("SELECT * FROM [");
-        query.append(FACET_NODE_TYPE).append("] AS facet WHERE ISDESCENDANTNODE(facet, [")
-                .append(facetPath).append("]) AND [facet].[archiva:name] IS NOT NULL");
-        appendQueryParams(query, "facet", "archiva:name", queryParameter);
-        String q = query.toString();
+        String q = buildFacetQuery(repositoryId, facetId, queryParameter).toString();
         Map<String, String> params = new HashMap<>();
         QueryResult result = runNativeJcrQuery(jcrSession, q, params, queryParameter.getOffset(), queryParameter.getLimit());
         final Function<Row, Optional<T>> rowFunc = getFacetFromRowFunc(factory, repositoryId);
@@ -520,6 +565,15 @@ public <T extends MetadataFacet> Stream<T> getMetadataFacetStream(RepositorySess
 
     }
 
+    StringBuilder buildFacetQuery(String repositoryId, String facetId, QueryParameter queryParameter) {
+        final String facetPath = '/' + getFacetPath(repositoryId, facetId);
+        StringBuilder query = new StringBuilder("SELECT * FROM [");
+        query.append(FACET_NODE_TYPE).append("] AS facet WHERE ISDESCENDANTNODE(facet, [")
+                .append(facetPath).append("]) AND [facet].[archiva:name] IS NOT NULL");
+        appendQueryParams(query, "facet", "archiva:name", queryParameter);
+        return query;
+    }
+
     private void recurse(List<String> facets, String prefix, Node node)
             throws RepositoryException {
         for (Node n : JcrUtils.getChildNodes(node)) {
@@ -670,7 +724,7 @@ public void removeMetadataFacet(RepositorySession session, String repositoryId,
         }
     }
 
-    private StringBuilder buildArtifactByDateRangeQuery(String repoId, ZonedDateTime startTime, ZonedDateTime endTime,
+    StringBuilder buildArtifactByDateRangeQuery(String repoId, ZonedDateTime startTime, ZonedDateTime endTime,
                                                         QueryParameter queryParameter) {
         StringBuilder q = getArtifactQuery(repoId);
 
@@ -750,7 +804,7 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
         final Session jcrSession = getSession(session);
         List<ArtifactMetadata> artifacts;
 
-        String q = getArtifactQuery(repositoryId).append(" AND ([artifact].[checksums/*/value] = $checksum)").toString();
+        String q = buildChecksumQuery(repositoryId).toString();
 
         try {
             Query query = jcrSession.getWorkspace().getQueryManager().createQuery(q, Query.JCR_SQL2);
@@ -758,8 +812,14 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
             query.bindValue("checksum", valueFactory.createValue(checksum));
             QueryResult result = query.execute();
 
-            artifacts = new ArrayList<>();
+            // the checksum nodes are children of the checksums folder of the artifact
+            Map<String, Node> artifactNodes = new LinkedHashMap<>();
             for (Node n : JcrUtils.getNodes(result)) {
+                Node artifactNode = n.getParent().getParent();
+                artifactNodes.putIfAbsent(artifactNode.getPath(), artifactNode);
+            }
+            artifacts = new ArrayList<>(artifactNodes.size());
+            for (Node n : artifactNodes.values()) {
                 artifacts.add(getArtifactFromNode(repositoryId, n));
             }
         } catch (RepositoryException e) {
@@ -906,6 +966,16 @@ public List<ArtifactMetadata> getArtifacts(RepositorySession session, String rep
         return artifacts;
     }
 
+    /**
+     * The checksum query selects the checksum nodes directly, because the relative property path with wildcard
+     * (<code>checksums/*&#47;value</code>) can not be resolved by the index.
+     */
+    static StringBuilder buildChecksumQuery(String repositoryId) {
+        return new StringBuilder("SELECT * FROM [").append(CHECKSUM_NODE_TYPE)
+                .append("] AS checksum WHERE ISDESCENDANTNODE(checksum,'/").append(getRepositoryContentPath(repositoryId))
+                .append("') AND [checksum].[value] = $checksum");
+    }
+
     private static StringBuilder getArtifactQuery(String repositoryId) {
         return new StringBuilder(QUERY_ARTIFACT_1).append(getRepositoryContentPath(repositoryId)).append(QUERY_ARTIFACT_2);
     }
@@ -1131,6 +1201,16 @@ public List<String> getArtifactVersions(RepositorySession session, String reposi
         return new ArrayList<>(versions);
     }
 
+    static String buildProjectReferencesQuery(String repositoryId, String namespace, String projectId, String projectVersion) {
+        // TODO: bind variables instead
+        String q = "SELECT * FROM [" + DEPENDENCY_NODE_TYPE + "] WHERE ISDESCENDANTNODE([/repositories/" + repositoryId
+                + "/content]) AND [namespace]='" + namespace + "' AND [artifactId]='" + projectId + "'";
+        if (projectVersion != null) {
+            q += " AND [version]='" + projectVersion + "'";
+        }
+        return q;
+    }
+
     @Override
     public List<ProjectVersionReference> getProjectReferences(RepositorySession session, String repositoryId, String namespace,
                                                               String projectId, String projectVersion)
@@ -1144,12 +1224,7 @@ public List<ProjectVersionReference> getProjectReferences(RepositorySession sess
 
         List<ProjectVersionReference> references = new ArrayList<>();
 
-        // TODO: bind variables instead
-        String q = "SELECT * FROM [archiva:dependency] WHERE ISDESCENDANTNODE([/repositories/" + repositoryId
-                + "/content]) AND [namespace]='" + namespace + "' AND [artifactId]='" + projectId + "'";
-        if (projectVersion != null) {
-            q += " AND [version]='" + projectVersion + "'";
-        }
+        String q = buildProjectReferencesQuery(repositoryId, namespace, projectId, projectVersion);
         try {
             Query query = jcrSession.getWorkspace().getQueryManager().createQuery(q, Query.JCR_SQL2);
             QueryResult result = query.execute();
@@ -1800,9 +1875,13 @@ public Stream<ArtifactMetadata> getArtifactStream(final RepositorySession sessio
 
             if (root.hasNode(path)) {
                 Node node = root.getNode(path);
-                return StreamSupport.stream(JcrUtils.getChildNodes(node).spliterator(), false).filter(JcrMetadataRepository::isArtifactNodeType)
+                Stream<ArtifactMetadata> artifacts = StreamSupport.stream(JcrUtils.getChildNodes(node).spliterator(), false).filter(JcrMetadataRepository::isArtifactNodeType)
                         .map(n -> getArtifactOptional(repositoryId, n))
-                        .map(Optional::get).skip(queryParameter.getOffset()).limit(queryParameter.getLimit());
+                        .map(Optional::get);
+                if (!queryParameter.getSortFields().isEmpty()) {
+                    artifacts = artifacts.sorted(getArtifactMetadataComparator(queryParameter, "whenGathered"));
+                }
+                return artifacts.skip(queryParameter.getOffset()).limit(queryParameter.getLimit());
             } else {
                 return Stream.empty();
             }
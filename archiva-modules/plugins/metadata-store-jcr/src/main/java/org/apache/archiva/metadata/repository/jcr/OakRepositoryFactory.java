@@ -22,6 +22,7 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.jcr.Jcr;
 import org.apache.jackrabbit.oak.plugins.index.AsyncIndexInfoService;
@@ -107,6 +108,19 @@
 
     private Logger log = LoggerFactory.getLogger( OakRepositoryFactory.class );
 
+    /**
+     * Name of the lucene index of the metadata content.
+     */
+    public static final String INDEX_NAME = "repo-lucene";
+
+    /**
+     * Version of the index definitions. Must be increased with each change of the definitions, so the index of
+     * existing repositories is recreated on startup.
+     */
+    public static final long INDEX_DEFINITION_VERSION = 2;
+
+    static final String INDEX_VERSION_PROPERTY = "archivaIndexVersion";
+
     private FileStore fileStore;
 
     private NodeStore nodeStore;
@@ -441,12 +455,21 @@ public void initialize(  NodeBuilder root )
                 }
                 Namespaces.addCustomMapping( namespaces, "http://archiva.apache.org/jcr/", "archiva" );
 
-                log.info( "Creating index " );
-
                 NodeBuilder oakIdx = IndexUtils.getOrCreateOakIndex( root );
-                if (!oakIdx.hasChildNode( "repo-lucene" ))
+                long indexVersion = getIndexVersion( oakIdx );
+                if ( indexVersion < INDEX_DEFINITION_VERSION )
                 {
-                    NodeBuilder lucene = oakIdx.child( "repo-lucene" );
+                    if ( oakIdx.hasChildNode( INDEX_NAME ) )
+                    {
+                        // The index data is removed together with the definition, the new definition is reindexed
+                        log.info( "Upgrading index {} from version {} to {}", INDEX_NAME, indexVersion, INDEX_DEFINITION_VERSION );
+                        oakIdx.getChildNode( INDEX_NAME ).remove( );
+                    }
+                    else
+                    {
+                        log.info( "Creating index {} with version {}", INDEX_NAME, INDEX_DEFINITION_VERSION );
+                    }
+                    NodeBuilder lucene = oakIdx.child( INDEX_NAME );
                     lucene.setProperty( JCR_PRIMARYTYPE, "oak:QueryIndexDefinition", NAME );
 
                     lucene.setProperty( "compatVersion", 2 );
@@ -472,13 +495,22 @@ public void initialize(  NodeBuilder root )
                         .property( "namespace" ).propertyIndex().analyzed();
                     initBaseRule(idxBuilder.indexRule(PROJECT_MIXIN_TYPE))
                         .property( "name" ).propertyIndex().analyzed().notNullCheckEnabled().nullCheckEnabled();
-                    initBaseRule( idxBuilder.indexRule( PROJECT_VERSION_NODE_TYPE ) )
+                    IndexDefinitionBuilder.IndexRule projectVersionRule = idxBuilder.indexRule( PROJECT_VERSION_NODE_TYPE );
+                    initBaseRule( projectVersionRule )
                         .property("name").propertyIndex().analyzed().notNullCheckEnabled().nullCheckEnabled()
                         .property("description").propertyIndex().analyzed().notNullCheckEnabled().nullCheckEnabled()
                         .property("url").propertyIndex().analyzed( ).notNullCheckEnabled().nullCheckEnabled()
                         .property("incomplete").type("Boolean").propertyIndex()
                         .property("mailinglist/name").propertyIndex().analyzed()
                         .property("license/license.name").propertyIndex().analyzed();
+                    // The attributes of the mixins are searched by the project version queries
+                    for ( String property : PROJECT_VERSION_VERSION_PROPERTIES )
+                    {
+                        if ( !ImmutableSet.of( "name", "description", "url", "incomplete" ).contains( property ) )
+                        {
+                            projectVersionRule.property( property ).propertyIndex( ).analyzed( );
+                        }
+                    }
                     initBaseRule(idxBuilder.indexRule( ARTIFACT_NODE_TYPE ))
                         .property( "whenGathered" ).type("Date").propertyIndex().analyzed().ordered()
                         .property("size").type("Long").propertyIndex().analyzed().ordered()
@@ -499,7 +531,7 @@ public void initialize(  NodeBuilder root )
                         .property( "scm.url").type("URI").propertyIndex().analyzed();
                     idxBuilder.indexRule( MIXIN_META_CI )
                         .property( "ci.system" ).propertyIndex( )
-                        .property( "ci.ur" ).propertyIndex( ).analyzed( );
+                        .property( "ci.url" ).propertyIndex( ).analyzed( );
                     idxBuilder.indexRule( MIXIN_META_ISSUE )
                         .property( "issue.system").propertyIndex()
                         .property("issue.url").propertyIndex().analyzed();
@@ -512,6 +544,7 @@ public void initialize(  NodeBuilder root )
                     idxBuilder.indexRule( MAILINGLIST_NODE_TYPE )
                         .property( "name" ).propertyIndex().analyzed();
                     initBaseRule(idxBuilder.indexRule( DEPENDENCY_NODE_TYPE ))
+                        .property( "namespace" ).propertyIndex()
                         .property( "groupId" ).propertyIndex().analyzed().ordered()
                         .property( "artifactId").propertyIndex().analyzed().ordered()
                         .property("version").propertyIndex().analyzed().ordered()
@@ -525,13 +558,13 @@ public void initialize(  NodeBuilder root )
                         .path("dependencies/*" ).relativeNode();
 
                     idxBuilder.build( );
+                    lucene.setProperty( INDEX_VERSION_PROPERTY, INDEX_DEFINITION_VERSION );
 
                     IndexUtils.createIndexDefinition( oakIdx, "baseIndexes", true, false, ImmutableList.of( "jcr:uuid", "rep:principalName" ), null );
 
-                    log.info( "Index: {} repo-lucene: {}", lucene, lucene.getChildNode( "repo-lucene" ) );
-                    log.info( "repo-lucene Properties: {}", lucene.getChildNode( "repo-lucene" ).getProperties( ) );
+                    log.debug( "Index {} properties: {}", INDEX_NAME, lucene.getProperties( ) );
                 } else {
-                    log.info( "No Index update" );
+                    log.info( "Index {} is up to date (version {})", INDEX_NAME, indexVersion );
                 }
                 // IndexUtils.createIndexDefinition(  )
 
@@ -566,6 +599,20 @@ public void initialize(  NodeBuilder root )
 
     }
 
+    /**
+     * Returns the version of the existing index definition. Definitions created before the version property was
+     * introduced have version 1.
+     */
+    private static long getIndexVersion( NodeBuilder oakIdx )
+    {
+        if ( !oakIdx.hasChildNode( INDEX_NAME ) )
+        {
+            return 0;
+        }
+        PropertyState version = oakIdx.getChildNode( INDEX_NAME ).getProperty( INDEX_VERSION_PROPERTY );
+        return version == null ? 1 : version.getValue( Type.LONG );
+    }
+
     private void closeSilently( Closeable service) {
         if (service!=null) {
             try
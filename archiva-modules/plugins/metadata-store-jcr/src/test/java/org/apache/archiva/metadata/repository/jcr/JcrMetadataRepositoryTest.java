@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.model.MetadataFacetFactory;
 import org.apache.archiva.metadata.repository.AbstractMetadataRepositoryTest;
@@ -35,12 +36,23 @@
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.ZonedDateTime;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -180,4 +192,49 @@ public void testSearchArtifactsByKeyExact()
             } );
         }
     }
+
+    @Test
+    public void testMetadataQueriesUseIndex( )
+        throws Exception
+    {
+        try ( RepositorySession session = sessionFactory.createSession( ) )
+        {
+            Session jcrSession = ( (JcrRepositorySession) session ).getJcrSession( );
+            ValueFactory valueFactory = jcrSession.getValueFactory( );
+            ZonedDateTime now = ZonedDateTime.now( );
+
+            Map<String, Value> dateRange = new HashMap<>( );
+            dateRange.put( "start", valueFactory.createValue( GregorianCalendar.from( now.minusDays( 1 ) ) ) );
+            dateRange.put( "end", valueFactory.createValue( GregorianCalendar.from( now ) ) );
+            assertIndexed( jcrSession, repository.buildArtifactByDateRangeQuery( TEST_REPO_ID, now.minusDays( 1 ), now,
+                new QueryParameter( ) ).toString( ), dateRange );
+            assertIndexed( jcrSession, JcrMetadataRepository.buildChecksumQuery( TEST_REPO_ID ).toString( ),
+                Collections.singletonMap( "checksum", valueFactory.createValue( "2e5daf0201ddeb068a62d5e08da18657ab2c6be9" ) ) );
+            assertIndexed( jcrSession, repository.buildFacetQuery( TEST_REPO_ID, "test-facet-id", new QueryParameter( ) ).toString( ),
+                Collections.emptyMap( ) );
+            assertIndexed( jcrSession, JcrMetadataRepository.buildProjectReferencesQuery( TEST_REPO_ID, TEST_NAMESPACE,
+                TEST_PROJECT, TEST_PROJECT_VERSION ), Collections.emptyMap( ) );
+            assertIndexed( jcrSession, JcrMetadataRepository.QUERY_ARTIFACTS_BY_PROPERTY_1 + "url"
+                + JcrMetadataRepository.QUERY_ARTIFACTS_BY_PROPERTY_2, Collections.singletonMap( "value", valueFactory.createValue( TEST_URL ) ) );
+        }
+    }
+
+    /**
+     * Fails, if the query plan of the given query contains a traversal of the repository nodes.
+     */
+    private static void assertIndexed( Session jcrSession, String q, Map<String, Value> bindings )
+        throws RepositoryException
+    {
+        Query query = jcrSession.getWorkspace( ).getQueryManager( ).createQuery( "explain " + q, Query.JCR_SQL2 );
+        for ( Map.Entry<String, Value> entry : bindings.entrySet( ) )
+        {
+            query.bindValue( entry.getKey( ), entry.getValue( ) );
+        }
+        QueryResult result = query.execute( );
+        RowIterator rows = result.getRows( );
+        assertThat( rows.hasNext( ) ).describedAs( "No plan for query %s", q ).isTrue( );
+        Row row = rows.nextRow( );
+        String plan = row.getValue( "plan" ).getString( );
+        assertThat( plan ).describedAs( "Query must use an index: %s", q ).doesNotContain( "traverse" );
+    }
 }
@@ -19,12 +19,17 @@
  * under the License.
  */
 
+import org.apache.archiva.metadata.QueryParameter;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.repository.MetadataFacetTimeIndex;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.metadata.repository.stats.model.DefaultRepositoryStatistics;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatistics;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsCounters;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsProvider;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryWalkingStatisticsProvider;
@@ -33,17 +38,21 @@
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.TimeZone;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- *
+ * The statistics manager keeps counters for each repository, that are updated by the
+ * artifact events. The counters are stored as repository facet after each scan and on shutdown,
+ * and restored on first access. If the metadata store does not provide its own statistics implementation,
+ * the scan statistics are gathered by a walk of the metadata repository, that replaces the counters.
+ * Between the scans the current statistics are taken from the counters.
  */
 @Service("repositoryStatisticsManager#default")
 public class DefaultRepositoryStatisticsManager
@@ -51,11 +60,22 @@
 {
     private static final Logger log = LoggerFactory.getLogger( DefaultRepositoryStatisticsManager.class );
 
-    private static final TimeZone UTC_TIME_ZONE = TimeZone.getTimeZone( "UTC" );
-
     private RepositoryWalkingStatisticsProvider walkingProvider = new RepositoryWalkingStatisticsProvider();
 
+    private final Map<String, RepositoryStatisticsCounters> counters = new ConcurrentHashMap<>( );
+
+    /**
+     * Repositories without stored counters. Their counters are created by a walk, when they are needed.
+     */
+    private final Set<String> notStored = ConcurrentHashMap.newKeySet( );
 
+    /**
+     * Repositories with counters from a walk, that replace the stored counters.
+     */
+    private final Set<String> collected = ConcurrentHashMap.newKeySet( );
+
+    private final MetadataFacetTimeIndex statisticsIndex =
+        new MetadataFacetTimeIndex( DefaultRepositoryStatistics.FACET_ID, DefaultRepositoryStatistics.SCAN_TIMESTAMP_FORMAT );
 
     @Inject
     RepositorySessionFactory repositorySessionFactory;
@@ -79,14 +99,10 @@ public RepositoryStatistics getLastStatistics( String repositoryId )
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             final MetadataRepository metadataRepository = session.getRepository( );
 
-            // TODO: consider a more efficient implementation that directly gets the last one from the content repository
-            List<String> scans = metadataRepository.getMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
-            if (scans == null) {
-                return null;
-            }
-            Collections.sort(scans);
+            List<String> scans = metadataRepository.getMetadataFacets(session, repositoryId,
+                    DefaultRepositoryStatistics.FACET_ID, new QueryParameter(false, 0, 1));
             if (!scans.isEmpty()) {
-                String name = scans.get(scans.size() - 1);
+                String name = scans.get(0);
                 RepositoryStatistics repositoryStatistics =
                         RepositoryStatistics.class.cast(metadataRepository.getMetadataFacet(session, repositoryId,
                                 RepositoryStatistics.FACET_ID, name));
@@ -114,12 +130,10 @@ public void addStatisticsAfterScan( String repositoryId, Date startTime,
             repositoryStatistics.setTotalFileCount(totalFiles);
             repositoryStatistics.setNewFileCount(newFiles);
 
-            // TODO
-            // In the future, instead of being tied to a scan we might want to record information in the fly based on
-            // events that are occurring. Even without these totals we could query much of the information on demand based
-            // on information from the metadata content repository. In the mean time, we lock information in at scan time.
+            // The scan statistics are gathered from the metadata repository. The walk replaces the counters,
+            // that are maintained by the artifact events until the next scan, so they do not drift.
             // Note that if new types are later discoverable due to a code change or new plugin, historical stats will not
-            // be updated and the repository will need to be rescanned.
+            // be updated and the statistics will need to be rebuilt.
 
             long startGather = System.currentTimeMillis();
 
@@ -127,12 +141,23 @@ public void addStatisticsAfterScan( String repositoryId, Date startTime,
                 ((RepositoryStatisticsProvider) metadataRepository).populateStatistics(session,
                         metadataRepository, repositoryId, repositoryStatistics);
             } else {
-                walkingProvider.populateStatistics(session, metadataRepository, repositoryId, repositoryStatistics);
+                RepositoryStatisticsCounters repositoryCounters = collectCounters(session, repositoryId);
+                repositoryCounters.populateStatistics(repositoryStatistics);
+                counters.put(repositoryId, repositoryCounters);
+                notStored.remove(repositoryId);
             }
 
             log.info("Gathering statistics executed in {} ms", (System.currentTimeMillis() - startGather));
 
             metadataRepository.addMetadataFacet(session, repositoryId, repositoryStatistics);
+            RepositoryStatisticsCounters repositoryCounters = counters.get(repositoryId);
+            if (repositoryCounters != null) {
+                if (metadataRepository instanceof RepositoryStatisticsProvider) {
+                    // Files changed after the scan start are checked again by the next scan
+                    repositoryCounters.setStamp(startTime.getTime());
+                }
+                storeCounters(session, repositoryId, repositoryCounters);
+            }
         }
     }
 
@@ -143,7 +168,11 @@ public void deleteStatistics( String repositoryId )
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             final MetadataRepository metadataRepository = session.getRepository( );
             metadataRepository.removeMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
+            metadataRepository.removeMetadataFacets(session, repositoryId, RepositoryStatisticsCounters.FACET_ID);
         }
+        counters.remove( repositoryId );
+        notStored.remove( repositoryId );
+        collected.remove( repositoryId );
     }
 
     @Override
@@ -154,33 +183,192 @@ public List<RepositoryStatistics> getStatisticsInRange( String repositoryId,
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             final MetadataRepository metadataRepository = session.getRepository( );
             List<RepositoryStatistics> results = new ArrayList<>();
-            List<String> list = metadataRepository.getMetadataFacets(session, repositoryId, DefaultRepositoryStatistics.FACET_ID);
-            Collections.sort(list, Collections.reverseOrder());
-            for (String name : list) {
-                try {
-                    Date date = createNameFormat().parse(name);
-                    if ((startTime == null || !date.before(startTime)) && (endTime == null || !date.after(
-                            endTime))) {
-                        RepositoryStatistics stats =
-                                (RepositoryStatistics) metadataRepository.getMetadataFacet(session,
-                                        repositoryId,
-                                        DefaultRepositoryStatistics.FACET_ID, name);
-                        results.add(stats);
-                    }
-                } catch (ParseException e) {
-                    log.error("Invalid scan result found in the metadata repository: {}", e.getMessage());
-                    // continue and ignore this one
+            for (String name : statisticsIndex.getNamesInRange(session, metadataRepository, repositoryId, startTime,
+                    endTime)) {
+                RepositoryStatistics stats =
+                        (RepositoryStatistics) metadataRepository.getMetadataFacet(session,
+                                repositoryId,
+                                DefaultRepositoryStatistics.FACET_ID, name);
+                if (stats != null) {
+                    results.add(stats);
                 }
             }
             return results;
         }
     }
 
-    private static SimpleDateFormat createNameFormat()
+    @Override
+    public RepositoryStatistics getCurrentStatistics( String repositoryId )
+        throws MetadataRepositoryException
+    {
+        RepositoryStatisticsCounters repositoryCounters = counters.get( repositoryId );
+        if ( repositoryCounters == null )
+        {
+            try(RepositorySession session = repositorySessionFactory.createSession()) {
+                repositoryCounters = getCounters( session, repositoryId );
+            }
+        }
+        return createStatistics( repositoryId, repositoryCounters );
+    }
+
+    @Override
+    public void artifactUpdated( ArtifactMetadata artifact )
+    {
+        RepositoryStatisticsCounters repositoryCounters = getStoredCounters( artifact.getRepositoryId( ) );
+        if ( repositoryCounters != null )
+        {
+            repositoryCounters.artifactUpdated( artifact );
+        }
+    }
+
+    @Override
+    public void artifactRemoved( ArtifactMetadata artifact )
+    {
+        RepositoryStatisticsCounters repositoryCounters = getStoredCounters( artifact.getRepositoryId( ) );
+        if ( repositoryCounters != null )
+        {
+            repositoryCounters.artifactRemoved( artifact );
+        }
+    }
+
+    @Override
+    public RepositoryStatistics rebuildStatistics( String repositoryId )
+        throws MetadataRepositoryException
+    {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        try(RepositorySession session = repositorySessionFactory.createSession()) {
+            RepositoryStatisticsCounters repositoryCounters = collectCounters( session, repositoryId );
+            counters.put( repositoryId, repositoryCounters );
+            notStored.remove( repositoryId );
+            storeCounters( session, repositoryId, repositoryCounters );
+            stopWatch.stop();
+            log.info( "Rebuilding statistics of repository {} executed in {} ms", repositoryId, stopWatch.getTime() );
+            return createStatistics( repositoryId, repositoryCounters );
+        }
+    }
+
+    /**
+     * Stores the counters of all repositories, so the changes since the last scan are not lost.
+     */
+    @PreDestroy
+    public void shutdown( )
+    {
+        if ( counters.isEmpty( ) )
+        {
+            return;
+        }
+        try(RepositorySession session = repositorySessionFactory.createSession()) {
+            for ( Map.Entry<String, RepositoryStatisticsCounters> entry : counters.entrySet( ) )
+            {
+                storeCounters( session, entry.getKey( ), entry.getValue( ) );
+            }
+            session.save( );
+        }
+        catch ( MetadataRepositoryException | MetadataSessionException e )
+        {
+            log.warn( "Could not store the statistics counters: {}", e.getMessage( ), e );
+        }
+    }
+
+    /*
+     * Returns the counters, if they are loaded or stored. Events for repositories without counters are ignored,
+     * because the counters are created later by a walk, that contains the artifact.
+     */
+    private RepositoryStatisticsCounters getStoredCounters( String repositoryId )
+    {
+        RepositoryStatisticsCounters repositoryCounters = counters.get( repositoryId );
+        if ( repositoryCounters == null && !notStored.contains( repositoryId ) )
+        {
+            try(RepositorySession session = repositorySessionFactory.createSession()) {
+                repositoryCounters = loadCounters( session, repositoryId );
+            }
+            catch ( MetadataRepositoryException e )
+            {
+                log.warn( "Could not load the statistics counters of repository {}: {}", repositoryId, e.getMessage( ) );
+            }
+        }
+        return repositoryCounters;
+    }
+
+    private RepositoryStatisticsCounters loadCounters( RepositorySession session, String repositoryId )
+        throws MetadataRepositoryException
+    {
+        synchronized ( counters )
+        {
+            RepositoryStatisticsCounters repositoryCounters = counters.get( repositoryId );
+            if ( repositoryCounters == null && !notStored.contains( repositoryId ) )
+            {
+                repositoryCounters = session.getRepository( ).getMetadataFacet( session, repositoryId,
+                    RepositoryStatisticsCounters.class, RepositoryStatisticsCounters.NAME );
+                if ( repositoryCounters == null )
+                {
+                    notStored.add( repositoryId );
+                }
+                else
+                {
+                    counters.put( repositoryId, repositoryCounters );
+                }
+            }
+            return repositoryCounters;
+        }
+    }
+
+    private RepositoryStatisticsCounters getCounters( RepositorySession session, String repositoryId )
+        throws MetadataRepositoryException
+    {
+        RepositoryStatisticsCounters repositoryCounters = loadCounters( session, repositoryId );
+        if ( repositoryCounters == null )
+        {
+            synchronized ( counters )
+            {
+                repositoryCounters = counters.get( repositoryId );
+                if ( repositoryCounters == null )
+                {
+                    repositoryCounters = collectCounters( session, repositoryId );
+                    counters.put( repositoryId, repositoryCounters );
+                    notStored.remove( repositoryId );
+                }
+            }
+        }
+        return repositoryCounters;
+    }
+
+    /*
+     * Counters created by a walk replace the stored counters completely. The stored facet is removed first,
+     * because the metadata stores keep properties that are missing in the updated facet.
+     */
+    private void storeCounters( RepositorySession session, String repositoryId, RepositoryStatisticsCounters repositoryCounters )
+        throws MetadataRepositoryException
+    {
+        if ( collected.remove( repositoryId ) )
+        {
+            session.getRepository( ).removeMetadataFacet( session, repositoryId, RepositoryStatisticsCounters.FACET_ID,
+                RepositoryStatisticsCounters.NAME );
+        }
+        session.getRepository( ).addMetadataFacet( session, repositoryId, repositoryCounters );
+    }
+
+    private RepositoryStatisticsCounters collectCounters( RepositorySession session, String repositoryId )
+        throws MetadataRepositoryException
+    {
+        long start = System.currentTimeMillis( );
+        RepositoryStatisticsCounters repositoryCounters =
+            walkingProvider.collectCounters( session, session.getRepository( ), repositoryId );
+        repositoryCounters.setStamp( start );
+        collected.add( repositoryId );
+        return repositoryCounters;
+    }
+
+    private static RepositoryStatistics createStatistics( String repositoryId, RepositoryStatisticsCounters repositoryCounters )
     {
-        SimpleDateFormat fmt = new SimpleDateFormat( DefaultRepositoryStatistics.SCAN_TIMESTAMP_FORMAT );
-        fmt.setTimeZone( UTC_TIME_ZONE );
-        return fmt;
+        DefaultRepositoryStatistics repositoryStatistics = new DefaultRepositoryStatistics();
+        Date now = new Date( );
+        repositoryStatistics.setRepositoryId( repositoryId );
+        repositoryStatistics.setScanStartTime( now );
+        repositoryStatistics.setScanEndTime( now );
+        repositoryCounters.populateStatistics( repositoryStatistics );
+        return repositoryStatistics;
     }
 
     public RepositorySessionFactory getRepositorySessionFactory( )
@@ -0,0 +1,49 @@
+package org.apache.archiva.metadata.repository.stats;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.facets.AbstractMetadataFacetFactory;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsCounters;
+import org.springframework.stereotype.Service;
+
+/**
+ * Creates the stored statistics counters of a repository.
+ */
+@Service( "metadataFacetFactory#org.apache.archiva.metadata.repository.stats.counters" )
+public class RepositoryStatisticsCountersFactory
+    extends AbstractMetadataFacetFactory<RepositoryStatisticsCounters>
+{
+    protected RepositoryStatisticsCountersFactory( )
+    {
+        super( RepositoryStatisticsCounters.class );
+    }
+
+    @Override
+    public RepositoryStatisticsCounters createMetadataFacet()
+    {
+        return new RepositoryStatisticsCounters();
+    }
+
+    @Override
+    public RepositoryStatisticsCounters createMetadataFacet( String repositoryId, String name )
+    {
+        return new RepositoryStatisticsCounters();
+    }
+}
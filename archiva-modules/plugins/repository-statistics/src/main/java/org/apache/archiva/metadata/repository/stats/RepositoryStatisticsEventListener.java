@@ -0,0 +1,116 @@
+package org.apache.archiva.metadata.repository.stats;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.VersionUtil;
+import org.apache.archiva.metadata.audit.RepositoryListener;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.apache.archiva.metadata.model.ProjectVersionMetadata;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataResolutionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
+import org.apache.archiva.metadata.repository.storage.RepositoryStorageMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Collection;
+
+/**
+ * Updates the repository statistics counters, if artifacts are removed from the repository.
+ * The delete event is sent before the metadata is removed, so the size and type of the
+ * artifact can be retrieved from the metadata repository.
+ */
+@Service( "repositoryListener#repository-statistics" )
+public class RepositoryStatisticsEventListener
+    implements RepositoryListener
+{
+    private Logger log = LoggerFactory.getLogger( RepositoryStatisticsEventListener.class );
+
+    @Inject
+    private RepositorySessionFactory repositorySessionFactory;
+
+    @Inject
+    @Named( value = "repositoryStatisticsManager#default" )
+    private RepositoryStatisticsManager repositoryStatisticsManager;
+
+    @Override
+    public void deleteArtifact( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                String project, String version, String id )
+    {
+        try(RepositorySession session = repositorySessionFactory.createSession())
+        {
+            for ( ArtifactMetadata artifact : metadataRepository.getArtifacts( session, repositoryId, namespace, project,
+                VersionUtil.getBaseVersion( version ) ) )
+            {
+                if ( id.equals( artifact.getId( ) ) )
+                {
+                    repositoryStatisticsManager.artifactRemoved( artifact );
+                }
+            }
+        }
+        catch ( MetadataRepositoryException | MetadataResolutionException e )
+        {
+            log.warn( "Unable to update the repository statistics as part of delete event: {}", e.getMessage(), e );
+        }
+    }
+
+    /*
+     * The artifact metadata is passed with the event, so the project version is not read again
+     */
+    @Override
+    public void deleteArtifacts( MetadataRepository metadataRepository, String repositoryId, String namespace,
+                                 String project, String projectVersion, Collection<ArtifactMetadata> artifacts )
+    {
+        for ( ArtifactMetadata artifact : artifacts )
+        {
+            repositoryStatisticsManager.artifactRemoved( artifact );
+        }
+    }
+
+    @Override
+    public void addArtifact( RepositorySession session, String repoId, String namespace, String projectId,
+                             ProjectVersionMetadata metadata )
+    {
+        // artifact additions are counted by the metadata consumer, that knows the artifact data
+    }
+
+    @Override
+    public void addArtifactProblem( RepositorySession session, String repoId, String namespace, String projectId,
+                                    String projectVersion, RepositoryStorageMetadataException exception )
+    {
+        // no effect on the statistics
+    }
+
+    public void setRepositorySessionFactory( RepositorySessionFactory repositorySessionFactory )
+    {
+        this.repositorySessionFactory = repositorySessionFactory;
+    }
+
+    public void setRepositoryStatisticsManager( RepositoryStatisticsManager repositoryStatisticsManager )
+    {
+        this.repositoryStatisticsManager = repositoryStatisticsManager;
+    }
+}
@@ -20,6 +20,7 @@
  */
 
 import junit.framework.TestCase;
+import org.apache.archiva.metadata.QueryParameter;
 import org.apache.archiva.metadata.model.ArtifactMetadata;
 import org.apache.archiva.metadata.maven.model.MavenArtifactFacet;
 import org.apache.archiva.metadata.repository.MetadataRepository;
@@ -27,6 +28,7 @@
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.metadata.repository.stats.model.DefaultRepositoryStatistics;
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatistics;
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsCounters;
 import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
 import org.easymock.IMocksControl;
 import org.junit.Before;
@@ -37,11 +39,13 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
 
 import static org.easymock.EasyMock.*;
 
@@ -127,8 +131,7 @@ public void testGetLatestStats()
         factoryControl.replay();
         sessionControl.replay();
 
-        expect(metadataRepository.getMetadataFacets(session, TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID)).andReturn(
-                    Arrays.asList(FIRST_TEST_SCAN, SECOND_TEST_SCAN));
+        expectFacetNames( Arrays.asList( FIRST_TEST_SCAN, SECOND_TEST_SCAN ) );
 
         expect(metadataRepository.getMetadataFacet(session, TEST_REPO_ID,
                     DefaultRepositoryStatistics.FACET_ID, SECOND_TEST_SCAN)).andReturn(stats);
@@ -163,8 +166,7 @@ public void testGetLatestStatsWhenEmpty()
         factoryControl.replay();
         sessionControl.replay();
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
-            Collections.<String>emptyList() );
+        expectFacetNames( Collections.<String>emptyList() );
         metadataRepositoryControl.replay();
 
         RepositoryStatistics stats = repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID );
@@ -195,8 +197,7 @@ public void testAddNewStats()
 
         metadataRepository.addMetadataFacet(session , TEST_REPO_ID, stats );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
-            Arrays.asList( stats.getName() ) );
+        expectFacetNames( Arrays.asList( stats.getName() ) );
 
         expect( metadataRepository.getMetadataFacet(session , TEST_REPO_ID,
             DefaultRepositoryStatistics.FACET_ID, stats.getName() ) ).andReturn( stats );
@@ -247,15 +248,13 @@ public void testDeleteStats()
         metadataRepository.addMetadataFacet(session , TEST_REPO_ID, stats2 );
 
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
-            Arrays.asList( stats1.getName(), stats2.getName() ) );
+        List<String> names = new ArrayList<>( Arrays.asList( stats1.getName(), stats2.getName() ) );
+        expectFacetNames( names );
 
         expect( metadataRepository.getMetadataFacet(session , TEST_REPO_ID,
             DefaultRepositoryStatistics.FACET_ID, stats2.getName() ) ).andReturn( stats2 );
         metadataRepository.removeMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID );
-
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
-            Collections.<String>emptyList() );
+        metadataRepository.removeMetadataFacets(session , TEST_REPO_ID, RepositoryStatisticsCounters.FACET_ID );
 
         metadataRepositoryControl.replay();
 
@@ -267,12 +266,129 @@ public void testDeleteStats()
         assertNotNull( repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID ) );
 
         repositoryStatisticsManager.deleteStatistics( TEST_REPO_ID );
+        names.clear();
 
         assertNull( repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID ) );
 
         metadataRepositoryControl.verify();
     }
 
+    @Test
+    public void testCurrentStatsUpdatedByEvents()
+        throws Exception
+    {
+        walkRepository( 1 );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        expect( repositorySessionFactory.createSession( ) ).andStubReturn( session );
+        expect( session.getRepository() ).andStubReturn( metadataRepository );
+        session.close();
+        expectLastCall( ).anyTimes( );
+        factoryControl.replay();
+        sessionControl.replay();
+        metadataRepositoryControl.replay();
+
+        RepositoryStatistics stats = repositoryStatisticsManager.getCurrentStatistics( TEST_REPO_ID );
+        assertEquals( 20, stats.getTotalArtifactCount() );
+        assertEquals( 20 * 12345L, stats.getTotalArtifactFileSize() );
+        assertEquals( 5, stats.getTotalProjectCount() );
+        assertEquals( 4, stats.getTotalGroupCount() );
+        assertEquals( 10, stats.getTotalCountForType( "jar" ) );
+
+        ArtifactMetadata newArtifact = createArtifact( "org.example", "new-project", "1.0", "jar" );
+        newArtifact.setFileLastModified( System.currentTimeMillis() + 60000 );
+        repositoryStatisticsManager.artifactUpdated( newArtifact );
+        // a rescan of the same artifact must not be counted twice
+        repositoryStatisticsManager.artifactUpdated( newArtifact );
+        // an artifact modified before the counters were created is part of the walk
+        ArtifactMetadata oldArtifact = createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "jar" );
+        oldArtifact.setFileLastModified( System.currentTimeMillis() - 60000 );
+        repositoryStatisticsManager.artifactUpdated( oldArtifact );
+        repositoryStatisticsManager.artifactRemoved(
+            createArtifact( "org.codehaus.plexus", "plexus-spring", "1.0", "pom" ) );
+
+        stats = repositoryStatisticsManager.getCurrentStatistics( TEST_REPO_ID );
+        assertEquals( 20, stats.getTotalArtifactCount() );
+        assertEquals( 20 * 12345L, stats.getTotalArtifactFileSize() );
+        assertEquals( 6, stats.getTotalProjectCount() );
+        assertEquals( 5, stats.getTotalGroupCount() );
+        assertEquals( 11, stats.getTotalCountForType( "jar" ) );
+        assertEquals( 9, stats.getTotalCountForType( "pom" ) );
+
+        repositoryStatisticsManager.artifactRemoved( newArtifact );
+        stats = repositoryStatisticsManager.getCurrentStatistics( TEST_REPO_ID );
+        assertEquals( 19, stats.getTotalArtifactCount() );
+        assertEquals( 5, stats.getTotalProjectCount() );
+        assertEquals( 4, stats.getTotalGroupCount() );
+
+        metadataRepositoryControl.verify();
+    }
+
+    @Test
+    public void testEventsIgnoredBeforeCountersCreated()
+        throws Exception
+    {
+        walkRepository( 1 );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        expect( repositorySessionFactory.createSession( ) ).andStubReturn( session );
+        expect( session.getRepository() ).andStubReturn( metadataRepository );
+        session.close();
+        expectLastCall( ).anyTimes( );
+        factoryControl.replay();
+        sessionControl.replay();
+        metadataRepositoryControl.replay();
+
+        // the artifact is part of the walk, that creates the counters
+        repositoryStatisticsManager.artifactUpdated(
+            createArtifact( "org.codehaus.plexus", "plexus-spring", "1.2", "jar" ) );
+
+        RepositoryStatistics stats = repositoryStatisticsManager.getCurrentStatistics( TEST_REPO_ID );
+        assertEquals( 20, stats.getTotalArtifactCount() );
+
+        metadataRepositoryControl.verify();
+    }
+
+    @Test
+    public void testStoredCountersRestoredWithoutWalk()
+        throws Exception
+    {
+        RepositoryStatisticsCounters stored = new RepositoryStatisticsCounters();
+        stored.add( "org.example", "stored-project", 100L, "jar" );
+        stored.add( "org.example", "stored-project", 10L, "pom" );
+        stored.setStamp( System.currentTimeMillis() );
+        RepositoryStatisticsCounters restored = new RepositoryStatisticsCounters();
+        restored.fromProperties( stored.toProperties() );
+
+        sessionControl.reset();
+        factoryControl.reset();
+        expect( repositorySessionFactory.createSession( ) ).andStubReturn( session );
+        expect( session.getRepository() ).andStubReturn( metadataRepository );
+        session.close();
+        expectLastCall( ).anyTimes( );
+        factoryControl.replay();
+        sessionControl.replay();
+
+        expect( metadataRepository.getMetadataFacet( session, TEST_REPO_ID, RepositoryStatisticsCounters.class,
+            RepositoryStatisticsCounters.NAME ) ).andReturn( restored );
+        metadataRepositoryControl.replay();
+
+        ArtifactMetadata newArtifact = createArtifact( "org.example", "new-project", "1.0", "jar" );
+        newArtifact.setFileLastModified( System.currentTimeMillis() + 60000 );
+        repositoryStatisticsManager.artifactUpdated( newArtifact );
+
+        RepositoryStatistics stats = repositoryStatisticsManager.getCurrentStatistics( TEST_REPO_ID );
+        assertEquals( 3, stats.getTotalArtifactCount() );
+        assertEquals( 110L + 12345L, stats.getTotalArtifactFileSize() );
+        assertEquals( 2, stats.getTotalProjectCount() );
+        assertEquals( 1, stats.getTotalGroupCount() );
+        assertEquals( 2, stats.getTotalCountForType( "jar" ) );
+
+        metadataRepositoryControl.verify();
+    }
+
     @Test
     public void testDeleteStatsWhenEmpty()
         throws Exception
@@ -286,9 +402,9 @@ public void testDeleteStatsWhenEmpty()
         factoryControl.replay();
         sessionControl.replay();
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn(
-            Collections.<String>emptyList() ).times( 2 );
+        expectFacetNames( Collections.<String>emptyList() );
         metadataRepository.removeMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID );
+        metadataRepository.removeMetadataFacets(session , TEST_REPO_ID, RepositoryStatisticsCounters.FACET_ID );
 
         metadataRepositoryControl.replay();
 
@@ -325,7 +441,7 @@ public void testGetStatsRangeInside()
 
         ArrayList<String> keys = new ArrayList<>( statsCreated.keySet() );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn( keys );
+        expectFacetNamesInRange( keys );
 
         // only match the middle one
         String key = keys.get( 1 );
@@ -377,7 +493,7 @@ public void testGetStatsRangeUpperOutside()
 
         List<String> keys = new ArrayList<>( statsCreated.keySet() );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn( keys );
+        expectFacetNamesInRange( keys );
 
         String key = keys.get( 1 );
 
@@ -434,7 +550,7 @@ public void testGetStatsRangeLowerOutside()
 
         List<String> keys = new ArrayList<>( statsCreated.keySet() );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn( keys );
+        expectFacetNamesInRange( keys );
 
         String key = keys.get( 0 );
 
@@ -489,7 +605,7 @@ public void testGetStatsRangeLowerAndUpperOutside()
 
         ArrayList<String> keys = new ArrayList<>( statsCreated.keySet() );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn( keys );
+        expectFacetNamesInRange( keys );
 
         String key = keys.get( 0 );
 
@@ -547,7 +663,7 @@ public void testGetStatsRangeNotInside()
 
         ArrayList<String> keys = new ArrayList<>( statsCreated.keySet() );
 
-        expect( metadataRepository.getMetadataFacets(session , TEST_REPO_ID, DefaultRepositoryStatistics.FACET_ID ) ).andReturn( keys );
+        expectFacetNamesInRange( keys );
 
         metadataRepositoryControl.replay();
 
@@ -613,6 +729,47 @@ private DefaultRepositoryStatistics createTestStats( Date startTime, Date endTim
         return stats;
     }
 
+    /*
+     * The names are returned in the requested order and range, like the metadata repository does
+     */
+    private void expectFacetNames( final List<String> names )
+        throws Exception
+    {
+        expect( metadataRepository.getMetadataFacets( eq( session ), eq( TEST_REPO_ID ),
+                                                      eq( DefaultRepositoryStatistics.FACET_ID ),
+                                                      isA( QueryParameter.class ) ) ).andAnswer(
+            () -> getPage( names, (QueryParameter) getCurrentArguments()[3] ) ).atLeastOnce();
+    }
+
+    /*
+     * The names of the range are returned in the requested order, like the metadata repository does
+     */
+    private void expectFacetNamesInRange( final List<String> names )
+        throws Exception
+    {
+        expect( metadataRepository.getMetadataFacets( eq( session ), eq( TEST_REPO_ID ),
+                                                      eq( DefaultRepositoryStatistics.FACET_ID ),
+                                                      anyObject(), anyObject(),
+                                                      isA( QueryParameter.class ) ) ).andAnswer(
+            () -> getRange( names, getCurrentArguments() ) ).atLeastOnce();
+    }
+
+    private static List<String> getRange( List<String> names, Object[] arguments )
+    {
+        String fromName = (String) arguments[3];
+        String toName = (String) arguments[4];
+        return getPage( names.stream().filter( name -> fromName == null || name.compareTo( fromName ) >= 0 ).filter(
+            name -> toName == null || name.compareTo( toName ) <= 0 ).collect( Collectors.toList() ),
+                        (QueryParameter) arguments[5] );
+    }
+
+    private static List<String> getPage( List<String> names, QueryParameter queryParameter )
+    {
+        return names.stream().sorted( queryParameter.isAscending() ? Comparator.<String>naturalOrder()
+                                          : Comparator.<String>reverseOrder() ).skip( queryParameter.getOffset() ).limit(
+            queryParameter.getLimit() ).collect( Collectors.toList() );
+    }
+
     private void walkRepository( int count )
         throws Exception
     {
@@ -620,6 +777,14 @@ private void walkRepository( int count )
         expect( repositorySessionFactory.createSession( ) ).andStubReturn( session );
         factoryControl.replay();
 
+        expect( metadataRepository.getMetadataFacet( session, TEST_REPO_ID, RepositoryStatisticsCounters.class,
+            RepositoryStatisticsCounters.NAME ) ).andReturn( null ).anyTimes();
+        metadataRepository.addMetadataFacet( eq( session ), eq( TEST_REPO_ID ), isA( RepositoryStatisticsCounters.class ) );
+        expectLastCall().anyTimes();
+        metadataRepository.removeMetadataFacet( session, TEST_REPO_ID, RepositoryStatisticsCounters.FACET_ID,
+            RepositoryStatisticsCounters.NAME );
+        expectLastCall().anyTimes();
+
         for ( int i = 0; i < count; i++ )
         {
 